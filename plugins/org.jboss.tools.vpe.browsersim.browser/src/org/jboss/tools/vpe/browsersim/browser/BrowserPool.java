@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2014 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.browsersim.browser;
+
+import java.util.LinkedList;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.SWTError;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+import org.jboss.tools.vpe.browsersim.browser.javafx.JavaFXBrowser;
+
+/**
+ * Hidden browsers handed out by {@link WebKitBrowserFactory} instead of creating new ones.
+ * <p>
+ * The pool is disabled until {@link #setSize(int)} is called. The browsers of an engine are created
+ * one per UI event loop pass after the engine has been requested once, so an engine which is not used
+ * (or not available) is never loaded. An engine which has failed to load is not warmed up any more. Browsers returned by {@link #release(IBrowser)} are reused if they
+ * can be reset, they become idle when their reset completes, see {@link IReusableBrowser}.
+ * <p>
+ * All methods must be called from the UI thread.
+ */
+public class BrowserPool {
+	private static final EnginePool WEBKIT_POOL = new EnginePool(false);
+	private static final EnginePool JAVAFX_POOL = new EnginePool(true);
+	private static int size;
+	private static Shell hiddenShell;
+
+	private BrowserPool() {
+	}
+
+	/**
+	 * Sets the number of idle browsers kept for every engine, {@code 0} disables the pool and disposes
+	 * the idle browsers
+	 */
+	public static void setSize(int size) {
+		BrowserPool.size = Math.max(size, 0);
+		WEBKIT_POOL.trim();
+		JAVAFX_POOL.trim();
+		WEBKIT_POOL.scheduleWarmUp();
+		JAVAFX_POOL.scheduleWarmUp();
+	}
+
+	public static int getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns an idle browser moved to the {@code parent} or {@code null} if there is no one
+	 */
+	static IBrowser acquire(Composite parent, int style, boolean isJavaFx) {
+		if (size == 0 || (style & ~SWT.WEBKIT) != 0) { // idle browsers are created with the default style
+			return null;
+		}
+		return getEnginePool(isJavaFx).acquire(parent);
+	}
+
+	/**
+	 * Takes the browser back to the pool if it is enabled and the browser can be reset, otherwise disposes it.
+	 * The caller must not use the browser after that.
+	 *
+	 * @return {@code true} if the browser has been taken to the pool
+	 */
+	public static boolean release(IBrowser browser) {
+		if (browser.isDisposed()) {
+			return false;
+		}
+		return getEnginePool(browser instanceof JavaFXBrowser).release(browser);
+	}
+
+	/**
+	 * Returns the number of idle browsers of the engine
+	 */
+	public static int getIdleCount(boolean isJavaFx) {
+		return getEnginePool(isJavaFx).idleBrowsers.size();
+	}
+
+	/**
+	 * Returns the number of requests of the engine browsers served by idle browsers
+	 */
+	public static long getHitCount(boolean isJavaFx) {
+		return getEnginePool(isJavaFx).hitCount;
+	}
+
+	/**
+	 * Returns the number of requests of the engine browsers which have created new browsers
+	 */
+	public static long getMissCount(boolean isJavaFx) {
+		return getEnginePool(isJavaFx).missCount;
+	}
+
+	/**
+	 * Returns the share of the requests served by idle browsers, from {@code 0.0} to {@code 1.0}
+	 */
+	public static double getHitRate(boolean isJavaFx) {
+		EnginePool pool = getEnginePool(isJavaFx);
+		long requestCount = pool.hitCount + pool.missCount;
+		return requestCount > 0 ? (double) pool.hitCount / requestCount : 0.0;
+	}
+
+	private static EnginePool getEnginePool(boolean isJavaFx) {
+		return isJavaFx ? JAVAFX_POOL : WEBKIT_POOL;
+	}
+
+	private static Shell getHiddenShell() {
+		if (hiddenShell == null || hiddenShell.isDisposed()) {
+			hiddenShell = new Shell(Display.getDefault()); // is never opened
+		}
+		return hiddenShell;
+	}
+
+	private static class EnginePool {
+		private final boolean isJavaFx;
+		private final LinkedList<IBrowser> idleBrowsers = new LinkedList<IBrowser>();
+		private int resettingCount; // released browsers waiting for their reset to complete
+		private boolean requested;
+		private boolean warmUpScheduled;
+		private boolean warmUpFailed;
+		private long hitCount;
+		private long missCount;
+		private final Runnable warmUp = new Runnable() {
+			@Override
+			public void run() {
+				warmUpScheduled = false;
+				if (!requested || idleBrowsers.size() + resettingCount >= size) {
+					return;
+				}
+				try {
+					idleBrowsers.add(new WebKitBrowserFactory().createNewBrowser(getHiddenShell(), SWT.NONE, isJavaFx));
+				} catch (SWTError e) { // the engine cannot be loaded, e.g. Safari is not installed
+					warmUpFailed = true;
+					e.printStackTrace();
+					return;
+				}
+				scheduleWarmUp();
+			}
+		};
+
+		public EnginePool(boolean isJavaFx) {
+			this.isJavaFx = isJavaFx;
+		}
+
+		public IBrowser acquire(Composite parent) {
+			requested = true;
+			IBrowser browser = null;
+			while (browser == null && !idleBrowsers.isEmpty()) {
+				IBrowser idleBrowser = idleBrowsers.removeFirst();
+				if (idleBrowser.isDisposed()) { // the display has been disposed
+					continue;
+				}
+				if (idleBrowser.setParent(parent)) {
+					browser = idleBrowser;
+				} else {
+					idleBrowser.dispose();
+				}
+			}
+
+			if (browser != null) {
+				hitCount++;
+			} else {
+				missCount++;
+			}
+			scheduleWarmUp();
+			return browser;
+		}
+
+		public boolean release(final IBrowser browser) {
+			if (size > 0 && idleBrowsers.size() + resettingCount < size && browser instanceof IReusableBrowser
+					&& browser.setParent(getHiddenShell())) {
+				browser.setLayoutData(null);
+				resettingCount++;
+				boolean resetting = ((IReusableBrowser) browser).reset(new Runnable() {
+					@Override
+					public void run() {
+						resettingCount--;
+						if (browser.isDisposed()) { // the display has been disposed
+							return;
+						}
+						if (idleBrowsers.size() < size) {
+							idleBrowsers.add(browser);
+						} else { // the pool has been shrunk meanwhile
+							browser.dispose();
+						}
+					}
+				});
+				if (resetting) {
+					return true;
+				}
+				resettingCount--;
+			}
+			browser.dispose();
+			return false;
+		}
+
+		public void trim() {
+			while (idleBrowsers.size() > size) {
+				IBrowser browser = idleBrowsers.removeLast();
+				if (!browser.isDisposed()) {
+					browser.dispose();
+				}
+			}
+		}
+
+		/**
+		 * Creates the missing browsers one by one, so the UI handles its events in between
+		 */
+		public void scheduleWarmUp() {
+			if (requested && !warmUpFailed && !warmUpScheduled && idleBrowsers.size() + resettingCount < size) {
+				warmUpScheduled = true;
+				Display.getDefault().asyncExec(warmUp);
+			}
+		}
+	}
+}
@@ -0,0 +1,26 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2014 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.browsersim.browser;
+
+/**
+ * Browser which can be returned to the {@link BrowserPool} and handed out again
+ */
+public interface IReusableBrowser extends IBrowser {
+	/**
+	 * Removes the listeners added to the browser, unloads the page with its browser functions,
+	 * clears the history and the user agent. Unloading completes asynchronously, so the browser must not
+	 * be handed out before the {@code callback} is run on the UI thread.
+	 *
+	 * @return {@code false} if the browser cannot be reset and has to be disposed, the {@code callback}
+	 * is not run then
+	 */
+	boolean reset(Runnable callback);
+}
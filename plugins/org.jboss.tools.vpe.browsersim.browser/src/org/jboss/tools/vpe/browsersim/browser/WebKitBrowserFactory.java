@@ -30,6 +30,14 @@ public class WebKitBrowserFactory implements IBrowserSimBrowserFactory {
 	
 	@Override
 	public IBrowser createBrowser(Composite parent, int style, boolean isJavaFx) {
+		IBrowser browser = BrowserPool.acquire(parent, style, isJavaFx);
+		if (browser != null) {
+			return browser;
+		}
+		return createNewBrowser(parent, style, isJavaFx);
+	}
+
+	IBrowser createNewBrowser(Composite parent, int style, boolean isJavaFx) {
 		if (isJavaFx) {
 			return new JavaFXBrowser(parent);
 		}
@@ -3,8 +3,10 @@ package org.jboss.tools.vpe.browsersim.browser.javafx;
 import java.util.ArrayList;
 import java.util.List;
 
+import javafx.beans.property.ReadOnlyObjectProperty;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
+import javafx.concurrent.Worker.State;
 import javafx.embed.swt.FXCanvas;
 import javafx.event.EventHandler;
 import javafx.scene.Scene;
@@ -12,6 +14,7 @@ import javafx.scene.web.PopupFeatures;
 import javafx.scene.web.PromptData;
 import javafx.scene.web.WebEngine;
 import javafx.scene.web.WebEvent;
+import javafx.scene.web.WebHistory;
 import javafx.scene.web.WebView;
 import javafx.util.Callback;
 import netscape.javascript.JSException;
@@ -26,6 +29,7 @@ import org.eclipse.swt.browser.ProgressListener;
 import org.eclipse.swt.browser.StatusTextListener;
 import org.eclipse.swt.browser.TitleEvent;
 import org.eclipse.swt.browser.TitleListener;
+import org.eclipse.swt.events.DisposeListener;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.MessageBox;
 import org.jboss.tools.vpe.browsersim.browser.ExtendedCloseWindowListener;
@@ -35,10 +39,11 @@ import org.jboss.tools.vpe.browsersim.browser.ExtendedWindowEvent;
 import org.jboss.tools.vpe.browsersim.browser.IBrowser;
 import org.jboss.tools.vpe.browsersim.browser.IBrowserFunction;
 import org.jboss.tools.vpe.browsersim.browser.IDisposable;
+import org.jboss.tools.vpe.browsersim.browser.IReusableBrowser;
 
 import com.sun.javafx.scene.web.Debugger;
 
-public class JavaFXBrowser extends FXCanvas implements IBrowser {
+public class JavaFXBrowser extends FXCanvas implements IReusableBrowser {
 	private WebView webView;
 	private List<ExtendedCloseWindowListener> closeWindowListeners = new ArrayList<ExtendedCloseWindowListener>();
 	private List<LocationListener> locationListeners = new ArrayList<LocationListener>();
@@ -47,6 +52,7 @@ public class JavaFXBrowser extends FXCanvas implements IBrowser {
 	private List<ExtendedOpenWindowListener> openWindowListeners = new ArrayList<ExtendedOpenWindowListener>();
 	private List<ProgressListener> progressListeners = new ArrayList<ProgressListener>();
 	private List<ExtendedVisibilityWindowListener> visibilityWindowListeners = new ArrayList<ExtendedVisibilityWindowListener>();
+	private List<DisposeListener> disposeListeners = new ArrayList<DisposeListener>();
 	
 	public JavaFXBrowser(Composite parent) {
 		super(parent, SWT.NONE);
@@ -253,6 +259,56 @@ public class JavaFXBrowser extends FXCanvas implements IBrowser {
 		visibilityWindowListeners.remove(listener);
 	}
 
+	@Override
+	public void addDisposeListener(DisposeListener listener) {
+		super.addDisposeListener(listener);
+		disposeListeners.add(listener);
+	}
+
+	@Override
+	public void removeDisposeListener(DisposeListener listener) {
+		super.removeDisposeListener(listener);
+		disposeListeners.remove(listener);
+	}
+
+	@Override
+	public boolean reset(final Runnable callback) {
+		closeWindowListeners.clear();
+		locationListeners.clear();
+		titleListeners.clear();
+		statusTextListeners.clear();
+		openWindowListeners.clear();
+		progressListeners.clear();
+		visibilityWindowListeners.clear();
+		for (DisposeListener listener : disposeListeners) {
+			super.removeDisposeListener(listener);
+		}
+		disposeListeners.clear();
+
+		setUserAgent(null);
+		final ReadOnlyObjectProperty<State> state = getEngine().getLoadWorker().stateProperty();
+		state.addListener(new ChangeListener<State>() {
+			@Override
+			public void changed(ObservableValue<? extends State> observable, State oldValue, State newValue) {
+				// the blank page is an entry of the history too, so it is cleared when the page is loaded
+				if (newValue == State.SUCCEEDED || newValue == State.FAILED) {
+					state.removeListener(this);
+					clearHistory();
+					callback.run(); // FXCanvas runs JavaFX on the SWT UI thread
+				}
+			}
+		});
+		getEngine().load("about:blank"); // browser functions are members of the unloaded window
+		return true;
+	}
+
+	private void clearHistory() {
+		WebHistory history = getEngine().getHistory();
+		int maxSize = history.getMaxSize();
+		history.setMaxSize(0); // removes all entries
+		history.setMaxSize(maxSize);
+	}
+
 	@Override
 	public boolean back() {
 		boolean success = isBackEnabled();
@@ -0,0 +1,6 @@
+package javafx.beans.property;
+
+import javafx.beans.value.ObservableValue;
+
+public abstract class ReadOnlyObjectProperty<T> implements ReadOnlyProperty<T>, ObservableValue<T> {
+}
@@ -0,0 +1,39 @@
+package javafx.beans.property;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.beans.value.ChangeListener;
+
+public class SimpleDoubleProperty extends ReadOnlyDoubleProperty {
+	private final List<ChangeListener<? super Number>> listeners = new ArrayList<ChangeListener<? super Number>>();
+	private double value;
+
+	public SimpleDoubleProperty(double initialValue) {
+		value = initialValue;
+	}
+
+	public double get() {
+		return value;
+	}
+
+	public void set(double newValue) {
+		double oldValue = value;
+		value = newValue;
+		if (oldValue != newValue) {
+			for (ChangeListener<? super Number> listener : new ArrayList<ChangeListener<? super Number>>(listeners)) {
+				listener.changed(this, oldValue, newValue);
+			}
+		}
+	}
+
+	@Override
+	public void addListener(ChangeListener<? super Number> listener) {
+		listeners.add(listener);
+	}
+
+	@Override
+	public void removeListener(ChangeListener<? super Number> listener) {
+		listeners.remove(listener);
+	}
+}
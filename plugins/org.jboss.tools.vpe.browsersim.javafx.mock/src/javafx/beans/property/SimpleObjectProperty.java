@@ -0,0 +1,39 @@
+package javafx.beans.property;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.beans.value.ChangeListener;
+
+public class SimpleObjectProperty<T> extends ReadOnlyObjectProperty<T> {
+	private final List<ChangeListener<? super T>> listeners = new ArrayList<ChangeListener<? super T>>();
+	private T value;
+
+	public SimpleObjectProperty(T initialValue) {
+		value = initialValue;
+	}
+
+	public T get() {
+		return value;
+	}
+
+	public void set(T newValue) {
+		T oldValue = value;
+		value = newValue;
+		if (oldValue == null ? newValue != null : !oldValue.equals(newValue)) {
+			for (ChangeListener<? super T> listener : new ArrayList<ChangeListener<? super T>>(listeners)) {
+				listener.changed(this, oldValue, newValue);
+			}
+		}
+	}
+
+	@Override
+	public void addListener(ChangeListener<? super T> listener) {
+		listeners.add(listener);
+	}
+
+	@Override
+	public void removeListener(ChangeListener<? super T> listener) {
+		listeners.remove(listener);
+	}
+}
@@ -0,0 +1,39 @@
+package javafx.beans.property;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.beans.value.ChangeListener;
+
+public class SimpleStringProperty extends ReadOnlyStringProperty {
+	private final List<ChangeListener<? super String>> listeners = new ArrayList<ChangeListener<? super String>>();
+	private String value;
+
+	public SimpleStringProperty(String initialValue) {
+		value = initialValue;
+	}
+
+	public String get() {
+		return value;
+	}
+
+	public void set(String newValue) {
+		String oldValue = value;
+		value = newValue;
+		if (oldValue == null ? newValue != null : !oldValue.equals(newValue)) {
+			for (ChangeListener<? super String> listener : new ArrayList<ChangeListener<? super String>>(listeners)) {
+				listener.changed(this, oldValue, newValue);
+			}
+		}
+	}
+
+	@Override
+	public void addListener(ChangeListener<? super String> listener) {
+		listeners.add(listener);
+	}
+
+	@Override
+	public void removeListener(ChangeListener<? super String> listener) {
+		listeners.remove(listener);
+	}
+}
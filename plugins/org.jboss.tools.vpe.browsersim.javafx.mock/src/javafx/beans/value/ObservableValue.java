@@ -4,4 +4,6 @@ import javafx.beans.Observable;
 
 public interface ObservableValue<T> extends Observable {
 	void addListener(ChangeListener<? super T> listener);
+
+	void removeListener(ChangeListener<? super T> listener);
 }
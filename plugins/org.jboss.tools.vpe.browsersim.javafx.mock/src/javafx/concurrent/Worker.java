@@ -1,7 +1,14 @@
 package javafx.concurrent;
 
 import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyObjectProperty;
 
 public interface Worker<V> {
+	public enum State {
+		READY, SCHEDULED, RUNNING, SUCCEEDED, CANCELLED, FAILED
+	}
+
 	public ReadOnlyDoubleProperty progressProperty(); 
+
+	public ReadOnlyObjectProperty<State> stateProperty();
 }
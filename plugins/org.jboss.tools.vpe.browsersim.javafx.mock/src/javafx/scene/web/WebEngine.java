@@ -1,27 +1,52 @@
 package javafx.scene.web;
 
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyObjectProperty;
 import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.SimpleStringProperty;
 import javafx.concurrent.Worker;
 import javafx.event.EventHandler;
 import javafx.util.Callback;
 
+import org.eclipse.swt.widgets.Display;
+
 import com.sun.javafx.scene.web.Debugger;
 
+/**
+ * Loads nothing, a load completes on the next pass of the SWT event loop
+ */
 public class WebEngine {
+	private final LoadWorker loadWorker = new LoadWorker();
+	private final SimpleStringProperty title = new SimpleStringProperty(null);
+	private final WebHistory history = new WebHistory();
+	private final Debugger debugger = new Debugger() {
+		@Override
+		public void setEnabled(boolean b) { }
+
+		@Override
+		public void sendMessage(String string) { }
+
+		@Override
+		public void setMessageCallback(Callback<?, ?> callback) { }
+	};
+	private String location;
+
 	public final Worker<Void> getLoadWorker() { 
-		return null;
+		return loadWorker;
 	}
 
 	public Debugger impl_getDebugger() {
-		return null;
+		return debugger;
 	}
 
 	public String getLocation() {
-		return null;
+		return location;
 	}
 
 	public final ReadOnlyStringProperty titleProperty() {
-		return null;
+		return title;
 	}
 
 	public void setOnAlert(EventHandler<WebEvent<String>> eventHandler) { }
@@ -36,9 +61,41 @@ public class WebEngine {
 
 	public Object executeScript(String string) { return null; }
 
-	public WebHistory getHistory() { return null; }
+	public WebHistory getHistory() { return history; }
 
-	public void reload() { }
+	public void reload() {
+		if (location != null) {
+			load(location);
+		}
+	}
 
-	public void load(String location) { } 
+	public void load(final String location) {
+		loadWorker.progress.set(0.0);
+		loadWorker.state.set(Worker.State.SCHEDULED);
+		Display.getDefault().asyncExec(new Runnable() {
+			@Override
+			public void run() {
+				WebEngine.this.location = location;
+				history.add(location);
+				loadWorker.state.set(Worker.State.RUNNING);
+				loadWorker.progress.set(1.0);
+				loadWorker.state.set(Worker.State.SUCCEEDED);
+			}
+		});
+	} 
+
+	private static class LoadWorker implements Worker<Void> {
+		private final SimpleDoubleProperty progress = new SimpleDoubleProperty(0.0);
+		private final SimpleObjectProperty<State> state = new SimpleObjectProperty<State>(State.READY);
+
+		@Override
+		public ReadOnlyDoubleProperty progressProperty() {
+			return progress;
+		}
+
+		@Override
+		public ReadOnlyObjectProperty<State> stateProperty() {
+			return state;
+		}
+	}
 }
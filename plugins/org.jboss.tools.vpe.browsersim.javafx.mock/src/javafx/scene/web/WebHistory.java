@@ -1,15 +1,65 @@
 package javafx.scene.web;
 
+import java.util.ArrayList;
+
 import javafx.collections.ObservableList;
 
 public class WebHistory {
-	public void go(int offset) throws IndexOutOfBoundsException { }
+	private final EntryList entries = new EntryList();
+	private int currentIndex;
+	private int maxSize = 100;
+
+	public void go(int offset) throws IndexOutOfBoundsException {
+		int index = currentIndex + offset;
+		if (index < 0 || index >= entries.size()) {
+			throw new IndexOutOfBoundsException();
+		}
+		currentIndex = index;
+	}
+
+	public int getCurrentIndex() { return currentIndex; }
 
-	public int getCurrentIndex() { return 0; }
+	public int getMaxSize() { return maxSize; }
+
+	public void setMaxSize(int value) {
+		maxSize = value;
+		trim();
+	}
 
 	public ObservableList<Entry> getEntries() {
-		return null;
+		return entries;
+	}
+
+	void add(String url) {
+		while (entries.size() > currentIndex + 1) {
+			entries.remove(entries.size() - 1);
+		}
+		entries.add(new Entry(url));
+		currentIndex = entries.size() - 1;
+		trim();
+	}
+
+	private void trim() {
+		while (entries.size() > maxSize) {
+			entries.remove(0);
+			currentIndex--;
+		}
+		currentIndex = Math.max(currentIndex, 0);
 	}
 	
-	public final class Entry { }
+	public final class Entry {
+		private final String url;
+
+		Entry(String url) {
+			this.url = url;
+		}
+
+		public String getUrl() {
+			return url;
+		}
+	}
+
+	private static class EntryList extends ArrayList<Entry> implements ObservableList<Entry> {
+		private static final long serialVersionUID = 1L;
+	}
 }
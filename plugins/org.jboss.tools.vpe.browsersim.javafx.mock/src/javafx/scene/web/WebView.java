@@ -3,9 +3,10 @@ package javafx.scene.web;
 import javafx.scene.Parent;
 
 final public class WebView extends Parent {
+	private final WebEngine engine = new WebEngine();
 
 	public WebEngine getEngine() {
-		return null;
+		return engine;
 	}
 
 }
@@ -21,9 +21,13 @@ import java.util.List;
  */
 public class BrowserSimArgs {
 	public static final String NOT_STANDALONE = "-not-standalone"; //$NON-NLS-1$
+	public static final String BROWSER_POOL = "-browserpool"; //$NON-NLS-1$ number of hidden browsers kept for every engine
+	public static final String TIMING = "-timing"; //$NON-NLS-1$ statistics of the injected scripts are logged after every page load
 	private String path;
 	public static boolean standalone;
 	public static int debuggerPort;
+	public static int browserPoolSize;
+	public static boolean timingLog;
 	
 	private BrowserSimArgs(String path, boolean isStandalone) {
 		this.path = path;
@@ -37,6 +41,21 @@ public class BrowserSimArgs {
 			params.remove(NOT_STANDALONE);
 		}
 		
+		int browserPoolParameterIndex = params.indexOf(BROWSER_POOL);
+		if (browserPoolParameterIndex >= 0) {
+			params.remove(browserPoolParameterIndex);
+			try {
+				browserPoolSize = Integer.parseInt(params.remove(browserPoolParameterIndex));
+			} catch (NumberFormatException e) {
+				BrowserSimLogger.logError("Incorrect browser pool size", e); //$NON-NLS-1$
+				browserPoolSize = 0;
+			}
+		} else {
+			browserPoolSize = 0;
+		}
+		
+		timingLog = params.remove(TIMING);
+		
 		String path;
 		if (params.size() > 0) {
 			path = params.get(params.size() - 1);
@@ -18,6 +18,7 @@ import java.io.PrintStream;
 public class BrowserSimLogger {
 	private static final String LOG_COMMAND = "org.jboss.tools.vpe.browsersim.command.log:"; //$NON-NLS-1$
 	private static final String LOG_END_SRING = "org.jboss.tools.vpe.browsersim.command.log.end"; //$NON-NLS-1$
+	private static final String TIMING_PREFIX = "BrowserSim timing: "; //$NON-NLS-1$
 	
 	public static void logError(String message, Throwable throwable) {
 		logError(message, throwable, BrowserSimRunner.PLUGIN_ID);
@@ -33,6 +34,16 @@ public class BrowserSimLogger {
 		}
 	}
 
+	/**
+	 * Logs the {@code message} if the timing log is enabled (see "-timing" argument). Goes to {@link System#err},
+	 * because {@link System#out} is the command channel to Eclipse.
+	 */
+	public static void logTiming(String message) {
+		if (BrowserSimArgs.timingLog) {
+			System.err.println(TIMING_PREFIX + message);
+		}
+	}
+
 	private static void logError(PrintStream printStream, String message,
 			Throwable throwable, String pluginId) {
 		printStream.println(pluginId);
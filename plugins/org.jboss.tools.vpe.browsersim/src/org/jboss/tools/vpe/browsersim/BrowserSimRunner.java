@@ -17,6 +17,7 @@ import org.eclipse.swt.SWT;
 import org.eclipse.swt.SWTError;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Shell;
+import org.jboss.tools.vpe.browsersim.browser.BrowserPool;
 import org.jboss.tools.vpe.browsersim.browser.PlatformUtil;
 import org.jboss.tools.vpe.browsersim.browser.javafx.JavaFXBrowser;
 import org.jboss.tools.vpe.browsersim.devtools.DevToolsDebuggerServer;
@@ -61,6 +62,7 @@ public class BrowserSimRunner {
 		Display display = null;
 		try {
 			BrowserSimArgs browserSimArgs = BrowserSimArgs.parseArgs(args);
+			BrowserPool.setSize(BrowserSimArgs.browserPoolSize);
 			
 			String path = browserSimArgs.getPath();
 			String url;
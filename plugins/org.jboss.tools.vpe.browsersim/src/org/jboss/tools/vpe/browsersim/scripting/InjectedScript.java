@@ -0,0 +1,28 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2014 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.browsersim.scripting;
+
+import org.eclipse.swt.browser.LocationEvent;
+import org.jboss.tools.vpe.browsersim.browser.IBrowser;
+
+/**
+ * Script of a feature injected by the {@link ScriptInjector} on every location change
+ */
+public interface InjectedScript {
+	/**
+	 * Returns the script for the new location or {@code null} if nothing has to be injected. The method may
+	 * prepare the browser for the script, e.g. register browser functions called by it.
+	 * <p>
+	 * The script is run in a function scope, so globals must be defined as properties of {@code window}.
+	 * Returning the same string instance on every call lets the injector reuse the combined script.
+	 */
+	String getScript(IBrowser browser, LocationEvent event);
+}
@@ -0,0 +1,246 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2014 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.browsersim.scripting;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.jetty.util.ajax.JSON;
+import org.eclipse.swt.browser.LocationEvent;
+import org.jboss.tools.vpe.browsersim.BrowserSimLogger;
+import org.jboss.tools.vpe.browsersim.browser.IBrowser;
+import org.jboss.tools.vpe.browsersim.browser.IBrowserFunction;
+import org.jboss.tools.vpe.browsersim.browser.IDisposable;
+
+/**
+ * The only browser function of the page, all calls from JavaScript to Java go through it.
+ * <p>
+ * Functions added to the bridge are defined in the page as JavaScript functions putting typed messages
+ * into a queue. The queue is sent to Java as one JSON array per animation frame, so frequent events
+ * like scrolling or logging cross the native boundary once per frame. {@link Delivery#SYNC} functions
+ * send the queue immediately and return the result of the handler.
+ * <p>
+ * The bridge is injected by the {@link ScriptInjector} before the scripts using its functions.
+ */
+public class MessageBridge implements InjectedScript {
+	public static final String FEATURE = "messageBridge"; //$NON-NLS-1$
+	private static final String BRIDGE_FUNCTION_NAME = "_browserSimBridge"; //$NON-NLS-1$
+
+	public enum Delivery {
+		/** The page waits for the handler, queued messages are delivered before */
+		SYNC("send"), //$NON-NLS-1$
+		/** The message is delivered with the next animation frame */
+		BATCHED("post"), //$NON-NLS-1$
+		/** Like {@link #BATCHED}, but only the last message of the function is delivered in a frame */
+		LATEST("postLatest"); //$NON-NLS-1$
+
+		private final String jsMethod;
+
+		private Delivery(String jsMethod) {
+			this.jsMethod = jsMethod;
+		}
+	}
+
+	private final IBrowser browser;
+	private final Map<String, Function> functions = new LinkedHashMap<String, Function>();
+	private IDisposable bridgeFunction;
+	private String script; // null when the functions have changed
+	private boolean injected;
+
+	public MessageBridge(IBrowser browser) {
+		this.browser = browser;
+	}
+
+	/**
+	 * Defines the JavaScript function {@code window[name]} calling the {@code handler}, replacing the previous one
+	 * with the same name. Numbers are passed to the handler as {@link Double}, objects as strings.
+	 */
+	public void addFunction(String name, Delivery delivery, IBrowserFunction handler) {
+		functions.put(name, new Function(delivery, handler));
+		script = null;
+		if (injected) { // the page is already loaded
+			browser.execute("if (window._bsBridge) {" + getFunctionScript(name, delivery) + "}"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	public void removeFunction(String name) {
+		if (functions.remove(name) != null) {
+			script = null;
+		}
+	}
+
+	@Override
+	public String getScript(IBrowser browser, LocationEvent event) {
+		if (bridgeFunction != null && !bridgeFunction.isDisposed()) {
+			bridgeFunction.dispose();
+		}
+		bridgeFunction = browser.registerBrowserFunction(BRIDGE_FUNCTION_NAME, new IBrowserFunction() {
+			@Override
+			public Object function(Object[] arguments) {
+				return dispatch(arguments);
+			}
+		});
+		injected = true;
+
+		if (script == null) {
+			script = createScript();
+		}
+		return script;
+	}
+
+	private Object dispatch(Object[] arguments) {
+		if (arguments == null || arguments.length == 0 || !(arguments[0] instanceof String)) {
+			return null;
+		}
+		Object messages;
+		try {
+			messages = JSON.parse((String) arguments[0]);
+		} catch (RuntimeException e) { // the page has broken JSON.stringify
+			BrowserSimLogger.logError(e.getMessage(), e);
+			return null;
+		}
+		if (!(messages instanceof Object[])) {
+			BrowserSimLogger.logError("Malformed message batch is skipped: " + arguments[0], null); //$NON-NLS-1$
+			return null;
+		}
+
+		Object result = null;
+		for (Object message : (Object[]) messages) { // the last one is the SYNC message, if any
+			result = null;
+			if (!isWellFormed(message)) { // the page has replaced the bridge or the queue, the rest of the batch is still delivered
+				BrowserSimLogger.logError("Malformed message is skipped: " + JSON.toString(message), null); //$NON-NLS-1$
+				continue;
+			}
+			Object[] typeAndArguments = (Object[]) message;
+			Function function = functions.get(typeAndArguments[0]);
+			if (function != null) {
+				try {
+					result = function.handler.function(toBrowserFunctionArguments((Object[]) typeAndArguments[1]));
+				} catch (RuntimeException e) { // the rest of the batch is still delivered, the page gets no exception
+					BrowserSimLogger.logError(e.getMessage(), e);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns {@code true} if the {@code message} is an array of the function name and the array of its arguments
+	 */
+	private static boolean isWellFormed(Object message) {
+		if (!(message instanceof Object[])) {
+			return false;
+		}
+		Object[] typeAndArguments = (Object[]) message;
+		return typeAndArguments.length >= 2 && typeAndArguments[0] instanceof String && typeAndArguments[1] instanceof Object[];
+	}
+
+	/**
+	 * Converts the values to the types {@link IBrowserFunction}s get from the browser
+	 */
+	private static Object[] toBrowserFunctionArguments(Object[] values) {
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] instanceof Long) {
+				values[i] = ((Long) values[i]).doubleValue();
+			} else if (values[i] instanceof Object[]) {
+				toBrowserFunctionArguments((Object[]) values[i]);
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * The bridge survives location changes of frames, so the messages queued by the page are not lost.
+	 * JSON.stringify and requestAnimationFrame are remembered before the scripts of the page may replace them.
+	 */
+	@SuppressWarnings("nls")
+	private String createScript() {
+		StringBuilder script = new StringBuilder();
+		script.append("if (!window._bsBridge) {")
+			.append(	"window._bsBridge = (function() {")
+			.append(		"var queue = [];")
+			.append(		"var scheduled = false;")
+			.append(		"var stringify = JSON.stringify;")
+			.append(		"var requestFrame = window.requestAnimationFrame || window.webkitRequestAnimationFrame")
+			.append(				"|| function(callback) {setTimeout(callback, 16);};")
+			.append(		"var toValue = function(arg) {")
+			.append(			"if (arg === undefined) {")
+			.append(				"return null;")
+			.append(			"}")
+			.append(			"return (arg !== null && typeof arg === 'object' && !(arg instanceof Array)) || typeof arg === 'function' ? String(arg) : arg;")
+			.append(		"};")
+			.append(		"var enqueue = function(type, args) {")
+			.append(			"var values = [];")
+			.append(			"for (var i = 0; i < args.length; i++) {")
+			.append(				"values.push(toValue(args[i]));")
+			.append(			"}")
+			.append(			"queue.push([type, values]);")
+			.append(		"};")
+			.append(		"var flush = function() {")
+			.append(			"scheduled = false;")
+			.append(			"if (queue.length > 0 && window.").append(BRIDGE_FUNCTION_NAME).append(") {")
+			.append(				"var messages = queue;")
+			.append(				"queue = [];")
+			.append(				"return window.").append(BRIDGE_FUNCTION_NAME).append("(stringify(messages));")
+			.append(			"}")
+			.append(		"};")
+			.append(		"var schedule = function() {")
+			.append(			"if (!scheduled) {")
+			.append(				"scheduled = true;")
+			.append(				"requestFrame.call(window, flush);")
+			.append(			"}")
+			.append(		"};")
+			.append(		"window.addEventListener('beforeunload', flush);")
+			.append(		"return {")
+			.append(			"send: function(type, args) {")
+			.append(				"enqueue(type, args);")
+			.append(				"return flush();")
+			.append(			"},")
+			.append(			"post: function(type, args) {")
+			.append(				"enqueue(type, args);")
+			.append(				"schedule();")
+			.append(			"},")
+			.append(			"postLatest: function(type, args) {")
+			.append(				"for (var i = queue.length - 1; i >= 0; i--) {")
+			.append(					"if (queue[i][0] === type) {")
+			.append(						"queue.splice(i, 1);")
+			.append(					"}")
+			.append(				"}")
+			.append(				"enqueue(type, args);")
+			.append(				"schedule();")
+			.append(			"}")
+			.append(		"};")
+			.append(	"})();")
+			.append("}");
+		for (Map.Entry<String, Function> entry : functions.entrySet()) {
+			script.append(getFunctionScript(entry.getKey(), entry.getValue().delivery));
+		}
+		return script.toString();
+	}
+
+	@SuppressWarnings("nls")
+	private static String getFunctionScript(String name, Delivery delivery) {
+		return "window." + name + " = function() {"
+				+ "return window._bsBridge." + delivery.jsMethod + "('" + name + "', arguments);"
+				+ "};";
+	}
+
+	private static class Function {
+		private final Delivery delivery;
+		private final IBrowserFunction handler;
+
+		public Function(Delivery delivery, IBrowserFunction handler) {
+			this.delivery = delivery;
+			this.handler = handler;
+		}
+	}
+
+}
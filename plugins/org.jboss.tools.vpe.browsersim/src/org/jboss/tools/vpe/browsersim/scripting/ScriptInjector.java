@@ -0,0 +1,270 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2014 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.browsersim.scripting;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javafx.application.Platform;
+
+import org.eclipse.swt.browser.LocationAdapter;
+import org.eclipse.swt.browser.LocationEvent;
+import org.jboss.tools.vpe.browsersim.BrowserSimLogger;
+import org.jboss.tools.vpe.browsersim.browser.IBrowser;
+
+/**
+ * Injects the scripts of all features into the page of one browser on every location change.
+ * <p>
+ * Scripts are ordered by {@link Phase}, then by priority, and are sent to the browser as one combined script,
+ * so a navigation costs one round trip into the browser engine instead of one per feature. The combined
+ * script is rebuilt only when the registered features or their scripts change. The time spent is summarized
+ * by {@link #toString()}, which is logged after every page load with the timing log enabled.
+ */
+public class ScriptInjector extends LocationAdapter {
+	public enum Phase {
+		/** Scripts replacing the properties of {@code window} the page relies on, e.g. orientation or console */
+		ENVIRONMENT,
+		/** Scripts emulating the device APIs */
+		EMULATION,
+		/** Scripts of the page features, with JavaFX they are injected on a later pulse of the application thread */
+		DEFERRED
+	}
+
+	private final List<Registration> registrations = new ArrayList<Registration>();
+	private final Map<String, FeatureStatistics> statistics = new LinkedHashMap<String, FeatureStatistics>();
+	private final Batch[] batches;
+	private int version; // changed on every registration and removal
+	private long evaluationCount;
+	private long evaluationNanos;
+
+	public ScriptInjector(boolean isJavaFx) {
+		if (isJavaFx) {
+			batches = new Batch[] {new Batch(EnumSet.of(Phase.ENVIRONMENT, Phase.EMULATION)), new Batch(EnumSet.of(Phase.DEFERRED))};
+		} else {
+			batches = new Batch[] {new Batch(EnumSet.allOf(Phase.class))};
+		}
+	}
+
+	/**
+	 * Registers the {@code script} of the {@code feature} replacing the previous one. Scripts of the same phase
+	 * with lower priority values are injected first.
+	 *
+	 * @param feature name of the feature, used in error messages and in the statistics
+	 */
+	public void addScript(String feature, Phase phase, int priority, InjectedScript script) {
+		removeRegistration(feature);
+		FeatureStatistics featureStatistics = statistics.get(feature);
+		if (featureStatistics == null) {
+			featureStatistics = new FeatureStatistics();
+			statistics.put(feature, featureStatistics);
+		}
+		Registration registration = new Registration(feature, phase, priority, script, featureStatistics);
+		int index = registrations.size();
+		while (index > 0 && registrations.get(index - 1).isAfter(registration)) {
+			index--;
+		}
+		registrations.add(index, registration);
+		version++;
+	}
+
+	public void removeScript(String feature) {
+		if (removeRegistration(feature)) {
+			version++;
+		}
+	}
+
+	@Override
+	public void changed(final LocationEvent event) {
+		final IBrowser browser = (IBrowser) event.widget;
+		inject(batches[0], browser, event);
+		if (batches.length > 1) {
+			Platform.runLater(new Runnable() {
+				@Override
+				public void run() {
+					if (!browser.isDisposed()) {
+						inject(batches[1], browser, event);
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Returns the number of round trips into the browser engine and their time, including the time of the scripts,
+	 * followed by the time spent for every feature registered so far
+	 */
+	@Override
+	@SuppressWarnings("nls")
+	public String toString() {
+		return "ScriptInjector[evaluations=" + evaluationCount + ", evaluationNanos=" + evaluationNanos
+				+ ", features=" + statistics + "]";
+	}
+
+	private void inject(Batch batch, IBrowser browser, LocationEvent event) {
+		// a copy, features may remove themselves while their script is prepared
+		Registration[] candidates = registrations.toArray(new Registration[registrations.size()]);
+		int candidatesVersion = version;
+		Registration[] injected = new Registration[candidates.length];
+		String[] scripts = new String[candidates.length];
+		int count = 0;
+		for (Registration registration : candidates) {
+			if (batch.phases.contains(registration.phase)) {
+				long start = System.nanoTime();
+				String script = registration.script.getScript(browser, event);
+				registration.statistics.preparationNanos += System.nanoTime() - start;
+				if (script != null) {
+					injected[count] = registration;
+					scripts[count] = script;
+					count++;
+				}
+			}
+		}
+		if (count == 0) {
+			return;
+		}
+
+		String combinedScript = batch.getCombinedScript(candidatesVersion, injected, scripts, count);
+		Object result;
+		long start = System.nanoTime();
+		try {
+			result = browser.evaluate(combinedScript);
+		} catch (RuntimeException e) { // the page has been closed or the script is broken
+			BrowserSimLogger.logError(e.getMessage(), e);
+			return;
+		} finally {
+			evaluationCount++;
+			evaluationNanos += System.nanoTime() - start;
+		}
+
+		String[] scriptMillis = result instanceof String ? ((String) result).split(",") : new String[0]; //$NON-NLS-1$
+		for (int i = 0; i < count; i++) {
+			FeatureStatistics featureStatistics = injected[i].statistics;
+			featureStatistics.injectionCount++;
+			if (i < scriptMillis.length) {
+				try {
+					featureStatistics.scriptMillis += Long.parseLong(scriptMillis[i]);
+				} catch (NumberFormatException e) {
+					// the script has replaced Array.prototype.join, the time is unknown
+				}
+			}
+		}
+	}
+
+	private boolean removeRegistration(String feature) {
+		for (int i = 0; i < registrations.size(); i++) {
+			if (registrations.get(i).feature.equals(feature)) {
+				registrations.remove(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Time spent for one feature: in {@link InjectedScript#getScript(IBrowser, LocationEvent)} calls
+	 * and in the page
+	 */
+	private static class FeatureStatistics {
+		private long injectionCount;
+		private long preparationNanos;
+		private long scriptMillis;
+
+		@Override
+		@SuppressWarnings("nls")
+		public String toString() {
+			return "FeatureStatistics[injections=" + injectionCount + ", preparationNanos=" + preparationNanos
+					+ ", scriptMillis=" + scriptMillis + "]";
+		}
+	}
+
+	private static class Registration {
+		private final String feature;
+		private final Phase phase;
+		private final int priority;
+		private final InjectedScript script;
+		private final FeatureStatistics statistics;
+
+		public Registration(String feature, Phase phase, int priority, InjectedScript script, FeatureStatistics statistics) {
+			this.feature = feature;
+			this.phase = phase;
+			this.priority = priority;
+			this.script = script;
+			this.statistics = statistics;
+		}
+
+		public boolean isAfter(Registration registration) {
+			int phaseOrder = phase.compareTo(registration.phase);
+			return phaseOrder > 0 || (phaseOrder == 0 && priority > registration.priority);
+		}
+	}
+
+	/**
+	 * Phases injected by one round trip and the cached combined script of their features
+	 */
+	private static class Batch {
+		private final EnumSet<Phase> phases;
+		private int cachedVersion = -1;
+		private String[] cachedScripts;
+		private String cachedCombinedScript;
+
+		public Batch(EnumSet<Phase> phases) {
+			this.phases = phases;
+		}
+
+		public String getCombinedScript(int version, Registration[] registrations, String[] scripts, int count) {
+			if (!isCached(version, scripts, count)) {
+				cachedVersion = version;
+				cachedScripts = new String[count];
+				System.arraycopy(scripts, 0, cachedScripts, 0, count);
+				cachedCombinedScript = combine(registrations, scripts, count);
+			}
+			return cachedCombinedScript;
+		}
+
+		private boolean isCached(int version, String[] scripts, int count) {
+			if (version != cachedVersion || count != cachedScripts.length) {
+				return false;
+			}
+			for (int i = 0; i < count; i++) {
+				if (!scripts[i].equals(cachedScripts[i])) { // usually the same instances
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Every script is isolated by try-catch like it would be by a separate call and is timed
+		 * by the page, the times are returned as a comma separated list
+		 */
+		@SuppressWarnings("nls")
+		private static String combine(Registration[] registrations, String[] scripts, int count) {
+			StringBuilder combinedScript = new StringBuilder("var _bsTimes = [], _bsStart;");
+			for (int i = 0; i < count; i++) {
+				combinedScript.append("_bsStart = new Date().getTime();")
+						.append("try {\n")
+						.append(scripts[i])
+						.append("\n} catch (e) {")
+						.append(	"if (window.console) {")
+						.append(		"console.error('").append(registrations[i].feature).append(" script has failed: ' + e);")
+						.append(	"}")
+						.append("}")
+						.append("_bsTimes.push(new Date().getTime() - _bsStart);");
+			}
+			combinedScript.append("return _bsTimes.join(',');");
+			return combinedScript.toString();
+		}
+	}
+
+}
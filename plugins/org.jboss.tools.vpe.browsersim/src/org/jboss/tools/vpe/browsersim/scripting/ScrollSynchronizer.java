@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2014 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.browsersim.scripting;
+
+import org.eclipse.swt.browser.LocationEvent;
+import org.eclipse.swt.widgets.Display;
+import org.jboss.tools.vpe.browsersim.browser.IBrowser;
+import org.jboss.tools.vpe.browsersim.browser.IBrowserFunction;
+import org.jboss.tools.vpe.browsersim.scripting.MessageBridge.Delivery;
+
+/**
+ * Reports the vertical scroll position of the page to the {@link ScrollListener}.
+ * <p>
+ * The page reads the position once per animation frame after scroll events and reports it only if it has
+ * changed, the {@link MessageBridge} delivers the latest report of a frame. The listener is notified on the UI
+ * thread at most once per {@link #FRAME_MILLIS}, with the latest position.
+ */
+public class ScrollSynchronizer implements InjectedScript {
+	public static final String FEATURE = "scroll"; //$NON-NLS-1$
+	public static final String FUNCTION_NAME = "_browserSim_scrollListener"; //$NON-NLS-1$
+	public static final int FRAME_MILLIS = 16;
+
+	@SuppressWarnings("nls")
+	private static final String SCRIPT =
+			"(function() {" +
+				"var requestFrame = window.requestAnimationFrame || window.webkitRequestAnimationFrame" +
+						"|| function(callback) {setTimeout(callback, 16);};" +
+				"var frameRequested = false;" +
+				"var reportedOffset = -1;" +
+				"var report = function() {" +
+					"frameRequested = false;" +
+					"if (window.pageYOffset !== reportedOffset && window." + FUNCTION_NAME + ") {" +
+						"reportedOffset = window.pageYOffset;" +
+						"window." + FUNCTION_NAME + "(reportedOffset);" +
+					"}" +
+				"};" +
+				"var scrollListener = function(e){" +
+					"if (!frameRequested) {" +
+						"frameRequested = true;" +
+						"requestFrame.call(window, report);" +
+					"}" +
+				"};" +
+				"window.addEventListener('scroll', scrollListener);" +
+				"window.addEventListener('beforeunload', function(e){" +
+					"window.removeEventListener('scroll', scrollListener);" +
+					"delete window." + FUNCTION_NAME + ";" +
+				"})" +
+			"})();";
+
+	public interface ScrollListener {
+		void scrolled(double pageYOffset);
+	}
+
+	private final Display display;
+	private final ScrollListener listener;
+	private final Runnable update = new Runnable() {
+		@Override
+		public void run() {
+			updatePending = false;
+			lastUpdateTime = System.currentTimeMillis();
+			updateCount++;
+			listener.scrolled(pageYOffset);
+		}
+	};
+	private double pageYOffset;
+	private boolean updatePending;
+	private long lastUpdateTime;
+	private long reportCount;
+	private long updateCount;
+
+	/**
+	 * @param display display of the browser, the listener is notified on its thread
+	 */
+	public ScrollSynchronizer(MessageBridge messageBridge, Display display, ScrollListener listener) {
+		this.display = display;
+		this.listener = listener;
+		messageBridge.addFunction(FUNCTION_NAME, Delivery.LATEST, new IBrowserFunction() {
+			@Override
+			public Object function(Object[] arguments) {
+				if (arguments != null && arguments.length > 0 && arguments[0] instanceof Double) {
+					scrolled((Double) arguments[0]);
+				}
+				return null;
+			}
+		});
+	}
+
+	@Override
+	public String getScript(IBrowser browser, LocationEvent event) {
+		return SCRIPT;
+	}
+
+	/**
+	 * Returns the number of positions reported by the page
+	 */
+	public long getReportCount() {
+		return reportCount;
+	}
+
+	/**
+	 * Returns the number of notifications of the listener
+	 */
+	public long getUpdateCount() {
+		return updateCount;
+	}
+
+	private void scrolled(double pageYOffset) {
+		reportCount++;
+		this.pageYOffset = pageYOffset;
+		if (updatePending || display.isDisposed()) {
+			return; // the pending update takes the latest position
+		}
+		updatePending = true;
+		long sinceLastUpdate = System.currentTimeMillis() - lastUpdateTime;
+		if (sinceLastUpdate >= FRAME_MILLIS) {
+			display.asyncExec(update);
+		} else {
+			display.timerExec((int) (FRAME_MILLIS - sinceLastUpdate), update);
+		}
+	}
+
+}
@@ -10,19 +10,28 @@
  ******************************************************************************/
 package org.jboss.tools.vpe.browsersim.scripting;
 
+import org.eclipse.swt.browser.LocationEvent;
 import org.jboss.tools.vpe.browsersim.browser.IBrowser;
 import org.jboss.tools.vpe.browsersim.util.BrowserSimResourcesUtil;
 
-public class TouchSupportLoader {
-	public static void initTouchEvents(final IBrowser browser) {
-		String phantomLimb = BrowserSimResourcesUtil.getResourceAsString("javascript/phantom-limb.js"); //$NON-NLS-1$
-		browser.execute(
-				"if (!window._limbLoaded) {" //$NON-NLS-1$
-					+ "window.addEventListener('DOMContentLoaded', function () {" //$NON-NLS-1$
-						+ phantomLimb
-					+ "});" //$NON-NLS-1$
-				+ "}" //$NON-NLS-1$
-				+ "window._limbLoaded = true;"); //$NON-NLS-1$
-		
+/**
+ * Emulates touch events by mouse events with the phantom-limb library
+ */
+public class TouchSupportLoader implements InjectedScript {
+	public static final String FEATURE = "touchEvents"; //$NON-NLS-1$
+	private static String script; // phantom-limb.js is read once
+
+	@Override
+	public String getScript(IBrowser browser, LocationEvent event) {
+		if (script == null) {
+			String phantomLimb = BrowserSimResourcesUtil.getResourceAsString("javascript/phantom-limb.js"); //$NON-NLS-1$
+			script = "if (!window._limbLoaded) {" //$NON-NLS-1$
+						+ "window.addEventListener('DOMContentLoaded', function () {" //$NON-NLS-1$
+							+ phantomLimb
+						+ "});" //$NON-NLS-1$
+					+ "}" //$NON-NLS-1$
+					+ "window._limbLoaded = true;"; //$NON-NLS-1$
+		}
+		return script;
 	}
 }
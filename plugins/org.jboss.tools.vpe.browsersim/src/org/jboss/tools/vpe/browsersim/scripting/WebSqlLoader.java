@@ -10,37 +10,20 @@
  ******************************************************************************/
 package org.jboss.tools.vpe.browsersim.scripting;
 
+import org.eclipse.swt.browser.LocationEvent;
 import org.jboss.tools.vpe.browsersim.browser.IBrowser;
 import org.jboss.tools.vpe.browsersim.browser.IBrowserFunction;
-import org.jboss.tools.vpe.browsersim.browser.IDisposable;
+import org.jboss.tools.vpe.browsersim.scripting.MessageBridge.Delivery;
 import org.jboss.tools.vpe.browsersim.util.BrowserSimResourcesUtil;
 
 /**
+ * Falls back to the pure JavaScript WebSQL implementation when the browser does not support WebSQL
+ *
  * @author Yahor Radtsevich (yradtsevich)
  */
-public class WebSqlLoader {
-	
-	
-	private static IDisposable loadPureJsWebSqlFunction;
-
-	public static void initWebSql(final IBrowser browser) {
-		if (loadPureJsWebSqlFunction != null && !loadPureJsWebSqlFunction.isDisposed()) {
-			loadPureJsWebSqlFunction.dispose();
-		}
-		
-		loadPureJsWebSqlFunction = browser.registerBrowserFunction("loadPureJsWebSql", new IBrowserFunction() {
-			@Override
-			public Object function(Object[] arguments) {
-				String purejswebsql = BrowserSimResourcesUtil.getResourceAsString("javascript/purejswebsql.js"); //$NON-NLS-1$
-				browser.execute(purejswebsql);
-
-				String sql = BrowserSimResourcesUtil.getResourceAsString("javascript/sql.js"); //$NON-NLS-1$
-				browser.execute(sql);
-				return null;
-			}
-		});
-		
-		browser.execute(
+public class WebSqlLoader implements InjectedScript {
+	public static final String FEATURE = "webSql"; //$NON-NLS-1$
+	private static final String SCRIPT = 
 			"(function() {" + //$NON-NLS-1$
 				"if (!window.purejsOpenDatabase) {" + //$NON-NLS-1$
 					"var origOpenDatabase = window.openDatabase;" + //$NON-NLS-1$
@@ -60,6 +43,24 @@ public class WebSqlLoader {
 						"}" + //$NON-NLS-1$
 					"};" + //$NON-NLS-1$
 				"}" + //$NON-NLS-1$
-			"})();"); //$NON-NLS-1$
+			"})();"; //$NON-NLS-1$
+	
+	public WebSqlLoader(final IBrowser browser, MessageBridge messageBridge) {
+		messageBridge.addFunction("loadPureJsWebSql", Delivery.SYNC, new IBrowserFunction() { //$NON-NLS-1$
+			@Override
+			public Object function(Object[] arguments) {
+				String purejswebsql = BrowserSimResourcesUtil.getResourceAsString("javascript/purejswebsql.js"); //$NON-NLS-1$
+				browser.execute(purejswebsql);
+
+				String sql = BrowserSimResourcesUtil.getResourceAsString("javascript/sql.js"); //$NON-NLS-1$
+				browser.execute(sql);
+				return null;
+			}
+		});
+	}
+
+	@Override
+	public String getScript(IBrowser browser, LocationEvent event) {
+		return SCRIPT;
 	}
 }
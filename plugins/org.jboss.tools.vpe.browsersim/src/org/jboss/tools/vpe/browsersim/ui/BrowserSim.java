@@ -38,19 +38,21 @@ import org.eclipse.swt.events.DisposeListener;
 import org.eclipse.swt.events.ShellEvent;
 import org.eclipse.swt.events.ShellListener;
 import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.Listener;
 import org.eclipse.swt.widgets.Menu;
 import org.eclipse.swt.widgets.MessageBox;
 import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Widget;
+import org.jboss.tools.vpe.browsersim.BrowserSimArgs;
 import org.jboss.tools.vpe.browsersim.BrowserSimLogger;
+import org.jboss.tools.vpe.browsersim.browser.BrowserPool;
 import org.jboss.tools.vpe.browsersim.browser.ExtendedOpenWindowListener;
 import org.jboss.tools.vpe.browsersim.browser.ExtendedWindowEvent;
 import org.jboss.tools.vpe.browsersim.browser.IBrowser;
-import org.jboss.tools.vpe.browsersim.browser.IBrowserFunction;
-import org.jboss.tools.vpe.browsersim.browser.IDisposable;
-import org.jboss.tools.vpe.browsersim.browser.PlatformUtil;
+import org.jboss.tools.vpe.browsersim.browser.IBrowserSimBrowserFactory;
 import org.jboss.tools.vpe.browsersim.browser.WebKitBrowserFactory;
 import org.jboss.tools.vpe.browsersim.browser.javafx.JavaFXBrowser;
 import org.jboss.tools.vpe.browsersim.devtools.DevToolsDebuggerServer;
@@ -62,6 +64,13 @@ import org.jboss.tools.vpe.browsersim.model.preferences.CommonPreferences;
 import org.jboss.tools.vpe.browsersim.model.preferences.CommonPreferencesStorage;
 import org.jboss.tools.vpe.browsersim.model.preferences.SpecificPreferences;
 import org.jboss.tools.vpe.browsersim.model.preferences.SpecificPreferencesStorage;
+import org.jboss.tools.vpe.browsersim.scripting.InjectedScript;
+import org.jboss.tools.vpe.browsersim.scripting.MessageBridge;
+import org.jboss.tools.vpe.browsersim.scripting.MessageBridge.Delivery;
+import org.jboss.tools.vpe.browsersim.scripting.ScriptInjector;
+import org.jboss.tools.vpe.browsersim.scripting.ScriptInjector.Phase;
+import org.jboss.tools.vpe.browsersim.scripting.ScrollSynchronizer;
+import org.jboss.tools.vpe.browsersim.scripting.ScrollSynchronizer.ScrollListener;
 import org.jboss.tools.vpe.browsersim.scripting.TouchSupportLoader;
 import org.jboss.tools.vpe.browsersim.scripting.WebSqlLoader;
 import org.jboss.tools.vpe.browsersim.ui.debug.firebug.FireBugLiteLoader;
@@ -80,6 +89,9 @@ import org.jboss.tools.vpe.browsersim.util.BrowserSimUtil;
  */
 public class BrowserSim {
 	public static final String BROWSERSIM_PLUGIN_ID = "org.jboss.tools.vpe.browsersim"; //$NON-NLS-1$
+	private static final String CONSOLE_FEATURE = "console"; //$NON-NLS-1$
+	private static final String ORIENTATION_FEATURE = "orientation"; //$NON-NLS-1$
+	private static final String LIVERELOAD_FEATURE = "liveReload"; //$NON-NLS-1$
 
 	private static List<BrowserSim> instances;
 	private Shell parentShell; // is needed for CordovaSim in order to have one icon in the taskbar JBIDE-14578 
@@ -91,9 +103,12 @@ public class BrowserSim {
 	private ControlHandler controlHandler;
 	private Point currentLocation;
 	private ProgressListener progressListener;
+	private LocationListener navButtonsListener;
+	private ScriptInjector scriptInjector;
+	private MessageBridge messageBridge;
 	private Observer commonPreferencesObserver;
-	private LocationAdapter liveReloadLocationAdapter;
-	private LocationAdapter touchEventsLocationAdapter;
+	private InjectedScript liveReloadScript;
+	private String appliedDeviceId;
 	private List<SkinChangeListener> skinChangeListenerList = new ArrayList<SkinChangeListener>();
 	private List<ExitListener> exitListenerList = new ArrayList<ExitListener>();
 	
@@ -155,6 +170,13 @@ public class BrowserSim {
 	}
 	
 	private void initSkin(Class<? extends BrowserSimSkin> skinClass, Point location, final Shell parentShell) {
+		initSkin(skinClass, location, parentShell, null);
+	}
+
+	/**
+	 * @param movedBrowser browser of the current skin to be moved to the new skin or {@code null}
+	 */
+	private void initSkin(Class<? extends BrowserSimSkin> skinClass, Point location, final Shell parentShell, IBrowser movedBrowser) {
 		try {
 			skin = skinClass.newInstance();//new AppleIPhone3Skin();//new NativeSkin();
 		} catch (InstantiationException e1) {
@@ -163,7 +185,11 @@ public class BrowserSim {
 			BrowserSimLogger.logError(e1.getMessage(), e1);
 		}
 
-		skin.setBrowserFactory(new WebKitBrowserFactory());
+		if (movedBrowser != null) {
+			skin.setBrowserFactory(new BrowserMovingFactory(movedBrowser));
+		} else {
+			skin.setBrowserFactory(new WebKitBrowserFactory());
+		}
 		
 		Display display = Display.getDefault();
 		
@@ -250,6 +276,10 @@ public class BrowserSim {
 		skin.setContextMenu(contextMenu);
 		menuCreator.createMenuItemsForContextMenu(contextMenu);
 
+		if (browser == movedBrowser) {
+			return; // the listeners and the scripts of the browser refer to the current skin
+		}
+
 		progressListener = new ProgressListener() {
 			public void changed(ProgressEvent event) {
 				int ratio;
@@ -263,6 +293,9 @@ public class BrowserSim {
 
 			public void completed(ProgressEvent event) {
 				skin.progressChanged(-1);
+				if (BrowserSimArgs.timingLog) {
+					BrowserSimLogger.logTiming("page loaded, " + scriptInjector); //$NON-NLS-1$
+				}
 			}
 		};
 		browser.addProgressListener(progressListener);
@@ -273,14 +306,20 @@ public class BrowserSim {
 			}
 		});
 		
-		browser.addLocationListener(createNavButtonsListener());
-
-		browser.addLocationListener(new LocationAdapter() {
-			public void changed(LocationEvent event) {
-				initOrientation(specificPreferences.getOrientationAngle());
-				WebSqlLoader.initWebSql(skin.getBrowser());
+		navButtonsListener = createNavButtonsListener();
+		browser.addLocationListener(navButtonsListener);
+
+		scriptInjector = new ScriptInjector(specificPreferences.isJavaFx());
+		browser.addLocationListener(scriptInjector);
+		messageBridge = new MessageBridge(browser);
+		scriptInjector.addScript(MessageBridge.FEATURE, Phase.ENVIRONMENT, -10, messageBridge);
+		scriptInjector.addScript(ORIENTATION_FEATURE, Phase.ENVIRONMENT, 10, new InjectedScript() {
+			@Override
+			public String getScript(IBrowser browser, LocationEvent event) {
+				return getInitOrientationScript(specificPreferences.getOrientationAngle());
 			}
 		});
+		scriptInjector.addScript(WebSqlLoader.FEATURE, Phase.ENVIRONMENT, 20, new WebSqlLoader(browser, messageBridge));
 
 		//JBIDE-12191 - custom scrollbars work satisfactorily on windows only
 		BrowserSimUtil.setCustomScrollbarStylesForWindows(browser);
@@ -297,48 +336,20 @@ public class BrowserSim {
 			}
 		});
 
-		browser.addLocationListener(new LocationListener() {
-			private IDisposable scrollListener = null;
-
-			public void changed(LocationEvent event) {
-				if (scrollListener != null) {
-					scrollListener.dispose();
-				}
-				scrollListener = ((IBrowser)event.widget).registerBrowserFunction("_browserSim_scrollListener", //$NON-NLS-1$
-						new IBrowserFunction() {							
-							@Override
-							public Object function(Object[] arguments) {
-								double pageYOffset = (Double) arguments[0];
-								if (pageYOffset > 0.0) {
-									skin.getShell().getDisplay().asyncExec(new Runnable() {
-										public void run() {
-											if (skin != null && skin.getShell() != null && !skin.getShell().isDisposed()) {
-										if (skin.automaticallyHideAddressBar()) {
-											skin.setAddressBarVisible(false);
-										}
-									}
-								}
-									});
-								}
-								return null;
+		ScrollSynchronizer scrollSynchronizer = new ScrollSynchronizer(messageBridge, shell.getDisplay(), new ScrollListener() {
+			@Override
+			public void scrolled(double pageYOffset) {
+				if (pageYOffset > 0.0 && skin != null && skin.getShell() != null && !skin.getShell().isDisposed()) {
+					if (skin.automaticallyHideAddressBar()) {
+						skin.setAddressBarVisible(false);
 					}
-				});
-
-				IBrowser browser = (IBrowser)event.widget;
-				browser.execute(
-								"(function() {" + //$NON-NLS-1$
-									"var scrollListener = function(e){" + //$NON-NLS-1$
-										"window._browserSim_scrollListener(window.pageYOffset)" + //$NON-NLS-1$
-									"};" + //$NON-NLS-1$
-									"window.addEventListener('scroll', scrollListener);" + //$NON-NLS-1$
-									"window.addEventListener('beforeunload', function(e){" + //$NON-NLS-1$
-										"window.removeEventListener('scroll', scrollListener);" + //$NON-NLS-1$
-										"delete window._browserSim_scrollListener;" + //$NON-NLS-1$
-									"})" + //$NON-NLS-1$
-								"})();"); //$NON-NLS-1$
-
+				}
 			}
-			
+		});
+		scriptInjector.addScript(ScrollSynchronizer.FEATURE, Phase.EMULATION, 0, scrollSynchronizer);
+
+		browser.addLocationListener(new LocationAdapter() {
+			@Override
 			public void changing(LocationEvent event) {
 				if (skin.automaticallyHideAddressBar() && isAddressBarVisibleByDefault()) {
 					skin.setAddressBarVisible(true);
@@ -374,14 +385,11 @@ public class BrowserSim {
 	// JBIDE-15932 need to display console logs especially during startup
 	private void overrideJsConsoleLog(final IBrowser browser) {	
 		createLogFunctions(browser);
-		browser.addLocationListener(new LocationAdapter() {  
+		scriptInjector.addScript(CONSOLE_FEATURE, Phase.ENVIRONMENT, 0, new InjectedScript() {
 			@Override
 			@SuppressWarnings("nls")
-			public void changed(LocationEvent e) {
-				if (PlatformUtil.OS_LINUX.equals(PlatformUtil.getOs())) {
-					createLogFunctions(browser); // TODO need to do this better
-				}
-				browser.execute("(function(){"
+			public String getScript(IBrowser browser, LocationEvent event) {
+				return "(function(){"
 										+ "if (window.console && console.log) {"
 										+	"window.console.log = browserSimConsoleLog;"
 										+	"window.console.info = browserSimConsoleInfo;"
@@ -391,16 +399,16 @@ public class BrowserSim {
 										+		"console.log('ERROR: ' + msg + ' on line ' + lineNumber + ' for ' + url);"
 										+	"}"
 										+ "}"
-								+ "})()");
+								+ "})()";
 			}
 		});
 	}
 
 	private void createLogFunctions(IBrowser browser) {
-		browser.registerBrowserFunction("browserSimConsoleLog", new JsLogFunction(browser,  null)); //$NON-NLS-1$  
-		browser.registerBrowserFunction("browserSimConsoleInfo", new JsLogFunction(browser,  MessageType.INFO)); //$NON-NLS-1$  
-		browser.registerBrowserFunction("browserSimConsoleWarn", new JsLogFunction(browser,  MessageType.WARN)); //$NON-NLS-1$  
-		browser.registerBrowserFunction("browserSimConsoleError", new JsLogFunction(browser,  MessageType.ERROR)); //$NON-NLS-1$  
+		messageBridge.addFunction("browserSimConsoleLog", Delivery.BATCHED, new JsLogFunction(browser,  null)); //$NON-NLS-1$  
+		messageBridge.addFunction("browserSimConsoleInfo", Delivery.BATCHED, new JsLogFunction(browser,  MessageType.INFO)); //$NON-NLS-1$  
+		messageBridge.addFunction("browserSimConsoleWarn", Delivery.BATCHED, new JsLogFunction(browser,  MessageType.WARN)); //$NON-NLS-1$  
+		messageBridge.addFunction("browserSimConsoleError", Delivery.BATCHED, new JsLogFunction(browser,  MessageType.ERROR)); //$NON-NLS-1$  
 	}
 
 	private void initObservers() {
@@ -446,19 +454,24 @@ public class BrowserSim {
 			if (needToChangeSkin || needToChangeEngine) {
 				final String oldSkinUrl = skin.getBrowser().getUrl();
 				final Point currentLocation = skin.getShell().getLocation();
-				skin.getBrowser().removeProgressListener(progressListener);
-				skin.getBrowser().getShell().dispose();
+				final IBrowser movedBrowser;
+				if (!needToChangeEngine && isBrowserMovingPossibleOnSkinChange()) {
+					movedBrowser = skin.getBrowser(); // the page is kept, the old skin is disposed after the browser is moved
+				} else {
+					movedBrowser = null;
+					disposeSkin();
+				}
 				
 				if (specificPreferences.isJavaFx()) {
 					Platform.runLater(new Runnable() {
 						
 						@Override
 						public void run() {
-							changeSkinOrEngine(newSkinClass, device, currentLocation, oldSkinUrl);
+							changeSkinOrEngine(newSkinClass, device, currentLocation, oldSkinUrl, movedBrowser);
 						}
 					});
 				} else {
-					changeSkinOrEngine(newSkinClass, device, currentLocation, oldSkinUrl);
+					changeSkinOrEngine(newSkinClass, device, currentLocation, oldSkinUrl, movedBrowser);
 				}
 				
 			} else {
@@ -468,19 +481,33 @@ public class BrowserSim {
 				processLiveReload(specificPreferences.isEnableLiveReload());
 				processTouchEvents(specificPreferences.isEnableTouchEvents());
 				
-				if (!Boolean.FALSE.equals(refreshRequired)) {
-					getBrowser().refresh(); // only user agent and size of the browser is changed and orientation is not changed
+				boolean deviceChanged = !device.getId().equals(appliedDeviceId);
+				if (!deviceChanged && !Boolean.FALSE.equals(refreshRequired)) {
+					getBrowser().refresh(); // a new device only changes user agent, size and orientation, the page is kept
 				}
 				
 				skin.getShell().open();
 			}
-
+			appliedDeviceId = device.getId();
 		} 
 	} 
 	
-	private void changeSkinOrEngine(Class<? extends BrowserSimSkin> newSkinClass, Device device,  Point currentLocation, String oldSkinUrl) {
-		initSkin(newSkinClass, currentLocation, parentShell);
-		fireSkinChangeEvent();
+	/**
+	 * @param movedBrowser browser of the current skin to be moved to the new skin or {@code null} if the current
+	 * skin is already disposed
+	 */
+	private void changeSkinOrEngine(Class<? extends BrowserSimSkin> newSkinClass, Device device,  Point currentLocation, String oldSkinUrl,
+			IBrowser movedBrowser) {
+		Shell oldShell = movedBrowser != null ? skin.getShell() : null;
+		initSkin(newSkinClass, currentLocation, parentShell, movedBrowser);
+		boolean browserMoved = movedBrowser != null && getBrowser() == movedBrowser;
+		if (oldShell != null) {
+			oldShell.dispose(); // disposes the browser if it could not be moved
+		}
+		fireSkinChangeEvent(!browserMoved);
+		if (browserMoved) {
+			showPageState(movedBrowser);
+		}
 		
 		if (skin.getBrowser() instanceof JavaFXBrowser && !Server.STARTED.equals(DevToolsDebuggerServer.getServerState())) {
             try {
@@ -496,24 +523,58 @@ public class BrowserSim {
 		processLiveReload(specificPreferences.isEnableLiveReload());
 		processTouchEvents(specificPreferences.isEnableTouchEvents());
 		
-		if (oldSkinUrl != null && isUrlResettingNeededAfterSkinChange()) {
+		if (!browserMoved && oldSkinUrl != null && isUrlResettingNeededAfterSkinChange()) {
 			skin.getBrowser().setUrl(oldSkinUrl); // skin (and browser instance) is changed
 		}
 		
 		skin.getShell().open();
 	}
 	
+	/**
+	 * Shows the location and the title of the page kept by the browser in the new skin
+	 */
+	private void showPageState(IBrowser browser) {
+		LocationEvent event = new LocationEvent((Widget) browser);
+		event.widget = (Widget) browser;
+		event.location = browser.getUrl();
+		event.top = true;
+		navButtonsListener.changed(event);
+
+		Object title = browser.evaluate("return document.title"); //$NON-NLS-1$
+		if (title instanceof String) {
+			skin.pageTitleChanged((String) title);
+		}
+	}
+
+	/**
+	 * Disposes the shell of the skin, the browser is returned to the {@link BrowserPool}
+	 */
+	private void disposeSkin() {
+		IBrowser browser = skin.getBrowser();
+		Shell shell = browser.getShell();
+		browser.removeProgressListener(progressListener);
+		BrowserPool.release(browser);
+		shell.dispose();
+	}
+
 	protected boolean isUrlResettingNeededAfterSkinChange() {
 		return true; // JBIDE-14636
 	}
 
+	/**
+	 * Returns {@code true} if the browser with its page may be moved to the new skin when the engine is not changed,
+	 * otherwise the page is loaded again by a new browser
+	 */
+	protected boolean isBrowserMovingPossibleOnSkinChange() {
+		return true;
+	}
+
 	public void reinitSkin() {
 		final Device device = commonPreferences.getDevices().get(specificPreferences.getSelectedDeviceId());
 		Class<? extends BrowserSimSkin> newSkinClass = BrowserSimUtil.getSkinClass(device, specificPreferences.getUseSkins());
 		String oldSkinUrl = skin.getBrowser().getUrl();
 		Point currentLocation = skin.getShell().getLocation();
-		skin.getBrowser().removeProgressListener(progressListener);
-		skin.getBrowser().getShell().dispose();
+		disposeSkin();
 		initSkin(newSkinClass, currentLocation, parentShell);
 		setOrientation(specificPreferences.getOrientationAngle(), device);
 		skin.getBrowser().setUserAgent(device.getUserAgent());
@@ -522,53 +583,38 @@ public class BrowserSim {
 	}
 	
 	private void processLiveReload(boolean isLiveReloadEnabled) {
+		if (isLiveReloadEnabled && !isLivereloadAvailable()) {
+			MessageBox warning = new MessageBox(skin.getShell(), SWT.ICON_WARNING);
+			warning.setText(Messages.WARNING);
+			warning.setMessage(Messages.BrowserSim_LIVERELOAD_WARNING);
+			warning.open();
+			specificPreferences.setEnableLiveReload(false);
+			isLiveReloadEnabled = false;
+		}
+		
 		if (isLiveReloadEnabled) {
-			if (liveReloadLocationAdapter == null) {
-				initLiveReloadLocationAdapter();
+			if (liveReloadScript == null) {
+				initLiveReloadScript();
 			}
-			skin.getBrowser().addLocationListener(liveReloadLocationAdapter);
+			scriptInjector.addScript(LIVERELOAD_FEATURE, Phase.DEFERRED, 10, liveReloadScript);
 		} else {
-			if (liveReloadLocationAdapter != null) {
-				skin.getBrowser().removeLocationListener(liveReloadLocationAdapter);
-			}
+			scriptInjector.removeScript(LIVERELOAD_FEATURE);
 		}
 	}
 	
 	private void processTouchEvents(boolean isTouchEventsEnabled) {
 		if (isTouchEventsEnabled) {
-			if (touchEventsLocationAdapter == null) {
-				initTouchEventsLocationAdapter();
-			}
-			skin.getBrowser().addLocationListener(touchEventsLocationAdapter);
-		} else if (touchEventsLocationAdapter != null) {
-			skin.getBrowser().removeLocationListener(touchEventsLocationAdapter);
+			scriptInjector.addScript(TouchSupportLoader.FEATURE, Phase.DEFERRED, 0, new TouchSupportLoader());
+		} else {
+			scriptInjector.removeScript(TouchSupportLoader.FEATURE);
 		}
 	}
 	
-	private void initLiveReloadLocationAdapter() {
-		liveReloadLocationAdapter = new LocationAdapter() {
+	private void initLiveReloadScript() {
+		liveReloadScript = new InjectedScript() {
 			@Override
-			public void changed(final LocationEvent event) {
-				if (isLivereloadAvailable()) {
-					if (specificPreferences.isJavaFx()) {
-						Platform.runLater(new Runnable() {
-							@Override
-							public void run() {
-								processLiveReloadEvent(event);
-							}
-						});
-					} else {
-						processLiveReloadEvent(event);
-					}
-				} else {
-					MessageBox warning = new MessageBox(skin.getShell(), SWT.ICON_WARNING);
-					warning.setText(Messages.WARNING);
-					warning.setMessage(Messages.BrowserSim_LIVERELOAD_WARNING);
-					warning.open();
-
-					skin.getBrowser().removeLocationListener(liveReloadLocationAdapter);
-					specificPreferences.setEnableLiveReload(false);	
-				}
+			public String getScript(IBrowser browser, LocationEvent event) {
+				return getLiveReloadScript(); // the server is checked by processLiveReload(), not on every navigation
 			}
 		};
 	}
@@ -585,9 +631,8 @@ public class BrowserSim {
 		}
 	}
 
-	private void processLiveReloadEvent(final LocationEvent event) {
-		IBrowser browser = (IBrowser) event.widget;
-		browser.execute("if (!window.LiveReload) {" + //$NON-NLS-1$
+	private String getLiveReloadScript() {
+		return "if (!window.LiveReload) {" + //$NON-NLS-1$
 				"window.addEventListener('load', function(){" + //$NON-NLS-1$
 					"var e = document.createElement('script');" + //$NON-NLS-1$
 					"e.type = 'text/javascript';" + //$NON-NLS-1$
@@ -595,29 +640,11 @@ public class BrowserSim {
 					"e.src = 'http://localhost:" + specificPreferences.getLiveReloadPort() + "/livereload.js';" + //$NON-NLS-1$ //$NON-NLS-2$
 					"document.head.appendChild(e);" + //$NON-NLS-1$
 				"});" + //$NON-NLS-1$
-			"}"); //$NON-NLS-1$
-	}
-	
-	private void initTouchEventsLocationAdapter() {
-		touchEventsLocationAdapter = new LocationAdapter() {
-			@Override
-			public void changed(final LocationEvent event) {
-				if (specificPreferences.isJavaFx()) {
-					Platform.runLater(new Runnable() {
-						@Override
-						public void run() {
-							TouchSupportLoader.initTouchEvents((IBrowser) event.widget);
-						}
-					});
-				} else {
-					TouchSupportLoader.initTouchEvents((IBrowser) event.widget);
-				}
-			}
-		};
+			"}"; //$NON-NLS-1$
 	}
 
-	private void initOrientation(int orientation) {
-		getBrowser().execute("window.onorientationchange = null;" + "window.orientation = " + orientation + ";"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	private String getInitOrientationScript(int orientation) {
+		return "window.onorientationchange = null;" + "window.orientation = " + orientation + ";"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 	}
 
 	private void setOrientation(int orientationAngle, Device device) {
@@ -643,6 +670,20 @@ public class BrowserSim {
 		);
 	}
 
+	/**
+	 * Returns the injector of the scripts into the pages of the current browser
+	 */
+	public ScriptInjector getScriptInjector() {
+		return scriptInjector;
+	}
+
+	/**
+	 * Returns the bridge for the calls from the pages of the current browser to Java
+	 */
+	public MessageBridge getMessageBridge() {
+		return messageBridge;
+	}
+
 	public IBrowser getBrowser() {
 		return skin != null ? skin.getBrowser() : null;
 	}
@@ -656,8 +697,8 @@ public class BrowserSim {
 		exitListenerList.add(listener);
 	}
 	
-	public void fireSkinChangeEvent() {
-		SkinChangeEvent event = new SkinChangeEvent(this, skin);
+	public void fireSkinChangeEvent(boolean browserChanged) {
+		SkinChangeEvent event = new SkinChangeEvent(this, skin, browserChanged);
 		for (SkinChangeListener listener : skinChangeListenerList) {
 			listener.skinChanged(event);
 		}
@@ -719,4 +760,23 @@ public class BrowserSim {
 			}
 		};
 	}
+
+	/**
+	 * Moves the browser of the current skin to the new skin, creates a new browser if the platform cannot move it
+	 */
+	private static class BrowserMovingFactory implements IBrowserSimBrowserFactory {
+		private final IBrowser browser;
+
+		public BrowserMovingFactory(IBrowser browser) {
+			this.browser = browser;
+		}
+
+		@Override
+		public IBrowser createBrowser(Composite parent, int style, boolean isJavaFx) {
+			if (browser.setParent(parent)) {
+				return browser;
+			}
+			return new WebKitBrowserFactory().createBrowser(parent, style, isJavaFx);
+		}
+	}
 }
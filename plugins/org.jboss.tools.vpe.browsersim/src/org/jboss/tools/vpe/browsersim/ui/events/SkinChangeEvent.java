@@ -19,10 +19,12 @@ public class SkinChangeEvent extends EventObject {
 	private static final long serialVersionUID = 2734715406829337324L;
 	
 	private BrowserSimSkin newSkin;
+	private boolean browserChanged;
 
-	public SkinChangeEvent(BrowserSim source, BrowserSimSkin newSkin) {
+	public SkinChangeEvent(BrowserSim source, BrowserSimSkin newSkin, boolean browserChanged) {
 		super(source);
 		this.newSkin = newSkin;
+		this.browserChanged = browserChanged;
 	}
 
 	@Override
@@ -33,4 +35,11 @@ public class SkinChangeEvent extends EventObject {
 	public BrowserSimSkin getNewSkin() {
 		return newSkin;
 	}
+
+	/**
+	 * Returns {@code false} if the browser has been moved to the new skin with its page
+	 */
+	public boolean isBrowserChanged() {
+		return browserChanged;
+	}
 }
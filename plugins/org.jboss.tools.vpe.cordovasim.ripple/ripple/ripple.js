@@ -40049,12 +40049,34 @@ function getBase64Image(uri, cb, encodingType) { // JBIDE-14894 support of the '
    }
 }
 
+function getScaledImageUri(uri, targetWidth, targetHeight, quality, encodingType) { // the photo is downscaled by CordovaSim server
+    var params = [];
+    if (targetWidth > 0) {
+        params.push("width=" + targetWidth);
+    }
+    if (targetHeight > 0) {
+        params.push("height=" + targetHeight);
+    }
+    if (quality > 0 && quality < 100) {
+        params.push("quality=" + quality);
+    }
+    if (params.length === 0 || uri.indexOf("/temp-photo/") < 0) {
+        return uri;
+    }
+    params.push("encoding=" + (encodingType === emulatorBridge.window().Camera.EncodingType.PNG ? "png" : "jpeg"));
+    return uri + (uri.indexOf("?") < 0 ? "?" : "&") + params.join("&");
+}
+
 module.exports = {
     takePicture: function (success, error, args) {
-        var destinationType = args[1]; // Destination Type - Phonegap docs: http://docs.phonegap.com/en/2.8.0/cordova_camera_camera.md.html#Camera 
-        var encodingType = args[5];   // Encoding Type - Phonegap docs: http://docs.phonegap.com/en/2.8.0/cordova_camera_camera.md.html#Camera 
+        var quality = args[0],
+            destinationType = args[1], // Destination Type - Phonegap docs: http://docs.phonegap.com/en/2.8.0/cordova_camera_camera.md.html#Camera 
+            targetWidth = args[3],
+            targetHeight = args[4],
+            encodingType = args[5];   // Encoding Type - Phonegap docs: http://docs.phonegap.com/en/2.8.0/cordova_camera_camera.md.html#Camera 
 
         event.once("captured-image", function (uri) {
+            uri = getScaledImageUri(uri, targetWidth, targetHeight, quality, encodingType);
             if (destinationType === emulatorBridge.window().Camera.DestinationType.DATA_URL) { 
               getBase64Image(uri, success, encodingType); 
             } else {
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2013 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.ResourceHandler;
+import org.jboss.tools.vpe.cordovasim.cache.AssetCache;
+import org.jboss.tools.vpe.cordovasim.cache.CachedContent;
+import org.jboss.tools.vpe.cordovasim.servlet.util.ServletUtil;
+
+/**
+ * {@link ResourceHandler} for immutable resources (e.g. Ripple UI). All the resources are read into
+ * the {@link AssetCache} on the first request (or by {@link ServerWarmUp}) and served from memory,
+ * so the bundle is never touched on requests.
+ * <p>
+ * The URLs of the resources are not versioned, so the browser revalidates them by the ETag on every use
+ * and gets {@code 304 Not Modified} from memory until the bundle is upgraded.
+ */
+public class CachingResourceHandler extends ResourceHandler {
+	private static final String GET = "GET"; //$NON-NLS-1$
+	private static final String ROOT = "/"; //$NON-NLS-1$
+
+	private volatile AssetCache assetCache;
+	private volatile boolean assetCacheLoaded;
+
+	@Override
+	protected void doStop() throws Exception {
+		synchronized (this) {
+			assetCache = null;
+			assetCacheLoaded = false;
+		}
+		super.doStop();
+	}
+
+	@Override
+	public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+		CachedContent content = null;
+		if (!baseRequest.isHandled() && (GET.equals(request.getMethod()) || ServletUtil.HEAD.equals(request.getMethod()))) {
+			content = getCachedContent(request.getPathInfo() != null ? request.getPathInfo() : target);
+		}
+
+		if (content != null) {
+			baseRequest.setHandled(true);
+			ServletUtil.sendCachedContent(request, response, content, ServletUtil.REVALIDATE);
+		} else {
+			super.handle(target, baseRequest, request, response);
+		}
+	}
+
+	/**
+	 * Returns the {@link AssetCache}, it is built on the first call
+	 * 
+	 * @return {@code null} if the resources can't be cached
+	 */
+	public AssetCache getAssetCache() {
+		if (!assetCacheLoaded) {
+			synchronized (this) {
+				if (!assetCacheLoaded && isStarted()) {
+					try {
+						assetCache = AssetCache.build(getBaseResource(), getMimeTypes());
+					} catch (IOException e) {
+						CordovaSimLogger.logError(e.getMessage(), e); // resources will be served by the ResourceHandler
+					}
+					assetCacheLoaded = true;
+				}
+			}
+		}
+		return assetCache;
+	}
+
+	private CachedContent getCachedContent(String path) {
+		AssetCache cache = getAssetCache();
+		if (cache == null) {
+			return null;
+		}
+
+		if (path.endsWith(ROOT) && getWelcomeFiles() != null) {
+			for (String welcomeFile : getWelcomeFiles()) {
+				CachedContent content = cache.get(path + welcomeFile);
+				if (content != null) {
+					return content;
+				}
+			}
+			return null;
+		}
+		return cache.get(path);
+	}
+
+}
@@ -15,21 +15,40 @@ import java.net.ServerSocket;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 
 import org.jboss.tools.vpe.browsersim.BrowserSimArgs;
 import org.jboss.tools.vpe.browsersim.BrowserSimLogger;
+import org.jboss.tools.vpe.cordovasim.proxy.NetworkProfile;
+import org.jboss.tools.vpe.cordovasim.proxy.RequestMatcher;
+import org.jboss.tools.vpe.cordovasim.servlets.camera.TempFileStorage;
 
 /**
  * @author Yahor Radtsevich (yradtsevich)
  */
 public class CordovaSimArgs {
 	private static final int DEFAULT_PORT = 0;// any free port
+	private static final long DEFAULT_UPLOAD_LIMIT = 100L * 1024 * 1024;// enough for camera photos and short videos
 	
 	private static String rootFolder;
 	private static String startPage;
 	private static String cordovaEngineLocation;
 	private static String cordovaVersion;
 	private static int port;
+	private static int uploadLimit;
+	private static int tempFileLimit;
+	private static int tempSizeLimit;
+	private static int tempTimeToLive;
+	private static boolean pluginBundleEnabled;
+	private static boolean timingLogEnabled;
+	private static boolean proxyCacheEnabled;
+	private static String proxyRecordFile;
+	private static String proxyReplayFile;
+	private static String proxyMatchRules = RequestMatcher.DEFAULT_RULES;
+	private static NetworkProfile networkProfile = NetworkProfile.NONE;
+	private static int proxyMaxConnections;
+	private static int proxyMaxThreads;
 	private static boolean restartRequired;
 
 	public static void parseArgs(String[] args) {
@@ -57,6 +76,55 @@ public class CordovaSimArgs {
 			cordovaEngineLocation = null;
 		}
 		
+		pluginBundleEnabled = params.remove("-pluginbundle"); //$NON-NLS-1$ all plugin modules are sent in one response
+		
+		timingLogEnabled = params.remove(BrowserSimArgs.TIMING); // startup stages are logged with their duration
+		BrowserSimArgs.timingLog = timingLogEnabled;
+		
+		proxyCacheEnabled = params.remove("-proxycache"); //$NON-NLS-1$ XHR responses are cached by the proxy
+		
+		int proxyRecordParameterIndex = params.indexOf("-proxyrecord"); //$NON-NLS-1$
+		if (proxyRecordParameterIndex >= 0) {
+			params.remove(proxyRecordParameterIndex);
+			proxyRecordFile = params.remove(proxyRecordParameterIndex);
+		} else {
+			proxyRecordFile = null;
+		}
+		
+		int proxyReplayParameterIndex = params.indexOf("-proxyreplay"); //$NON-NLS-1$
+		if (proxyReplayParameterIndex >= 0) {
+			params.remove(proxyReplayParameterIndex);
+			proxyReplayFile = params.remove(proxyReplayParameterIndex);
+		} else {
+			proxyReplayFile = null;
+		}
+		
+		int proxyMatchParameterIndex = params.indexOf("-proxymatch"); //$NON-NLS-1$
+		if (proxyMatchParameterIndex >= 0) {
+			params.remove(proxyMatchParameterIndex);
+			proxyMatchRules = params.remove(proxyMatchParameterIndex);
+		} else {
+			proxyMatchRules = RequestMatcher.DEFAULT_RULES;
+		}
+		
+		int networkParameterIndex = params.indexOf("-network"); //$NON-NLS-1$
+		if (networkParameterIndex >= 0) {
+			params.remove(networkParameterIndex);
+			try {
+				networkProfile = NetworkProfile.valueOf(params.remove(networkParameterIndex).toUpperCase(Locale.ENGLISH));
+			} catch (IllegalArgumentException e) {
+				BrowserSimLogger.logError("Incorrect network profile", e); //$NON-NLS-1$
+				networkProfile = NetworkProfile.NONE;
+			}
+		} else {
+			networkProfile = NetworkProfile.NONE;
+		}
+		
+		proxyMaxConnections = parseIntParameter(params, "-proxymaxconnections", "Incorrect proxy connection limit"); //$NON-NLS-1$ //$NON-NLS-2$
+		proxyMaxThreads = parseIntParameter(params, "-proxymaxthreads", "Incorrect proxy thread limit"); //$NON-NLS-1$ //$NON-NLS-2$
+		
+		BrowserSimArgs.browserPoolSize = parseIntParameter(params, BrowserSimArgs.BROWSER_POOL, "Incorrect browser pool size"); //$NON-NLS-1$
+		
 		int portParameterIndex = params.indexOf("-port"); //$NON-NLS-1$
 		if (portParameterIndex >= 0) {
 			params.remove(portParameterIndex);
@@ -70,6 +138,11 @@ public class CordovaSimArgs {
 			port = DEFAULT_PORT;
 		}
 		
+		uploadLimit = parseIntParameter(params, "-uploadlimit", "Incorrect upload limit value"); //$NON-NLS-1$ //$NON-NLS-2$
+		tempFileLimit = parseIntParameter(params, "-tempfilelimit", "Incorrect temp file limit"); //$NON-NLS-1$ //$NON-NLS-2$
+		tempSizeLimit = parseIntParameter(params, "-tempsizelimit", "Incorrect temp size limit"); //$NON-NLS-1$ //$NON-NLS-2$
+		tempTimeToLive = parseIntParameter(params, "-tempttl", "Incorrect temp file time to live"); //$NON-NLS-1$ //$NON-NLS-2$
+		
 		if (params.size() > 0) {
 			startPage = params.remove(params.size() - 1); // the last parameter
 		} else {
@@ -91,6 +164,29 @@ public class CordovaSimArgs {
 		}
 	}
 
+	/**
+	 * Removes the parameter with its value from {@code params}
+	 *
+	 * @return the value or {@code 0} if the parameter is missing or incorrect
+	 */
+	private static int parseIntParameter(List<String> params, String name, String errorMessage) {
+		int parameterIndex = params.indexOf(name);
+		if (parameterIndex < 0) {
+			return 0;
+		}
+		params.remove(parameterIndex);
+		if (parameterIndex >= params.size()) { // the value is missing
+			BrowserSimLogger.logError(errorMessage, null);
+			return 0;
+		}
+		try {
+			return Integer.parseInt(params.remove(parameterIndex));
+		} catch (NumberFormatException e) {
+			BrowserSimLogger.logError(errorMessage, e);
+			return 0;
+		}
+	}
+
 	public static String getRootFolder() {
 		return rootFolder;
 	}
@@ -103,6 +199,35 @@ public class CordovaSimArgs {
 		return port;
 	}
 	
+	/**
+	 * Returns maximum size of a file uploaded by the emulated camera in bytes (see "-uploadlimit" argument in megabytes)
+	 */
+	public static long getUploadLimit() {
+		return uploadLimit > 0 ? uploadLimit * 1024L * 1024L : DEFAULT_UPLOAD_LIMIT;
+	}
+	
+	/**
+	 * Returns maximum number of files kept for the emulated camera (see "-tempfilelimit" argument)
+	 */
+	public static int getTempFileLimit() {
+		return tempFileLimit > 0 ? tempFileLimit : TempFileStorage.DEFAULT_MAX_ENTRIES;
+	}
+	
+	/**
+	 * Returns maximum total size of files kept for the emulated camera in bytes (see "-tempsizelimit" argument in megabytes)
+	 */
+	public static long getTempSizeLimit() {
+		return tempSizeLimit > 0 ? tempSizeLimit * 1024L * 1024L : TempFileStorage.DEFAULT_MAX_BYTES;
+	}
+	
+	/**
+	 * Returns time in milliseconds a file of the emulated camera is kept after the last access
+	 * (see "-tempttl" argument in minutes)
+	 */
+	public static long getTempTimeToLive() {
+		return tempTimeToLive > 0 ? TimeUnit.MINUTES.toMillis(tempTimeToLive) : TempFileStorage.DEFAULT_TIME_TO_LIVE;
+	}
+	
 	public static String getCordovaEngineLocation() {
 		return cordovaEngineLocation;
 	}
@@ -111,6 +236,62 @@ public class CordovaSimArgs {
 		return cordovaVersion;
 	}
 	
+	public static boolean isPluginBundleEnabled() {
+		return pluginBundleEnabled;
+	}
+	
+	public static boolean isTimingLogEnabled() {
+		return timingLogEnabled;
+	}
+	
+	public static boolean isProxyCacheEnabled() {
+		return proxyCacheEnabled;
+	}
+	
+	/**
+	 * Returns the archive XHR responses are recorded to (see "-proxyrecord" argument) or {@code null}
+	 */
+	public static String getProxyRecordFile() {
+		return proxyRecordFile;
+	}
+	
+	/**
+	 * Returns the archive XHRs are answered from without network (see "-proxyreplay" argument) or {@code null}
+	 */
+	public static String getProxyReplayFile() {
+		return proxyReplayFile;
+	}
+	
+	/**
+	 * Returns rules of matching XHRs to the recorded responses (see "-proxymatch" argument and {@link RequestMatcher})
+	 */
+	public static String getProxyMatchRules() {
+		return proxyMatchRules;
+	}
+	
+	/**
+	 * Returns the initial network profile of the emulated device (see "-network" argument)
+	 */
+	public static NetworkProfile getNetworkProfile() {
+		return networkProfile;
+	}
+	
+	/**
+	 * Returns the limit of the XHR proxy connections to one backend host or {@code 0} for no limit
+	 * (see "-proxymaxconnections" argument)
+	 */
+	public static int getProxyMaxConnections() {
+		return proxyMaxConnections;
+	}
+	
+	/**
+	 * Returns the size of the XHR proxy client thread pool or {@code 0} for the Jetty default
+	 * (see "-proxymaxthreads" argument)
+	 */
+	public static int getProxyMaxThreads() {
+		return proxyMaxThreads;
+	}
+	
 	public static void setPort(int port) {
 		CordovaSimArgs.port = port;
 	}
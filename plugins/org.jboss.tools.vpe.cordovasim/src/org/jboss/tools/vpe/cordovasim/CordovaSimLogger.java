@@ -10,13 +10,30 @@
  ******************************************************************************/
 package org.jboss.tools.vpe.cordovasim;
 
+import java.util.concurrent.TimeUnit;
+
 import org.jboss.tools.vpe.browsersim.BrowserSimLogger;
 
 /**
  * @author Yahor Radtsevich (yradtsevich)
  */
 public class CordovaSimLogger {
+	private static final String TIMING_PREFIX = "CordovaSim timing: "; //$NON-NLS-1$
+
 	public static void logError(String message, Throwable throwable) {
 		BrowserSimLogger.logError(message, throwable, CordovaSimRunner.PLUGIN_ID);
 	}
+
+	/**
+	 * Logs time elapsed since {@code startNanoTime} if the timing log is enabled (see "-timing" argument).
+	 * Goes to {@link System#err}, because {@link System#out} is the command channel to Eclipse.
+	 *
+	 * @param startNanoTime value of {@link System#nanoTime()} at the start of the measured stage
+	 */
+	public static void logTiming(String stage, long startNanoTime) {
+		if (CordovaSimArgs.isTimingLogEnabled()) {
+			long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanoTime);
+			System.err.println(TIMING_PREFIX + stage + " " + elapsedMillis + " ms"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
 }
@@ -10,13 +10,19 @@
  ******************************************************************************/
 package org.jboss.tools.vpe.cordovasim;
 
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.widgets.Menu;
+import org.eclipse.swt.widgets.MenuItem;
 import org.jboss.tools.vpe.browsersim.model.preferences.CommonPreferences;
 import org.jboss.tools.vpe.browsersim.model.preferences.SpecificPreferences;
 import org.jboss.tools.vpe.browsersim.ui.ControlHandler;
 import org.jboss.tools.vpe.browsersim.ui.menu.BrowserSimMenuCreator;
 import org.jboss.tools.vpe.browsersim.ui.menu.ToolsMenuCreator;
 import org.jboss.tools.vpe.browsersim.ui.skin.BrowserSimSkin;
+import org.jboss.tools.vpe.cordovasim.proxy.NetworkConditions;
+import org.jboss.tools.vpe.cordovasim.proxy.NetworkProfile;
 
 /**
  * @author Ilya Buziuk (ibuziuk)
@@ -32,6 +38,46 @@ public class CordovaSimMenuCreator extends BrowserSimMenuCreator {
 		ToolsMenuCreator.addScreenshotMenuItem(contextMenu, skin, commonPreferences);
 		ToolsMenuCreator.addLiveReloadItem(contextMenu, specificPreferences);
 		ToolsMenuCreator.addTouchEventsItem(contextMenu, specificPreferences);
+		addNetworkItem(contextMenu);
+	}
+	
+	private void addNetworkItem(Menu menu) {
+		final NetworkConditions networkConditions = CordovaSimRunner.getNetworkConditions();
+		if (networkConditions == null) {
+			return;
+		}
+		MenuItem network = new MenuItem(menu, SWT.CASCADE);
+		network.setText(Messages.CordovaSim_NETWORK);
+		Menu subMenu = new Menu(network);
+		for (final NetworkProfile profile : NetworkProfile.values()) {
+			MenuItem profileMenuItem = new MenuItem(subMenu, SWT.RADIO);
+			profileMenuItem.setText(getProfileName(profile));
+			profileMenuItem.setSelection(profile == networkConditions.getProfile());
+			profileMenuItem.addSelectionListener(new SelectionAdapter() {
+				public void widgetSelected(SelectionEvent e) {
+					MenuItem menuItem = (MenuItem) e.widget;
+					if (menuItem.getSelection()) {
+						networkConditions.setProfile(profile);
+					}
+				}
+			});
+		}
+		network.setMenu(subMenu);
+	}
+	
+	private String getProfileName(NetworkProfile profile) {
+		switch (profile) {
+		case GPRS:
+			return Messages.CordovaSim_NETWORK_GPRS;
+		case EDGE:
+			return Messages.CordovaSim_NETWORK_EDGE;
+		case UMTS:
+			return Messages.CordovaSim_NETWORK_UMTS;
+		case LTE:
+			return Messages.CordovaSim_NETWORK_LTE;
+		default:
+			return Messages.CordovaSim_NETWORK_NONE;
+		}
 	}
 	
 	@Override
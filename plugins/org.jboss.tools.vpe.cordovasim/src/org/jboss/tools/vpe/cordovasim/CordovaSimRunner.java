@@ -27,6 +27,8 @@ import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.Listener;
 import org.eclipse.swt.widgets.Shell;
+import org.jboss.tools.vpe.browsersim.BrowserSimArgs;
+import org.jboss.tools.vpe.browsersim.browser.BrowserPool;
 import org.jboss.tools.vpe.browsersim.browser.ExtendedOpenWindowListener;
 import org.jboss.tools.vpe.browsersim.browser.ExtendedWindowEvent;
 import org.jboss.tools.vpe.browsersim.browser.IBrowser;
@@ -45,6 +47,7 @@ import org.jboss.tools.vpe.cordovasim.events.RippleInjector;
 import org.jboss.tools.vpe.cordovasim.model.preferences.CordavaSimSpecificPreferencesStorage;
 import org.jboss.tools.vpe.cordovasim.model.preferences.CordovaSimSpecificPreferences;
 import org.jboss.tools.vpe.cordovasim.plugins.inappbrowser.InAppBrowserLoader;
+import org.jboss.tools.vpe.cordovasim.proxy.NetworkConditions;
 import org.jboss.tools.vpe.cordovasim.util.CordovaSimImageList;
 
 /**
@@ -84,6 +87,7 @@ public class CordovaSimRunner {
 	 */
 	public static void main(String[] args) throws Exception {
 		CordovaSimArgs.parseArgs(args);
+		BrowserPool.setSize(BrowserSimArgs.browserPoolSize);
 		startCordovaSim();
 	}
 	
@@ -132,7 +136,9 @@ public class CordovaSimRunner {
 			browserSim.addSkinChangeListener(new SkinChangeListener() {
 				@Override
 				public void skinChanged(SkinChangeEvent event) {
-					rippleToolSuiteBrowser.refresh();
+					if (event.isBrowserChanged()) {
+						rippleToolSuiteBrowser.refresh(); // the new browser has to be connected to Ripple
+					}
 				}
 			});
 			browserSim.addExitListener(new ExitListener() {
@@ -142,10 +148,17 @@ public class CordovaSimRunner {
 					rippleToolSuiteBrowser.getShell().dispose();
 				}
 			});
-			browserSim.getBrowser().addLocationListener(new RippleInjector());
+			RippleInjector.register(browserSim.getScriptInjector());
 		}
 	}
 	
+	/**
+	 * Returns network conditions of the running server or {@code null}
+	 */
+	static NetworkConditions getNetworkConditions() {
+		return server != null ? server.getBean(NetworkConditions.class) : null;
+	}
+	
 	private static Image[] initImages(Shell shell) {
 		CordovaSimImageList imageList = new CordovaSimImageList(shell);
 		Image[] icons = new Image[CORDOVASIM_ICONS.length];
@@ -171,10 +184,16 @@ public class CordovaSimRunner {
 	}
 	
 	private static Shell createCordovaSim(Display display) throws Exception {
+		long startTime = System.nanoTime();
 		File rootFolder = new File(CordovaSimArgs.getRootFolder());		
 
 		server = ServerCreator.createServer(rootFolder.getAbsolutePath(), CordovaSimArgs.getPort());// XXX
 		server.start();
+		CordovaSimLogger.logTiming("Server started", startTime); //$NON-NLS-1$
+		ServerWarmUp warmUp = server.getBean(ServerWarmUp.class);
+		if (warmUp != null) {
+			warmUp.start(); // in parallel with SWT and browser initialization
+		}
 		Connector connector = server.getConnectors()[0];
 		int port = connector.getLocalPort(); // for the case if port equals 0 is requested (any free port)
 		CordovaSimArgs.setPort(port);
@@ -226,9 +245,9 @@ public class CordovaSimRunner {
 						createBrowserSim(sp, rippleToolSuiteBrowser, homeUrl);
 					} else if (oldBrowser == browserSim.getBrowser()) {
 						browserSim.reinitSkin();
-						browserSim.getBrowser().addLocationListener(new RippleInjector());
+						RippleInjector.register(browserSim.getScriptInjector());
 					} else if (oldBrowser != browserSim.getBrowser()) {
-						browserSim.getBrowser().addLocationListener(new RippleInjector());
+						RippleInjector.register(browserSim.getScriptInjector());
 					}					
 					event.browser = browserSim.getBrowser();
 					oldBrowser = browserSim.getBrowser();
@@ -261,6 +280,7 @@ public class CordovaSimRunner {
 		});
 		
 		shell.open();
+		CordovaSimLogger.logTiming("Shell opened", startTime); //$NON-NLS-1$
 
 		return shell;
 	}
@@ -10,39 +10,702 @@
  ******************************************************************************/
 package org.jboss.tools.vpe.cordovasim;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.eclipse.jetty.client.HttpExchange;
+import org.eclipse.jetty.continuation.Continuation;
+import org.eclipse.jetty.continuation.ContinuationSupport;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeaders;
 import org.eclipse.jetty.http.HttpURI;
+import org.eclipse.jetty.io.Buffer;
+import org.eclipse.jetty.io.ByteArrayBuffer;
+import org.eclipse.jetty.io.EndPoint;
+import org.eclipse.jetty.server.AbstractHttpConnection;
 import org.eclipse.jetty.servlets.ProxyServlet;
+import org.eclipse.jetty.util.IO;
+import org.eclipse.jetty.util.MultiMap;
+import org.eclipse.jetty.util.StringUtil;
+import org.eclipse.jetty.util.UrlEncoded;
+import org.jboss.tools.vpe.cordovasim.proxy.ArchivedResponse;
+import org.jboss.tools.vpe.cordovasim.proxy.CachedResponse;
+import org.jboss.tools.vpe.cordovasim.proxy.NetworkConditions;
+import org.jboss.tools.vpe.cordovasim.proxy.NetworkLink;
+import org.jboss.tools.vpe.cordovasim.proxy.ProxyCache;
+import org.jboss.tools.vpe.cordovasim.proxy.ProxyStatistics;
+import org.jboss.tools.vpe.cordovasim.proxy.ThrottledOutput;
+import org.jboss.tools.vpe.cordovasim.proxy.TrafficArchive;
+import org.jboss.tools.vpe.cordovasim.servlet.util.ServletUtil;
 
 /**
+ * Proxies XHRs of the application to the URL passed in the {@code urlParameterName} parameter.
+ * <p>
+ * The exchange with the backend is driven by this servlet instead of {@link ProxyServlet#service}, so responses
+ * can be answered from and stored to the {@link ProxyCache}, or recorded to and replayed from
+ * the {@link TrafficArchive}. Request and response headers are forwarded by the same rules as in {@link ProxyServlet}.
+ * <p>
+ * Exchanges with the backend are delayed and throttled by the {@link NetworkConditions} of the emulated device.
+ * Response content is streamed to the client as it arrives, the proxy holds at most a bounded queue per exchange
+ * and reading from the backend waits while the client is slower, which blocks an HttpClient thread
+ * (see {@link ThrottledOutput}). Content is captured for the cache or the archive in a buffer which grows
+ * with the content, the capture is given up as soon as the body is known to exceed the limit.
+ *
  * @author Yahor Radtsevich (yradtsevich)
  */
 public class CrossOriginProxyServlet extends ProxyServlet {
+	private static final String CONNECT = "CONNECT"; //$NON-NLS-1$
+	private static final String GET = "GET"; //$NON-NLS-1$
+	private static final String OPTIONS = "OPTIONS"; //$NON-NLS-1$
+	private static final String TRACE = "TRACE"; //$NON-NLS-1$
+	private static final String NO_CACHE = "no-cache"; //$NON-NLS-1$
+	private static final String NO_STORE = "no-store"; //$NON-NLS-1$
+	private static final String MAX_AGE = "max-age"; //$NON-NLS-1$
+	private static final int INITIAL_CONTENT_BUFFER_SIZE = 64 * 1024;
+
 	private String urlParameterName;
+	private final ProxyCache proxyCache;
+	private final TrafficArchive trafficArchive;
+	private final NetworkConditions networkConditions;
+	private final ProxyStatistics statistics = new ProxyStatistics();
 
 	public CrossOriginProxyServlet(String urlParameterName) {
+		this(urlParameterName, null, null, null);
+	}
+
+	/**
+	 * @param proxyCache cache of the backend responses or {@code null} if the caching is disabled
+	 * @param trafficArchive archive the backend responses are recorded to or replayed from, or {@code null}
+	 * @param networkConditions emulated network of the device or {@code null}
+	 */
+	public CrossOriginProxyServlet(String urlParameterName, ProxyCache proxyCache, TrafficArchive trafficArchive,
+			NetworkConditions networkConditions) {
 		this.urlParameterName = urlParameterName;
+		this.proxyCache = proxyCache;
+		this.trafficArchive = trafficArchive;
+		this.networkConditions = networkConditions;
 	}
-	
+
+	public ProxyStatistics getStatistics() {
+		return statistics;
+	}
+
 	@Override
 	protected HttpURI proxyHttpURI(HttpServletRequest request, String uri)
-			throws MalformedURLException {;
-		String proxiedUrl = request.getParameter(urlParameterName);
+			throws MalformedURLException {
+		String proxiedUrl = null;
+		if (request.getQueryString() != null) { // getParameter() would consume the body of a form POST
+			MultiMap<String> parameters = new MultiMap<String>();
+			UrlEncoded.decodeTo(request.getQueryString(), parameters, StringUtil.__UTF8);
+			proxiedUrl = parameters.getString(urlParameterName);
+		}
 		if (proxiedUrl != null) {
-			return new HttpURI(proxiedUrl);				
+			return new HttpURI(proxiedUrl);
 		} else {
 			return null;
 		}
 	}
-	
+
 	@Override
 	protected void customizeExchange(HttpExchange exchange,
 			HttpServletRequest request) {
 		HttpURI url = new HttpURI(exchange.getRequestURI());
 		exchange.setRequestHeader("Host", url.getHost()); //$NON-NLS-1$
 	}
+
+	@Override
+	public void service(ServletRequest req, ServletResponse res) throws ServletException, IOException {
+		HttpServletRequest request = (HttpServletRequest) req;
+		HttpServletResponse response = (HttpServletResponse) res;
+		if (CONNECT.equalsIgnoreCase(request.getMethod())) {
+			super.service(request, response); // tunnels are not cached
+			return;
+		}
+
+		Continuation continuation = ContinuationSupport.getContinuation(request);
+		if (!continuation.isInitial()) {
+			response.sendError(HttpServletResponse.SC_GATEWAY_TIMEOUT); // the exchange has expired
+			return;
+		}
+
+		String uri = request.getRequestURI();
+		if (request.getQueryString() != null) {
+			uri += "?" + request.getQueryString(); //$NON-NLS-1$
+		}
+		HttpURI url = proxyHttpURI(request, uri);
+		if (url == null) {
+			response.sendError(HttpServletResponse.SC_FORBIDDEN);
+			return;
+		}
+
+		String archiveKey = null;
+		if (trafficArchive != null) {
+			archiveKey = trafficArchive.getRequestMatcher().getKey(request, url.toString());
+			if (trafficArchive.getMode() == TrafficArchive.Mode.REPLAY) {
+				sendArchivedResponse(request, response, archiveKey); // no network at all
+				return;
+			}
+		}
+
+		String cacheKey = null;
+		CachedResponse cachedResponse = null;
+		if (proxyCache != null) {
+			String key = ProxyCache.getKey(GET, url.toString());
+			if (isCacheable(request)) {
+				cacheKey = key;
+				cachedResponse = proxyCache.get(cacheKey, request);
+				if (cachedResponse != null && cachedResponse.isFresh(System.currentTimeMillis())
+						&& !isRevalidationRequired(request)) {
+					InputStream body = openCachedBody(cachedResponse);
+					if (body != null) {
+						proxyCache.recordHit();
+						try {
+							sendCachedResponse(request, response, cachedResponse, body);
+						} finally {
+							body.close();
+						}
+						return;
+					}
+					cachedResponse = null; // evicted meanwhile, so the backend is asked
+				}
+				proxyCache.recordMiss();
+			} else if (!isSafe(request.getMethod())) {
+				proxyCache.invalidate(key); // e.g. POST to the same URL, see RFC 7234 section 4.4
+			}
+		}
+
+		NetworkLink link = networkConditions != null ? networkConditions.getLink() : null;
+		if (link != null && link.isRequestLost()) {
+			dropRequest(link, continuation, response);
+			return;
+		}
+
+		ProxyExchange exchange = new ProxyExchange(request, response, continuation, cacheKey, archiveKey, link);
+		exchange.setMethod(request.getMethod());
+		exchange.setURL(url.toString());
+		exchange.setVersion(request.getProtocol());
+		boolean hasContent = copyRequestHeaders(request, exchange);
+		if (archiveKey != null) { // the client's 304 would be replayed to a request without the validators
+			exchange.getRequestFields().remove(HttpHeaders.IF_NONE_MATCH);
+			exchange.getRequestFields().remove(HttpHeaders.IF_MODIFIED_SINCE);
+		}
+		long contentLength = 0;
+		if (hasContent && link != null) {
+			byte[] content = IO.readBytes(request.getInputStream()); // read at full speed, the upload is delayed as a whole
+			exchange.setRequestContent(new ByteArrayBuffer(content));
+			contentLength = content.length;
+		} else if (hasContent) {
+			exchange.setRequestContentSource(request.getInputStream());
+		}
+		if (cachedResponse != null && cachedResponse.hasValidators() && !hasConditions(request)) {
+			InputStream body = openCachedBody(cachedResponse); // kept open, the entry may be evicted before "304"
+			if (body != null) {
+				exchange.revalidate(cachedResponse, body); // the client's own conditions are answered by the backend
+			}
+		}
+		customizeExchange(exchange, request);
+		long timeout = Math.max(_client.getTimeout(), exchange.getTimeout());
+		if (link != null || timeout == 0) {
+			// throttled content is written long after the backend has answered, the exchange still expires on its own
+			continuation.setTimeout(0);
+		} else {
+			continuation.setTimeout(timeout + 1000); // like ProxyServlet, the exchange expires first
+		}
+		customizeContinuation(continuation);
+		continuation.suspend(response);
+		statistics.exchangeStarted();
+		if (link != null) {
+			final ProxyExchange delayedExchange = exchange;
+			link.send(getRequestSize(exchange, contentLength), new Runnable() {
+				@Override
+				public void run() {
+					delayedExchange.send();
+				}
+			});
+		} else {
+			exchange.send();
+		}
+	}
+
+	/**
+	 * Emulates a lost request closing the client's connection without a response after the latency
+	 */
+	private void dropRequest(NetworkLink link, final Continuation continuation, HttpServletResponse response) {
+		final EndPoint endPoint = AbstractHttpConnection.getCurrentConnection().getEndPoint();
+		continuation.suspend(response);
+		link.delay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					endPoint.close();
+				} catch (IOException e) {
+					CordovaSimLogger.logError(e.getMessage(), e);
+				} finally {
+					continuation.complete();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Estimates the size of the request on the wire to charge the upload bandwidth
+	 */
+	private long getRequestSize(HttpExchange exchange, long contentLength) {
+		long size = exchange.getMethod().length() + exchange.getRequestURI().length() + 12; // the request line
+		HttpFields fields = exchange.getRequestFields();
+		for (int i = 0; i < fields.size(); i++) {
+			HttpFields.Field field = fields.getField(i);
+			if (field != null) {
+				size += field.getName().length() + field.getValue().length() + 4;
+			}
+		}
+		return size + 2 + contentLength;
+	}
+
+	/**
+	 * Copies headers of the client's request except hop-by-hop ones and adds proxy headers like {@link ProxyServlet} does
+	 *
+	 * @return {@code true} if the request has a body
+	 */
+	@SuppressWarnings("nls")
+	private boolean copyRequestHeaders(HttpServletRequest request, HttpExchange exchange) {
+		String connectionHeader = request.getHeader("Connection");
+		if (connectionHeader != null) {
+			connectionHeader = connectionHeader.toLowerCase(Locale.ENGLISH);
+			if (connectionHeader.indexOf("keep-alive") < 0 && connectionHeader.indexOf("close") < 0) {
+				connectionHeader = null;
+			}
+		}
+		if (_hostHeader != null) {
+			exchange.setRequestHeader("Host", _hostHeader);
+		}
+
+		boolean xForwardedFor = false;
+		boolean hasContent = false;
+		Enumeration<?> headerNames = request.getHeaderNames();
+		while (headerNames.hasMoreElements()) {
+			String name = (String) headerNames.nextElement();
+			String lowerCaseName = name.toLowerCase(Locale.ENGLISH);
+			if ("transfer-encoding".equals(lowerCaseName) && request.getHeader(name).indexOf("chunk") >= 0) {
+				hasContent = true;
+			}
+			if (_DontProxyHeaders.contains(lowerCaseName)
+					|| (connectionHeader != null && connectionHeader.indexOf(lowerCaseName) >= 0)
+					|| (_hostHeader != null && "host".equals(lowerCaseName))) {
+				continue;
+			}
+
+			if ("content-type".equals(lowerCaseName)) {
+				hasContent = true;
+			} else if ("content-length".equals(lowerCaseName)) {
+				long contentLength = request.getContentLength();
+				exchange.setRequestHeader(HttpHeaders.CONTENT_LENGTH, Long.toString(contentLength));
+				if (contentLength > 0) {
+					hasContent = true;
+				}
+			} else if ("x-forwarded-for".equals(lowerCaseName)) {
+				xForwardedFor = true;
+			}
+
+			Enumeration<?> values = request.getHeaders(name);
+			while (values.hasMoreElements()) {
+				String value = (String) values.nextElement();
+				if (value != null) {
+					exchange.setRequestHeader(name, value);
+				}
+			}
+		}
+
+		exchange.setRequestHeader("Via", "1.1 (jetty)");
+		if (!xForwardedFor) {
+			exchange.addRequestHeader("X-Forwarded-For", request.getRemoteAddr());
+			exchange.addRequestHeader("X-Forwarded-Proto", request.getScheme());
+			exchange.addRequestHeader("X-Forwarded-Host", request.getHeader("Host"));
+			exchange.addRequestHeader("X-Forwarded-Server", request.getLocalName());
+		}
+		return hasContent;
+	}
+
+	private void addResponseHeader(HttpServletRequest request, HttpServletResponse response, String name, String value) {
+		if (!_DontProxyHeaders.contains(name.toLowerCase(Locale.ENGLISH))) {
+			String filteredValue = filterResponseHeaderValue(name, value, request);
+			if (filteredValue != null && filteredValue.trim().length() > 0) {
+				response.addHeader(name, filteredValue);
+			}
+		}
+	}
+
+	/**
+	 * Opens the body of the stored response or returns {@code null} if it has been evicted since the lookup
+	 */
+	private InputStream openCachedBody(CachedResponse cachedResponse) {
+		try {
+			return proxyCache.openBody(cachedResponse);
+		} catch (IOException e) { // the body file has been deleted
+			return null;
+		}
+	}
+
+	/**
+	 * Sends the stored response answering "304 Not Modified" if the client's own copy is still valid,
+	 * the {@code body} is not closed
+	 */
+	private void sendCachedResponse(HttpServletRequest request, HttpServletResponse response,
+			CachedResponse cachedResponse, InputStream body) throws IOException {
+		boolean notModified = cachedResponse.getStatus() == HttpServletResponse.SC_OK
+				&& ServletUtil.isNotModified(request, cachedResponse.getEtag());
+		response.setStatus(notModified ? HttpServletResponse.SC_NOT_MODIFIED : cachedResponse.getStatus());
+		HttpFields headers = cachedResponse.getHeaders();
+		for (int i = 0; i < headers.size(); i++) {
+			HttpFields.Field header = headers.getField(i);
+			if (header != null && !(notModified && HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(header.getName()))) {
+				addResponseHeader(request, response, header.getName(), header.getValue());
+			}
+		}
+		response.setHeader(HttpHeaders.AGE, Long.toString(cachedResponse.getAge(System.currentTimeMillis()) / 1000));
+
+		if (!notModified && !ServletUtil.HEAD.equals(request.getMethod())) {
+			IO.copy(body, response.getOutputStream());
+		}
+	}
+
+	/**
+	 * Sends the next recorded response for the {@code key}, "502 Bad Gateway" is sent for requests missing in the archive
+	 */
+	private void sendArchivedResponse(HttpServletRequest request, HttpServletResponse response, String key)
+			throws IOException {
+		ArchivedResponse archivedResponse = trafficArchive.find(key);
+		if (archivedResponse == null) {
+			response.sendError(HttpServletResponse.SC_BAD_GATEWAY, "The response is not recorded"); //$NON-NLS-1$
+			return;
+		}
+		response.setStatus(archivedResponse.getStatus());
+		HttpFields headers = archivedResponse.getHeaders();
+		for (int i = 0; i < headers.size(); i++) {
+			HttpFields.Field header = headers.getField(i);
+			if (header != null && !HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(header.getName())) {
+				addResponseHeader(request, response, header.getName(), header.getValue());
+			}
+		}
+		int status = archivedResponse.getStatus();
+		if (status != HttpServletResponse.SC_NO_CONTENT && status != HttpServletResponse.SC_NOT_MODIFIED) {
+			response.setHeader(HttpHeaders.CONTENT_LENGTH, Long.toString(archivedResponse.getBodyLength()));
+			if (!ServletUtil.HEAD.equals(request.getMethod())) {
+				trafficArchive.sendBody(archivedResponse, response);
+			}
+		}
+	}
+
+	private boolean isCacheable(HttpServletRequest request) {
+		return GET.equals(request.getMethod()) && request.getHeader(HttpHeaders.AUTHORIZATION) == null
+				&& !CachedResponse.parseCacheControl(request.getHeader(HttpHeaders.CACHE_CONTROL)).containsKey(NO_STORE);
+	}
+
+	/**
+	 * Checks if the client asks to validate the stored response with the backend (e.g. on a forced reload)
+	 */
+	private boolean isRevalidationRequired(HttpServletRequest request) {
+		Map<String, String> cacheControl = CachedResponse.parseCacheControl(request.getHeader(HttpHeaders.CACHE_CONTROL));
+		String pragma = request.getHeader(HttpHeaders.PRAGMA);
+		return cacheControl.containsKey(NO_CACHE) || "0".equals(cacheControl.get(MAX_AGE)) //$NON-NLS-1$
+				|| (pragma != null && pragma.indexOf(NO_CACHE) >= 0);
+	}
+
+	private boolean hasConditions(HttpServletRequest request) {
+		return request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+				|| request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null;
+	}
+
+	private boolean isSafe(String method) {
+		return GET.equals(method) || ServletUtil.HEAD.equals(method) || OPTIONS.equals(method) || TRACE.equals(method);
+	}
+
+	/**
+	 * Forwards the backend response to the client, the response is stored to the {@link ProxyCache} on the way
+	 * if it is cacheable and recorded to the {@link TrafficArchive} in the record mode. A "304 Not Modified" answer
+	 * to the cache's own revalidation is replaced by the stored response.
+	 */
+	private class ProxyExchange extends HttpExchange {
+		private final HttpServletRequest request;
+		private final HttpServletResponse response;
+		private final Continuation continuation;
+		private final String cacheKey;
+		private final String archiveKey;
+		private final NetworkLink link;
+		private final long requestTime = System.currentTimeMillis();
+		private final HttpFields responseHeaders = new HttpFields();
+		private CachedResponse revalidatedResponse;
+		private InputStream revalidatedBody;
+		private int responseStatus;
+		private boolean notModified;
+		private boolean cacheable;
+		private ByteArrayOutputStream contentBuffer;
+		private long contentBufferLimit;
+		private byte[] heldContent;
+		private OutputStream outputStream;
+		private ThrottledOutput download;
+		private final AtomicBoolean finished = new AtomicBoolean();
+
+		/**
+		 * @param cacheKey key of the response in the {@link ProxyCache} or {@code null} if it must not be cached
+		 * @param archiveKey key of the response in the {@link TrafficArchive} or {@code null} if it is not recorded
+		 * @param link emulated network link or {@code null} if the network is not throttled
+		 */
+		public ProxyExchange(HttpServletRequest request, HttpServletResponse response, Continuation continuation,
+				String cacheKey, String archiveKey, NetworkLink link) {
+			this.request = request;
+			this.response = response;
+			this.continuation = continuation;
+			this.cacheKey = cacheKey;
+			this.archiveKey = archiveKey;
+			this.link = link;
+		}
+
+		public void send() {
+			try {
+				_client.send(this);
+			} catch (IOException e) {
+				onException(e);
+			}
+		}
+
+		/**
+		 * Makes the request conditional on the validators of the stored {@code cachedResponse}, the opened
+		 * {@code body} is sent on "304 Not Modified" and closed when the exchange finishes
+		 */
+		public void revalidate(CachedResponse cachedResponse, InputStream body) {
+			this.revalidatedResponse = cachedResponse;
+			this.revalidatedBody = body;
+			if (cachedResponse.getEtag() != null) {
+				setRequestHeader(HttpHeaders.IF_NONE_MATCH, cachedResponse.getEtag());
+			}
+			if (cachedResponse.getLastModified() != null) {
+				setRequestHeader(HttpHeaders.IF_MODIFIED_SINCE, cachedResponse.getLastModified());
+			}
+		}
+
+		@Override
+		protected void onResponseStatus(Buffer version, int status, Buffer reason) throws IOException {
+			responseStatus = status;
+			if (status == HttpServletResponse.SC_NOT_MODIFIED && revalidatedResponse != null) {
+				notModified = true; // the stored response is sent instead
+			} else {
+				response.setStatus(status);
+			}
+		}
+
+		@Override
+		protected void onResponseHeader(Buffer name, Buffer value) throws IOException {
+			String nameString = name.toString();
+			String valueString = value.toString();
+			if (cacheKey != null || archiveKey != null) {
+				responseHeaders.add(nameString, valueString);
+			}
+			if (!notModified) {
+				addResponseHeader(request, response, nameString, valueString);
+			}
+		}
+
+		@Override
+		protected void onResponseHeaderComplete() throws IOException {
+			long contentLength = getContentLength();
+			cacheable = cacheKey != null && !notModified && CachedResponse.isCacheable(responseStatus, responseHeaders);
+			if (cacheable && contentLength <= proxyCache.getMaxEntrySize()) {
+				contentBufferLimit = proxyCache.getMaxEntrySize();
+			}
+			if (archiveKey != null) {
+				if (contentLength <= TrafficArchive.MAX_BODY_SIZE) {
+					contentBufferLimit = Math.max(contentBufferLimit, TrafficArchive.MAX_BODY_SIZE);
+				} else {
+					logNotRecorded(contentLength);
+				}
+			}
+			if (contentBufferLimit > 0) { // not sized by "Content-Length", the client may be gone long before the end
+				contentBuffer = new ByteArrayOutputStream((int) Math.min(contentLength > 0 ? contentLength : 4096,
+						INITIAL_CONTENT_BUFFER_SIZE));
+			}
+			if (link != null && !notModified) {
+				download = link.openDownload(getOutputStream(), statistics);
+			}
+		}
+
+		@Override
+		protected void onResponseContent(Buffer content) throws IOException {
+			if (notModified) {
+				return;
+			}
+			if (contentBuffer == null && download == null) {
+				content.writeTo(getOutputStream());
+				return;
+			}
+			byte[] bytes = content.asArray();
+			if (contentBuffer != null) {
+				contentBuffer.write(bytes);
+				statistics.addBufferedBytes(bytes.length);
+				if (contentBuffer.size() > contentBufferLimit) {
+					if (archiveKey != null) {
+						logNotRecorded(contentBuffer.size());
+					}
+					releaseContentBuffer(); // too large to be cached or recorded
+				}
+			}
+			writeHeldContent();
+			if (contentBuffer != null) {
+				heldContent = bytes; // the client could ask again before the response is stored otherwise
+			} else {
+				writeContent(bytes);
+			}
+		}
+
+		@Override
+		protected void onResponseComplete() throws IOException {
+			try {
+				long responseTime = System.currentTimeMillis();
+				if (notModified) {
+					CachedResponse cachedResponse = proxyCache.revalidate(revalidatedResponse, responseHeaders,
+							requestTime, responseTime);
+					sendCachedResponse(request, response, cachedResponse, revalidatedBody);
+				} else if (contentBuffer != null) {
+					byte[] body = contentBuffer.toByteArray();
+					if (cacheable && body.length <= proxyCache.getMaxEntrySize()) {
+						storeResponse(body, responseTime);
+					}
+					if (archiveKey != null) {
+						recordResponse(body);
+					}
+					writeHeldContent();
+				}
+			} finally {
+				releaseContentBuffer();
+				if (download != null) {
+					download.close(new Runnable() {
+						@Override
+						public void run() {
+							finish(); // the throttled content is written
+						}
+					});
+				} else {
+					finish();
+				}
+			}
+		}
+
+		private void writeContent(byte[] bytes) throws IOException {
+			if (download != null) {
+				download.write(bytes);
+			} else {
+				getOutputStream().write(bytes);
+			}
+		}
+
+		/**
+		 * Writes the last chunk of a buffered body, it is held back until the body is stored or recorded
+		 */
+		private void writeHeldContent() throws IOException {
+			if (heldContent != null) {
+				byte[] bytes = heldContent;
+				heldContent = null;
+				writeContent(bytes);
+			}
+		}
+
+		private void storeResponse(byte[] body, long responseTime) {
+			try {
+				proxyCache.put(CachedResponse.create(cacheKey, request, responseStatus, responseHeaders,
+						body, requestTime, responseTime));
+			} catch (IOException e) { // the response has been sent anyway
+				CordovaSimLogger.logError(e.getMessage(), e);
+			}
+		}
+
+		private void logNotRecorded(long contentLength) {
+			CordovaSimLogger.logError("Response of " + contentLength + " bytes exceeds " + TrafficArchive.MAX_BODY_SIZE //$NON-NLS-1$ //$NON-NLS-2$
+					+ " bytes and is not recorded: " + getRequestURI(), null); //$NON-NLS-1$
+		}
+
+		private void recordResponse(byte[] body) {
+			try {
+				trafficArchive.record(archiveKey, responseStatus, responseHeaders, body);
+			} catch (IOException e) {
+				CordovaSimLogger.logError(e.getMessage(), e);
+			}
+		}
+
+		@Override
+		protected void onConnectionFailed(Throwable ex) {
+			abort();
+			handleOnConnectionFailed(ex, request, response);
+			finish();
+		}
+
+		@Override
+		protected void onException(Throwable ex) {
+			abort();
+			handleOnException(ex, request, response);
+			finish();
+		}
+
+		@Override
+		protected void onExpire() {
+			abort();
+			handleOnExpire(request, response);
+			finish();
+		}
+
+		private void abort() {
+			releaseContentBuffer();
+			heldContent = null;
+			if (download != null) {
+				download.abort();
+			}
+		}
+
+		private void releaseContentBuffer() {
+			if (contentBuffer != null) {
+				statistics.addBufferedBytes(-contentBuffer.size());
+				contentBuffer = null;
+			}
+		}
+
+		/**
+		 * Completes the client's request once, the continuation is always suspended before the exchange is sent
+		 */
+		private void finish() {
+			if (finished.compareAndSet(false, true)) {
+				if (revalidatedBody != null) {
+					IO.close(revalidatedBody);
+				}
+				statistics.exchangeFinished();
+				continuation.complete();
+			}
+		}
+
+		private long getContentLength() {
+			try {
+				return responseHeaders.getLongField(HttpHeaders.CONTENT_LENGTH);
+			} catch (NumberFormatException e) {
+				return -1;
+			}
+		}
+
+		private OutputStream getOutputStream() throws IOException {
+			if (outputStream == null) {
+				outputStream = response.getOutputStream();
+			}
+			return outputStream;
+		}
+	}
 }
@@ -104,6 +104,11 @@ public class CustomBrowserSim extends BrowserSim {
 	protected boolean isUrlResettingNeededAfterSkinChange() {
 		return false; // JBIDE-14636 - need to prevent prompts after skin changing
 	}
+	
+	@Override
+	protected boolean isBrowserMovingPossibleOnSkinChange() {
+		return inAppBrowser == null; // the InAppBrowser shares the parent composite with the browser
+	}
 
 	public IBrowser getInAppBrowser() {
 		return inAppBrowser;
@@ -20,6 +20,12 @@ public class Messages {
 
 	public static String ExceptionNotifier_PORT_IN_USE;
 	public static String CordovaSim_CORDOVA_SIM;
+	public static String CordovaSim_NETWORK;
+	public static String CordovaSim_NETWORK_NONE;
+	public static String CordovaSim_NETWORK_GPRS;
+	public static String CordovaSim_NETWORK_EDGE;
+	public static String CordovaSim_NETWORK_UMTS;
+	public static String CordovaSim_NETWORK_LTE;
 
 	static {
 		NLS.initializeMessages(BUNDLE_NAME, Messages.class);
@@ -0,0 +1,245 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2013 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerCollection;
+import org.jboss.tools.vpe.cordovasim.cache.FileIndex;
+import org.jboss.tools.vpe.cordovasim.cache.FileIndex.FileInfo;
+
+/**
+ * Dispatches each request to a single handler found by one lookup in a trie of path segments,
+ * instead of passing the request through a {@link org.eclipse.jetty.server.handler.HandlerList} one by one.
+ * <p>
+ * Path specs are either exact ("/cordova.js") or prefix ("/plugins/*") mappings. Requests which are not mapped,
+ * or not handled by the mapped handler, go to the project handler ("/") and then to the not found handler.
+ * Routes may give precedence to the files of the project, as they used to when the project handler was
+ * placed before them in the handler list. The number of requests dispatched to each route is counted
+ * in {@link #getStatistics()}.
+ */
+public class RequestRouter extends HandlerCollection {
+	private static final char PATH_SEPARATOR = '/';
+	private static final String PREFIX_SUFFIX = "/*"; //$NON-NLS-1$
+	private static final String PROJECT_ROUTE = "/"; //$NON-NLS-1$
+	private static final String NOT_FOUND_ROUTE = "(not found)"; //$NON-NLS-1$
+
+	private final Node root = new Node();
+	private final List<Route> parameterRoutes = new ArrayList<Route>();
+	private final RouteStatistics statistics = new RouteStatistics();
+	private final FileIndex fileIndex;
+	private final File projectRoot;
+	private Route projectRoute;
+	private Route notFoundRoute;
+
+	/**
+	 * @param projectRoot the directory served by the project handler
+	 * @param fileIndex index used to check if the project has a file for the requested path
+	 */
+	public RequestRouter(File projectRoot, FileIndex fileIndex) {
+		super();
+		this.projectRoot = projectRoot;
+		this.fileIndex = fileIndex;
+	}
+
+	/**
+	 * Maps the {@code handler} to the {@code pathSpec}
+	 *
+	 * @param pathSpec exact path (e.g. "/cordova.js") or path prefix (e.g. "/plugins/*")
+	 * @param projectFilesFirst if {@code true}, the file of the project with the same path is served instead
+	 */
+	public void addRoute(String pathSpec, Handler handler, boolean projectFilesFirst) {
+		Route route = createRoute(pathSpec, handler, projectFilesFirst);
+		boolean prefix = pathSpec.endsWith(PREFIX_SUFFIX);
+		String path = prefix ? pathSpec.substring(0, pathSpec.length() - PREFIX_SUFFIX.length()) : pathSpec;
+
+		Node node = root;
+		int start = 1; // skipping the first "/"
+		while (start < path.length()) {
+			int end = path.indexOf(PATH_SEPARATOR, start);
+			if (end < 0) {
+				end = path.length();
+			}
+			node = node.getOrCreateChild(path.substring(start, end));
+			start = end + 1;
+		}
+
+		if (prefix) {
+			node.prefixRoute = route;
+		} else {
+			node.exactRoute = route;
+		}
+	}
+
+	/**
+	 * Maps the {@code handler} to all the requests having the {@code parameterName} parameter
+	 */
+	public void addParameterRoute(String parameterName, Handler handler) {
+		parameterRoutes.add(createRoute(parameterName, handler, false));
+	}
+
+	/**
+	 * Sets handler for the files of the project, it serves all the requests which are not handled by the routes
+	 */
+	public void setProjectHandler(Handler handler) {
+		projectRoute = createRoute(PROJECT_ROUTE, handler, false);
+	}
+
+	/**
+	 * Sets handler for the requests which are not handled by any route
+	 */
+	public void setNotFoundHandler(Handler handler) {
+		notFoundRoute = createRoute(NOT_FOUND_ROUTE, handler, false);
+	}
+
+	@Override
+	public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+		if (!isStarted()) {
+			return;
+		}
+
+		Route route = findRoute(target, request);
+		if (route != null) {
+			route.handle(target, baseRequest, request, response);
+		}
+		if (!baseRequest.isHandled() && projectRoute != null && route != projectRoute) {
+			projectRoute.handle(target, baseRequest, request, response);
+		}
+		if (!baseRequest.isHandled() && notFoundRoute != null) {
+			notFoundRoute.handle(target, baseRequest, request, response);
+		}
+	}
+
+	public RouteStatistics getStatistics() {
+		return statistics;
+	}
+
+	private Route findRoute(String target, HttpServletRequest request) {
+		for (Route parameterRoute : parameterRoutes) {
+			if (request.getParameter(parameterRoute.name) != null) {
+				return parameterRoute;
+			}
+		}
+
+		Route route = lookup(target);
+		if (route == null || (route.projectFilesFirst && hasProjectFile(target))) {
+			return projectRoute;
+		}
+		return route;
+	}
+
+	/**
+	 * Returns the exact route for the {@code target} or the route with the longest matching prefix
+	 */
+	private Route lookup(String target) {
+		if (target == null || target.length() == 0 || target.charAt(0) != PATH_SEPARATOR) {
+			return null;
+		}
+
+		Node node = root;
+		Route route = root.prefixRoute;
+		int start = 1;
+		while (start < target.length()) {
+			int end = target.indexOf(PATH_SEPARATOR, start);
+			if (end < 0) {
+				end = target.length();
+			}
+			node = node.getChild(target.substring(start, end));
+			if (node == null) {
+				return route;
+			}
+			if (node.prefixRoute != null) {
+				route = node.prefixRoute;
+			}
+			start = end + 1;
+		}
+		return node.exactRoute != null ? node.exactRoute : route;
+	}
+
+	private boolean hasProjectFile(String target) {
+		if (projectRoot == null) {
+			return false;
+		}
+		FileInfo fileInfo = fileIndex.getCurrentFileInfo(new File(projectRoot, target)); // the file may be gone before its watch event
+		return fileInfo != null && !fileInfo.isDirectory();
+	}
+
+	private Route createRoute(String name, Handler handler, boolean projectFilesFirst) {
+		Route route = new Route(name, handler, projectFilesFirst, statistics.register(name));
+		if (!containsHandler(handler)) { // the same handler may serve several routes
+			addHandler(handler);
+		}
+		return route;
+	}
+
+	private boolean containsHandler(Handler handler) {
+		Handler[] handlers = getHandlers();
+		if (handlers != null) {
+			for (Handler existingHandler : handlers) {
+				if (existingHandler == handler) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static class Node {
+		private final Map<String, Node> children = new HashMap<String, Node>();
+		private Route exactRoute;
+		private Route prefixRoute;
+
+		public Node getChild(String segment) {
+			return children.get(segment);
+		}
+
+		public Node getOrCreateChild(String segment) {
+			Node child = children.get(segment);
+			if (child == null) {
+				child = new Node();
+				children.put(segment, child);
+			}
+			return child;
+		}
+	}
+
+	private static class Route {
+		private final String name;
+		private final Handler handler;
+		private final boolean projectFilesFirst;
+		private final AtomicLong hits;
+
+		public Route(String name, Handler handler, boolean projectFilesFirst, AtomicLong hits) {
+			this.name = name;
+			this.handler = handler;
+			this.projectFilesFirst = projectFilesFirst;
+			this.hits = hits;
+		}
+
+		public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+			hits.incrementAndGet();
+			handler.handle(target, baseRequest, request, response);
+		}
+	}
+
+}
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2013 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Request;
+import org.jboss.tools.vpe.cordovasim.cache.ContentHashIndex;
+import org.jboss.tools.vpe.cordovasim.cache.FileIndex;
+import org.jboss.tools.vpe.cordovasim.cache.FileIndex.FileInfo;
+import org.jboss.tools.vpe.cordovasim.servlet.util.ServletUtil;
+
+/**
+ * Resource handler for files which may be edited while CordovaSim is running (e.g. "www" folder of the project).
+ * Unlike {@link NotCachingResourceHandler} unchanged files are answered with "304 Not Modified",
+ * but modification time is never trusted: the browser has to revalidate every file by a strong ETag
+ * computed from the file content, so it never gets stale bytes after an edit.
+ * File attributes are taken from the {@link FileIndex} and checked against the disk, so answering
+ * "304 Not Modified" costs one file system call and no reading.
+ */
+public class RevalidatingResourceHandler extends NotCachingResourceHandler implements FileIndex.Listener {
+	private static final String GET = "GET"; //$NON-NLS-1$
+	private static final String ROOT = "/"; //$NON-NLS-1$
+
+	private final ContentHashIndex contentHashIndex = new ContentHashIndex();
+	private final FileIndex fileIndex;
+	private File baseDir;
+
+	public RevalidatingResourceHandler(FileIndex fileIndex) {
+		super();
+		this.fileIndex = fileIndex;
+		setCacheControl(ServletUtil.REVALIDATE);
+	}
+
+	@Override
+	public void doStart() throws Exception {
+		super.doStart();
+		baseDir = getBaseResource() != null ? getBaseResource().getFile() : null;
+		fileIndex.addListener(this);
+	}
+
+	@Override
+	public void directoryChanged(File directory) {
+		contentHashIndex.removeDeleted(directory, fileIndex); // hashes of deleted files are never asked again
+	}
+
+	@Override
+	public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+		if (!baseRequest.isHandled() && (GET.equals(request.getMethod()) || ServletUtil.HEAD.equals(request.getMethod()))) {
+			FileInfo fileInfo = getRequestedFile(request);
+			String eTag = null;
+			if (fileInfo != null) {
+				try {
+					eTag = contentHashIndex.getEtag(fileInfo.getFile(), fileInfo.getLastModified(), fileInfo.getLength());
+				} catch (IOException e) { // e.g. deleted meanwhile, the resource handler answers then
+				}
+			}
+			if (eTag != null) {
+				response.setHeader(ServletUtil.ETAG, eTag);
+				if (ServletUtil.isNotModified(request, eTag)) {
+					baseRequest.setHandled(true);
+					response.setHeader(ServletUtil.CACHE_CONTROL, getCacheControl());
+					response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+					return;
+				}
+			}
+		}
+		super.handle(target, baseRequest, request, response);
+	}
+
+	@Override
+	protected void doStop() throws Exception {
+		fileIndex.removeListener(this);
+		contentHashIndex.clear();
+		super.doStop();
+	}
+
+	/**
+	 * Returns the file which will be sent for the {@code request}, or {@code null} if it is not a regular file
+	 */
+	private FileInfo getRequestedFile(HttpServletRequest request) {
+		String pathInfo = request.getPathInfo();
+		if (baseDir == null || pathInfo == null) {
+			return null;
+		}
+
+		FileInfo fileInfo = fileIndex.getCurrentFileInfo(new File(baseDir, pathInfo));
+		if (fileInfo != null && fileInfo.isDirectory()) {
+			if (!pathInfo.endsWith(ROOT) || getWelcomeFiles() == null) {
+				return null; // will be redirected or listed
+			}
+			for (String welcomeFile : getWelcomeFiles()) {
+				FileInfo welcomeFileInfo = fileIndex.getCurrentFileInfo(new File(fileInfo.getFile(), welcomeFile));
+				if (welcomeFileInfo != null && !welcomeFileInfo.isDirectory()) {
+					return welcomeFileInfo;
+				}
+			}
+			return null; // directory listing
+		}
+		return fileInfo;
+	}
+
+}
@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2014 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of the requests dispatched by {@link RequestRouter} to each of its routes
+ */
+public class RouteStatistics {
+	private final Map<String, AtomicLong> hitCounts = new LinkedHashMap<String, AtomicLong>();
+
+	/**
+	 * Returns a new counter of the {@code route}, replacing the previous one
+	 */
+	synchronized AtomicLong register(String route) {
+		AtomicLong hitCount = new AtomicLong();
+		hitCounts.put(route, hitCount);
+		return hitCount;
+	}
+
+	/**
+	 * Returns the number of requests dispatched to the {@code route}, or -1 if there is no such route
+	 */
+	public synchronized long getHitCount(String route) {
+		AtomicLong hitCount = hitCounts.get(route);
+		return hitCount != null ? hitCount.get() : -1;
+	}
+
+	/**
+	 * Returns the number of requests dispatched to each route, in the order the routes were added
+	 */
+	public synchronized Map<String, Long> getHitCounts() {
+		Map<String, Long> snapshot = new LinkedHashMap<String, Long>();
+		for (Map.Entry<String, AtomicLong> entry : hitCounts.entrySet()) {
+			snapshot.put(entry.getKey(), entry.getValue().get());
+		}
+		return snapshot;
+	}
+
+	@Override
+	public String toString() {
+		return "RouteStatistics" + getHitCounts(); //$NON-NLS-1$
+	}
+
+}
@@ -12,6 +12,7 @@ package org.jboss.tools.vpe.cordovasim;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.Callable;
 
 import javax.servlet.MultipartConfigElement;
 import javax.servlet.http.HttpServletRequest;
@@ -19,22 +20,32 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.eclipse.jetty.rewrite.handler.RewriteHandler;
 import org.eclipse.jetty.rewrite.handler.Rule;
-import org.eclipse.jetty.server.Handler;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.handler.ContextHandler;
 import org.eclipse.jetty.server.handler.DefaultHandler;
-import org.eclipse.jetty.server.handler.HandlerList;
 import org.eclipse.jetty.server.handler.ResourceHandler;
 import org.eclipse.jetty.server.nio.SelectChannelConnector;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
+import org.jboss.tools.vpe.cordovasim.cache.CordovaEngineCache;
+import org.jboss.tools.vpe.cordovasim.cache.FileIndex;
+import org.jboss.tools.vpe.cordovasim.cache.PluginBundleCache;
+import org.jboss.tools.vpe.cordovasim.cache.PluginModelCache;
+import org.jboss.tools.vpe.cordovasim.plugin.model.PluginIdCache;
 import org.jboss.tools.vpe.cordovasim.plugin.util.CordovaFileUtil;
+import org.jboss.tools.vpe.cordovasim.proxy.NetworkConditions;
+import org.jboss.tools.vpe.cordovasim.proxy.ProxyCache;
+import org.jboss.tools.vpe.cordovasim.proxy.RequestMatcher;
+import org.jboss.tools.vpe.cordovasim.proxy.TrafficArchive;
 import org.jboss.tools.vpe.cordovasim.servlet.cordova.engine.CordovaJsServlet;
 import org.jboss.tools.vpe.cordovasim.servlet.plugin.CordovaPluginJsServlet;
+import org.jboss.tools.vpe.cordovasim.servlet.plugin.PluginBundleServlet;
 import org.jboss.tools.vpe.cordovasim.servlet.plugin.PluginServlet;
 import org.jboss.tools.vpe.cordovasim.servlets.camera.FormatDataServlet;
 import org.jboss.tools.vpe.cordovasim.servlets.camera.HostFileServlet;
+import org.jboss.tools.vpe.cordovasim.servlets.camera.ImageScaler;
+import org.jboss.tools.vpe.cordovasim.servlets.camera.TempFileStorage;
 import org.jboss.tools.vpe.cordovasim.servlets.camera.UploadFileServlet;
 
 /**
@@ -57,25 +68,53 @@ public class ServerCreator {
 		ServletHandler userAgentServletHandler = new ServletHandler();
 		userAgentServletHandler.addServletWithMapping(userAgentServletHolder, "/ripple/user-agent"); 
 		
-		ServletHolder proxyServletHolder = new ServletHolder(new CrossOriginProxyServlet("tinyhippos_rurl")); 
+		TrafficArchive trafficArchive = createTrafficArchive();
+		if (trafficArchive != null) {
+			server.addBean(trafficArchive);
+		}
+		ProxyCache proxyCache = null;
+		if (CordovaSimArgs.isProxyCacheEnabled() && trafficArchive == null) { // cache hits would be missing in the archive
+			proxyCache = new ProxyCache();
+			server.addBean(proxyCache);
+		}
+		NetworkConditions networkConditions = new NetworkConditions(CordovaSimArgs.getNetworkProfile()); // switched from the menu at runtime
+		server.addBean(networkConditions);
+		CrossOriginProxyServlet proxyServlet = new CrossOriginProxyServlet("tinyhippos_rurl", proxyCache, trafficArchive, networkConditions);
+		server.addBean(proxyServlet.getStatistics());
+		ServletHolder proxyServletHolder = new ServletHolder(proxyServlet); 
+		if (CordovaSimArgs.getProxyMaxConnections() > 0) { // per backend host, further exchanges are queued
+			proxyServletHolder.setInitParameter("maxConnections", Integer.toString(CordovaSimArgs.getProxyMaxConnections()));
+		}
+		if (CordovaSimArgs.getProxyMaxThreads() > 0) {
+			proxyServletHolder.setInitParameter("maxThreads", Integer.toString(CordovaSimArgs.getProxyMaxThreads()));
+		}
 		proxyServletHolder.setAsyncSupported(true);
 		ServletHandler proxyServletHandler = new ServletHandler();
 		proxyServletHandler.addServletWithMapping(proxyServletHolder, "/ripple/xhr_proxy"); 
 		
+		TempFileStorage tempFileStorage = new TempFileStorage(CordovaSimArgs.getTempFileLimit(), // photos of the emulated camera, deleted when the server stops
+				CordovaSimArgs.getTempSizeLimit(), CordovaSimArgs.getTempTimeToLive());
+		server.addBean(tempFileStorage);
+
 		ServletContextHandler fileUploadContextHandler = new ServletContextHandler(ServletContextHandler.SESSIONS);
-		ServletHolder uploadFileServletHolder = new ServletHolder(new UploadFileServlet());
-		uploadFileServletHolder.getRegistration().setMultipartConfig(new MultipartConfigElement(null, 1048576, 1048576, 262144));
+		ServletHolder uploadFileServletHolder = new ServletHolder(new UploadFileServlet(tempFileStorage));
+		long uploadLimit = CordovaSimArgs.getUploadLimit();
+		uploadFileServletHolder.getRegistration().setMultipartConfig(
+				new MultipartConfigElement(null, uploadLimit, uploadLimit + 65536, 262144)); // larger parts are buffered on disk, not in memory
 		fileUploadContextHandler.addServlet(uploadFileServletHolder, "/ripple/fileUpload"); 
 
-		ServletHolder hostFileServletHolder = new ServletHolder(new HostFileServlet());
+		ImageScaler imageScaler = new ImageScaler(tempFileStorage); // downscales photos for camera.getPicture() options
+		server.addBean(imageScaler);
+		ServletHolder hostFileServletHolder = new ServletHolder(new HostFileServlet(tempFileStorage, imageScaler));
+		hostFileServletHolder.setAsyncSupported(true);
 		ServletHandler hostFileServletHandler = new ServletHandler();
 		hostFileServletHandler.addServletWithMapping(hostFileServletHolder, "/temp-photo/*");
 		
-		ServletHolder formatDataServletHolder = new ServletHolder(new FormatDataServlet());
+		ServletHolder formatDataServletHolder = new ServletHolder(new FormatDataServlet(tempFileStorage));
 		ServletHandler formatDataServletHandler = new ServletHandler();
 		formatDataServletHandler.addServletWithMapping(formatDataServletHolder, "/ripple/formatData"); 
 		
-		ResourceHandler rippleResourceHandler = new ResourceHandler();
+		final CachingResourceHandler rippleResourceHandler = new CachingResourceHandler(); // Ripple UI never changes at runtime, so it is served from memory
 		rippleResourceHandler.setDirectoriesListed(true);
 		rippleResourceHandler.setWelcomeFiles(new String[] { "index.html" }); 
 		String ripplePath = ServerCreator.class.getClassLoader().getResource("ripple").toExternalForm(); 
@@ -89,22 +128,35 @@ public class ServerCreator {
 		ContextHandler cordovaContextHandler = new ContextHandler("/ripple/cordova");
 		cordovaContextHandler.setHandler(cordovaResourceHandler);
 		
-		ResourceHandler wwwResourceHandler = new NotCachingResourceHandler();
+		File pluginDir = CordovaFileUtil.getPluginDir(resourceBase); 
+		FileIndex fileIndex = new FileIndex(new File(resourceBase), pluginDir); // shared by all the handlers instead of touching the disk on each request
+		server.addBean(fileIndex);
+		
+		ResourceHandler wwwResourceHandler = new RevalidatingResourceHandler(fileIndex);
 		wwwResourceHandler.setDirectoriesListed(true);
 		wwwResourceHandler.setResourceBase(resourceBase);
 		ContextHandler wwwContextHandler = new ContextHandler("/"); 
 		wwwContextHandler.setHandler(wwwResourceHandler);
 		
-		ServletHolder cordovaJsServletHolder = new ServletHolder(new CordovaJsServlet(CordovaSimArgs.getCordovaEngineLocation()));
+		final CordovaEngineCache cordovaEngineCache = new CordovaEngineCache(CordovaSimArgs.getCordovaEngineLocation(), CordovaSimArgs.getCordovaVersion(), fileIndex);
+		ServletHolder cordovaJsServletHolder = new ServletHolder(new CordovaJsServlet(cordovaEngineCache));
 		ServletHandler cordovaJsServetHandler = new ServletHandler();
 		cordovaJsServetHandler.addServletWithMapping(cordovaJsServletHolder, "/cordova.js"); 
 		
-		File pluginDir = CordovaFileUtil.getPluginDir(resourceBase); 
-		ServletHolder cordovaPluginJsServletHolder = new ServletHolder(new CordovaPluginJsServlet(pluginDir));
+		final PluginModelCache pluginModelCache = new PluginModelCache(pluginDir, fileIndex);
+		final PluginIdCache pluginIdCache = new PluginIdCache(pluginModelCache, fileIndex, pluginDir);
+		server.addBean(pluginIdCache);
+		ServletHolder cordovaPluginJsServletHolder = new ServletHolder(new CordovaPluginJsServlet(pluginModelCache, pluginIdCache));
 		ServletHandler cordovaPluginJsServetHandler = new ServletHandler();
 		cordovaPluginJsServetHandler.addServletWithMapping(cordovaPluginJsServletHolder, "/cordova_plugins.js"); 
 		
-		ServletHolder pluginServletHolder = new ServletHolder(new PluginServlet(pluginDir));
+		final PluginBundleCache pluginBundleCache = new PluginBundleCache(pluginDir, fileIndex, pluginModelCache);
+		ServletHolder pluginBundleServletHolder = new ServletHolder(new PluginBundleServlet(pluginBundleCache));
+		ServletHandler pluginBundleServletHandler = new ServletHandler();
+		pluginBundleServletHandler.addServletWithMapping(pluginBundleServletHolder, "/cordova_plugins.js");
+		pluginBundleServletHandler.addServletWithMapping(pluginBundleServletHolder, "/cordova_plugins_bundle.js");
+		
+		ServletHolder pluginServletHolder = new ServletHolder(new PluginServlet(pluginDir, fileIndex, pluginIdCache));
 		ServletHandler pluginServletHandler = new ServletHandler();
 		pluginServletHandler.addServletWithMapping(pluginServletHolder, "/plugins/*"); 
 		
@@ -124,23 +176,65 @@ public class ServerCreator {
 			}
 		});
 				
-		HandlerList handlers = new HandlerList();
-		handlers.setHandlers(new Handler[] {
-				userAgentServletHandler,
-				rippleRewriteHandler,
-				wwwContextHandler,
-				cordovaJsServetHandler,
-				cordovaPluginJsServetHandler,
-				cordovaContextHandler,
-				pluginServletHandler,
-				proxyServletHandler,
-				fileUploadContextHandler,
-				hostFileServletHandler,
-				formatDataServletHandler,
-				new DefaultHandler()
-			});
-		server.setHandler(handlers);
+		RequestRouter router = new RequestRouter(new File(resourceBase), fileIndex);
+		router.addRoute("/ripple/user-agent", userAgentServletHandler, false);
+		router.addParameterRoute("enableripple", rippleRewriteHandler);
+		router.addRoute("/ripple/assets/*", rippleRewriteHandler, false);
+		router.setProjectHandler(wwwContextHandler);
+		// files of the project used to be served before the following handlers, so they still take precedence 
+		router.addRoute("/cordova.js", cordovaJsServetHandler, true);
+		router.addRoute("/cordova_plugins.js", CordovaSimArgs.isPluginBundleEnabled() ? pluginBundleServletHandler : cordovaPluginJsServetHandler, true);
+		router.addRoute("/cordova_plugins_bundle.js", pluginBundleServletHandler, true);
+		router.addRoute("/ripple/cordova/*", cordovaContextHandler, true);
+		router.addRoute("/plugins/*", pluginServletHandler, true);
+		router.addRoute("/ripple/xhr_proxy", proxyServletHandler, true);
+		router.addRoute("/ripple/fileUpload", fileUploadContextHandler, true);
+		router.addRoute("/temp-photo/*", hostFileServletHandler, true);
+		router.addRoute("/ripple/formatData", formatDataServletHandler, true);
+		router.setNotFoundHandler(new DefaultHandler());
+		server.setHandler(router);
+		server.addBean(router.getStatistics());
+		
+		ServerWarmUp warmUp = new ServerWarmUp(); // started by CordovaSimRunner while the browser is being created
+		warmUp.addTask("plugin index", new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				pluginIdCache.update(pluginModelCache.getModel());
+				if (CordovaSimArgs.isPluginBundleEnabled()) {
+					pluginBundleCache.getContent();
+				}
+				return null;
+			}
+		});
+		warmUp.addTask("cordova engine", new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				cordovaEngineCache.getContent();
+				return null;
+			}
+		});
+		warmUp.addTask("ripple assets", new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				rippleResourceHandler.getAssetCache();
+				return null;
+			}
+		});
+		server.addBean(warmUp);
 		return server;
 	}
 	
+	/**
+	 * Returns the archive for "-proxyreplay" or "-proxyrecord" argument (the replay wins) or {@code null}
+	 */
+	private static TrafficArchive createTrafficArchive() {
+		RequestMatcher requestMatcher = new RequestMatcher(CordovaSimArgs.getProxyMatchRules());
+		if (CordovaSimArgs.getProxyReplayFile() != null) {
+			return new TrafficArchive(new File(CordovaSimArgs.getProxyReplayFile()), TrafficArchive.Mode.REPLAY, requestMatcher);
+		} else if (CordovaSimArgs.getProxyRecordFile() != null) {
+			return new TrafficArchive(new File(CordovaSimArgs.getProxyRecordFile()), TrafficArchive.Mode.RECORD, requestMatcher);
+		}
+		return null;
+	}
+	
 }
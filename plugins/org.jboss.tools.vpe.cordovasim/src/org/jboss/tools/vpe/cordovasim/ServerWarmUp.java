@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2013 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Fills the caches of the CordovaSim server in a background thread while SWT and the browser are being initialized,
+ * so the first requests do not pay parse and disk costs. The caches are filled lazily anyway,
+ * so a request which comes before its task is finished just does (or waits for) the same work.
+ */
+public class ServerWarmUp {
+	private static final String WARM_UP_THREAD_NAME = "CordovaSim Warm-Up"; //$NON-NLS-1$
+
+	private final Map<String, Callable<?>> tasks = new LinkedHashMap<String, Callable<?>>();
+
+	/**
+	 * @param name name of the task for the timing log
+	 */
+	public void addTask(String name, Callable<?> task) {
+		tasks.put(name, task);
+	}
+
+	/**
+	 * Runs the tasks one by one in a new daemon thread
+	 */
+	public Thread start() {
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				runTasks();
+			}
+		}, WARM_UP_THREAD_NAME);
+		thread.setDaemon(true);
+		thread.setPriority(Thread.NORM_PRIORITY - 1); // UI thread goes first
+		thread.start();
+		return thread;
+	}
+
+	private void runTasks() {
+		long warmUpStartTime = System.nanoTime();
+		for (Map.Entry<String, Callable<?>> task : tasks.entrySet()) {
+			long taskStartTime = System.nanoTime();
+			try {
+				task.getValue().call();
+				CordovaSimLogger.logTiming("Warm-up: " + task.getKey(), taskStartTime); //$NON-NLS-1$
+			} catch (Exception e) {
+				CordovaSimLogger.logError(e.getMessage(), e); // the cache will be filled on request
+			}
+		}
+		CordovaSimLogger.logTiming("Warm-up finished", warmUpStartTime); //$NON-NLS-1$
+	}
+
+}
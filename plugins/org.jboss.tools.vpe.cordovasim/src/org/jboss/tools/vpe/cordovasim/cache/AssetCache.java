@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2013 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.io.Buffer;
+import org.eclipse.jetty.util.IO;
+import org.eclipse.jetty.util.resource.Resource;
+
+/**
+ * Immutable cache of static assets which never change while CordovaSim is running (e.g. Ripple UI).
+ * All the files under the base resource are read once and kept in memory with their gzipped variants.
+ */
+public class AssetCache {
+	private static final String PATH_SEPARATOR = "/"; //$NON-NLS-1$
+
+	private final Map<String, CachedContent> assets; // Maps path relative to the base resource (e.g. "/ripple.js") to its content
+	private final long size;
+
+	private AssetCache(Map<String, CachedContent> assets) {
+		this.assets = Collections.unmodifiableMap(assets);
+		long size = 0;
+		for (CachedContent content : assets.values()) {
+			size += content.getSize();
+		}
+		this.size = size;
+	}
+
+	/**
+	 * Reads all the files under the {@code baseResource}
+	 */
+	public static AssetCache build(Resource baseResource, MimeTypes mimeTypes) throws IOException {
+		Map<String, CachedContent> assets = new HashMap<String, CachedContent>();
+		if (baseResource != null && baseResource.exists()) {
+			collectAssets(baseResource, "", mimeTypes, assets); //$NON-NLS-1$
+		}
+		return new AssetCache(assets);
+	}
+
+	private static void collectAssets(Resource directory, String directoryPath, MimeTypes mimeTypes,
+			Map<String, CachedContent> assets) throws IOException {
+		String[] names = directory.list();
+		if (names == null) {
+			return; // listing is not supported by the resource, the assets will be served from the resource itself
+		}
+
+		for (String name : names) {
+			Resource resource = directory.addPath(name);
+			if (name.endsWith(PATH_SEPARATOR)) {
+				name = name.substring(0, name.length() - 1);
+			}
+			String path = directoryPath + PATH_SEPARATOR + name;
+			if (resource.isDirectory()) {
+				collectAssets(resource, path, mimeTypes, assets);
+			} else {
+				assets.put(path, CachedContent.create(readBytes(resource), getMimeType(mimeTypes, name)));
+			}
+		}
+	}
+
+	private static byte[] readBytes(Resource resource) throws IOException {
+		InputStream inputStream = resource.getInputStream();
+		try {
+			return IO.readBytes(inputStream);
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	private static String getMimeType(MimeTypes mimeTypes, String fileName) {
+		Buffer mimeType = mimeTypes.getMimeByExtension(fileName);
+		return mimeType != null ? mimeType.toString() : null;
+	}
+
+	/**
+	 * Returns cached asset or {@code null} if there is no such asset
+	 *
+	 * @param path path relative to the base resource starting with "/", e.g. "/ripple.js"
+	 */
+	public CachedContent get(String path) {
+		return assets.get(path);
+	}
+
+	public int getAssetCount() {
+		return assets.size();
+	}
+
+	/**
+	 * Returns the number of bytes held in memory by all the assets
+	 */
+	public long getSize() {
+		return size;
+	}
+
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2013 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.cache;
+
+import java.io.IOException;
+
+import org.jboss.tools.vpe.cordovasim.servlet.util.ServletUtil;
+
+/**
+ * Immutable in-memory response body together with its gzipped variant and strong ETags
+ */
+public class CachedContent {
+	private static final int MIN_GZIP_SIZE = 256; // smaller bodies do not benefit from compression
+	private static final String GZIP_ETAG_SUFFIX = "-gz\""; //$NON-NLS-1$
+
+	private final byte[] content;
+	private final byte[] gzippedContent;
+	private final String eTag;
+	private final String gzipEtag;
+	private final String contentType;
+
+	private CachedContent(byte[] content, byte[] gzippedContent, String eTag, String contentType) {
+		this.content = content;
+		this.gzippedContent = gzippedContent;
+		this.eTag = eTag;
+		this.gzipEtag = eTag.substring(0, eTag.length() - 1) + GZIP_ETAG_SUFFIX;
+		this.contentType = contentType;
+	}
+
+	/**
+	 * Creates {@link CachedContent} with the ETag computed from the {@code content} hash,
+	 * compressible content types are precompressed with gzip
+	 */
+	public static CachedContent create(byte[] content, String contentType) throws IOException {
+		return create(content, contentType, ServletUtil.generateStrongEtag(content));
+	}
+
+	public static CachedContent create(byte[] content, String contentType, String eTag) throws IOException {
+		byte[] gzippedContent = null;
+		if (content.length >= MIN_GZIP_SIZE && isCompressible(contentType)) {
+			gzippedContent = ServletUtil.gzip(content);
+			if (gzippedContent.length >= content.length) {
+				gzippedContent = null;
+			}
+		}
+		return new CachedContent(content, gzippedContent, eTag, contentType);
+	}
+
+	@SuppressWarnings("nls")
+	private static boolean isCompressible(String contentType) {
+		return contentType != null
+				&& (contentType.startsWith("text/")
+					|| contentType.contains("javascript")
+					|| contentType.contains("json")
+					|| contentType.contains("xml"));
+	}
+
+	public byte[] getContent() {
+		return content;
+	}
+
+	/**
+	 * Returns gzipped content or {@code null} if compression is not worth it for this content
+	 */
+	public byte[] getGzippedContent() {
+		return gzippedContent;
+	}
+
+	public String getEtag() {
+		return eTag;
+	}
+
+	public String getGzipEtag() {
+		return gzipEtag;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	/**
+	 * Returns the number of bytes held in memory by this content
+	 */
+	public long getSize() {
+		return content.length + (gzippedContent != null ? gzippedContent.length : 0);
+	}
+
+}
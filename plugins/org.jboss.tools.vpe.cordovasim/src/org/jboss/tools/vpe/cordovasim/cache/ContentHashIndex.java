@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2013 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.cache;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jboss.tools.vpe.cordovasim.servlet.util.ServletUtil;
+
+/**
+ * Index of the content hashes of files. A hash is recomputed only when the size or
+ * the modification time of the file is changed.
+ */
+public class ContentHashIndex {
+	/* File systems with coarse timestamps (e.g. HFS+ or FAT) can't distinguish two edits made within
+	 * the same second, so hashes of recently modified files are not trusted and recomputed */
+	private static final long TIMESTAMP_GRANULARITY = 2000;
+	private static final int BUFFER_SIZE = 8192;
+
+	private final ConcurrentMap<File, Entry> entries = new ConcurrentHashMap<File, Entry>();
+
+	/**
+	 * Returns a strong, quoted ETag derived from the content hash of the {@code file}
+	 */
+	public String getEtag(File file) throws IOException {
+		return getEtag(file, file.lastModified(), file.length());
+	}
+
+	/**
+	 * Returns a strong, quoted ETag derived from the content hash of the {@code file}
+	 * using already known attributes of the file
+	 */
+	public String getEtag(File file, long lastModified, long length) throws IOException {
+		Entry entry = entries.get(file);
+		if (entry != null && entry.isValid(lastModified, length)) {
+			return entry.eTag;
+		}
+
+		long hashTime = System.currentTimeMillis();
+		String eTag = '"' + ServletUtil.toHex(hash(file)) + '"';
+		entries.put(file, new Entry(lastModified, length, hashTime, eTag));
+		return eTag;
+	}
+
+	public void invalidate(File file) {
+		entries.remove(file);
+	}
+
+	/**
+	 * Removes the entries of the files under the {@code directory} which are no longer in the {@code fileIndex}
+	 */
+	public void removeDeleted(File directory, FileIndex fileIndex) {
+		for (File file : entries.keySet()) {
+			if (file.toPath().startsWith(directory.toPath()) && !fileIndex.exists(file)) {
+				entries.remove(file);
+			}
+		}
+	}
+
+	public void clear() {
+		entries.clear();
+	}
+
+	public int getEntryCount() {
+		return entries.size();
+	}
+
+	private static byte[] hash(File file) throws IOException {
+		MessageDigest digest = ServletUtil.createDigest();
+		InputStream inputStream = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int length;
+			while ((length = inputStream.read(buffer)) > 0) {
+				digest.update(buffer, 0, length);
+			}
+		} finally {
+			inputStream.close();
+		}
+		return digest.digest();
+	}
+
+	private static class Entry {
+		private final long lastModified;
+		private final long length;
+		private final long hashTime;
+		private final String eTag;
+
+		public Entry(long lastModified, long length, long hashTime, String eTag) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.hashTime = hashTime;
+			this.eTag = eTag;
+		}
+
+		public boolean isValid(long lastModified, long length) {
+			return this.lastModified == lastModified && this.length == length
+					&& lastModified + TIMESTAMP_GRANULARITY < hashTime;
+		}
+	}
+
+}
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2013 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jboss.tools.vpe.cordovasim.cache.FileIndex.FileInfo;
+import org.jboss.tools.vpe.cordovasim.servlet.util.ServletUtil;
+
+/**
+ * Keeps cordova.js of the project in memory. The file is read again only if its modification time is changed.
+ * If the project has no cordova.js, the bundled cordova-3.1.0.js is served from the same cache.
+ */
+public class CordovaEngineCache {
+	private static final String DEFAULT_CORDOVA_JS = "ripple/cordova/cordova-3.1.0.js"; //$NON-NLS-1$
+	private static final int BUFFER_SIZE = 8192;
+
+	private final String cordovaJsLocation;
+	private final String cordovaVersion;
+	private final FileIndex fileIndex;
+	private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>(); // keyed by path
+
+	/**
+	 * @param cordovaJsLocation path to cordova.js of the project or {@code null} to use the bundled engine
+	 * @param cordovaVersion version of the engine, it is a part of the cache key
+	 */
+	public CordovaEngineCache(String cordovaJsLocation, String cordovaVersion, FileIndex fileIndex) {
+		this.cordovaJsLocation = cordovaJsLocation;
+		this.cordovaVersion = cordovaVersion;
+		this.fileIndex = fileIndex;
+	}
+
+	/**
+	 * Returns the engine script, the bundled one is returned if the engine of the project does not exist
+	 */
+	public CachedContent getContent() throws IOException {
+		if (cordovaJsLocation != null) {
+			File cordovaJsFile = new File(cordovaJsLocation);
+			FileInfo fileInfo = fileIndex.getCurrentFileInfo(cordovaJsFile);
+			long lastModified = fileInfo != null ? fileInfo.getLastModified() : 0L;
+			if (lastModified != 0L) {
+				Entry entry = entries.get(cordovaJsLocation);
+				if (entry == null || !entry.isFor(lastModified, cordovaVersion)) {
+					byte[] content = Files.readAllBytes(cordovaJsFile.toPath());
+					entry = new Entry(lastModified, cordovaVersion,
+							CachedContent.create(content, ServletUtil.APPLICATION_JAVASCRIPT_CONTENT_TYPE));
+					entries.put(cordovaJsLocation, entry);
+				}
+				return entry.content;
+			}
+		}
+		return getDefaultContent();
+	}
+
+	private CachedContent getDefaultContent() throws IOException {
+		Entry entry = entries.get(DEFAULT_CORDOVA_JS);
+		if (entry == null) { // the bundled engine never changes
+			URL defaultCordovaJs = CordovaEngineCache.class.getClassLoader().getResource(DEFAULT_CORDOVA_JS);
+			if (defaultCordovaJs == null) {
+				throw new FileNotFoundException(DEFAULT_CORDOVA_JS);
+			}
+			entry = new Entry(0L, null,
+					CachedContent.create(readAll(defaultCordovaJs), ServletUtil.APPLICATION_JAVASCRIPT_CONTENT_TYPE));
+			entries.put(DEFAULT_CORDOVA_JS, entry);
+		}
+		return entry.content;
+	}
+
+	private static byte[] readAll(URL url) throws IOException {
+		InputStream inputStream = url.openStream();
+		try {
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int length;
+			while ((length = inputStream.read(buffer)) > 0) {
+				outputStream.write(buffer, 0, length);
+			}
+			return outputStream.toByteArray();
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	private static class Entry {
+		private final long lastModified;
+		private final String cordovaVersion;
+		private final CachedContent content;
+
+		public Entry(long lastModified, String cordovaVersion, CachedContent content) {
+			this.lastModified = lastModified;
+			this.cordovaVersion = cordovaVersion;
+			this.content = content;
+		}
+
+		public boolean isFor(long lastModified, String cordovaVersion) {
+			return this.lastModified == lastModified
+					&& (this.cordovaVersion == null ? cordovaVersion == null : this.cordovaVersion.equals(cordovaVersion));
+		}
+	}
+
+}
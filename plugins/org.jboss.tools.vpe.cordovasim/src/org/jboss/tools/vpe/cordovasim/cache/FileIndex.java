@@ -0,0 +1,448 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2013 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.jboss.tools.vpe.cordovasim.CordovaSimLogger;
+
+/**
+ * In-memory index of the files under the given root directories (e.g. "www" and "plugins" folders of the project).
+ * The index is filled once on start and kept current by the {@link WatchService}, so requests
+ * for the file attributes cost a map lookup instead of file system calls.
+ * Files outside of the roots are not indexed and read from the disk, as well as directories which can't be watched
+ * (e.g. the inotify watch limit is reached) and symbolic links to their own ancestors.
+ */
+public class FileIndex extends AbstractLifeCycle {
+	private static final String WATCH_THREAD_NAME = "CordovaSim File Index"; //$NON-NLS-1$
+	private static final String SENSITIVITY_MODIFIER_CLASS = "com.sun.nio.file.SensitivityWatchEventModifier"; //$NON-NLS-1$
+	private static final String HIGH_SENSITIVITY = "HIGH"; //$NON-NLS-1$
+	private static final File[] NO_FILES = new File[0];
+
+	private final List<File> roots = new ArrayList<File>();
+	private final ConcurrentMap<File, FileInfo> entries = new ConcurrentHashMap<File, FileInfo>();
+	private final Map<WatchKey, File> watchedDirs = new ConcurrentHashMap<WatchKey, File>();
+	private final WatchEvent.Modifier[] watchModifiers = createWatchModifiers();
+	private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+	private final List<File> unindexedDirs = new CopyOnWriteArrayList<File>();
+	private WatchService watchService;
+	private Thread watchThread;
+
+	/**
+	 * @param roots directories to index, {@code null} and nonexistent directories are ignored
+	 */
+	public FileIndex(File... roots) {
+		for (File root : roots) {
+			if (root != null && root.isDirectory()) {
+				this.roots.add(normalize(root));
+			}
+		}
+	}
+
+	@Override
+	protected void doStart() throws Exception {
+		try {
+			watchService = FileSystems.getDefault().newWatchService();
+		} catch (IOException e) { // e.g. the inotify instance limit is reached, all the files are read from the disk
+			CordovaSimLogger.logError(e.getMessage(), e);
+			return;
+		}
+		for (File root : roots) {
+			scan(root);
+		}
+
+		watchThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				processEvents();
+			}
+		}, WATCH_THREAD_NAME);
+		watchThread.setDaemon(true);
+		watchThread.start();
+	}
+
+	@Override
+	protected void doStop() throws Exception {
+		if (watchService != null) {
+			watchService.close(); // stops the watch thread
+			watchThread.join();
+			watchService = null;
+		}
+		watchedDirs.clear();
+		entries.clear();
+		unindexedDirs.clear();
+	}
+
+	/**
+	 * Like {@link #getFileInfo(File)}, but the modification time and the size of a regular file are checked
+	 * against the disk, because the watch service reports changes with a delay (up to 10 seconds on Mac OS X).
+	 * Costs one file system call instead of reading the file.
+	 */
+	public FileInfo getCurrentFileInfo(File file) {
+		FileInfo fileInfo = getFileInfo(file);
+		if (fileInfo == null || fileInfo.isDirectory()) {
+			return fileInfo;
+		}
+
+		File indexedFile = fileInfo.getFile();
+		if (indexedFile.lastModified() == fileInfo.getLastModified() && indexedFile.length() == fileInfo.getLength()) {
+			return fileInfo;
+		}
+		FileInfo currentFileInfo = FileInfo.read(indexedFile);
+		if (currentFileInfo != null && !currentFileInfo.isDirectory() && isRunning() && isIndexed(indexedFile)) {
+			entries.put(indexedFile, currentFileInfo); // the watch service event is still on its way
+		}
+		return currentFileInfo;
+	}
+
+	/**
+	 * Returns attributes of the {@code file} or {@code null} if the file does not exist
+	 */
+	public FileInfo getFileInfo(File file) {
+		if (file == null) {
+			return null;
+		}
+
+		file = normalize(file);
+		if (isRunning() && isIndexed(file)) {
+			return entries.get(file);
+		} else {
+			return FileInfo.read(file);
+		}
+	}
+
+	public boolean exists(File file) {
+		return getFileInfo(file) != null;
+	}
+
+	public boolean isFile(File file) {
+		FileInfo fileInfo = getFileInfo(file);
+		return fileInfo != null && !fileInfo.isDirectory();
+	}
+
+	public boolean isDirectory(File file) {
+		FileInfo fileInfo = getFileInfo(file);
+		return fileInfo != null && fileInfo.isDirectory();
+	}
+
+	/**
+	 * Returns the modification time of the {@code file} or {@code 0L} if the file does not exist
+	 */
+	public long lastModified(File file) {
+		FileInfo fileInfo = getFileInfo(file);
+		return fileInfo != null ? fileInfo.getLastModified() : 0L;
+	}
+
+	/**
+	 * Returns children of the {@code directory} or {@code null} if it is not a directory
+	 */
+	public File[] listFiles(File directory) {
+		FileInfo fileInfo = getFileInfo(directory);
+		return fileInfo != null && fileInfo.isDirectory() ? fileInfo.getChildren() : null;
+	}
+
+	/**
+	 * Adds the {@code listener} notified on the watch thread each time the index is updated
+	 */
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+	private void fireDirectoryChanged(File directory) {
+		for (Listener listener : listeners) {
+			try {
+				listener.directoryChanged(directory);
+			} catch (RuntimeException e) {
+				CordovaSimLogger.logError(e.getMessage(), e);
+			}
+		}
+	}
+
+	private boolean isIndexed(File file) {
+		if (watchService == null) {
+			return false;
+		}
+		for (File unindexedDir : unindexedDirs) {
+			if (isInside(file, unindexedDir)) {
+				return false;
+			}
+		}
+		for (File root : roots) {
+			if (isInside(file, root)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isInside(File file, File directory) {
+		String path = file.getPath();
+		String directoryPath = directory.getPath();
+		return path.startsWith(directoryPath)
+				&& (path.length() == directoryPath.length() || path.charAt(directoryPath.length()) == File.separatorChar);
+	}
+
+	/**
+	 * Indexes the {@code directory} found after the start, its ancestors are already indexed
+	 */
+	private void scan(File directory) throws IOException {
+		Set<Path> ancestors = new HashSet<Path>();
+		for (File parent = directory.getParentFile(); parent != null && isIndexed(parent); parent = parent.getParentFile()) {
+			ancestors.add(toRealPath(parent));
+		}
+		scan(directory, ancestors);
+	}
+
+	/**
+	 * @param ancestors real paths of the indexed ancestors of the {@code directory}, to detect symbolic link loops
+	 */
+	private void scan(File directory, Set<Path> ancestors) throws IOException {
+		Path realPath = toRealPath(directory);
+		if (realPath == null) {
+			return; // removed in the meantime
+		}
+		if (ancestors.contains(realPath)) {
+			excludeFromIndex(directory, "Symbolic link loop is not indexed: " + directory, null); //$NON-NLS-1$
+			return;
+		}
+
+		WatchKey key;
+		try {
+			key = directory.toPath().register(watchService, new WatchEvent.Kind<?>[] {
+					StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_DELETE,
+					StandardWatchEventKinds.ENTRY_MODIFY }, watchModifiers);
+		} catch (IOException e) { // e.g. the inotify watch limit is reached
+			excludeFromIndex(directory, "Directory can't be watched, its files are read from the disk: " + directory, e); //$NON-NLS-1$
+			return;
+		}
+		watchedDirs.put(key, directory);
+
+		FileInfo directoryInfo = FileInfo.read(directory);
+		if (directoryInfo == null) {
+			return; // removed in the meantime
+		}
+		entries.put(directory, directoryInfo);
+		ancestors.add(realPath);
+		for (File child : directoryInfo.getChildren()) {
+			if (child.isDirectory()) {
+				scan(child, ancestors);
+			} else {
+				FileInfo childInfo = FileInfo.read(child);
+				if (childInfo != null) {
+					entries.put(child, childInfo);
+				}
+			}
+		}
+		ancestors.remove(realPath);
+	}
+
+	/**
+	 * Rescans the {@code directory} after lost events and removes the files deleted in the meantime
+	 */
+	private void rescan(File directory) throws IOException {
+		scan(directory);
+		Iterator<File> iterator = entries.keySet().iterator();
+		while (iterator.hasNext()) {
+			File indexedFile = iterator.next();
+			if (isInside(indexedFile, directory) && !indexedFile.exists()) {
+				iterator.remove();
+			}
+		}
+	}
+
+	private void excludeFromIndex(File directory, String message, Throwable throwable) {
+		remove(directory);
+		if (!unindexedDirs.contains(directory)) {
+			unindexedDirs.add(directory);
+			CordovaSimLogger.logError(message, throwable);
+		}
+	}
+
+	private static Path toRealPath(File file) {
+		try {
+			return file.toPath().toRealPath();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private void processEvents() {
+		while (true) {
+			WatchKey key;
+			try {
+				key = watchService.take();
+			} catch (InterruptedException e) {
+				return;
+			} catch (ClosedWatchServiceException e) {
+				return;
+			}
+
+			File directory = watchedDirs.get(key);
+			if (directory != null) {
+				try {
+					for (WatchEvent<?> event : key.pollEvents()) {
+						if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+							rescan(directory); // some events are lost, so the whole directory is rescanned
+						} else {
+							refresh(new File(directory, ((Path) event.context()).toString()));
+						}
+					}
+					refresh(directory);
+					fireDirectoryChanged(directory);
+				} catch (ClosedWatchServiceException e) {
+					return;
+				} catch (IOException e) {
+					CordovaSimLogger.logError(e.getMessage(), e);
+				}
+			}
+
+			if (!key.reset()) {
+				watchedDirs.remove(key); // the directory is removed or not accessible
+			}
+		}
+	}
+
+	private void refresh(File file) throws IOException {
+		if (!isIndexed(file)) {
+			return; // the directory has been excluded from the index
+		}
+		FileInfo fileInfo = FileInfo.read(file);
+		if (fileInfo == null) {
+			remove(file);
+		} else if (fileInfo.isDirectory() && !isDirectory(entries.get(file))) {
+			scan(file); // new directory
+		} else {
+			entries.put(file, fileInfo);
+		}
+	}
+
+	private void remove(File file) {
+		String prefix = file.getPath() + File.separatorChar;
+		Iterator<File> iterator = entries.keySet().iterator();
+		while (iterator.hasNext()) {
+			File indexedFile = iterator.next();
+			if (indexedFile.equals(file) || indexedFile.getPath().startsWith(prefix)) {
+				iterator.remove();
+			}
+		}
+	}
+
+	private static boolean isDirectory(FileInfo fileInfo) {
+		return fileInfo != null && fileInfo.isDirectory();
+	}
+
+	private static File normalize(File file) {
+		return file.toPath().toAbsolutePath().normalize().toFile();
+	}
+
+	/**
+	 * Polling watch service (e.g. on Mac OS X) checks for changes every 10 seconds by default,
+	 * the non-standard "high sensitivity" modifier reduces this delay to 2 seconds where it is supported.
+	 */
+	private static WatchEvent.Modifier[] createWatchModifiers() {
+		try {
+			Class<?> modifierClass = Class.forName(SENSITIVITY_MODIFIER_CLASS);
+			return new WatchEvent.Modifier[] {(WatchEvent.Modifier) modifierClass.getField(HIGH_SENSITIVITY).get(null)};
+		} catch (Exception e) {
+			return new WatchEvent.Modifier[0];
+		}
+	}
+
+	public interface Listener {
+		/**
+		 * Called after the index of the {@code directory} or its direct children has been updated
+		 */
+		void directoryChanged(File directory);
+	}
+
+	/**
+	 * Immutable snapshot of the file attributes
+	 */
+	public static class FileInfo {
+		private final File file;
+		private final boolean directory;
+		private final long lastModified;
+		private final long length;
+		private final File[] children;
+
+		private FileInfo(File file, boolean directory, long lastModified, long length, File[] children) {
+			this.file = file;
+			this.directory = directory;
+			this.lastModified = lastModified;
+			this.length = length;
+			this.children = children;
+		}
+
+		/**
+		 * Reads attributes of the {@code file} from the disk, returns {@code null} if the file does not exist
+		 */
+		public static FileInfo read(File file) {
+			long lastModified = file.lastModified();
+			if (lastModified == 0L && !file.exists()) {
+				return null;
+			}
+
+			if (file.isDirectory()) {
+				File[] children = file.listFiles();
+				return new FileInfo(file, true, lastModified, 0L, children != null ? children : NO_FILES);
+			} else {
+				return new FileInfo(file, false, lastModified, file.length(), NO_FILES);
+			}
+		}
+
+		public File getFile() {
+			return file;
+		}
+
+		public boolean isDirectory() {
+			return directory;
+		}
+
+		public long getLastModified() {
+			return lastModified;
+		}
+
+		public long getLength() {
+			return length;
+		}
+
+		/**
+		 * Returns a copy of the directory children, the array is empty for regular files
+		 */
+		public File[] getChildren() {
+			return children.clone();
+		}
+	}
+
+}
@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2013 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jboss.tools.vpe.cordovasim.cache.FileIndex.FileInfo;
+import org.jboss.tools.vpe.cordovasim.plugin.exception.PluginJsException;
+import org.jboss.tools.vpe.cordovasim.plugin.model.Plugin;
+import org.jboss.tools.vpe.cordovasim.plugin.util.CordovaFileUtil;
+import org.jboss.tools.vpe.cordovasim.servlet.util.ServletUtil;
+
+/**
+ * Single script with all the plugin modules of the project, which replaces cordova_plugins.js
+ * and the separate requests to the modules. Modules are defined only if they are not defined yet
+ * and mapped to their clobbers and merges right away, while "cordova/plugin_list" is left empty,
+ * so the plugin loader of cordova.js does not inject the modules one by one.
+ * <p>
+ * The bundle is built once and rebuilt only when a plugin.xml, a module file or the list of plugins is changed.
+ */
+public class PluginBundleCache {
+	private static final Charset UTF_8 = Charset.forName("UTF-8"); //$NON-NLS-1$
+	private static final String BUNDLE_BEGINNING = "(function() {\n" //$NON-NLS-1$
+			+ "var moduleMap = cordova.define.moduleMap || {};\n" //$NON-NLS-1$
+			+ "function defineOnce(id, factory) {\n" //$NON-NLS-1$
+			+ "\tif (!(id in moduleMap)) {\n" //$NON-NLS-1$
+			+ "\t\tcordova.define(id, factory);\n" //$NON-NLS-1$
+			+ "\t}\n" //$NON-NLS-1$
+			+ "}\n"; //$NON-NLS-1$
+	private static final String MODULE_BEGINNING = "defineOnce(\"%s\", function(require, exports, module) {\n"; //$NON-NLS-1$
+	private static final String MODULE_END = "\n});\n"; //$NON-NLS-1$
+	private static final String MODULE_MAPPER = "var modulemapper = cordova.require('cordova/modulemapper');\n"; //$NON-NLS-1$
+	private static final String CLOBBERS = "modulemapper.clobbers(\"%s\", \"%s\");\n"; //$NON-NLS-1$
+	private static final String MERGES = "modulemapper.merges(\"%s\", \"%s\");\n"; //$NON-NLS-1$
+	private static final String BUNDLE_END = "})();\n" //$NON-NLS-1$
+			+ "cordova.define('cordova/plugin_list', function(require, exports, module) {\n" //$NON-NLS-1$
+			+ "module.exports = [];\n" //$NON-NLS-1$
+			+ "});"; //$NON-NLS-1$
+
+	private final File pluginDir;
+	private final FileIndex fileIndex;
+	private final PluginModelCache pluginModelCache;
+	private volatile Bundle bundle;
+
+	public PluginBundleCache(File pluginDir, FileIndex fileIndex, PluginModelCache pluginModelCache) {
+		this.pluginDir = pluginDir;
+		this.fileIndex = fileIndex;
+		this.pluginModelCache = pluginModelCache;
+	}
+
+	/**
+	 * Returns the bundle, it is rebuilt if any of its source files has been changed
+	 */
+	public CachedContent getContent() throws PluginJsException {
+		Bundle current = bundle;
+		if (current == null || !current.isUpToDate()) {
+			synchronized (this) {
+				current = bundle;
+				if (current == null || !current.isUpToDate()) {
+					current = build();
+					bundle = current;
+				}
+			}
+		}
+		return current.content;
+	}
+
+	private Bundle build() throws PluginJsException {
+		Sources sources = new Sources(fileIndex); // attributes are taken before reading, so no change is missed
+		if (pluginDir != null) {
+			sources.add(pluginDir); // plugin is added or removed
+			File[] pluginDirs = fileIndex.listFiles(pluginDir);
+			if (pluginDirs != null) {
+				for (File dir : pluginDirs) {
+					sources.add(dir); // plugin.xml is added or removed
+				}
+			}
+		}
+
+		List<File> pluginXmlFiles = CordovaFileUtil.getPluginXmlFiles(fileIndex, pluginDir);
+		if (pluginXmlFiles != null) {
+			for (File pluginXmlFile : pluginXmlFiles) {
+				sources.add(pluginXmlFile);
+			}
+		}
+		List<Plugin> plugins = pluginModelCache.getModel().getPlugins();
+
+		try {
+			ByteArrayOutputStream contentStream = new ByteArrayOutputStream();
+			write(contentStream, BUNDLE_BEGINNING);
+			List<Plugin> definedPlugins = new ArrayList<Plugin>();
+			for (Plugin plugin : plugins) {
+				File moduleFile = new File(pluginDir.getParentFile(), plugin.getFile());
+				sources.add(moduleFile);
+				if (fileIndex.isFile(moduleFile)) {
+					write(contentStream, String.format(MODULE_BEGINNING, plugin.getId()));
+					contentStream.write(Files.readAllBytes(moduleFile.toPath()));
+					write(contentStream, MODULE_END);
+					definedPlugins.add(plugin);
+				}
+			}
+
+			write(contentStream, MODULE_MAPPER);
+			for (Plugin plugin : definedPlugins) {
+				for (String clobber : plugin.getClobbers()) {
+					write(contentStream, String.format(CLOBBERS, plugin.getId(), clobber));
+				}
+				for (String merge : plugin.getMerges()) {
+					write(contentStream, String.format(MERGES, plugin.getId(), merge));
+				}
+			}
+			write(contentStream, BUNDLE_END);
+
+			CachedContent content = CachedContent.create(contentStream.toByteArray(), ServletUtil.APPLICATION_JAVASCRIPT_CONTENT_TYPE);
+			return new Bundle(content, sources);
+		} catch (IOException e) {
+			throw new PluginJsException(e);
+		}
+	}
+
+	private static void write(ByteArrayOutputStream stream, String string) throws IOException {
+		stream.write(string.getBytes(UTF_8));
+	}
+
+	private static class Bundle {
+		private final CachedContent content;
+		private final Sources sources;
+
+		public Bundle(CachedContent content, Sources sources) {
+			this.content = content;
+			this.sources = sources;
+		}
+
+		public boolean isUpToDate() {
+			return sources.isUpToDate();
+		}
+	}
+
+	/**
+	 * Source files of the bundle with the attributes they had when the bundle was built
+	 */
+	private static class Sources {
+		private final FileIndex fileIndex;
+		private final List<File> files = new ArrayList<File>();
+		private final List<FileInfo> fileInfos = new ArrayList<FileInfo>();
+
+		public Sources(FileIndex fileIndex) {
+			this.fileIndex = fileIndex;
+		}
+
+		public void add(File file) {
+			files.add(file);
+			fileInfos.add(fileIndex.getCurrentFileInfo(file));
+		}
+
+		/**
+		 * Compares current attributes of the files with the stored ones, the files are not read,
+		 * see {@link FileIndex#getCurrentFileInfo(File)}
+		 */
+		public boolean isUpToDate() {
+			for (int i = 0; i < files.size(); i++) {
+				FileInfo oldFileInfo = fileInfos.get(i);
+				FileInfo fileInfo = fileIndex.getCurrentFileInfo(files.get(i));
+				if (oldFileInfo == null || fileInfo == null) {
+					if (oldFileInfo != fileInfo) {
+						return false;
+					}
+				} else if (oldFileInfo.getLastModified() != fileInfo.getLastModified()
+						|| oldFileInfo.getLength() != fileInfo.getLength()) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+}
@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2013 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jboss.tools.vpe.cordovasim.cache.FileIndex.FileInfo;
+import org.jboss.tools.vpe.cordovasim.plugin.exception.PluginJsException;
+import org.jboss.tools.vpe.cordovasim.plugin.model.Plugin;
+import org.jboss.tools.vpe.cordovasim.plugin.model.PluginModel;
+import org.jboss.tools.vpe.cordovasim.plugin.util.CordovaFileUtil;
+import org.jboss.tools.vpe.cordovasim.plugin.util.CordovaPluginXmlUtil;
+import org.jboss.tools.vpe.cordovasim.servlet.util.ServletUtil;
+
+/**
+ * Keeps the {@link Plugin}s parsed from each plugin.xml of the project. A plugin.xml is parsed again
+ * only if its content hash is changed, and the hash is recomputed only if its modification time or size is changed.
+ */
+public class PluginModelCache {
+	private static final Charset UTF_8 = Charset.forName("UTF-8"); //$NON-NLS-1$
+
+	private final File pluginDir;
+	private final FileIndex fileIndex;
+	private final String platformName;
+	private final ContentHashIndex contentHashIndex = new ContentHashIndex();
+	private final ConcurrentMap<File, Entry> entries = new ConcurrentHashMap<File, Entry>();
+	private volatile PluginModel model;
+
+	public PluginModelCache(File pluginDir, FileIndex fileIndex) {
+		this.pluginDir = pluginDir;
+		this.fileIndex = fileIndex;
+		this.platformName = CordovaPluginXmlUtil.PLATFORM_ANDROID;
+	}
+
+	/**
+	 * Returns the current {@link PluginModel}, only changed plugin.xml files are parsed
+	 */
+	public PluginModel getModel() throws PluginJsException {
+		List<File> pluginXmlFiles = CordovaFileUtil.getPluginXmlFiles(fileIndex, pluginDir);
+		if (pluginXmlFiles == null) {
+			pluginXmlFiles = new ArrayList<File>();
+		}
+
+		List<Entry> currentEntries = new ArrayList<Entry>(pluginXmlFiles.size());
+		MessageDigest digest = ServletUtil.createDigest();
+		for (File pluginXmlFile : pluginXmlFiles) {
+			Entry entry = getEntry(pluginXmlFile);
+			currentEntries.add(entry);
+			digest.update(pluginXmlFile.getPath().getBytes(UTF_8));
+			digest.update(entry.hash.getBytes(UTF_8));
+		}
+		String eTag = '"' + ServletUtil.toHex(digest.digest()) + '"';
+
+		PluginModel current = model;
+		if (current == null || !current.getEtag().equals(eTag)) {
+			List<Plugin> plugins = new ArrayList<Plugin>();
+			for (Entry entry : currentEntries) {
+				plugins.addAll(entry.plugins);
+			}
+			current = new PluginModel(plugins, eTag);
+			model = current;
+			removeDeletedEntries(pluginXmlFiles);
+		}
+		return current;
+	}
+
+	private Entry getEntry(File pluginXmlFile) throws PluginJsException {
+		String hash;
+		try {
+			FileInfo fileInfo = fileIndex.getCurrentFileInfo(pluginXmlFile);
+			hash = fileInfo != null
+					? contentHashIndex.getEtag(pluginXmlFile, fileInfo.getLastModified(), fileInfo.getLength())
+					: contentHashIndex.getEtag(pluginXmlFile);
+		} catch (IOException e) {
+			throw new PluginJsException(e);
+		}
+
+		Entry entry = entries.get(pluginXmlFile);
+		if (entry == null || !entry.hash.equals(hash)) {
+			entry = new Entry(hash, CordovaPluginXmlUtil.getPluginsFromFile(pluginXmlFile, platformName));
+			entries.put(pluginXmlFile, entry);
+		}
+		return entry;
+	}
+
+	private void removeDeletedEntries(List<File> pluginXmlFiles) {
+		Set<File> existingFiles = new HashSet<File>(pluginXmlFiles);
+		for (File file : entries.keySet()) {
+			if (!existingFiles.contains(file)) {
+				entries.remove(file);
+				contentHashIndex.invalidate(file);
+			}
+		}
+	}
+
+	private static class Entry {
+		private final String hash;
+		private final List<Plugin> plugins;
+
+		public Entry(String hash, List<Plugin> plugins) {
+			this.hash = hash;
+			this.plugins = plugins;
+		}
+	}
+
+}
@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2013 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.cache;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Memory-capped LRU cache of plugin modules wrapped in "cordova.define(...)".
+ * Only hot modules are kept: a module is cached when it is requested for the second time with the same modification time.
+ */
+public class WrappedModuleCache {
+	private static final long DEFAULT_MEMORY_LIMIT = 8 * 1024 * 1024;
+
+	private final long memoryLimit;
+	private final long maxEntrySize;
+	private final LinkedHashMap<File, Entry> entries = new LinkedHashMap<File, Entry>(16, 0.75f, true); // access order
+	private long size;
+
+	public WrappedModuleCache() {
+		this(DEFAULT_MEMORY_LIMIT);
+	}
+
+	/**
+	 * @param memoryLimit maximum total size of the cached modules in bytes
+	 */
+	public WrappedModuleCache(long memoryLimit) {
+		this.memoryLimit = memoryLimit;
+		this.maxEntrySize = memoryLimit / 8; // a few big modules must not evict all the others
+	}
+
+	/**
+	 * Returns the wrapped module or {@code null} if it is not cached for this modification time and plugin id
+	 */
+	public synchronized byte[] get(File file, String pluginId, long lastModified) {
+		Entry entry = entries.get(file);
+		if (entry != null && entry.content != null && entry.isFor(pluginId, lastModified)) {
+			return entry.content;
+		}
+		return null;
+	}
+
+	/**
+	 * Records a request of the module
+	 *
+	 * @return {@code true} if the module has been requested before and it is worth caching
+	 */
+	public synchronized boolean isHot(File file, String pluginId, long lastModified, long contentSize) {
+		Entry entry = entries.get(file);
+		if (entry != null && entry.isFor(pluginId, lastModified)) {
+			return contentSize <= maxEntrySize;
+		}
+		replace(file, new Entry(pluginId, lastModified, null));
+		return false;
+	}
+
+	public synchronized void put(File file, String pluginId, long lastModified, byte[] content) {
+		if (content.length <= maxEntrySize) {
+			replace(file, new Entry(pluginId, lastModified, content));
+			evict();
+		}
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		size = 0;
+	}
+
+	public synchronized long getSize() {
+		return size;
+	}
+
+	private void replace(File file, Entry entry) {
+		Entry oldEntry = entries.put(file, entry);
+		if (oldEntry != null) {
+			size -= oldEntry.getSize();
+		}
+		size += entry.getSize();
+	}
+
+	/**
+	 * Removes least recently used modules until the cache fits the memory limit
+	 */
+	private void evict() {
+		Iterator<Map.Entry<File, Entry>> iterator = entries.entrySet().iterator();
+		while (size > memoryLimit && iterator.hasNext()) {
+			Entry entry = iterator.next().getValue();
+			if (entry.content != null) {
+				size -= entry.getSize();
+				iterator.remove();
+			}
+		}
+	}
+
+	private static class Entry {
+		private final String pluginId;
+		private final long lastModified;
+		private final byte[] content; // null until the module becomes hot
+
+		public Entry(String pluginId, long lastModified, byte[] content) {
+			this.pluginId = pluginId;
+			this.lastModified = lastModified;
+			this.content = content;
+		}
+
+		public boolean isFor(String pluginId, long lastModified) {
+			return this.lastModified == lastModified && this.pluginId.equals(pluginId);
+		}
+
+		public long getSize() {
+			return content != null ? content.length : 0;
+		}
+	}
+
+}
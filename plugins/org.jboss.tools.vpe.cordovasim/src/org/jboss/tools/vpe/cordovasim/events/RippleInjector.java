@@ -11,22 +11,36 @@
 package org.jboss.tools.vpe.cordovasim.events;
 
 import org.jboss.tools.vpe.browsersim.browser.IBrowser;
+import org.jboss.tools.vpe.browsersim.scripting.InjectedScript;
+import org.jboss.tools.vpe.browsersim.scripting.ScriptInjector;
+import org.jboss.tools.vpe.browsersim.scripting.ScriptInjector.Phase;
 import org.jboss.tools.vpe.cordovasim.CordovaSimArgs;
-import org.eclipse.swt.browser.LocationAdapter;
 import org.eclipse.swt.browser.LocationEvent;
 
 /**
  * @author Yahor Radtsevich (yradtsevich)
  * @author Ilya Buziuk (ibuziuk)
  */
-public class RippleInjector extends LocationAdapter {
+public class RippleInjector implements InjectedScript {
+	public static final String FEATURE = "ripple"; //$NON-NLS-1$
+	private String script;
+
+	/**
+	 * Registers the injection of Ripple into the pages of the current browser of the {@code injector}
+	 */
+	public static void register(ScriptInjector injector) {
+		injector.addScript(FEATURE, Phase.EMULATION, 10, new RippleInjector());
+	}
+
 	@SuppressWarnings("nls")
 	@Override
-	public void changed(LocationEvent event) {
-		IBrowser browser = (IBrowser) event.widget;
-		if (event.top) {
-			browser.execute(
-					/* We have to remember userAgent of the BrowserSim, cause window.navigator object would be overridden by ripple
+	public String getScript(IBrowser browser, LocationEvent event) {
+		if (!event.top) {
+			return null;
+		}
+		browser.forceFocus();
+		if (script == null) {
+			script = /* We have to remember userAgent of the BrowserSim, cause window.navigator object would be overridden by ripple
 					 * (see define function of the 'platform/w3c/1.0/navigator' in ripple.js and JBIDE-14652) */
 					"window.bsUserAgent = window.navigator.userAgent;" + 
 					"window.opener.document.getElementById('userAgentInfo').innerHTML = bsUserAgent;" + 
@@ -36,8 +50,8 @@ public class RippleInjector extends LocationAdapter {
 					"window._bsOriginalWindowOpen = window._bsOriginalWindowOpen || window.open;" + 
 					"if (window.opener.ripple) {" +
 						"window.opener.ripple('bootstrap').inject(window, document);" + 
-					"}"); 
-			browser.forceFocus();
+					"}";
 		}
+		return script;
 	}
 }
@@ -10,30 +10,127 @@
  ******************************************************************************/
 package org.jboss.tools.vpe.cordovasim.plugin.model;
 
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.jboss.tools.vpe.cordovasim.CordovaSimLogger;
+import org.jboss.tools.vpe.cordovasim.cache.FileIndex;
+import org.jboss.tools.vpe.cordovasim.cache.PluginModelCache;
+import org.jboss.tools.vpe.cordovasim.plugin.exception.PluginJsException;
 
 /**
+ * Maps plugin's "file" to "id" and back for a single server.
+ * <p>
+ * The mapping is an immutable snapshot, which is rebuilt on the file watching thread when the plugins are changed
+ * and published by one atomic reference swap, so lookups never block.
+ *
  * @author Ilya Buziuk (ibuziuk)
  */
-public class PluginIdCache {
-	private static final Map<String, String> FILE_TO_ID_CACHE = new HashMap<String, String>(); // Maps plugin's "file" to "id"
+public class PluginIdCache extends AbstractLifeCycle implements FileIndex.Listener {
+	private final PluginModelCache pluginModelCache;
+	private final FileIndex fileIndex;
+	private final Path pluginPath;
+	private final AtomicReference<Snapshot> snapshot = new AtomicReference<Snapshot>(Snapshot.EMPTY);
 
-	private PluginIdCache() {
+	public PluginIdCache(PluginModelCache pluginModelCache, FileIndex fileIndex, File pluginDir) {
+		this.pluginModelCache = pluginModelCache;
+		this.fileIndex = fileIndex;
+		this.pluginPath = pluginDir != null ? pluginDir.toPath().toAbsolutePath().normalize() : null;
 	}
 
-	public static void update(List<Plugin> plugins) {
-		if (plugins != null && !plugins.isEmpty()) {
-			FILE_TO_ID_CACHE.clear();
-			for (Plugin plugin : plugins) {
-				FILE_TO_ID_CACHE.put(plugin.getFile(), plugin.getId());
-			}
+	@Override
+	protected void doStart() throws Exception {
+		fileIndex.addListener(this); // the mapping itself is built by the warm-up or on the first lookup
+	}
+
+	@Override
+	protected void doStop() throws Exception {
+		fileIndex.removeListener(this);
+		snapshot.set(Snapshot.EMPTY);
+	}
+
+	@Override
+	public void directoryChanged(File directory) {
+		if (pluginPath != null && directory.toPath().startsWith(pluginPath)) {
+			refresh();
+		}
+	}
+
+	/**
+	 * Returns id of the plugin by its "file" (e.g. "plugins/org.apache.cordova.device/www/device.js")
+	 */
+	public String getPluginId(String fileName) {
+		String pluginId = snapshot.get().fileToId.get(fileName);
+		if (pluginId == null && isRunning() && refresh()) { // the file watcher has not caught up yet
+			pluginId = snapshot.get().fileToId.get(fileName);
+		}
+		return pluginId;
+	}
+
+	/**
+	 * Returns "file" of the plugin by its id
+	 */
+	public String getPluginFile(String pluginId) {
+		return snapshot.get().idToFile.get(pluginId);
+	}
+
+	/**
+	 * Publishes the mapping for the {@code pluginModel} unless it is already published
+	 */
+	public void update(PluginModel pluginModel) {
+		Snapshot current = snapshot.get();
+		if (!pluginModel.getEtag().equals(current.eTag)) {
+			snapshot.compareAndSet(current, new Snapshot(pluginModel)); // a newer snapshot may be published concurrently
 		}
 	}
 
-	public static String getPluginId(String fileName) {
-		return FILE_TO_ID_CACHE.get(fileName);
+	/**
+	 * Reads the current plugin model and publishes its mapping if it has been changed
+	 *
+	 * @return {@code true} if a new mapping is published
+	 */
+	private boolean refresh() {
+		try {
+			Snapshot current = snapshot.get();
+			update(pluginModelCache.getModel());
+			return snapshot.get() != current;
+		} catch (PluginJsException e) {
+			CordovaSimLogger.logError(e.getMessage(), e);
+			return false;
+		}
+	}
+
+	private static class Snapshot {
+		private static final Snapshot EMPTY = new Snapshot();
+
+		private final String eTag;
+		private final Map<String, String> fileToId;
+		private final Map<String, String> idToFile;
+
+		private Snapshot() {
+			this.eTag = null;
+			this.fileToId = Collections.emptyMap();
+			this.idToFile = Collections.emptyMap();
+		}
+
+		public Snapshot(PluginModel pluginModel) {
+			List<Plugin> plugins = pluginModel.getPlugins();
+			Map<String, String> fileToId = new HashMap<String, String>(2 * plugins.size());
+			Map<String, String> idToFile = new HashMap<String, String>(2 * plugins.size());
+			for (Plugin plugin : plugins) {
+				fileToId.put(plugin.getFile(), plugin.getId());
+				idToFile.put(plugin.getId(), plugin.getFile());
+			}
+			this.eTag = pluginModel.getEtag();
+			this.fileToId = Collections.unmodifiableMap(fileToId);
+			this.idToFile = Collections.unmodifiableMap(idToFile);
+		}
 	}
 
 }
@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2013 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.plugin.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable list of the {@link Plugin}s of the project together with the ETag
+ * derived from the content hashes of all the plugin.xml files
+ */
+public class PluginModel {
+	private final List<Plugin> plugins;
+	private final String eTag;
+
+	public PluginModel(List<Plugin> plugins, String eTag) {
+		this.plugins = Collections.unmodifiableList(plugins);
+		this.eTag = eTag;
+	}
+
+	public List<Plugin> getPlugins() {
+		return plugins;
+	}
+
+	public String getEtag() {
+		return eTag;
+	}
+
+}
@@ -11,12 +11,13 @@
 package org.jboss.tools.vpe.cordovasim.plugin.util;
 
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Scanner;
 
+import org.jboss.tools.vpe.cordovasim.cache.FileIndex;
 import org.jboss.tools.vpe.cordovasim.plugin.model.Plugin;
 
 /**
@@ -40,14 +41,14 @@ public class CordovaFileUtil {
 	/**
 	 * Returns {@link List} of plugin.xml files from the "plugins" directory of the hybrid project
 	 */
-	public static List<File> getPluginXmlFiles(File pluginsDir) {
-		if (pluginsDir != null && pluginsDir.exists()) {
+	public static List<File> getPluginXmlFiles(FileIndex fileIndex, File pluginsDir) {
+		File[] pluginDirs = pluginsDir != null ? fileIndex.listFiles(pluginsDir) : null;
+		if (pluginDirs != null) {
 			List<File> pluginXmlFiles = new ArrayList<File>();
-			File[] pluginDirs = pluginsDir.listFiles();
 			for (File pluginDir : pluginDirs) {
-				if (pluginDir.isDirectory()) {
+				if (fileIndex.isDirectory(pluginDir)) {
 					File pluginXmlFile = new File(pluginDir, PLUGIN_XML);
-					if (pluginDir.exists()) {
+					if (fileIndex.isFile(pluginXmlFile)) {
 						pluginXmlFiles.add(pluginXmlFile);
 					}
 				}
@@ -59,46 +60,54 @@ public class CordovaFileUtil {
 	
 	
 	/**
-	 * Returns {@link String} representation of the cordova_plugins.js 
+	 * Writes content of the cordova_plugins.js straight to the {@code writer}
 	 * 
 	 * @param plugins {@link List} of cordova {@link Plugin}
+	 * @return {@code false} if there are no plugins and nothing is written
 	 */
 	@SuppressWarnings("nls")
-	public static String generateCordovaPluginsJsContent(List<Plugin> plugins) {
+	public static boolean writeCordovaPluginsJsContent(List<Plugin> plugins, Writer writer) throws IOException {
 		if (plugins != null && !plugins.isEmpty()) {
-			String pluginContent = "";
+			writer.write(CORDOVA_PLUGINS_JS_BEGINNING);
 			Iterator<Plugin> pluginIterator = plugins.iterator();
 			while (pluginIterator.hasNext()) {
 				Plugin plugin = pluginIterator.next();
-				pluginContent += "\n\t{\n";
-				pluginContent += "\t\t" + FILE + "\"" + plugin.getFile() + "\",\n";
-				pluginContent += "\t\t" + ID + "\"" + plugin.getId() + "\",\n";
+				writer.write("\n\t{\n");
+				writer.write("\t\t" + FILE + "\"");
+				writer.write(plugin.getFile());
+				writer.write("\",\n");
+				writer.write("\t\t" + ID + "\"");
+				writer.write(plugin.getId());
+				writer.write('"');
 				Iterator<String> mapperIterator = null;
-				if (plugin.getClobbers().size() > 0) {
-					pluginContent += "\t\t" + CLOBBERS;
+				if (plugin.getClobbers() != null && plugin.getClobbers().size() > 0) {
+					writer.write(",\n\t\t" + CLOBBERS);
 					mapperIterator = plugin.getClobbers().iterator();
-				} else if (plugin.getMerges().size() > 0) {
-					pluginContent += "\t\t" + MERGES;
+				} else if (plugin.getMerges() != null && plugin.getMerges().size() > 0) {
+					writer.write(",\n\t\t" + MERGES);
 					mapperIterator = plugin.getMerges().iterator();
 				}
-				while (mapperIterator.hasNext()) {
+				while (mapperIterator != null && mapperIterator.hasNext()) { // a module may neither clobber nor merge
 					String clobber = mapperIterator.next();
-					pluginContent += "\t\t\t\"" + clobber + "\"";
+					writer.write("\t\t\t\"");
+					writer.write(clobber);
+					writer.write('"');
 					if (mapperIterator.hasNext()) {
-						pluginContent += ",\n";
+						writer.write(",\n");
 					} else {
-						pluginContent += "\n\t\t]";
+						writer.write("\n\t\t]");
 					}
 				}
 				if (pluginIterator.hasNext()) {
-					pluginContent += "\n\t},";
+					writer.write("\n\t},");
 				} else {
-					pluginContent += "\n\t}\n";
+					writer.write("\n\t}\n");
 				}
 			}
-			return CORDOVA_PLUGINS_JS_BEGINNING + pluginContent + CORDOVA_PLUGINS_JS_END;
+			writer.write(CORDOVA_PLUGINS_JS_END);
+			return true;
 		}
-		return null;
+		return false;
 	}
 	
 	public static String getDefaultCordovaPluginJsContent() {
@@ -106,16 +115,18 @@ public class CordovaFileUtil {
 	}
 	
 	/** 
-	 * Wraps the plugin's  .js file content in a function 
-	 * (adds "cordova.define( pluginId, function(require, exports, module) {...} ) 
+	 * Returns the beginning of the function the plugin's .js file content is wrapped in
+	 * ("cordova.define( pluginId, function(require, exports, module) {")
 	 */
-	public static String generatePluginContent(File file, String pluginId) throws FileNotFoundException {
-		String content = null;
-		if (file != null && file.exists()) {
-			String fileContent = new Scanner(file).useDelimiter("\\A").next(); //$NON-NLS-1$
-			content = CORDOVA_DEFINE + '"' + pluginId + '"' + ", " + FUNCTION_BEGINNING + fileContent + FUNCTION_END; //$NON-NLS-1$
-		}
-		return content;
+	public static String getPluginContentPrefix(String pluginId) {
+		return CORDOVA_DEFINE + '"' + pluginId + '"' + ", " + FUNCTION_BEGINNING; //$NON-NLS-1$
+	}
+
+	/** 
+	 * Returns the end of the function the plugin's .js file content is wrapped in
+	 */
+	public static String getPluginContentSuffix() {
+		return FUNCTION_END;
 	}
 	
 
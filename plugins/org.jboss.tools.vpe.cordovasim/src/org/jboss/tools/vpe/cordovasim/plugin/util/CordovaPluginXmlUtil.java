@@ -10,23 +10,21 @@
  ******************************************************************************/
 package org.jboss.tools.vpe.cordovasim.plugin.util;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.jboss.tools.vpe.cordovasim.plugin.exception.PluginJsException;
 import org.jboss.tools.vpe.cordovasim.plugin.model.Plugin;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
 
 
 /**
@@ -45,144 +43,116 @@ public class CordovaPluginXmlUtil {
 	private static final String TAG_JS_MODULE = "js-module"; //$NON-NLS-1$
 	private static final String TAG_MERGES = "merges"; //$NON-NLS-1$
 	private static final String TAG_PLATFORM = "platform"; //$NON-NLS-1$
-	
-	/**
-	 * Returns a {@link List} of all plugins for the specific platform from the {@link Document} of the plugin.xml 
-	 */
-	public static List<Plugin> getPluginsFromDocument(Document document, String platformName) {
-		if (document != null && platformName != null) {
-			List<Plugin> plugins = new ArrayList<Plugin>();
-			String pluginXmlId = getPluginXmlId(document); // plugin.xml id, not plugin id
-
-			List<Element> suitableJsModules = getJsModulesForSpecificPlatform(document, platformName);
-			Iterator<Element> iterator = suitableJsModules.iterator();
 
-			while (iterator.hasNext()) {
-				Element jsModuleElement = (Element) iterator.next();
-				Plugin plugin = createPlugin(jsModuleElement, pluginXmlId);
-				if (plugin != null) {
-					plugins.add(plugin);
-				}
-			}
-			return plugins;
-		}
-		return null;
-	}
+	private static final int ROOT_DEPTH = 1;
+	private static final int NO_DEPTH = -1;
+	private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
 
-	/** 
-	 *  Returns a {@link List} of all plugins for the specific platfom from the {@link List} of plugin.xml files
+	/**
+	 * Returns a {@link List} of all plugins for the specific platform from the plugin.xml file.
+	 * The file is read by a streaming parser, no DOM tree is built.
 	 */
-	public static List<Plugin> getPluginsfromFiles(List<File> pluginXmlFiles,
-			String platformName) throws PluginJsException {
-		if (pluginXmlFiles != null && !pluginXmlFiles.isEmpty() && platformName != null) {
-			List<Plugin> allPlugins = new ArrayList<Plugin>();
-			for (File file : pluginXmlFiles) {
+	public static List<Plugin> getPluginsFromFile(File pluginXmlFile, String platformName) throws PluginJsException {
+		try {
+			InputStream inputStream = new BufferedInputStream(new FileInputStream(pluginXmlFile));
+			try {
+				XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(inputStream);
 				try {
-					DocumentBuilder dBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-					Document doc = dBuilder.parse(file);
-					doc.getDocumentElement().normalize();
-					List<Plugin> pluginsFromDocument = CordovaPluginXmlUtil.getPluginsFromDocument(doc, platformName);
-					allPlugins.addAll(pluginsFromDocument);
-				} catch (ParserConfigurationException e) {
-					throw new PluginJsException(e);
-				} catch (IOException e) {
-					throw new PluginJsException(e);
-				} catch (SAXException e) {
-					throw new PluginJsException(e);
+					return getPluginsFromReader(reader, platformName);
+				} finally {
+					reader.close();
 				}
+			} finally {
+				inputStream.close();
 			}
-			return allPlugins;
-		}
-		return null;
-	}
-
-	@SuppressWarnings("nls")
-	private static Plugin createPlugin(Element jsModuleElement, String pluginXmlId) {
-		Plugin plugin = null;
-		String moduleName = jsModuleElement.getAttribute(ATTRIBUTE_NAME);
-		String src = jsModuleElement.getAttribute(ATTRIBUTE_SRC);
-
-		if ((moduleName != null) && (src != null)) {
-			List<Element> mergesList = getChildElementsByName(jsModuleElement, TAG_MERGES);
-			List<Element> clobbersList = getChildElementsByName(jsModuleElement, TAG_CLOBBERS);
-
-			List<String> clobbers = getMappers(clobbersList);
-			List<String> merges = getMappers(mergesList);
-
-			String pluginId = pluginXmlId + "." + moduleName; // plugin id = pligin.xml.id + moduleName 
-			String file = PLUGINS_DIR + "/" + pluginXmlId + "/" + src; 
-
-			if (clobbers.size() > 0 || merges.size() > 0) {
-				plugin = new Plugin(file, pluginId, clobbers, merges);
-			}
+		} catch (IOException e) {
+			throw new PluginJsException(e);
+		} catch (XMLStreamException e) {
+			throw new PluginJsException(e);
 		}
-
-		return plugin;
 	}
 
-	private static List<Element> getJsModulesForSpecificPlatform(Document doc, String platformName) {
-		List<Element> suitableJsModules = new ArrayList<Element>();
-		Element documentElement = doc.getDocumentElement();
-		NodeList childNodes = documentElement.getChildNodes();
-
-		for (int i = 0; i < childNodes.getLength(); i++) {
-			Node node = childNodes.item(i);
-			if (node.getNodeType() == Node.ELEMENT_NODE) {
-				Element element = (Element) node;
-
-				if (isJsModuleElement(element)) { // Common js-module for all types of projects (ios, android, wp8 etc.)
-					suitableJsModules.add(element);
-				} else if (isPlatformElement(element) && (element.getAttribute(ATTRIBUTE_NAME) != null)
-						&& element.getAttribute(ATTRIBUTE_NAME).equals(platformName)) { // platform-specific js-module
-					List<Element> androidJsModules = getChildElementsByName(element, TAG_JS_MODULE);
-					suitableJsModules.addAll(androidJsModules);
+	/**
+	 * Collects js-modules which are direct children of the root element (common for all types of projects)
+	 * or children of the {@code platformName} platform element
+	 */
+	private static List<Plugin> getPluginsFromReader(XMLStreamReader reader, String platformName) throws XMLStreamException {
+		List<Plugin> plugins = new ArrayList<Plugin>();
+		String pluginXmlId = null; // plugin.xml id, not plugin id
+		int depth = 0;
+		int platformDepth = NO_DEPTH;
+		int jsModuleDepth = NO_DEPTH;
+		String moduleName = null;
+		String src = null;
+		List<String> clobbers = null;
+		List<String> merges = null;
+
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+				String elementName = reader.getLocalName();
+				if (depth == ROOT_DEPTH) {
+					pluginXmlId = getAttribute(reader, ATTRIBUTE_ID);
+				} else if (jsModuleDepth != NO_DEPTH) {
+					if (depth == jsModuleDepth + 1) {
+						if (TAG_CLOBBERS.equals(elementName)) {
+							clobbers.add(getAttribute(reader, ATTRIBUTE_TARGET));
+						} else if (TAG_MERGES.equals(elementName)) {
+							merges.add(getAttribute(reader, ATTRIBUTE_TARGET));
+						}
+					}
+				} else if (TAG_JS_MODULE.equals(elementName)
+						&& (depth == ROOT_DEPTH + 1 || (platformDepth != NO_DEPTH && depth == platformDepth + 1))) {
+					jsModuleDepth = depth;
+					moduleName = getAttribute(reader, ATTRIBUTE_NAME);
+					src = getAttribute(reader, ATTRIBUTE_SRC);
+					clobbers = new ArrayList<String>();
+					merges = new ArrayList<String>();
+				} else if (depth == ROOT_DEPTH + 1 && TAG_PLATFORM.equals(elementName)
+						&& platformName.equals(getAttribute(reader, ATTRIBUTE_NAME))) { // platform-specific js-modules
+					platformDepth = depth;
 				}
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				if (depth == jsModuleDepth) {
+					Plugin plugin = createPlugin(pluginXmlId, moduleName, src, clobbers, merges);
+					if (plugin != null) {
+						plugins.add(plugin);
+					}
+					jsModuleDepth = NO_DEPTH;
+				} else if (depth == platformDepth) {
+					platformDepth = NO_DEPTH;
+				}
+				depth--;
 			}
 		}
-
-		return suitableJsModules;
+		return plugins;
 	}
 
-	private static List<String> getMappers(List<Element> mappersList) {
-		List<String> mappers = new ArrayList<String>();
-		for (int i = 0; i < mappersList.size(); i++) {
-			Element mapperElement = mappersList.get(i);
-			String mapper = mapperElement.getAttribute(ATTRIBUTE_TARGET);
-			mappers.add(mapper);
-		}
-
-		return mappers;
-	}
-
-	private static List<Element> getChildElementsByName(Element parentElement, String childElementName) {
-		List<Element> elementList = new ArrayList<Element>();
-		NodeList childNodes = parentElement.getChildNodes();
-		for (int i = 0; i < childNodes.getLength(); i++) {
-			Node node = childNodes.item(i);
-			if (node.getNodeType() == Node.ELEMENT_NODE) {
-				Element childElement = (Element) node;
-				if (childElement.getNodeName().equals(childElementName)) {
-					elementList.add(childElement);
-				}
-			}
+	@SuppressWarnings("nls")
+	private static Plugin createPlugin(String pluginXmlId, String moduleName, String src,
+			List<String> clobbers, List<String> merges) {
+		if (clobbers.size() > 0 || merges.size() > 0) {
+			String pluginId = pluginXmlId + "." + moduleName; // plugin id = pligin.xml.id + moduleName
+			String file = PLUGINS_DIR + "/" + pluginXmlId + "/" + src;
+			return new Plugin(file, pluginId, clobbers, merges);
 		}
-
-		return elementList;
+		return null;
 	}
 
-	private static boolean isJsModuleElement(Element element) {
-		String elementName = element.getNodeName();
-		return elementName.equals(TAG_JS_MODULE);
+	/**
+	 * Returns value of the attribute or an empty string if the attribute is not specified (as DOM does)
+	 */
+	private static String getAttribute(XMLStreamReader reader, String attributeName) {
+		String value = reader.getAttributeValue(null, attributeName);
+		return value != null ? value : ""; //$NON-NLS-1$
 	}
 
-	private static boolean isPlatformElement(Element element) {
-		String elementName = element.getNodeName();
-		return elementName.equals(TAG_PLATFORM);
+	private static XMLInputFactory createInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+		return factory;
 	}
 
-	private static String getPluginXmlId(Document doc) {
-		Element element = doc.getDocumentElement();
-		return element.getAttribute(ATTRIBUTE_ID);
-	}
-	
-}
\ No newline at end of file
+}
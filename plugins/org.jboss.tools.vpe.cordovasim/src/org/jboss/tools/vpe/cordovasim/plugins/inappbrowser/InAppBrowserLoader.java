@@ -19,6 +19,7 @@ import org.eclipse.swt.events.DisposeListener;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
 import org.jboss.tools.vpe.browsersim.BrowserSimArgs;
+import org.jboss.tools.vpe.browsersim.browser.BrowserPool;
 import org.jboss.tools.vpe.browsersim.browser.ExtendedCloseWindowListener;
 import org.jboss.tools.vpe.browsersim.browser.ExtendedWindowEvent;
 import org.jboss.tools.vpe.browsersim.browser.IBrowser;
@@ -26,6 +27,7 @@ import org.jboss.tools.vpe.browsersim.browser.PlatformUtil;
 import org.jboss.tools.vpe.browsersim.browser.WebKitBrowserFactory;
 import org.jboss.tools.vpe.browsersim.browser.javafx.JavaFXBrowser;
 import org.jboss.tools.vpe.browsersim.model.Device;
+import org.jboss.tools.vpe.browsersim.scripting.MessageBridge.Delivery;
 import org.jboss.tools.vpe.browsersim.util.BrowserSimUtil;
 import org.jboss.tools.vpe.cordovasim.CustomBrowserSim;
 
@@ -72,7 +74,11 @@ public class InAppBrowserLoader {
 				browserSim.setInAppBrowser(null);			
 				stackLayout.topControl = (Control) browserSimBrowser;
 				browserSimParentComposite.layout();	
-				inAppBrowser.dispose();
+				if (PlatformUtil.OS_WIN32.equals(currentOs)) {
+					inAppBrowser.dispose(); // BrowserSim browser is moved back by the dispose listener
+				} else {
+					BrowserPool.release(inAppBrowser);
+				}
 				rippleToolSuiteBrowser.execute("ripple('event').trigger('browser-close');"); // fire 'exit' for inAppBrowser
 				rippleToolSuiteBrowser.execute("ripple('emulatorBridge').window().ChildBrowser.onClose();"); // fire 'close' for childBrowser
 			}
@@ -109,7 +115,7 @@ public class InAppBrowserLoader {
 			});
 		}
 		
-		browserSimBrowser.registerBrowserFunction("csInAppExecScript", new ExecScriptFunction(browserSimBrowser, inAppBrowser));
+		browserSim.getMessageBridge().addFunction("csInAppExecScript", Delivery.SYNC, new ExecScriptFunction(browserSimBrowser, inAppBrowser));
 	}
 	
 	private static IBrowser createInAppBrowser(Composite browserSimParentComposite, IBrowser browserSimBrowser,
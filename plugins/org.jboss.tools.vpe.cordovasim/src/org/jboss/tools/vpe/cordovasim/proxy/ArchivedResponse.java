@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2013 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.proxy;
+
+import org.eclipse.jetty.http.HttpFields;
+
+/**
+ * Response read from the {@link TrafficArchive}, the body stays in the archive file
+ */
+public class ArchivedResponse {
+	private final int status;
+	private final HttpFields headers;
+	private final long bodyOffset;
+	private final long bodyLength;
+
+	ArchivedResponse(int status, HttpFields headers, long bodyOffset, long bodyLength) {
+		this.status = status;
+		this.headers = headers;
+		this.bodyOffset = bodyOffset;
+		this.bodyLength = bodyLength;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public HttpFields getHeaders() {
+		return headers;
+	}
+
+	long getBodyOffset() {
+		return bodyOffset;
+	}
+
+	public long getBodyLength() {
+		return bodyLength;
+	}
+
+}
@@ -0,0 +1,258 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2013 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.proxy;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeaders;
+
+/**
+ * Response of the proxied backend stored in the {@link ProxyCache}.
+ * <p>
+ * Freshness is computed as described in RFC 7234 for a private cache: "max-age" takes precedence over "Expires",
+ * otherwise 10% of the time since "Last-Modified" is used. The body is kept in memory until the cache spills it
+ * to disk, the rest of the response never changes.
+ */
+public class CachedResponse {
+	private static final long MAX_HEURISTIC_FRESHNESS = 24 * 60 * 60 * 1000L; // one day
+	private static final String MAX_AGE = "max-age"; //$NON-NLS-1$
+	private static final String NO_CACHE = "no-cache"; //$NON-NLS-1$
+	private static final String VARY_ANY = "*"; //$NON-NLS-1$
+
+	private final String key;
+	private final int status;
+	private final HttpFields headers;
+	private final Map<String, String> varyValues; // request header values the response depends on
+	private final long responseTime;
+	private final long freshnessLifetime;
+	private final long correctedInitialAge;
+	private final long bodyLength;
+
+	// guarded by the ProxyCache lock, only one of them is set
+	byte[] body;
+	File bodyFile;
+
+	CachedResponse(String key, int status, HttpFields headers, Map<String, String> varyValues,
+			long requestTime, long responseTime, byte[] body, File bodyFile, long bodyLength) {
+		this.key = key;
+		this.status = status;
+		this.headers = headers;
+		this.varyValues = varyValues;
+		this.responseTime = responseTime;
+		this.body = body;
+		this.bodyFile = bodyFile;
+		this.bodyLength = bodyLength;
+		this.freshnessLifetime = computeFreshnessLifetime(headers, responseTime);
+		this.correctedInitialAge = computeCorrectedInitialAge(headers, requestTime, responseTime);
+	}
+
+	/**
+	 * Creates the response for the {@code request}, varying request headers are remembered
+	 */
+	public static CachedResponse create(String key, HttpServletRequest request, int status, HttpFields headers,
+			byte[] body, long requestTime, long responseTime) {
+		Map<String, String> varyValues = new HashMap<String, String>();
+		for (String name : getVaryHeaders(headers)) {
+			varyValues.put(name, request.getHeader(name));
+		}
+		return new CachedResponse(key, status, headers, Collections.unmodifiableMap(varyValues), requestTime,
+				responseTime, body, null, body.length);
+	}
+
+	/**
+	 * Returns a copy of the response refreshed by a "304 Not Modified" response with the {@code notModifiedHeaders},
+	 * the body is shared, so the method must be called under the {@link ProxyCache} lock
+	 */
+	CachedResponse revalidate(HttpFields notModifiedHeaders, long requestTime, long responseTime) {
+		HttpFields mergedHeaders = new HttpFields();
+		mergedHeaders.add(headers);
+		for (String name : notModifiedHeaders.getFieldNamesCollection()) {
+			if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+				mergedHeaders.put(name, notModifiedHeaders.getStringField(name));
+			}
+		}
+		return new CachedResponse(key, status, mergedHeaders, varyValues, requestTime, responseTime,
+				body, bodyFile, bodyLength);
+	}
+
+	/**
+	 * Checks whether the response may be stored, see RFC 7234 section 3
+	 */
+	public static boolean isCacheable(int status, HttpFields headers) {
+		switch (status) {
+		case 200: case 203: case 204: case 300: case 301: case 404: case 405: case 410: case 414: case 501:
+			break;
+		default:
+			return false;
+		}
+		Map<String, String> cacheControl = parseCacheControl(headers.getStringField(HttpHeaders.CACHE_CONTROL));
+		if (cacheControl.containsKey("no-store") || getVaryHeaders(headers).contains(VARY_ANY)) { //$NON-NLS-1$
+			return false;
+		}
+		return cacheControl.containsKey(MAX_AGE) || cacheControl.containsKey(NO_CACHE)
+				|| headers.containsKey(HttpHeaders.EXPIRES) || headers.containsKey(HttpHeaders.ETAG)
+				|| headers.containsKey(HttpHeaders.LAST_MODIFIED);
+	}
+
+	/**
+	 * Parses "Cache-Control" header, directive names are lower cased, directives without a value are mapped to {@code ""}
+	 */
+	public static Map<String, String> parseCacheControl(String cacheControl) {
+		if (cacheControl == null) {
+			return Collections.emptyMap();
+		}
+		Map<String, String> directives = new HashMap<String, String>();
+		for (String directive : cacheControl.split(",")) { //$NON-NLS-1$
+			int equalsIndex = directive.indexOf('=');
+			if (equalsIndex >= 0) {
+				String value = directive.substring(equalsIndex + 1).trim();
+				if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) { //$NON-NLS-1$ //$NON-NLS-2$
+					value = value.substring(1, value.length() - 1);
+				}
+				directives.put(directive.substring(0, equalsIndex).trim().toLowerCase(Locale.ENGLISH), value);
+			} else if (directive.trim().length() > 0) {
+				directives.put(directive.trim().toLowerCase(Locale.ENGLISH), ""); //$NON-NLS-1$
+			}
+		}
+		return directives;
+	}
+
+	private static List<String> getVaryHeaders(HttpFields headers) {
+		List<String> varyHeaders = new ArrayList<String>();
+		Collection<String> varyValues = headers.getValuesCollection(HttpHeaders.VARY);
+		if (varyValues == null) {
+			return varyHeaders;
+		}
+		for (String vary : varyValues) {
+			for (String name : vary.split(",")) { //$NON-NLS-1$
+				if (name.trim().length() > 0) {
+					varyHeaders.add(name.trim().toLowerCase(Locale.ENGLISH));
+				}
+			}
+		}
+		return varyHeaders;
+	}
+
+	private static long computeFreshnessLifetime(HttpFields headers, long responseTime) {
+		Map<String, String> cacheControl = parseCacheControl(headers.getStringField(HttpHeaders.CACHE_CONTROL));
+		if (cacheControl.containsKey(NO_CACHE)) {
+			return 0; // stored, but revalidated every time
+		}
+		if (cacheControl.containsKey(MAX_AGE)) {
+			try {
+				return Math.max(0, Long.parseLong(cacheControl.get(MAX_AGE))) * 1000;
+			} catch (NumberFormatException e) {
+				return 0;
+			}
+		}
+		long date = getDate(headers, HttpHeaders.DATE, responseTime);
+		if (headers.containsKey(HttpHeaders.EXPIRES)) {
+			long expires = getDate(headers, HttpHeaders.EXPIRES, 0); // invalid values mean "already expired"
+			return Math.max(0, expires - date);
+		}
+		long lastModified = getDate(headers, HttpHeaders.LAST_MODIFIED, -1);
+		if (lastModified > 0 && lastModified < date) {
+			return Math.min((date - lastModified) / 10, MAX_HEURISTIC_FRESHNESS);
+		}
+		return 0;
+	}
+
+	private static long computeCorrectedInitialAge(HttpFields headers, long requestTime, long responseTime) {
+		long date = getDate(headers, HttpHeaders.DATE, responseTime);
+		long apparentAge = Math.max(0, responseTime - date);
+		long ageValue = 0;
+		String age = headers.getStringField(HttpHeaders.AGE);
+		if (age != null) {
+			try {
+				ageValue = Long.parseLong(age.trim()) * 1000;
+			} catch (NumberFormatException e) {
+				// ignored as the spec requires
+			}
+		}
+		long correctedAgeValue = ageValue + (responseTime - requestTime);
+		return Math.max(apparentAge, correctedAgeValue);
+	}
+
+	private static long getDate(HttpFields headers, String name, long defaultValue) {
+		try {
+			long date = headers.getDateField(name);
+			return date >= 0 ? date : defaultValue;
+		} catch (IllegalArgumentException e) {
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Checks the request headers listed in "Vary" of the response
+	 */
+	public boolean matches(HttpServletRequest request) {
+		for (Map.Entry<String, String> varyValue : varyValues.entrySet()) {
+			String value = request.getHeader(varyValue.getKey());
+			if (value == null ? varyValue.getValue() != null : !value.equals(varyValue.getValue())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns current age of the response in milliseconds
+	 */
+	public long getAge(long now) {
+		return correctedInitialAge + Math.max(0, now - responseTime);
+	}
+
+	public boolean isFresh(long now) {
+		return freshnessLifetime > getAge(now);
+	}
+
+	/**
+	 * Checks if the response can be revalidated with a conditional request
+	 */
+	public boolean hasValidators() {
+		return getEtag() != null || headers.containsKey(HttpHeaders.LAST_MODIFIED);
+	}
+
+	public String getEtag() {
+		return headers.getStringField(HttpHeaders.ETAG);
+	}
+
+	public String getLastModified() {
+		return headers.getStringField(HttpHeaders.LAST_MODIFIED);
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public HttpFields getHeaders() {
+		return headers;
+	}
+
+	public long getBodyLength() {
+		return bodyLength;
+	}
+
+}
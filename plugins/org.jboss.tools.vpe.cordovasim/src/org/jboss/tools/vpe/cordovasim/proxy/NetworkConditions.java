@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2013 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.proxy;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+
+/**
+ * Network conditions of the emulated device for a single server (see "-network" argument), the profile
+ * may be switched at runtime from the CordovaSim menu.
+ * <p>
+ * Delays are timed by one scheduler thread, so throttled exchanges never hold Jetty threads while they wait
+ * for the latency or the bandwidth. Transfers are run by a separate pool, so a client reading slowly blocks
+ * only its own transfer. A full download queue does block the HttpClient thread reading the backend,
+ * see {@link ThrottledOutput}.
+ */
+public class NetworkConditions extends AbstractLifeCycle {
+	private static final String SCHEDULER_THREAD_NAME = "CordovaSim Network Emulator"; //$NON-NLS-1$
+	private static final String TRANSFER_THREAD_NAME_PREFIX = "CordovaSim Network Transfer "; //$NON-NLS-1$
+
+	private volatile NetworkLink link;
+	private ScheduledExecutorService scheduler;
+	private ExecutorService transferExecutor;
+
+	public NetworkConditions(NetworkProfile profile) {
+		this.link = new NetworkLink(profile, this);
+	}
+
+	@Override
+	protected void doStart() throws Exception {
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, SCHEDULER_THREAD_NAME);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		executor.setRemoveOnCancelPolicy(true);
+		scheduler = executor;
+
+		final AtomicInteger threadNumber = new AtomicInteger();
+		transferExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, TRANSFER_THREAD_NAME_PREFIX + threadNumber.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	@Override
+	protected void doStop() throws Exception {
+		scheduler.shutdownNow();
+		transferExecutor.shutdownNow();
+		scheduler.awaitTermination(5, TimeUnit.SECONDS);
+		transferExecutor.awaitTermination(5, TimeUnit.SECONDS);
+	}
+
+	public NetworkProfile getProfile() {
+		return link.getProfile();
+	}
+
+	/**
+	 * Switches the profile, exchanges in progress keep the link they have started with
+	 */
+	public void setProfile(NetworkProfile profile) {
+		if (profile != link.getProfile()) {
+			link = new NetworkLink(profile, this);
+		}
+	}
+
+	/**
+	 * Returns the link for a new exchange or {@code null} if the network is not throttled
+	 */
+	public NetworkLink getLink() {
+		NetworkLink currentLink = link;
+		return currentLink.getProfile().isThrottling() ? currentLink : null;
+	}
+
+	/**
+	 * Runs the {@code task} on the transfer pool after the delay
+	 */
+	void schedule(final Runnable task, long delayNanos) {
+		if (delayNanos > 0) {
+			scheduler.schedule(new Runnable() {
+				@Override
+				public void run() {
+					transferExecutor.execute(task);
+				}
+			}, delayNanos, TimeUnit.NANOSECONDS);
+		} else {
+			transferExecutor.execute(task);
+		}
+	}
+
+}
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2013 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.proxy;
+
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Emulated link of the device with the {@link NetworkProfile}. Uploads and downloads of all exchanges share
+ * the bandwidth of the link like they do on a real device.
+ */
+public class NetworkLink {
+	private static final long DOWNLOAD_BUFFER_SIZE = 256 * 1024; // per exchange
+
+	private final NetworkProfile profile;
+	private final NetworkConditions conditions;
+	private final TokenBucket uplink;
+	private final TokenBucket downlink;
+	private final Random random = new Random();
+
+	NetworkLink(NetworkProfile profile, NetworkConditions conditions) {
+		this.profile = profile;
+		this.conditions = conditions;
+		this.uplink = profile.isThrottling() ? new TokenBucket(profile.getUploadBytesPerSecond()) : null;
+		this.downlink = profile.isThrottling() ? new TokenBucket(profile.getDownloadBytesPerSecond()) : null;
+	}
+
+	public NetworkProfile getProfile() {
+		return profile;
+	}
+
+	/**
+	 * Decides whether the next request is lost according to the error rate of the profile
+	 */
+	public boolean isRequestLost() {
+		return random.nextDouble() < profile.getErrorRate();
+	}
+
+	/**
+	 * Runs the {@code task} when a request of {@code requestSize} bytes would reach the backend,
+	 * i.e. after the latency and the upload time
+	 */
+	public void send(long requestSize, Runnable task) {
+		conditions.schedule(task, TimeUnit.MILLISECONDS.toNanos(profile.getLatency()) + uplink.reserve(requestSize));
+	}
+
+	/**
+	 * Runs the {@code task} after the latency, e.g. to drop a lost request
+	 */
+	public void delay(Runnable task) {
+		conditions.schedule(task, TimeUnit.MILLISECONDS.toNanos(profile.getLatency()));
+	}
+
+	/**
+	 * Opens a stream writing to the {@code output} with the download bandwidth of the link
+	 */
+	public ThrottledOutput openDownload(OutputStream output, ProxyStatistics statistics) {
+		int sliceSize = (int) Math.max(512, Math.min(profile.getDownloadBytesPerSecond() / 100, 16384)); // about 10 ms of transfer
+		return new ThrottledOutput(output, downlink, conditions, sliceSize, DOWNLOAD_BUFFER_SIZE, statistics);
+	}
+
+}
@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2013 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.proxy;
+
+/**
+ * Network conditions emulated by the XHR proxy, the values are typical for the mobile network generations
+ */
+public enum NetworkProfile {
+	NONE(0, 0, 0, 0),
+	GPRS(500, 50, 20, 0.02),
+	EDGE(300, 250, 50, 0.01),
+	UMTS(100, 750, 250, 0.005),
+	LTE(20, 4000, 3000, 0.001);
+
+	private final long latency;
+	private final long downloadRate;
+	private final long uploadRate;
+	private final double errorRate;
+
+	/**
+	 * @param latency round trip time in milliseconds
+	 * @param downloadRate in kilobits per second
+	 * @param uploadRate in kilobits per second
+	 * @param errorRate probability of a dropped request
+	 */
+	private NetworkProfile(long latency, long downloadRate, long uploadRate, double errorRate) {
+		this.latency = latency;
+		this.downloadRate = downloadRate;
+		this.uploadRate = uploadRate;
+		this.errorRate = errorRate;
+	}
+
+	public boolean isThrottling() {
+		return this != NONE;
+	}
+
+	public long getLatency() {
+		return latency;
+	}
+
+	/**
+	 * Returns download bandwidth in bytes per second
+	 */
+	public long getDownloadBytesPerSecond() {
+		return downloadRate * 1000 / 8;
+	}
+
+	/**
+	 * Returns upload bandwidth in bytes per second
+	 */
+	public long getUploadBytesPerSecond() {
+		return uploadRate * 1000 / 8;
+	}
+
+	public double getErrorRate() {
+		return errorRate;
+	}
+
+}
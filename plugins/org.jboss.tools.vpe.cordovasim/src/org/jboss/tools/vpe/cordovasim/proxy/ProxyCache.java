@@ -0,0 +1,329 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2013 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.proxy;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.jboss.tools.vpe.cordovasim.CordovaSimLogger;
+
+/**
+ * HTTP cache of the responses proxied by {@link org.jboss.tools.vpe.cordovasim.CrossOriginProxyServlet}
+ * for a single server (see "-proxycache" argument).
+ * <p>
+ * Bodies are kept in memory up to the memory limit, least recently used ones are spilled to a private temp
+ * directory then, and evicted completely when the disk limit is exceeded. The directory is removed when
+ * the server stops. A body file which is being read is deleted when its last reader closes it.
+ */
+public class ProxyCache extends AbstractLifeCycle {
+	public static final long DEFAULT_MEMORY_LIMIT = 16 * 1024 * 1024;
+	public static final long DEFAULT_DISK_LIMIT = 256 * 1024 * 1024;
+	public static final long DEFAULT_MAX_ENTRY_SIZE = 32 * 1024 * 1024;
+
+	private static final String TEMP_DIR_PREFIX = "cordovasim-proxy"; //$NON-NLS-1$
+	private static final String BODY_FILE_PREFIX = "body"; //$NON-NLS-1$
+
+	private final long memoryLimit;
+	private final long diskLimit;
+	private final long maxEntrySize;
+	private final LinkedHashMap<String, CachedResponse> entries = new LinkedHashMap<String, CachedResponse>(16, 0.75f, true); // access order
+	private final Map<File, Integer> bodyFileReaders = new HashMap<File, Integer>();
+	private final Set<File> releasedBodyFiles = new HashSet<File>(); // deleted when the last reader closes them
+	private long memoryBytes;
+	private long diskBytes;
+	private File cacheDir;
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong revalidationCount = new AtomicLong();
+	private final AtomicLong spillCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	public ProxyCache() {
+		this(DEFAULT_MEMORY_LIMIT, DEFAULT_DISK_LIMIT, DEFAULT_MAX_ENTRY_SIZE);
+	}
+
+	/**
+	 * @param memoryLimit total size of the bodies kept in memory
+	 * @param diskLimit total size of the bodies spilled to disk
+	 * @param maxEntrySize responses with larger bodies are not stored
+	 */
+	public ProxyCache(long memoryLimit, long diskLimit, long maxEntrySize) {
+		this.memoryLimit = memoryLimit;
+		this.diskLimit = diskLimit;
+		this.maxEntrySize = Math.min(maxEntrySize, diskLimit);
+	}
+
+	@Override
+	protected void doStart() throws Exception {
+		cacheDir = Files.createTempDirectory(TEMP_DIR_PREFIX).toFile();
+	}
+
+	@Override
+	protected void doStop() throws Exception {
+		synchronized (this) {
+			for (CachedResponse response : entries.values()) {
+				deleteBodyFile(response);
+			}
+			entries.clear();
+			memoryBytes = 0;
+			diskBytes = 0;
+		}
+		if (!cacheDir.delete()) {
+			CordovaSimLogger.logError("Unable to delete " + cacheDir, null); //$NON-NLS-1$
+		}
+	}
+
+	public static String getKey(String method, String url) {
+		return method + ' ' + url;
+	}
+
+	public long getMaxEntrySize() {
+		return maxEntrySize;
+	}
+
+	/**
+	 * Returns the stored response for the {@code request} or {@code null}, it may need a revalidation
+	 */
+	public synchronized CachedResponse get(String key, HttpServletRequest request) {
+		CachedResponse response = entries.get(key);
+		return response != null && response.matches(request) ? response : null;
+	}
+
+	/**
+	 * Stores the {@code response} replacing the previous one with the same key
+	 */
+	public void put(CachedResponse response) throws IOException {
+		if (response.getBodyLength() > maxEntrySize) {
+			return;
+		}
+		synchronized (this) {
+			if (response.getBodyLength() > memoryLimit / 8) { // large bodies would evict everything from memory
+				spill(response);
+			} else {
+				memoryBytes += response.getBodyLength();
+			}
+			remove(entries.put(response.getKey(), response), response);
+			trim();
+		}
+	}
+
+	/**
+	 * Stores a copy of the {@code response} refreshed by "304 Not Modified"
+	 *
+	 * @return the refreshed response
+	 */
+	public CachedResponse revalidate(CachedResponse response, HttpFields notModifiedHeaders,
+			long requestTime, long responseTime) {
+		revalidationCount.incrementAndGet();
+		synchronized (this) {
+			CachedResponse revalidatedResponse = response.revalidate(notModifiedHeaders, requestTime, responseTime);
+			if (entries.get(response.getKey()) == response) { // the response has not been evicted or replaced
+				entries.put(response.getKey(), revalidatedResponse); // the body is shared, so nothing to account
+			}
+			return revalidatedResponse;
+		}
+	}
+
+	/**
+	 * Removes the stored response, e.g. after an unsafe request to the same URL
+	 */
+	public synchronized void invalidate(String key) {
+		remove(entries.remove(key), null);
+	}
+
+	/**
+	 * Opens the body of the {@code response}, the stream stays valid even if the response is evicted meanwhile.
+	 * The stream must be closed.
+	 *
+	 * @throws FileNotFoundException if the response has been evicted or replaced since it was returned
+	 * by {@link #get(String, HttpServletRequest)} and its body file is deleted
+	 */
+	public synchronized InputStream openBody(CachedResponse response) throws IOException {
+		if (response.body != null) {
+			return new ByteArrayInputStream(response.body);
+		}
+		final File bodyFile = response.bodyFile;
+		InputStream input = new FileInputStream(bodyFile);
+		Integer readers = bodyFileReaders.get(bodyFile);
+		bodyFileReaders.put(bodyFile, readers != null ? readers + 1 : 1);
+		return new FilterInputStream(input) {
+			private boolean closed;
+
+			@Override
+			public void close() throws IOException {
+				try {
+					super.close();
+				} finally {
+					if (!closed) {
+						closed = true;
+						closeBodyFile(bodyFile);
+					}
+				}
+			}
+		};
+	}
+
+	public void recordHit() {
+		hitCount.incrementAndGet();
+	}
+
+	public void recordMiss() {
+		missCount.incrementAndGet();
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	public long getRevalidationCount() {
+		return revalidationCount.get();
+	}
+
+	public long getSpillCount() {
+		return spillCount.get();
+	}
+
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	public synchronized int getEntryCount() {
+		return entries.size();
+	}
+
+	public synchronized long getMemoryBytes() {
+		return memoryBytes;
+	}
+
+	public synchronized long getDiskBytes() {
+		return diskBytes;
+	}
+
+	@Override
+	@SuppressWarnings("nls")
+	public String toString() {
+		return "ProxyCache[hits=" + getHitCount() + ", misses=" + getMissCount() + ", revalidations="
+				+ getRevalidationCount() + ", entries=" + getEntryCount() + ", memory=" + getMemoryBytes()
+				+ ", disk=" + getDiskBytes() + ", spills=" + getSpillCount() + ", evictions=" + getEvictionCount() + "]";
+	}
+
+	/**
+	 * Spills least recently used bodies to disk and evicts least recently used responses while over the limits,
+	 * must be called under the lock
+	 */
+	private void trim() {
+		Iterator<CachedResponse> iterator = entries.values().iterator();
+		while (memoryBytes > memoryLimit && iterator.hasNext()) {
+			CachedResponse response = iterator.next();
+			if (response.body != null) {
+				try {
+					spill(response);
+					memoryBytes -= response.getBodyLength();
+				} catch (IOException e) {
+					CordovaSimLogger.logError(e.getMessage(), e);
+					iterator.remove();
+					remove(response, null);
+				}
+			}
+		}
+
+		iterator = entries.values().iterator();
+		while (diskBytes > diskLimit && iterator.hasNext()) {
+			CachedResponse response = iterator.next();
+			if (response.bodyFile != null) {
+				iterator.remove();
+				remove(response, null);
+			}
+		}
+	}
+
+	/**
+	 * Moves the body to disk, must be called under the lock
+	 */
+	private void spill(CachedResponse response) throws IOException {
+		File bodyFile = File.createTempFile(BODY_FILE_PREFIX, null, cacheDir);
+		Files.write(bodyFile.toPath(), response.body);
+		response.bodyFile = bodyFile;
+		response.body = null;
+		diskBytes += response.getBodyLength();
+		spillCount.incrementAndGet();
+	}
+
+	/**
+	 * Releases the body of the removed {@code response}, responses with a {@code replacement} are not counted
+	 * as evicted, must be called under the lock
+	 */
+	private void remove(CachedResponse response, CachedResponse replacement) {
+		if (response == null) {
+			return;
+		}
+		if (replacement == null) {
+			evictionCount.incrementAndGet();
+		}
+		if (response.body != null) {
+			memoryBytes -= response.getBodyLength();
+		} else if (response.bodyFile != null) {
+			deleteBodyFile(response);
+		}
+	}
+
+	private void deleteBodyFile(CachedResponse response) {
+		if (response.bodyFile != null) {
+			diskBytes -= response.getBodyLength();
+			if (bodyFileReaders.containsKey(response.bodyFile)) {
+				releasedBodyFiles.add(response.bodyFile); // Windows cannot delete open files
+			} else {
+				delete(response.bodyFile);
+			}
+		}
+	}
+
+	private synchronized void closeBodyFile(File bodyFile) {
+		int readers = bodyFileReaders.get(bodyFile) - 1;
+		if (readers > 0) {
+			bodyFileReaders.put(bodyFile, readers);
+		} else {
+			bodyFileReaders.remove(bodyFile);
+			if (releasedBodyFiles.remove(bodyFile)) {
+				delete(bodyFile);
+			}
+		}
+	}
+
+	private static void delete(File file) {
+		if (!file.delete()) {
+			CordovaSimLogger.logError("Unable to delete " + file, null); //$NON-NLS-1$
+		}
+	}
+
+}
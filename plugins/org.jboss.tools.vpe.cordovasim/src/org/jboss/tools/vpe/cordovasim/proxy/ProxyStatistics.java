@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2013 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.proxy;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of {@link org.jboss.tools.vpe.cordovasim.CrossOriginProxyServlet} exchanges with the backend.
+ * Buffered bytes are the response content held by the proxy: queued for a throttled client or collected
+ * for the {@link ProxyCache} and the {@link TrafficArchive}.
+ */
+public class ProxyStatistics {
+	private final AtomicLong exchangeCount = new AtomicLong();
+	private final AtomicLong inFlightExchanges = new AtomicLong();
+	private final AtomicLong peakInFlightExchanges = new AtomicLong();
+	private final AtomicLong bufferedBytes = new AtomicLong();
+	private final AtomicLong peakBufferedBytes = new AtomicLong();
+	private final AtomicLong backPressureCount = new AtomicLong();
+
+	public void exchangeStarted() {
+		exchangeCount.incrementAndGet();
+		updatePeak(peakInFlightExchanges, inFlightExchanges.incrementAndGet());
+	}
+
+	public void exchangeFinished() {
+		inFlightExchanges.decrementAndGet();
+	}
+
+	/**
+	 * @param delta positive when content is buffered, negative when it is released
+	 */
+	public void addBufferedBytes(long delta) {
+		updatePeak(peakBufferedBytes, bufferedBytes.addAndGet(delta));
+	}
+
+	/**
+	 * Counts the cases when reading from the backend has been paused because the client is slower
+	 */
+	public void recordBackPressure() {
+		backPressureCount.incrementAndGet();
+	}
+
+	public long getExchangeCount() {
+		return exchangeCount.get();
+	}
+
+	public long getInFlightExchanges() {
+		return inFlightExchanges.get();
+	}
+
+	public long getPeakInFlightExchanges() {
+		return peakInFlightExchanges.get();
+	}
+
+	public long getBufferedBytes() {
+		return bufferedBytes.get();
+	}
+
+	public long getPeakBufferedBytes() {
+		return peakBufferedBytes.get();
+	}
+
+	public long getBackPressureCount() {
+		return backPressureCount.get();
+	}
+
+	@Override
+	@SuppressWarnings("nls")
+	public String toString() {
+		return "ProxyStatistics[exchanges=" + getExchangeCount() + ", inFlight=" + getInFlightExchanges()
+				+ ", peakInFlight=" + getPeakInFlightExchanges() + ", buffered=" + getBufferedBytes()
+				+ ", peakBuffered=" + getPeakBufferedBytes() + ", backPressure=" + getBackPressureCount() + "]";
+	}
+
+	private static void updatePeak(AtomicLong peak, long value) {
+		long currentPeak = peak.get();
+		while (value > currentPeak && !peak.compareAndSet(currentPeak, value)) {
+			currentPeak = peak.get();
+		}
+	}
+
+}
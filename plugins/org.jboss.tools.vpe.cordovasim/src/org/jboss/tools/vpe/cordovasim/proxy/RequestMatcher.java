@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2013 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.proxy;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.eclipse.jetty.http.HttpURI;
+
+/**
+ * Builds keys of proxied requests for the {@link TrafficArchive}, requests with equal keys are answered
+ * by the same recorded response.
+ * <p>
+ * Rules are given as a comma separated list (see "-proxymatch" argument): {@code method} matches the HTTP method,
+ * {@code query} matches the query string normalized by sorting its parameters, any other item is the name
+ * of a request header to match. The scheme, host, port and path are always matched.
+ */
+public class RequestMatcher {
+	public static final String DEFAULT_RULES = "method,query"; //$NON-NLS-1$
+
+	private static final String METHOD_RULE = "method"; //$NON-NLS-1$
+	private static final String QUERY_RULE = "query"; //$NON-NLS-1$
+	private static final String CACHE_BUSTER_PARAMETER = "_"; //$NON-NLS-1$ added by jQuery with "cache: false"
+	private static final String ENCODING = "UTF-8"; //$NON-NLS-1$
+
+	private final boolean methodMatched;
+	private final boolean queryMatched;
+	private final List<String> matchedHeaders = new ArrayList<String>();
+
+	public RequestMatcher(String rules) {
+		boolean methodMatched = false;
+		boolean queryMatched = false;
+		for (String rule : rules.split(",")) { //$NON-NLS-1$
+			rule = rule.trim().toLowerCase(Locale.ENGLISH);
+			if (METHOD_RULE.equals(rule)) {
+				methodMatched = true;
+			} else if (QUERY_RULE.equals(rule)) {
+				queryMatched = true;
+			} else if (rule.length() > 0) {
+				matchedHeaders.add(rule);
+			}
+		}
+		this.methodMatched = methodMatched;
+		this.queryMatched = queryMatched;
+	}
+
+	/**
+	 * Returns the key of the {@code request} proxied to the {@code url}
+	 */
+	public String getKey(HttpServletRequest request, String url) {
+		StringBuilder key = new StringBuilder();
+		if (methodMatched) {
+			key.append(request.getMethod()).append(' ');
+		}
+		key.append(normalizeUrl(url));
+		for (String header : matchedHeaders) {
+			String value = request.getHeader(header);
+			key.append('\n').append(header).append(": ").append(value != null ? value : ""); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Lower cases the scheme and host, drops the default port and the fragment and sorts query parameters
+	 */
+	private String normalizeUrl(String url) {
+		HttpURI uri = new HttpURI(url);
+		StringBuilder normalizedUrl = new StringBuilder();
+		String scheme = uri.getScheme() != null ? uri.getScheme().toLowerCase(Locale.ENGLISH) : "http"; //$NON-NLS-1$
+		normalizedUrl.append(scheme).append("://"); //$NON-NLS-1$
+		if (uri.getHost() != null) {
+			normalizedUrl.append(uri.getHost().toLowerCase(Locale.ENGLISH));
+		}
+		int port = uri.getPort();
+		if (port > 0 && !(port == 80 && "http".equals(scheme)) && !(port == 443 && "https".equals(scheme))) { //$NON-NLS-1$ //$NON-NLS-2$
+			normalizedUrl.append(':').append(port);
+		}
+		normalizedUrl.append(uri.getPath() != null ? uri.getPath() : "/"); //$NON-NLS-1$
+		if (queryMatched && uri.getQuery() != null) {
+			String query = normalizeQuery(uri.getQuery());
+			if (query.length() > 0) {
+				normalizedUrl.append('?').append(query);
+			}
+		}
+		return normalizedUrl.toString();
+	}
+
+	/**
+	 * Sorts parameters re-encoding them in the same way, so "b=1&a=%7e" and "a=~&b=1" are equal.
+	 * The cache buster parameter is dropped, it differs in every request.
+	 */
+	private String normalizeQuery(String query) {
+		List<String> parameters = new ArrayList<String>();
+		for (String parameter : query.split("&")) { //$NON-NLS-1$
+			if (parameter.length() == 0) {
+				continue;
+			}
+			int equalsIndex = parameter.indexOf('=');
+			String name = decode(equalsIndex >= 0 ? parameter.substring(0, equalsIndex) : parameter);
+			if (CACHE_BUSTER_PARAMETER.equals(name)) {
+				continue;
+			}
+			String value = equalsIndex >= 0 ? decode(parameter.substring(equalsIndex + 1)) : null;
+			parameters.add(value != null ? encode(name) + '=' + encode(value) : encode(name));
+		}
+		Collections.sort(parameters);
+
+		StringBuilder normalizedQuery = new StringBuilder();
+		for (String parameter : parameters) {
+			if (normalizedQuery.length() > 0) {
+				normalizedQuery.append('&');
+			}
+			normalizedQuery.append(parameter);
+		}
+		return normalizedQuery.toString();
+	}
+
+	private static String decode(String value) {
+		try {
+			return URLDecoder.decode(value, ENCODING);
+		} catch (IllegalArgumentException e) { // malformed escapes are kept as is
+			return value;
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String encode(String value) {
+		try {
+			return URLEncoder.encode(value, ENCODING);
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
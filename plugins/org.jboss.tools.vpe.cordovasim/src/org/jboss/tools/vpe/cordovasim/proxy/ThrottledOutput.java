@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2013 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.proxy;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Writes content to the client with the download bandwidth of the {@link NetworkLink}.
+ * <p>
+ * {@link #write(byte[])} only queues the content, it is written slice by slice on the transfer pool
+ * of the {@link NetworkConditions} as soon as the {@link TokenBucket} allows. The queue is bounded:
+ * when it is full, the writing thread waits, so the backend is not read faster than the client is served.
+ * <p>
+ * The writing thread is the proxy's HttpClient thread handling the exchange. Jetty 8 HttpClient cannot pause
+ * reading a response without holding that thread, so a throttled download larger than the queue keeps one
+ * thread of the client pool blocked until the rest fits into the queue. Server threads are never blocked. The
+ * alternative, an unbounded queue, would hold whole responses in memory for minutes on slow profiles.
+ */
+public class ThrottledOutput {
+	private final OutputStream output;
+	private final TokenBucket bucket;
+	private final NetworkConditions conditions;
+	private final int sliceSize;
+	private final long maxQueuedBytes;
+	private final ProxyStatistics statistics;
+	private final ArrayDeque<byte[]> queue = new ArrayDeque<byte[]>();
+	private final Runnable drainTask = new Runnable() {
+		@Override
+		public void run() {
+			drain();
+		}
+	};
+
+	// guarded by this
+	private int headOffset; // bytes of the queue head already taken
+	private long queuedBytes; // including the reserved slice
+	private byte[] reservedSlice; // paid for, but not written yet
+	private boolean draining;
+	private boolean failed;
+	private Runnable closeCallback;
+
+	ThrottledOutput(OutputStream output, TokenBucket bucket, NetworkConditions conditions, int sliceSize,
+			long maxQueuedBytes, ProxyStatistics statistics) {
+		this.output = output;
+		this.bucket = bucket;
+		this.conditions = conditions;
+		this.sliceSize = sliceSize;
+		this.maxQueuedBytes = maxQueuedBytes;
+		this.statistics = statistics;
+	}
+
+	/**
+	 * Queues the {@code bytes} blocking the calling thread while the queue is full, the array must not be
+	 * changed afterwards
+	 */
+	public void write(byte[] bytes) throws InterruptedIOException {
+		synchronized (this) {
+			if (queuedBytes >= maxQueuedBytes && !failed) {
+				statistics.recordBackPressure();
+				do {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						throw new InterruptedIOException();
+					}
+				} while (queuedBytes >= maxQueuedBytes && !failed);
+			}
+			if (failed || bytes.length == 0) {
+				return;
+			}
+			queue.add(bytes);
+			queuedBytes += bytes.length;
+			statistics.addBufferedBytes(bytes.length);
+			if (draining) {
+				return;
+			}
+			draining = true;
+		}
+		conditions.schedule(drainTask, 0);
+	}
+
+	/**
+	 * Runs the {@code callback} when all queued content is written or the client is gone
+	 */
+	public void close(Runnable callback) {
+		synchronized (this) {
+			closeCallback = callback;
+			if (draining && !failed) {
+				return; // run by the drain
+			}
+		}
+		runCloseCallback();
+	}
+
+	/**
+	 * Discards the queued content, e.g. when the backend exchange fails
+	 */
+	public synchronized void abort() {
+		failed = true;
+		queue.clear();
+		headOffset = 0;
+		reservedSlice = null;
+		statistics.addBufferedBytes(-queuedBytes);
+		queuedBytes = 0;
+		notifyAll();
+	}
+
+	private void drain() {
+		while (true) {
+			byte[] slice;
+			synchronized (this) {
+				if (failed) {
+					draining = false;
+					break;
+				}
+				if (reservedSlice == null) {
+					reservedSlice = nextSlice();
+					if (reservedSlice == null) {
+						draining = false;
+						break;
+					}
+					long delay = bucket.reserve(reservedSlice.length);
+					if (delay > 0) {
+						conditions.schedule(drainTask, delay);
+						return;
+					}
+				}
+				slice = reservedSlice;
+				reservedSlice = null;
+				queuedBytes -= slice.length;
+				statistics.addBufferedBytes(-slice.length);
+				notifyAll();
+			}
+			try {
+				output.write(slice);
+				output.flush();
+			} catch (IOException e) { // the client has closed the connection
+				synchronized (this) {
+					abort();
+					draining = false;
+				}
+				break;
+			}
+		}
+		runCloseCallback();
+	}
+
+	/**
+	 * Runs the callback passed to {@link #close(Runnable)} once
+	 */
+	private void runCloseCallback() {
+		Runnable callback;
+		synchronized (this) {
+			callback = closeCallback;
+			closeCallback = null;
+		}
+		if (callback != null) {
+			callback.run();
+		}
+	}
+
+	/**
+	 * Takes the next slice from the queue, must be called under the lock
+	 */
+	private byte[] nextSlice() {
+		byte[] head = queue.peek();
+		if (head == null) {
+			return null;
+		}
+		int length = Math.min(sliceSize, head.length - headOffset);
+		byte[] slice = headOffset == 0 && length == head.length ? head : Arrays.copyOfRange(head, headOffset, headOffset + length);
+		headOffset += length;
+		if (headOffset == head.length) {
+			queue.poll();
+			headOffset = 0;
+		}
+		return slice;
+	}
+
+}
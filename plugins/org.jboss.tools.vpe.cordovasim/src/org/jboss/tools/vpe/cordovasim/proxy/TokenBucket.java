@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2013 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.proxy;
+
+/**
+ * Token bucket shared by all transfers in one direction of the emulated link.
+ * <p>
+ * Tokens are reserved instead of awaited: a reservation may take the bucket into debt and returns the time
+ * the caller has to wait before sending, so no thread waits for tokens and concurrent transfers are served
+ * in the order of their reservations. A writer may still wait for room in the queue of
+ * the {@link ThrottledOutput}.
+ */
+class TokenBucket {
+	static final Clock SYSTEM_CLOCK = new Clock() {
+		@Override
+		public long nanoTime() {
+			return System.nanoTime();
+		}
+	};
+
+	private static final long NANOS_PER_SECOND = 1000000000L;
+	private static final long MIN_BURST = 1500; // one Ethernet frame
+
+	private final Clock clock;
+	private final double bytesPerNano;
+	private final double capacity;
+	private double tokens;
+	private long lastRefillTime;
+
+	TokenBucket(long bytesPerSecond) {
+		this(bytesPerSecond, SYSTEM_CLOCK);
+	}
+
+	TokenBucket(long bytesPerSecond, Clock clock) {
+		this.clock = clock;
+		this.lastRefillTime = clock.nanoTime();
+		this.bytesPerNano = (double) bytesPerSecond / NANOS_PER_SECOND;
+		this.capacity = Math.max(MIN_BURST, bytesPerSecond / 20); // 50 milliseconds of idle link
+		this.tokens = capacity;
+	}
+
+	/**
+	 * Takes {@code bytes} tokens from the bucket
+	 *
+	 * @return nanoseconds to wait until the bytes may be sent, {@code 0} if they may be sent immediately
+	 */
+	synchronized long reserve(long bytes) {
+		long now = clock.nanoTime();
+		tokens = Math.min(capacity, tokens + (now - lastRefillTime) * bytesPerNano);
+		lastRefillTime = now;
+		tokens -= bytes;
+		return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / bytesPerNano);
+	}
+
+	/**
+	 * Source of {@link System#nanoTime()}, replaced by tests
+	 */
+	interface Clock {
+		long nanoTime();
+	}
+
+}
@@ -0,0 +1,276 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2013 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.proxy;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.jboss.tools.vpe.cordovasim.CordovaSimLogger;
+import org.jboss.tools.vpe.cordovasim.servlet.util.ServletUtil;
+
+/**
+ * Archive of the backend responses proxied by {@link org.jboss.tools.vpe.cordovasim.CrossOriginProxyServlet}
+ * (see "-proxyrecord" and "-proxyreplay" arguments). In the replay mode requests are answered from the archive
+ * without any network access, so the backend latency does not affect profiling of the application.
+ * <p>
+ * The archive is a compact binary file: a header followed by entries of the key built by the {@link RequestMatcher},
+ * the status, the headers and the body. Conditional headers of the client are not forwarded while recording,
+ * so every entry has the full body. Entries are flushed as soon as they are recorded, so the archive
+ * stays usable if CordovaSim is killed. Requests with the same key are replayed in the recorded order,
+ * the last response is repeated after that.
+ */
+public class TrafficArchive extends AbstractLifeCycle {
+	public enum Mode {RECORD, REPLAY}
+
+	public static final long MAX_BODY_SIZE = 64 * 1024 * 1024;
+
+	private static final int MAGIC = 0x43535441; // "CSTA"
+	private static final int VERSION = 1;
+	private static final Charset UTF_8 = Charset.forName("UTF-8"); //$NON-NLS-1$
+
+	private final File file;
+	private final Mode mode;
+	private final RequestMatcher requestMatcher;
+	private DataOutputStream output;
+	private FileChannel input;
+	private final Map<String, List<ArchivedResponse>> responses = new HashMap<String, List<ArchivedResponse>>();
+	private final Map<String, Integer> replayedCounts = new HashMap<String, Integer>();
+
+	public TrafficArchive(File file, Mode mode, RequestMatcher requestMatcher) {
+		this.file = file;
+		this.mode = mode;
+		this.requestMatcher = requestMatcher;
+	}
+
+	@Override
+	protected void doStart() throws Exception {
+		if (mode == Mode.RECORD) {
+			File parent = file.getAbsoluteFile().getParentFile();
+			if (!parent.isDirectory() && !parent.mkdirs()) {
+				throw new IOException("Unable to create " + parent); //$NON-NLS-1$
+			}
+			output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.flush();
+		} else {
+			input = new FileInputStream(file).getChannel();
+			readIndex();
+		}
+	}
+
+	@Override
+	protected void doStop() throws Exception {
+		synchronized (this) {
+			if (output != null) {
+				output.close();
+				output = null;
+			}
+			responses.clear();
+			replayedCounts.clear();
+		}
+		if (input != null) {
+			input.close();
+			input = null;
+		}
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	public RequestMatcher getRequestMatcher() {
+		return requestMatcher;
+	}
+
+	/**
+	 * Appends the response to the archive
+	 */
+	public synchronized void record(String key, int status, HttpFields headers, byte[] body) throws IOException {
+		if (output == null) {
+			return; // stopped
+		}
+		writeString(key);
+		output.writeInt(status);
+		output.writeInt(headers.size());
+		for (int i = 0; i < headers.size(); i++) {
+			HttpFields.Field header = headers.getField(i);
+			writeString(header.getName());
+			writeString(header.getValue());
+		}
+		output.writeLong(body.length);
+		output.write(body);
+		output.flush();
+	}
+
+	/**
+	 * Returns the next recorded response for the {@code key} or {@code null} if there is none
+	 */
+	public synchronized ArchivedResponse find(String key) {
+		List<ArchivedResponse> keyResponses = responses.get(key);
+		if (keyResponses == null) {
+			return null;
+		}
+		Integer replayedCount = replayedCounts.get(key);
+		int index = replayedCount != null ? replayedCount : 0;
+		replayedCounts.put(key, index + 1);
+		return keyResponses.get(Math.min(index, keyResponses.size() - 1));
+	}
+
+	/**
+	 * Sends the body of the replayed {@code response} from the archive file as the whole body of
+	 * the {@code servletResponse}, see {@link ServletUtil#sendFile}
+	 */
+	public void sendBody(ArchivedResponse response, HttpServletResponse servletResponse) throws IOException {
+		ServletUtil.sendFile(servletResponse, input, response.getBodyOffset(), response.getBodyLength());
+	}
+
+	/**
+	 * Indexes entries of the archive, their headers are read with positional reads and the bodies are skipped,
+	 * so archives of any size are indexed without mapping them
+	 */
+	private void readIndex() throws IOException {
+		EntryReader reader = new EntryReader(input);
+		try {
+			if (reader.readInt() != MAGIC || reader.readInt() != VERSION) {
+				throw new IOException("Not a CordovaSim traffic archive: " + file); //$NON-NLS-1$
+			}
+		} catch (EOFException e) {
+			throw new IOException("Not a CordovaSim traffic archive: " + file, e); //$NON-NLS-1$
+		}
+		int count = 0;
+		try {
+			while (reader.hasRemaining()) {
+				String key = reader.readString();
+				int status = reader.readInt();
+				int headerCount = reader.readInt();
+				HttpFields headers = new HttpFields();
+				for (int i = 0; i < headerCount; i++) {
+					headers.add(reader.readString(), reader.readString());
+				}
+				long bodyLength = reader.readLong();
+				ArchivedResponse response = new ArchivedResponse(status, headers, reader.getPosition(), bodyLength);
+				reader.skip(bodyLength);
+
+				List<ArchivedResponse> keyResponses = responses.get(key);
+				if (keyResponses == null) {
+					keyResponses = new ArrayList<ArchivedResponse>(1);
+					responses.put(key, keyResponses);
+				}
+				keyResponses.add(response);
+				count++;
+			}
+		} catch (EOFException e) { // the recording has been interrupted in the middle of an entry
+			CordovaSimLogger.logError("Truncated traffic archive " + file + ", " + count + " entries are read", e); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+	}
+
+	private void writeString(String value) throws IOException {
+		byte[] bytes = value.getBytes(UTF_8);
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+
+	/**
+	 * Reads the archive at a position of its own through a small window, reading past the end of the file
+	 * throws {@link EOFException}
+	 */
+	private static class EntryReader {
+		private static final int WINDOW_SIZE = 8192;
+
+		private final FileChannel channel;
+		private final long size;
+		private ByteBuffer window = ByteBuffer.allocate(WINDOW_SIZE);
+		private long windowPosition;
+		private long position;
+
+		public EntryReader(FileChannel channel) throws IOException {
+			this.channel = channel;
+			this.size = channel.size();
+			window.limit(0);
+		}
+
+		public boolean hasRemaining() {
+			return position < size;
+		}
+
+		public long getPosition() {
+			return position;
+		}
+
+		public int readInt() throws IOException {
+			return require(4).getInt();
+		}
+
+		public long readLong() throws IOException {
+			return require(8).getLong();
+		}
+
+		public String readString() throws IOException {
+			int length = readInt();
+			ByteBuffer buffer = require(length);
+			String value = new String(buffer.array(), buffer.position(), length, UTF_8);
+			buffer.position(buffer.position() + length);
+			return value;
+		}
+
+		public void skip(long length) throws IOException {
+			if (length < 0 || length > size - position) {
+				throw new EOFException();
+			}
+			position += length;
+		}
+
+		/**
+		 * Returns the window positioned at the next {@code length} bytes, which are counted as read
+		 */
+		private ByteBuffer require(int length) throws IOException {
+			if (length < 0 || length > size - position) {
+				throw new EOFException();
+			}
+			long offset = position - windowPosition;
+			if (offset < 0 || offset + length > window.limit()) {
+				if (length > window.capacity()) {
+					window = ByteBuffer.allocate(length);
+				}
+				window.clear();
+				windowPosition = position;
+				while (window.position() < length) {
+					if (channel.read(window, windowPosition + window.position()) < 0) {
+						throw new EOFException();
+					}
+				}
+				window.flip();
+				offset = 0;
+			}
+			window.position((int) offset);
+			position += length;
+			return window;
+		}
+	}
+
+}
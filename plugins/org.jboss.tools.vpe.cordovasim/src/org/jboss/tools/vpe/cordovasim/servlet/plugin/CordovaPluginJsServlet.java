@@ -10,9 +10,11 @@
  ******************************************************************************/
 package org.jboss.tools.vpe.cordovasim.servlet.plugin;
 
-import java.io.File;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.List;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -20,10 +22,11 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.jboss.tools.vpe.cordovasim.CordovaSimLogger;
+import org.jboss.tools.vpe.cordovasim.cache.CachedContent;
+import org.jboss.tools.vpe.cordovasim.cache.PluginModelCache;
 import org.jboss.tools.vpe.cordovasim.plugin.exception.PluginJsException;
 import org.jboss.tools.vpe.cordovasim.plugin.model.PluginIdCache;
-import org.jboss.tools.vpe.cordovasim.plugin.model.Plugin;
-import org.jboss.tools.vpe.cordovasim.plugin.util.CordovaPluginXmlUtil;
+import org.jboss.tools.vpe.cordovasim.plugin.model.PluginModel;
 import org.jboss.tools.vpe.cordovasim.plugin.util.CordovaFileUtil;
 import org.jboss.tools.vpe.cordovasim.servlet.util.ServletUtil;
 
@@ -32,44 +35,48 @@ import org.jboss.tools.vpe.cordovasim.servlet.util.ServletUtil;
  */
 public class CordovaPluginJsServlet extends HttpServlet {
 	private static final long serialVersionUID = 1L;
-	private File pluginDir;
+	private static final Charset UTF_8 = Charset.forName("UTF-8"); //$NON-NLS-1$
+	private static final String JAVASCRIPT_CONTENT_TYPE = ServletUtil.APPLICATION_JAVASCRIPT_CONTENT_TYPE + ";charset=UTF-8"; //$NON-NLS-1$
+	private PluginModelCache pluginModelCache;
+	private PluginIdCache pluginIdCache;
+	private volatile CachedContent content;
 
-	public CordovaPluginJsServlet(File pluginDir) {
+	public CordovaPluginJsServlet(PluginModelCache pluginModelCache, PluginIdCache pluginIdCache) {
 		super();
-		this.pluginDir = pluginDir;
+		this.pluginModelCache = pluginModelCache;
+		this.pluginIdCache = pluginIdCache;
 	}
 
 	@Override
 	protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
-		String ifNoneMatchValue = req.getHeader(ServletUtil.IF_NONE_MATCH);
-		String eTag = ServletUtil.generateEtag(pluginDir);
+		try {
+			PluginModel pluginModel = pluginModelCache.getModel(); // only changed plugin.xml files are parsed again
+			ServletUtil.sendCachedContent(req, resp, getContent(pluginModel), ServletUtil.NO_CACHE);
+		} catch (PluginJsException e) {
+			CordovaSimLogger.logError(e.getMessage(), e);
+			resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+		}
+	}
 
-		resp.setHeader(ServletUtil.CACHE_CONTROL, ServletUtil.NO_CACHE);
-		
-		if (ifNoneMatchValue != null && ifNoneMatchValue.equals(eTag)) {
-			resp.setHeader(ServletUtil.ETAG, eTag);
-			resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
-		} else {
-			try {
-				List<File> pluginXmlFiles = CordovaFileUtil.getPluginXmlFiles(pluginDir); // get all plugin.xml files from the "plugins" folder of the hybrid project
-				List<Plugin> plugins = CordovaPluginXmlUtil.getPluginsfromFiles(pluginXmlFiles, CordovaPluginXmlUtil.PLATFORM_ANDROID); // generate Plugins from the plugin.xml files
+	/**
+	 * Returns encoded cordova_plugins.js for the {@code pluginModel}, it is generated only once for each model
+	 */
+	private CachedContent getContent(PluginModel pluginModel) throws IOException {
+		CachedContent current = content;
+		if (current == null || !current.getEtag().equals(pluginModel.getEtag())) {
+			pluginIdCache.update(pluginModel); // Cache with mapping plugin's file to id is needed in PluginServlet
 
-				PluginIdCache.update(plugins); // Cache with mapping plugin's file to id is needed in PluginServlet
-				String content = CordovaFileUtil.generateCordovaPluginsJsContent(plugins);
-				
-				if (content == null) {
-					content = CordovaFileUtil.getDefaultCordovaPluginJsContent();
-				}
-				
-				resp.setStatus(HttpServletResponse.SC_OK);
-				resp.setContentType(ServletUtil.APPLICATION_JAVASCRIPT_CONTENT_TYPE);
-				resp.setHeader(ServletUtil.ETAG, eTag);
-				resp.getWriter().write(content);
-			} catch (PluginJsException e) {
-				CordovaSimLogger.logError(e.getMessage(), e);
-				resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+			ByteArrayOutputStream contentStream = new ByteArrayOutputStream();
+			Writer writer = new OutputStreamWriter(contentStream, UTF_8);
+			if (!CordovaFileUtil.writeCordovaPluginsJsContent(pluginModel.getPlugins(), writer)) {
+				writer.write(CordovaFileUtil.getDefaultCordovaPluginJsContent());
 			}
+			writer.close();
+
+			current = CachedContent.create(contentStream.toByteArray(), JAVASCRIPT_CONTENT_TYPE, pluginModel.getEtag());
+			content = current;
 		}
+		return current;
 	}
 
 	@Override
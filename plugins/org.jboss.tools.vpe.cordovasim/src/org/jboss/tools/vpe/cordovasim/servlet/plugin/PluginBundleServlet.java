@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2013 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.servlet.plugin;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.jboss.tools.vpe.cordovasim.CordovaSimLogger;
+import org.jboss.tools.vpe.cordovasim.cache.PluginBundleCache;
+import org.jboss.tools.vpe.cordovasim.plugin.exception.PluginJsException;
+import org.jboss.tools.vpe.cordovasim.servlet.util.ServletUtil;
+
+/**
+ * Serves all the plugin modules of the project in one response (see {@link PluginBundleCache})
+ */
+public class PluginBundleServlet extends HttpServlet {
+	private static final long serialVersionUID = 1L;
+	private PluginBundleCache pluginBundleCache;
+
+	public PluginBundleServlet(PluginBundleCache pluginBundleCache) {
+		super();
+		this.pluginBundleCache = pluginBundleCache;
+	}
+
+	@Override
+	protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+		try {
+			ServletUtil.sendCachedContent(req, resp, pluginBundleCache.getContent(), ServletUtil.REVALIDATE);
+		} catch (PluginJsException e) {
+			CordovaSimLogger.logError(e.getMessage(), e);
+			resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+		}
+	}
+
+	@Override
+	protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+		doGet(req, resp);
+	}
+
+}
@@ -10,27 +10,50 @@
  ******************************************************************************/
 package org.jboss.tools.vpe.cordovasim.servlet.plugin;
 
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.jboss.tools.vpe.cordovasim.CordovaSimLogger;
+import org.jboss.tools.vpe.cordovasim.cache.FileIndex;
+import org.jboss.tools.vpe.cordovasim.cache.FileIndex.FileInfo;
+import org.jboss.tools.vpe.cordovasim.cache.WrappedModuleCache;
 import org.jboss.tools.vpe.cordovasim.plugin.model.PluginIdCache;
 import org.jboss.tools.vpe.cordovasim.plugin.util.CordovaFileUtil;
 import org.jboss.tools.vpe.cordovasim.servlet.util.ServletUtil;
 
 /**
+ * Serves plugin's .js files wrapped in "cordova.define(...)". The wrapper and the file are sent
+ * one after another with the exact Content-Length, the file is never decoded or copied into a String.
+ * Jetty can send a file without copying it only as the whole body, so the file is copied to the response
+ * through one buffer, and hot modules are sent already wrapped from the {@link WrappedModuleCache}.
+ *
  * @author Ilya Buziuk (ibuziuk)
  */
 public class PluginServlet extends HttpServlet {
 	private static final long serialVersionUID = 1L;
+	private static final Charset UTF_8 = Charset.forName("UTF-8"); //$NON-NLS-1$
+	private static final byte[] SUFFIX = CordovaFileUtil.getPluginContentSuffix().getBytes(UTF_8);
 	private File pluginDir;
+	private FileIndex fileIndex;
+	private PluginIdCache pluginIdCache;
+	private WrappedModuleCache wrappedModuleCache;
 
-	public PluginServlet(File pluginDir) {
+	public PluginServlet(File pluginDir, FileIndex fileIndex, PluginIdCache pluginIdCache) {
 		super();
 		this.pluginDir = pluginDir;
+		this.fileIndex = fileIndex;
+		this.pluginIdCache = pluginIdCache;
+		this.wrappedModuleCache = new WrappedModuleCache();
 	}
 
 	@Override
@@ -39,10 +62,11 @@ public class PluginServlet extends HttpServlet {
 		File file = new File(pluginDir, pathInfo);
 
 		resp.setHeader(ServletUtil.CACHE_CONTROL, ServletUtil.NO_CACHE);
-		
-		if (file.exists()) {
+
+		FileInfo fileInfo = fileIndex.getCurrentFileInfo(file); // the module may be edited before its watch event
+		if (fileInfo != null && !fileInfo.isDirectory()) {
 			String ifNoneMatchValue = req.getHeader(ServletUtil.IF_NONE_MATCH);
-			String eTag = ServletUtil.generateEtag(file);
+			String eTag = ServletUtil.generateEtag(fileIndex, file);
 			if ((ifNoneMatchValue != null) && (eTag.equals(ifNoneMatchValue))) {
 				resp.setHeader(ServletUtil.ETAG, eTag);
 				resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
@@ -52,17 +76,14 @@ public class PluginServlet extends HttpServlet {
 				if (pluginId == null) {
 					resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
 				} else {
-					String content = null;
 					try {
-						content = CordovaFileUtil.generatePluginContent(file, pluginId);
-					} catch (IOException e) { // TODO log the exception
-						resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-					}
-					if (content != null) {
-						resp.setStatus(HttpServletResponse.SC_OK);
-						resp.setContentType(ServletUtil.APPLICATION_JAVASCRIPT_CONTENT_TYPE);
-						resp.setHeader(ServletUtil.ETAG, eTag);
-						resp.getWriter().write(content);
+						sendPluginContent(req, resp, file, pluginId, fileInfo.getLastModified(), eTag);
+					} catch (IOException e) {
+						CordovaSimLogger.logError(e.getMessage(), e);
+						if (!resp.isCommitted()) {
+							resp.reset();
+							resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+						}
 					}
 				}
 			}
@@ -76,8 +97,71 @@ public class PluginServlet extends HttpServlet {
 		doGet(req, resp);
 	};
 
+	/**
+	 * Sends the plugin's .js file wrapped in a function
+	 * (adds "cordova.define( pluginId, function(require, exports, module) {...} )
+	 */
+	private void sendPluginContent(HttpServletRequest req, HttpServletResponse resp, File file, String pluginId,
+			long lastModified, String eTag) throws IOException {
+		byte[] content = wrappedModuleCache.get(file, pluginId, lastModified);
+		if (content != null) {
+			sendHeaders(resp, content.length, eTag);
+			writeBody(req, resp, content);
+			return;
+		}
+
+		byte[] prefix = CordovaFileUtil.getPluginContentPrefix(pluginId).getBytes(UTF_8);
+		FileChannel fileChannel = new FileInputStream(file).getChannel();
+		try {
+			long fileSize = fileChannel.size(); // the size of the opened file, not the indexed one
+			long contentSize = prefix.length + fileSize + SUFFIX.length;
+
+			if (wrappedModuleCache.isHot(file, pluginId, lastModified, contentSize)) {
+				content = new byte[(int) contentSize];
+				System.arraycopy(prefix, 0, content, 0, prefix.length);
+				readFully(fileChannel, ByteBuffer.wrap(content, prefix.length, (int) fileSize));
+				System.arraycopy(SUFFIX, 0, content, prefix.length + (int) fileSize, SUFFIX.length);
+				wrappedModuleCache.put(file, pluginId, lastModified, content);
+
+				sendHeaders(resp, contentSize, eTag);
+				writeBody(req, resp, content);
+			} else {
+				sendHeaders(resp, contentSize, eTag);
+				if (!ServletUtil.HEAD.equals(req.getMethod())) {
+					OutputStream outputStream = resp.getOutputStream();
+					outputStream.write(prefix);
+					ServletUtil.copyFully(fileChannel, 0, fileSize, outputStream);
+					outputStream.write(SUFFIX);
+				}
+			}
+		} finally {
+			fileChannel.close();
+		}
+	}
+
+	private void sendHeaders(HttpServletResponse resp, long contentSize, String eTag) {
+		resp.setStatus(HttpServletResponse.SC_OK);
+		resp.setContentType(ServletUtil.APPLICATION_JAVASCRIPT_CONTENT_TYPE);
+		resp.setHeader(ServletUtil.ETAG, eTag);
+		resp.setContentLength((int) contentSize);
+	}
+
+	private void writeBody(HttpServletRequest req, HttpServletResponse resp, byte[] content) throws IOException {
+		if (!ServletUtil.HEAD.equals(req.getMethod())) {
+			resp.getOutputStream().write(content);
+		}
+	}
+
+	private static void readFully(FileChannel fileChannel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (fileChannel.read(buffer) < 0) {
+				throw new EOFException(); // the file has been truncated in the meantime
+			}
+		}
+	}
+
 	private String getPluginId(String uri) {
-		return PluginIdCache.getPluginId(uri.substring(1)); // removing first "/"
+		return pluginIdCache.getPluginId(uri.substring(1)); // removing first "/"
 	}
 
 }
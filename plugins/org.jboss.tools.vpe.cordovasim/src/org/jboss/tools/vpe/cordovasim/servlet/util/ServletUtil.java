@@ -10,7 +10,27 @@
  ******************************************************************************/
 package org.jboss.tools.vpe.cordovasim.servlet.util;
 
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.io.nio.DirectNIOBuffer;
+import org.eclipse.jetty.server.AbstractHttpConnection;
+import org.jboss.tools.vpe.cordovasim.cache.CachedContent;
+import org.jboss.tools.vpe.cordovasim.cache.FileIndex;
+import org.jboss.tools.vpe.cordovasim.cache.FileIndex.FileInfo;
 
 /**
  * @author Ilya Buziuk (ibuziuk)
@@ -18,15 +38,216 @@ import java.io.File;
 public class ServletUtil {
 	public static final String CACHE_CONTROL = "Cache-Control"; //$NON-NLS-1$
 	public static final String NO_CACHE = "no-store, no-cache, must-revalidate, max-age=0"; //$NON-NLS-1$
+	public static final String REVALIDATE = "no-cache"; //$NON-NLS-1$
 	public static final String APPLICATION_JAVASCRIPT_CONTENT_TYPE = "application/javascript"; //$NON-NLS-1$
 	public static final String ETAG = "Etag"; //$NON-NLS-1$
 	public static final String IF_NONE_MATCH = "If-None-Match"; //$NON-NLS-1$
+	public static final String ACCEPT_ENCODING = "Accept-Encoding"; //$NON-NLS-1$
+	public static final String CONTENT_ENCODING = "Content-Encoding"; //$NON-NLS-1$
+	public static final String VARY = "Vary"; //$NON-NLS-1$
+	public static final String GZIP = "gzip"; //$NON-NLS-1$
+	public static final String HEAD = "HEAD"; //$NON-NLS-1$
+
+	private static final int COPY_BUFFER_SIZE = 32 * 1024;
+	private static final long MIN_MAPPED_SIZE = 64 * 1024; // mapping smaller files costs more than copying them
+	private static final String SHA_1 = "SHA-1"; //$NON-NLS-1$
+	private static final String WEAK_ETAG_PREFIX = "W/"; //$NON-NLS-1$
+	private static final String ANY_ETAG = "*"; //$NON-NLS-1$
+	private static final String X_GZIP = "x-gzip"; //$NON-NLS-1$
+	private static final String ANY_CODING = "*"; //$NON-NLS-1$
+	private static final String QUALITY = "q"; //$NON-NLS-1$
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray(); //$NON-NLS-1$
 
-	public static String generateEtag(File file) {
-		if (file != null && file.exists()) {
-			return String.valueOf(file.lastModified());
+	/**
+	 * Returns the ETag of the {@code file} based on its modification time, the time is checked against the disk,
+	 * see {@link FileIndex#getCurrentFileInfo(File)}
+	 */
+	public static String generateEtag(FileIndex fileIndex, File file) {
+		FileInfo fileInfo = fileIndex.getCurrentFileInfo(file);
+		if (fileInfo != null) {
+			return String.valueOf(fileInfo.getLastModified());
 		}
 		return null;
 	}
 
+	/**
+	 * Returns a strong, quoted ETag derived from the SHA-1 hash of the {@code content}
+	 */
+	public static String generateStrongEtag(byte[] content) {
+		return '"' + toHex(createDigest().digest(content)) + '"';
+	}
+
+	public static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance(SHA_1);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e); // SHA-1 is supported by every JRE
+		}
+	}
+
+	public static String toHex(byte[] bytes) {
+		char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0x0f];
+			chars[2 * i + 1] = HEX_DIGITS[bytes[i] & 0x0f];
+		}
+		return new String(chars);
+	}
+
+	public static byte[] gzip(byte[] content) throws IOException {
+		ByteArrayOutputStream byteStream = new ByteArrayOutputStream(content.length / 3 + 64);
+		GZIPOutputStream gzipStream = new GZIPOutputStream(byteStream);
+		try {
+			gzipStream.write(content);
+		} finally {
+			gzipStream.close();
+		}
+		return byteStream.toByteArray();
+	}
+
+	public static boolean isGzipAccepted(HttpServletRequest request) {
+		return isGzipAccepted(request.getHeader(ACCEPT_ENCODING));
+	}
+
+	/**
+	 * Checks whether gzip is one of the codings of the "Accept-Encoding" header value with a non-zero quality,
+	 * named explicitly or by "*". A quality which cannot be parsed is taken as zero, identity is always safe.
+	 */
+	public static boolean isGzipAccepted(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return false;
+		}
+
+		Boolean gzipAccepted = null;
+		boolean anyAccepted = false;
+		for (String coding : acceptEncoding.split(",")) { //$NON-NLS-1$
+			String[] parts = coding.split(";"); //$NON-NLS-1$
+			String name = parts[0].trim();
+			boolean accepted = getQuality(parts) > 0;
+			if (GZIP.equalsIgnoreCase(name) || X_GZIP.equalsIgnoreCase(name)) {
+				gzipAccepted = accepted;
+			} else if (ANY_CODING.equals(name)) {
+				anyAccepted = accepted;
+			}
+		}
+		return gzipAccepted != null ? gzipAccepted : anyAccepted;
+	}
+
+	/**
+	 * Returns the "q" parameter of the coding split by ';', {@code 1} if it is missing and {@code 0} if it is incorrect
+	 */
+	private static float getQuality(String[] codingParts) {
+		for (int i = 1; i < codingParts.length; i++) {
+			String parameter = codingParts[i].trim();
+			int equalsIndex = parameter.indexOf('=');
+			if (equalsIndex > 0 && QUALITY.equalsIgnoreCase(parameter.substring(0, equalsIndex).trim())) {
+				try {
+					return Float.parseFloat(parameter.substring(equalsIndex + 1).trim());
+				} catch (NumberFormatException e) {
+					return 0;
+				}
+			}
+		}
+		return 1;
+	}
+
+	/**
+	 * Checks the "If-None-Match" header of the {@code request} against the {@code eTag}
+	 */
+	public static boolean isNotModified(HttpServletRequest request, String eTag) {
+		String ifNoneMatchValue = request.getHeader(IF_NONE_MATCH);
+		if (ifNoneMatchValue == null || eTag == null) {
+			return false;
+		}
+
+		for (String candidate : ifNoneMatchValue.split(",")) { //$NON-NLS-1$
+			candidate = candidate.trim();
+			if (candidate.startsWith(WEAK_ETAG_PREFIX)) {
+				candidate = candidate.substring(WEAK_ETAG_PREFIX.length());
+			}
+			if (ANY_ETAG.equals(candidate) || eTag.equals(candidate)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Copies {@code count} bytes of the file starting at {@code position} to the {@code outputStream}
+	 * through a single heap buffer
+	 *
+	 * @throws EOFException if the file is truncated in the meantime
+	 */
+	public static void copyFully(FileChannel fileChannel, long position, long count, OutputStream outputStream)
+			throws IOException {
+		byte[] buffer = new byte[(int) Math.min(count, COPY_BUFFER_SIZE)];
+		long end = position + count;
+		while (position < end) {
+			ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, (int) Math.min(buffer.length, end - position));
+			int read = fileChannel.read(byteBuffer, position);
+			if (read <= 0) {
+				throw new EOFException();
+			}
+			outputStream.write(buffer, 0, read);
+			position += read;
+		}
+	}
+
+	/**
+	 * Sends {@code count} bytes of the file starting at {@code position} as the whole body of the {@code response}.
+	 * Large regions are memory-mapped and handed to Jetty, which writes them to the socket without copying
+	 * them to the heap. Small regions, or responses wrapped by a filter, are copied by {@link #copyFully}.
+	 * The mapping outlives the channel until it is garbage collected, so on Windows the file may not be
+	 * deletable for a while.
+	 *
+	 * @throws EOFException if the file is truncated in the meantime
+	 */
+	public static void sendFile(HttpServletResponse response, FileChannel fileChannel, long position, long count)
+			throws IOException {
+		ServletOutputStream outputStream = response.getOutputStream();
+		if (count >= MIN_MAPPED_SIZE && outputStream instanceof AbstractHttpConnection.Output
+				&& !((AbstractHttpConnection.Output) outputStream).isWritten()) {
+			if (position + count > fileChannel.size()) {
+				throw new EOFException();
+			}
+			MappedByteBuffer buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, position, count);
+			((AbstractHttpConnection.Output) outputStream).sendContent(new DirectNIOBuffer(buffer, true));
+		} else {
+			copyFully(fileChannel, position, count, outputStream);
+		}
+	}
+
+	/**
+	 * Sends {@link CachedContent} from memory answering "304 Not Modified" if the client's copy is still valid,
+	 * the gzipped variant is used if it exists and the client accepts it
+	 */
+	public static void sendCachedContent(HttpServletRequest request, HttpServletResponse response,
+			CachedContent content, String cacheControl) throws IOException {
+		boolean gzipped = content.getGzippedContent() != null && isGzipAccepted(request);
+		String eTag = gzipped ? content.getGzipEtag() : content.getEtag();
+
+		response.setHeader(CACHE_CONTROL, cacheControl);
+		response.setHeader(ETAG, eTag);
+		if (content.getGzippedContent() != null) {
+			response.setHeader(VARY, ACCEPT_ENCODING);
+		}
+
+		if (isNotModified(request, eTag)) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+		} else {
+			byte[] body = gzipped ? content.getGzippedContent() : content.getContent();
+			response.setStatus(HttpServletResponse.SC_OK);
+			if (content.getContentType() != null) {
+				response.setContentType(content.getContentType());
+			}
+			if (gzipped) {
+				response.setHeader(CONTENT_ENCODING, GZIP);
+			}
+			response.setContentLength(body.length);
+			if (!HEAD.equals(request.getMethod())) {
+				response.getOutputStream().write(body);
+			}
+		}
+	}
+
 }
@@ -21,6 +21,7 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.eclipse.swt.SWTException;
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.graphics.Rectangle;
 import org.jboss.tools.vpe.cordovasim.CordovaSimLogger;
@@ -38,49 +39,75 @@ public class FormatDataServlet extends HttpServlet {
 	private static final String HEIGHT = "height"; //$NON-NLS-1$
 	private static final String WIDTH = "width"; //$NON-NLS-1$
 	private static final String DURATION = "duration"; //$NON-NLS-1$
+
+	private final TempFileStorage tempFileStorage;
+
+	public FormatDataServlet(TempFileStorage tempFileStorage) {
+		this.tempFileStorage = tempFileStorage;
+	}
 	
 	@Override
 	protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
 		String tempFileUrl = request.getParameter(TEMP_FILE_URL);
 		String tempFileName = null;
 		TempFile tempFile = null;
-		File file = null;
-		Image image = null;
-		Rectangle imageData = null;
+		MediaMetadata metadata = null;
 
 		if (tempFileUrl != null) {
 			tempFileName = getTempFileName(tempFileUrl);
 		}
 
 		if (tempFileName != null) {
-			tempFile = TempFileStorage.getTempFileStorage().get(tempFileName);
+			tempFile = tempFileStorage.get(tempFileName);
 		}
 
 		if (tempFile != null) {
-			file = tempFile.getFile();
-		}
-
-		if (file != null && file.exists()) {
-			/* JBIDE-15003 - Have to use org.eclipse.swt.graphics.Image because of the  
-			 * SWT Bug 212617 Launching Swing based IApplications on Mac still results in deadlock */	
-			image = new Image(null, file.getAbsolutePath());
-		}
-		
-		if (image != null) {
-			imageData = image.getBounds();
-			image.dispose();
+			metadata = getMetadata(tempFile);
 		}
 
-		if (imageData != null) {
-			String height = Integer.toString(imageData.height);
-			String width = Integer.toString(imageData.width);
-			String json = generateJSON(height, width);
+		if (metadata != null) {
+			String json = generateJSON(metadata);
 			sendResponse(response, json);
 		} else { 
 			response.sendError(HttpServletResponse.SC_NOT_FOUND);
 		}
 	}
 
+	/**
+	 * Probes the file once, the result is cached on the {@code tempFile}
+	 */
+	private MediaMetadata getMetadata(TempFile tempFile) throws IOException {
+		MediaMetadata metadata = tempFile.getMetadata();
+		if (metadata == null) {
+			File file = tempFile.getFile();
+			if (file != null && file.exists()) {
+				metadata = MediaMetadataProber.probe(file); // reads the headers only
+				if (metadata == null) {
+					metadata = decodeImageBounds(file);
+				}
+				tempFile.setMetadata(metadata);
+			}
+		}
+		return metadata;
+	}
+
+	/**
+	 * Fallback for image formats unknown to {@link MediaMetadataProber}, the whole image is decoded
+	 */
+	private MediaMetadata decodeImageBounds(File file) {
+		/* JBIDE-15003 - Have to use org.eclipse.swt.graphics.Image because of the  
+		 * SWT Bug 212617 Launching Swing based IApplications on Mac still results in deadlock */	
+		try {
+			Image image = new Image(null, file.getAbsolutePath());
+			Rectangle bounds = image.getBounds();
+			image.dispose();
+			return new MediaMetadata(bounds.width, bounds.height, 0, 0);
+		} catch (SWTException e) { // not an image
+			CordovaSimLogger.logError(e.getMessage(), e);
+			return null;
+		}
+	}
+
 	private void sendResponse(HttpServletResponse response, String json) throws IOException {
 		response.setContentType(APPLICATION_JSON);
 		PrintWriter out = response.getWriter();
@@ -100,13 +127,13 @@ public class FormatDataServlet extends HttpServlet {
 	}
 	
 	@SuppressWarnings("nls")
-	private String generateJSON(String height, String width) {
+	private String generateJSON(MediaMetadata metadata) {
 		String json = "{" +  
 							"\"" + CODECS    +   "\""  +    ": \"null\", "  + 
-							"\"" + BITRATE   +   "\""  +    ": \"0\", "     + 
-							"\"" + HEIGHT    +   "\""  +    ": \"" +  height + "\", " + 
-							"\"" + WIDTH     +   "\""  +    ": \"" +  width  + "\", " + 
-							"\"" + DURATION  +   "\""  +    ": \"0\""       + 
+							"\"" + BITRATE   +   "\""  +    ": \"" +  metadata.getBitrate() + "\", " + 
+							"\"" + HEIGHT    +   "\""  +    ": \"" +  metadata.getHeight() + "\", " + 
+							"\"" + WIDTH     +   "\""  +    ": \"" +  metadata.getWidth()  + "\", " + 
+							"\"" + DURATION  +   "\""  +    ": \"" +  metadata.getDurationMillis() / 1000 + "\"" + // in seconds
 					   "}"; 
 		return json;
 	}
@@ -12,27 +12,81 @@ package org.jboss.tools.vpe.cordovasim.servlets.camera;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 
+import javax.servlet.AsyncContext;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.jboss.tools.vpe.cordovasim.servlet.util.ServletUtil;
+
 /**
+ * Hosts files captured by the emulated camera. Single byte ranges are supported, so a video can be seeked
+ * without downloading it again, and large bodies are memory-mapped and written to the socket by Jetty
+ * without copying them (see {@link ServletUtil#sendFile}).
+ * <p>
+ * Downscaled images are requested with {@link ImageVariant} query parameters. A missing variant is produced
+ * by the {@link ImageScaler} while the request is suspended, then the request is dispatched again to send it.
+ *
  * @author Ilya Buziuk (ibuziuk)
  */
 public class HostFileServlet extends HttpServlet {
 	private static final long serialVersionUID = 877976028427058251L;
 
+	private static final String ACCEPT_RANGES = "Accept-Ranges"; //$NON-NLS-1$
+	private static final String CONTENT_LENGTH = "Content-Length"; //$NON-NLS-1$
+	private static final String CONTENT_RANGE = "Content-Range"; //$NON-NLS-1$
+	private static final String IF_MODIFIED_SINCE = "If-Modified-Since"; //$NON-NLS-1$
+	private static final String IF_RANGE = "If-Range"; //$NON-NLS-1$
+	private static final String LAST_MODIFIED = "Last-Modified"; //$NON-NLS-1$
+	private static final String RANGE = "Range"; //$NON-NLS-1$
+	private static final String BYTES = "bytes"; //$NON-NLS-1$
+	private static final String BYTES_PREFIX = "bytes="; //$NON-NLS-1$
+	private static final String IMAGE_MIME_TYPE_PREFIX = "image/"; //$NON-NLS-1$
+	private static final String SCALED_ATTRIBUTE = HostFileServlet.class.getName() + ".scaled"; //$NON-NLS-1$
+	private static final long SCALING_TIMEOUT = 120000;
+
+	private final TempFileStorage tempFileStorage;
+	private final ImageScaler imageScaler;
+
+	public HostFileServlet(TempFileStorage tempFileStorage, ImageScaler imageScaler) {
+		this.tempFileStorage = tempFileStorage;
+		this.imageScaler = imageScaler;
+	}
+
 	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
 		String fileName = getFileName(request);
-		TempFile tempFile = TempFileStorage.getTempFileStorage().get(fileName);
+		TempFile tempFile = tempFileStorage.get(fileName);
+		ImageVariant variant = ImageVariant.fromRequest(request);
+		if (tempFile != null && variant != null && isImage(tempFile)) {
+			TempFile variantFile = tempFileStorage.get(variant.getName(fileName));
+			if (variantFile == null && request.getAttribute(SCALED_ATTRIBUTE) == null) {
+				request.setAttribute(SCALED_ATTRIBUTE, Boolean.TRUE);
+				final AsyncContext asyncContext = request.startAsync();
+				asyncContext.setTimeout(SCALING_TIMEOUT);
+				imageScaler.scale(fileName, tempFile, variant, new Runnable() {
+					@Override
+					public void run() {
+						asyncContext.dispatch(); // the variant is sent by the next doGet
+					}
+				});
+				return;
+			}
+			if (variantFile != null) {
+				tempFile = variantFile;
+			} // else the scaling has failed and the original is sent
+		}
+
 		if (tempFile != null) {
-			File hostedFile = tempFile.getFile();
-			String mimeType = tempFile.getMimeType();
-			sendFile(response, hostedFile, mimeType);
+			try {
+				sendFile(request, response, tempFile);
+			} catch (FileNotFoundException e) { // deleted by the storage in the meantime
+				response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			}
 		} else {
 			response.sendError(HttpServletResponse.SC_NOT_FOUND);
 		}
@@ -41,24 +95,146 @@ public class HostFileServlet extends HttpServlet {
 	protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
 		doGet(request, response);
 	}
-	
+
+	@Override
+	protected void doHead(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		doGet(request, response); // the body is skipped by sendFile, the real Content-Length is kept
+	}
+
+	private boolean isImage(TempFile tempFile) {
+		return tempFile.getMimeType() != null && tempFile.getMimeType().startsWith(IMAGE_MIME_TYPE_PREFIX);
+	}
+
 	private String getFileName(HttpServletRequest request) {
 		String pathInfo = request.getPathInfo();
 		String fileName = pathInfo.substring(1, pathInfo.length());
 		return fileName;
 	}
-	
-	private void sendFile(HttpServletResponse response, File hostedFile, String mimeType) throws IOException {
-		response.setContentType(mimeType);
-		OutputStream out = response.getOutputStream();
-        FileInputStream in = new FileInputStream(hostedFile);
-        byte[] buffer = new byte[4096];
-        int length;
-        while ((length = in.read(buffer)) > 0){
-            out.write(buffer, 0, length);
-        }
-        in.close();
-        out.flush();
+
+	private void sendFile(HttpServletRequest request, HttpServletResponse response, TempFile tempFile) throws IOException {
+		FileChannel fileChannel = new FileInputStream(tempFile.getFile()).getChannel();
+		try {
+			long length = fileChannel.size();
+			long lastModified = tempFile.getFile().lastModified();
+			String eTag = generateEtag(tempFile, length, lastModified);
+
+			response.setHeader(ServletUtil.CACHE_CONTROL, ServletUtil.REVALIDATE);
+			response.setHeader(ServletUtil.ETAG, eTag);
+			response.setDateHeader(LAST_MODIFIED, lastModified);
+			response.setHeader(ACCEPT_RANGES, BYTES);
+
+			if (isNotModified(request, eTag, lastModified)) {
+				response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+				return;
+			}
+
+			long start = 0;
+			long end = length - 1;
+			String range = request.getHeader(RANGE);
+			if (range != null && isRangeValid(request, eTag, lastModified)) {
+				long[] byteRange = parseRange(range, length);
+				if (byteRange == null) {
+					response.setHeader(CONTENT_RANGE, BYTES + " */" + length); //$NON-NLS-1$
+					response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+					return;
+				}
+				if (byteRange.length > 0) {
+					start = byteRange[0];
+					end = byteRange[1];
+					response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+					response.setHeader(CONTENT_RANGE, BYTES + " " + start + "-" + end + "/" + length); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				}
+			}
+
+			long count = end - start + 1;
+			response.setContentType(tempFile.getMimeType());
+			response.setHeader(CONTENT_LENGTH, Long.toString(count));
+			if (!ServletUtil.HEAD.equals(request.getMethod())) {
+				ServletUtil.sendFile(response, fileChannel, start, count);
+			}
+		} finally {
+			fileChannel.close();
+		}
+	}
+
+	/**
+	 * Stored files never change, so the content hash of the upload is used if it is known
+	 */
+	private String generateEtag(TempFile tempFile, long length, long lastModified) {
+		if (tempFile.getContentHash() != null) {
+			return '"' + tempFile.getContentHash() + '"';
+		}
+		return "\"" + Long.toHexString(lastModified) + '-' + Long.toHexString(length) + '"'; //$NON-NLS-1$
+	}
+
+	private boolean isNotModified(HttpServletRequest request, String eTag, long lastModified) {
+		if (request.getHeader(ServletUtil.IF_NONE_MATCH) != null) {
+			return ServletUtil.isNotModified(request, eTag); // takes precedence over the date
+		}
+		long ifModifiedSince = getDateHeader(request, IF_MODIFIED_SINCE);
+		return ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000; // the header has a second precision
 	}
-}
 
+	/**
+	 * Checks "If-Range" header, the full file is sent if the client's partial copy is outdated
+	 */
+	private boolean isRangeValid(HttpServletRequest request, String eTag, long lastModified) {
+		String ifRange = request.getHeader(IF_RANGE);
+		if (ifRange == null) {
+			return true;
+		}
+		if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) { //$NON-NLS-1$ //$NON-NLS-2$
+			return ifRange.equals(eTag);
+		}
+		long ifRangeDate = getDateHeader(request, IF_RANGE);
+		return ifRangeDate >= 0 && lastModified / 1000 == ifRangeDate / 1000;
+	}
+
+	/**
+	 * Parses a single byte range ("bytes=0-499", "bytes=500-" or "bytes=-500")
+	 *
+	 * @return {first, last} positions, an empty array if the header is ignored and the whole file is sent,
+	 * or {@code null} if the range is not satisfiable
+	 */
+	private long[] parseRange(String range, long length) {
+		if (!range.startsWith(BYTES_PREFIX) || range.indexOf(',') >= 0) {
+			return new long[0]; // multiple ranges are not worth a multipart response here
+		}
+		String byteRange = range.substring(BYTES_PREFIX.length()).trim();
+		int dashIndex = byteRange.indexOf('-');
+		if (dashIndex < 0) {
+			return new long[0];
+		}
+		try {
+			String first = byteRange.substring(0, dashIndex).trim();
+			String last = byteRange.substring(dashIndex + 1).trim();
+			long start;
+			long end;
+			if (first.isEmpty()) { // suffix range
+				long suffixLength = Long.parseLong(last);
+				if (suffixLength <= 0) {
+					return null;
+				}
+				start = Math.max(length - suffixLength, 0);
+				end = length - 1;
+			} else {
+				start = Long.parseLong(first);
+				end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+			}
+			if (start >= length || start > end) {
+				return null;
+			}
+			return new long[] {start, end};
+		} catch (NumberFormatException e) {
+			return new long[0]; // syntactically invalid ranges are ignored
+		}
+	}
+
+	private long getDateHeader(HttpServletRequest request, String name) {
+		try {
+			return request.getDateHeader(name);
+		} catch (IllegalArgumentException e) {
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,262 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2013 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.servlets.camera;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.SWTException;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.ImageLoader;
+import org.eclipse.swt.graphics.PaletteData;
+import org.eclipse.swt.graphics.RGB;
+import org.jboss.tools.vpe.cordovasim.CordovaSimLogger;
+
+/**
+ * Produces {@link ImageVariant}s of captured images on a pool of worker threads and keeps them in
+ * the {@link TempFileStorage}. Concurrent requests for the same variant share one task.
+ * <p>
+ * SWT {@link ImageLoader} is used instead of AWT (see JBIDE-15003), images are downscaled by halving with
+ * 2x2 averaging first, so the final nearest neighbour step never skips more than every other pixel.
+ */
+public class ImageScaler extends AbstractLifeCycle {
+	private static final String THREAD_NAME_PREFIX = "CordovaSim Image Scaler "; //$NON-NLS-1$
+	private static final String VARIANT_PREFIX = "variant"; //$NON-NLS-1$
+
+	private final TempFileStorage tempFileStorage;
+	private final Map<String, List<Runnable>> pendingCallbacks = new HashMap<String, List<Runnable>>(); // keyed by variant name
+	private ExecutorService executor;
+
+	public ImageScaler(TempFileStorage tempFileStorage) {
+		this.tempFileStorage = tempFileStorage;
+	}
+
+	@Override
+	protected void doStart() throws Exception {
+		int threadCount = Math.max(1, Runtime.getRuntime().availableProcessors() / 2); // leave the rest to Jetty and the browser
+		final AtomicInteger threadNumber = new AtomicInteger();
+		executor = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + threadNumber.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	@Override
+	protected void doStop() throws Exception {
+		executor.shutdownNow();
+		executor.awaitTermination(5, TimeUnit.SECONDS);
+		synchronized (pendingCallbacks) {
+			pendingCallbacks.clear();
+		}
+	}
+
+	/**
+	 * Stores the {@code variant} of the {@code source} file under {@link ImageVariant#getName(String)}
+	 * in the background. The {@code callback} is invoked on a worker thread when the task is finished,
+	 * whether it succeeded or not.
+	 */
+	public void scale(String sourceName, final TempFile source, final ImageVariant variant, Runnable callback) {
+		final String variantName = variant.getName(sourceName);
+		synchronized (pendingCallbacks) {
+			List<Runnable> callbacks = pendingCallbacks.get(variantName);
+			if (callbacks != null) { // already in progress
+				callbacks.add(callback);
+				return;
+			}
+			callbacks = new ArrayList<Runnable>();
+			callbacks.add(callback);
+			pendingCallbacks.put(variantName, callbacks);
+		}
+
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					long startTime = System.nanoTime();
+					tempFileStorage.put(variantName, createVariant(source, variant));
+					CordovaSimLogger.logTiming("scaling " + variantName, startTime); //$NON-NLS-1$
+				} catch (Exception e) { // SWTException for broken images, IOException
+					CordovaSimLogger.logError(e.getMessage(), e);
+				} finally {
+					List<Runnable> callbacks;
+					synchronized (pendingCallbacks) {
+						callbacks = pendingCallbacks.remove(variantName);
+					}
+					if (callbacks != null) {
+						for (Runnable callback : callbacks) {
+							try {
+								callback.run();
+							} catch (RuntimeException e) { // e.g. IllegalStateException for a timed out request
+								CordovaSimLogger.logError(e.getMessage(), e);
+							}
+						}
+					}
+				}
+			}
+		});
+	}
+
+	private TempFile createVariant(TempFile source, ImageVariant variant) throws Exception {
+		ImageData[] frames = new ImageLoader().load(source.getFile().getAbsolutePath());
+		if (frames.length == 0) {
+			throw new SWTException("No image data in " + source.getFile()); //$NON-NLS-1$
+		}
+		ImageData imageData = frames[0];
+
+		int[] targetSize = getTargetSize(imageData.width, imageData.height, variant.getWidth(), variant.getHeight());
+		while (imageData.width / 2 >= targetSize[0] && imageData.height / 2 >= targetSize[1]) {
+			imageData = halve(imageData);
+		}
+		if (imageData.width != targetSize[0] || imageData.height != targetSize[1]) {
+			imageData = imageData.scaledTo(targetSize[0], targetSize[1]);
+		}
+
+		File file = tempFileStorage.createFile(VARIANT_PREFIX, '.' + (variant.isPng() ? "png" : "jpg")); //$NON-NLS-1$ //$NON-NLS-2$
+		ImageLoader imageLoader = new ImageLoader();
+		imageLoader.data = new ImageData[] {imageData};
+		imageLoader.compression = variant.getQuality(); // JPEG quality, ignored for PNG
+		imageLoader.save(file.getAbsolutePath(), variant.getSwtFormat());
+
+		TempFile tempFile = new TempFile();
+		tempFile.setFile(file);
+		tempFile.setMimeType(variant.getMimeType());
+		return tempFile;
+	}
+
+	/**
+	 * Fits the image into the target box keeping its aspect ratio like Cordova does, images are never upscaled
+	 */
+	static int[] getTargetSize(int width, int height, int targetWidth, int targetHeight) {
+		double scale = 1.0;
+		if (targetWidth > 0) {
+			scale = Math.min(scale, (double) targetWidth / width);
+		}
+		if (targetHeight > 0) {
+			scale = Math.min(scale, (double) targetHeight / height);
+		}
+		return new int[] {
+				Math.max(1, (int) Math.round(width * scale)),
+				Math.max(1, (int) Math.round(height * scale))};
+	}
+
+	/**
+	 * Returns the image of the half size, every pixel is the average of 2x2 source pixels.
+	 * Transparency of the source is kept as alpha data, colors are weighted by alpha
+	 * so fully transparent pixels don't darken the edges.
+	 */
+	private static ImageData halve(ImageData source) {
+		int width = source.width / 2;
+		int height = source.height / 2;
+		ImageData target = new ImageData(width, height, 24, new PaletteData(0xFF0000, 0xFF00, 0xFF));
+		boolean transparent = hasTransparency(source);
+		if (transparent) {
+			target.alphaData = new byte[width * height];
+		}
+		ImageData mask = source.getTransparencyType() == SWT.TRANSPARENCY_MASK ? source.getTransparencyMask() : null;
+
+		int[] upperRow = new int[source.width];
+		int[] lowerRow = new int[source.width];
+		int[] upperAlphas = new int[source.width];
+		int[] lowerAlphas = new int[source.width];
+		int[] targetRow = new int[width];
+		for (int y = 0; y < height; y++) {
+			source.getPixels(0, 2 * y, source.width, upperRow, 0);
+			source.getPixels(0, 2 * y + 1, source.width, lowerRow, 0);
+			if (transparent) {
+				getAlphas(source, mask, 2 * y, upperRow, upperAlphas);
+				getAlphas(source, mask, 2 * y + 1, lowerRow, lowerAlphas);
+			}
+			for (int x = 0; x < width; x++) {
+				int p1 = toRgb(source.palette, upperRow[2 * x]);
+				int p2 = toRgb(source.palette, upperRow[2 * x + 1]);
+				int p3 = toRgb(source.palette, lowerRow[2 * x]);
+				int p4 = toRgb(source.palette, lowerRow[2 * x + 1]);
+				if (transparent) {
+					int a1 = upperAlphas[2 * x];
+					int a2 = upperAlphas[2 * x + 1];
+					int a3 = lowerAlphas[2 * x];
+					int a4 = lowerAlphas[2 * x + 1];
+					int alphaSum = a1 + a2 + a3 + a4;
+					target.alphaData[y * width + x] = (byte) ((alphaSum + 2) >> 2);
+					if (alphaSum > 0) {
+						int red = (((p1 >> 16) & 0xFF) * a1 + ((p2 >> 16) & 0xFF) * a2 + ((p3 >> 16) & 0xFF) * a3 + ((p4 >> 16) & 0xFF) * a4 + alphaSum / 2) / alphaSum;
+						int green = (((p1 >> 8) & 0xFF) * a1 + ((p2 >> 8) & 0xFF) * a2 + ((p3 >> 8) & 0xFF) * a3 + ((p4 >> 8) & 0xFF) * a4 + alphaSum / 2) / alphaSum;
+						int blue = ((p1 & 0xFF) * a1 + (p2 & 0xFF) * a2 + (p3 & 0xFF) * a3 + (p4 & 0xFF) * a4 + alphaSum / 2) / alphaSum;
+						targetRow[x] = (red << 16) | (green << 8) | blue;
+						continue;
+					}
+				}
+				int red = (((p1 >> 16) & 0xFF) + ((p2 >> 16) & 0xFF) + ((p3 >> 16) & 0xFF) + ((p4 >> 16) & 0xFF) + 2) >> 2;
+				int green = (((p1 >> 8) & 0xFF) + ((p2 >> 8) & 0xFF) + ((p3 >> 8) & 0xFF) + ((p4 >> 8) & 0xFF) + 2) >> 2;
+				int blue = ((p1 & 0xFF) + (p2 & 0xFF) + (p3 & 0xFF) + (p4 & 0xFF) + 2) >> 2;
+				targetRow[x] = (red << 16) | (green << 8) | blue;
+			}
+			target.setPixels(0, y, width, targetRow, 0);
+		}
+		return target;
+	}
+
+	private static boolean hasTransparency(ImageData imageData) {
+		return imageData.alphaData != null || imageData.alpha != -1
+				|| imageData.getTransparencyType() != SWT.TRANSPARENCY_NONE;
+	}
+
+	/**
+	 * Reads alpha values (0-255) of the row {@code y} whatever way the transparency of the image is stored
+	 */
+	private static void getAlphas(ImageData source, ImageData mask, int y, int[] pixels, int[] alphas) {
+		for (int x = 0; x < source.width; x++) {
+			int alpha;
+			if (source.alphaData != null) {
+				alpha = source.alphaData[y * source.width + x] & 0xFF;
+			} else if (source.alpha != -1) {
+				alpha = source.alpha;
+			} else {
+				alpha = 0xFF;
+			}
+			if ((source.transparentPixel != -1 && pixels[x] == source.transparentPixel)
+					|| (mask != null && mask.getPixel(x, y) == 0)) {
+				alpha = 0;
+			}
+			alphas[x] = alpha;
+		}
+	}
+
+	private static int toRgb(PaletteData palette, int pixel) {
+		if (palette.isDirect) {
+			int red = shift(pixel & palette.redMask, palette.redShift);
+			int green = shift(pixel & palette.greenMask, palette.greenShift);
+			int blue = shift(pixel & palette.blueMask, palette.blueShift);
+			return (red << 16) | (green << 8) | blue;
+		}
+		RGB rgb = palette.colors[pixel];
+		return (rgb.red << 16) | (rgb.green << 8) | rgb.blue;
+	}
+
+	private static int shift(int value, int shift) {
+		return shift < 0 ? value >>> -shift : value << shift;
+	}
+
+}
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2013 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.servlets.camera;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.eclipse.swt.SWT;
+
+/**
+ * Size, quality and encoding of a captured image requested by {@code navigator.camera.getPicture}
+ * ("targetWidth", "targetHeight", "quality" and "encodingType" options), e.g.
+ * "/temp-photo/temp123.jpg?width=640&height=480&quality=50&encoding=jpeg"
+ */
+public class ImageVariant {
+	private static final String WIDTH = "width"; //$NON-NLS-1$
+	private static final String HEIGHT = "height"; //$NON-NLS-1$
+	private static final String QUALITY = "quality"; //$NON-NLS-1$
+	private static final String ENCODING = "encoding"; //$NON-NLS-1$
+	private static final String PNG = "png"; //$NON-NLS-1$
+	private static final String JPEG = "jpeg"; //$NON-NLS-1$
+	private static final int MAX_QUALITY = 100;
+
+	private final int width;
+	private final int height;
+	private final int quality;
+	private final boolean png;
+
+	/**
+	 * @param width target width or 0 if it is not limited
+	 * @param height target height or 0 if it is not limited
+	 * @param quality JPEG quality from 1 to 100
+	 */
+	public ImageVariant(int width, int height, int quality, boolean png) {
+		this.width = Math.max(width, 0);
+		this.height = Math.max(height, 0);
+		this.quality = Math.min(Math.max(quality, 1), MAX_QUALITY);
+		this.png = png;
+	}
+
+	/**
+	 * @return the variant requested by the query parameters or {@code null} if the original file is requested
+	 */
+	public static ImageVariant fromRequest(HttpServletRequest request) {
+		String width = request.getParameter(WIDTH);
+		String height = request.getParameter(HEIGHT);
+		String quality = request.getParameter(QUALITY);
+		String encoding = request.getParameter(ENCODING);
+		if (width == null && height == null && quality == null && encoding == null) {
+			return null;
+		}
+		try {
+			return new ImageVariant(
+					width != null ? Integer.parseInt(width) : 0,
+					height != null ? Integer.parseInt(height) : 0,
+					quality != null ? Integer.parseInt(quality) : MAX_QUALITY,
+					PNG.equals(encoding));
+		} catch (NumberFormatException e) {
+			return null; // the original file is sent
+		}
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getQuality() {
+		return quality;
+	}
+
+	public boolean isPng() {
+		return png;
+	}
+
+	/**
+	 * Returns one of {@code SWT.IMAGE_*} constants
+	 */
+	public int getSwtFormat() {
+		return png ? SWT.IMAGE_PNG : SWT.IMAGE_JPEG;
+	}
+
+	public String getMimeType() {
+		return png ? "image/png" : "image/jpeg"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Returns name of the variant in {@link TempFileStorage}, variants of the same file with the same parameters
+	 * share the name
+	 */
+	public String getName(String sourceName) {
+		return sourceName + '-' + width + 'x' + height + "-q" + quality + '.' + (png ? PNG : JPEG); //$NON-NLS-1$
+	}
+
+}
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2013 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.servlets.camera;
+
+/**
+ * Format data of a captured media file as reported by {@code MediaFile.getFormatData}
+ */
+public class MediaMetadata {
+	private final int width;
+	private final int height;
+	private final long durationMillis;
+	private final long bitrate;
+
+	/**
+	 * @param durationMillis duration of the video or 0 for images
+	 * @param bitrate average bitrate in bits per second or 0 if it is unknown
+	 */
+	public MediaMetadata(int width, int height, long durationMillis, long bitrate) {
+		this.width = width;
+		this.height = height;
+		this.durationMillis = durationMillis;
+		this.bitrate = bitrate;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public long getDurationMillis() {
+		return durationMillis;
+	}
+
+	public long getBitrate() {
+		return bitrate;
+	}
+
+}
@@ -0,0 +1,224 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2013 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.servlets.camera;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Reads format data of captured media from the file headers only, no pixels or samples are decoded.
+ * Supported are PNG, JPEG, GIF and BMP images and MP4/3GP/QuickTime videos.
+ */
+public class MediaMetadataProber {
+	private static final int HEADER_SIZE = 32;
+
+	private static final int FTYP = boxType("ftyp"); //$NON-NLS-1$
+	private static final int MOOV = boxType("moov"); //$NON-NLS-1$
+	private static final int MVHD = boxType("mvhd"); //$NON-NLS-1$
+	private static final int TRAK = boxType("trak"); //$NON-NLS-1$
+	private static final int TKHD = boxType("tkhd"); //$NON-NLS-1$
+
+	private MediaMetadataProber() {
+	}
+
+	/**
+	 * @return metadata of the {@code file} or {@code null} if its format is not recognized or the headers are broken
+	 */
+	public static MediaMetadata probe(File file) throws IOException {
+		RandomAccessFile in = new RandomAccessFile(file, "r"); //$NON-NLS-1$
+		try {
+			byte[] header = new byte[HEADER_SIZE];
+			int length = in.read(header);
+			if (length >= 24 && startsWith(header, 0x89, 'P', 'N', 'G')) {
+				return new MediaMetadata(bigEndianInt(header, 16), bigEndianInt(header, 20), 0, 0); // IHDR is the first chunk
+			} else if (length >= 10 && startsWith(header, 'G', 'I', 'F', '8')) {
+				return new MediaMetadata(littleEndianShort(header, 6), littleEndianShort(header, 8), 0, 0);
+			} else if (length >= 26 && startsWith(header, 'B', 'M')) {
+				return probeBmp(header);
+			} else if (length >= 2 && startsWith(header, 0xFF, 0xD8)) {
+				return probeJpeg(in);
+			} else if (length >= 8 && (bigEndianInt(header, 4) == FTYP || bigEndianInt(header, 4) == MOOV)) {
+				return probeMp4(in);
+			}
+			return null;
+		} catch (EOFException e) {
+			return null; // truncated file
+		} finally {
+			in.close();
+		}
+	}
+
+	private static MediaMetadata probeBmp(byte[] header) {
+		int dibHeaderSize = littleEndianInt(header, 14);
+		if (dibHeaderSize == 12) { // OS/2 BITMAPCOREHEADER
+			return new MediaMetadata(littleEndianShort(header, 18), littleEndianShort(header, 20), 0, 0);
+		}
+		return new MediaMetadata(littleEndianInt(header, 18), Math.abs(littleEndianInt(header, 22)), 0, 0); // negative height means top-down
+	}
+
+	/**
+	 * Skips JPEG segments up to the start of frame, which holds the dimensions
+	 */
+	private static MediaMetadata probeJpeg(RandomAccessFile in) throws IOException {
+		long position = 2;
+		long fileLength = in.length();
+		while (position < fileLength) {
+			in.seek(position);
+			if (in.readUnsignedByte() != 0xFF) {
+				return null;
+			}
+			int marker = in.readUnsignedByte();
+			while (marker == 0xFF) { // fill bytes
+				marker = in.readUnsignedByte();
+			}
+			if (marker == 0xD9 || marker == 0xDA) { // end of image or start of scan without a frame header
+				return null;
+			}
+			if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) { // standalone markers have no length
+				position = in.getFilePointer();
+				continue;
+			}
+			int segmentLength = in.readUnsignedShort();
+			if (isStartOfFrame(marker)) {
+				in.skipBytes(1); // sample precision
+				int height = in.readUnsignedShort();
+				int width = in.readUnsignedShort();
+				return new MediaMetadata(width, height, 0, 0);
+			}
+			position = in.getFilePointer() - 2 + segmentLength;
+		}
+		return null;
+	}
+
+	private static boolean isStartOfFrame(int marker) {
+		return marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC; // DHT, JPG and DAC are not
+	}
+
+	/**
+	 * Reads duration from "moov/mvhd" and dimensions from "tkhd" of the first visual track
+	 */
+	private static MediaMetadata probeMp4(RandomAccessFile in) throws IOException {
+		long fileLength = in.length();
+		Box moov = findBox(in, 0, fileLength, MOOV);
+		if (moov == null) {
+			return null;
+		}
+
+		long durationMillis = 0;
+		Box mvhd = findBox(in, moov.contentStart, moov.end, MVHD);
+		if (mvhd != null) {
+			in.seek(mvhd.contentStart);
+			int version = in.readUnsignedByte();
+			in.skipBytes(3); // flags
+			long timeScale;
+			long duration;
+			if (version == 1) {
+				in.skipBytes(16); // creation and modification time
+				timeScale = in.readInt() & 0xFFFFFFFFL;
+				duration = in.readLong();
+			} else {
+				in.skipBytes(8);
+				timeScale = in.readInt() & 0xFFFFFFFFL;
+				duration = in.readInt() & 0xFFFFFFFFL;
+			}
+			if (timeScale > 0 && duration > 0) {
+				durationMillis = duration * 1000 / timeScale;
+			}
+		}
+
+		int width = 0;
+		int height = 0;
+		long position = moov.contentStart;
+		Box trak;
+		while (width == 0 && (trak = findBox(in, position, moov.end, TRAK)) != null) {
+			Box tkhd = findBox(in, trak.contentStart, trak.end, TKHD);
+			if (tkhd != null) {
+				in.seek(tkhd.contentStart);
+				int version = in.readUnsignedByte();
+				in.skipBytes(3 + (version == 1 ? 32 : 20)); // flags, times, track id and duration
+				in.skipBytes(52); // reserved, layer, alternate group, volume and matrix
+				width = in.readInt() >>> 16; // 16.16 fixed point, audio tracks have no dimensions
+				height = in.readInt() >>> 16;
+			}
+			position = trak.end;
+		}
+
+		long bitrate = durationMillis > 0 ? fileLength * 8 * 1000 / durationMillis : 0;
+		return new MediaMetadata(width, height, durationMillis, bitrate);
+	}
+
+	/**
+	 * Returns the first box of the {@code type} among the sibling boxes located in [{@code start}, {@code end})
+	 */
+	private static Box findBox(RandomAccessFile in, long start, long end, int type) throws IOException {
+		long position = start;
+		while (position + 8 <= end) {
+			in.seek(position);
+			long size = in.readInt() & 0xFFFFFFFFL;
+			int boxType = in.readInt();
+			long headerSize = 8;
+			if (size == 1) { // 64-bit size
+				size = in.readLong();
+				headerSize = 16;
+			} else if (size == 0) { // the box lasts to the end
+				size = end - position;
+			}
+			if (size < headerSize || position + size > end) {
+				return null; // broken box
+			}
+			if (boxType == type) {
+				return new Box(position + headerSize, position + size);
+			}
+			position += size;
+		}
+		return null;
+	}
+
+	private static boolean startsWith(byte[] header, int... prefix) {
+		for (int i = 0; i < prefix.length; i++) {
+			if ((header[i] & 0xFF) != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int bigEndianInt(byte[] bytes, int offset) {
+		return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16)
+				| ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+	}
+
+	private static int littleEndianInt(byte[] bytes, int offset) {
+		return (bytes[offset] & 0xFF) | ((bytes[offset + 1] & 0xFF) << 8)
+				| ((bytes[offset + 2] & 0xFF) << 16) | ((bytes[offset + 3] & 0xFF) << 24);
+	}
+
+	private static int littleEndianShort(byte[] bytes, int offset) {
+		return (bytes[offset] & 0xFF) | ((bytes[offset + 1] & 0xFF) << 8);
+	}
+
+	private static int boxType(String name) {
+		return (name.charAt(0) << 24) | (name.charAt(1) << 16) | (name.charAt(2) << 8) | name.charAt(3);
+	}
+
+	private static class Box {
+		private final long contentStart;
+		private final long end;
+
+		public Box(long contentStart, long end) {
+			this.contentStart = contentStart;
+			this.end = end;
+		}
+	}
+
+}
@@ -18,6 +18,10 @@ import java.io.File;
 public class TempFile {
 	private File file;
 	private String mimeType;
+	private long length;
+	private String contentHash;
+	private volatile MediaMetadata metadata;
+	private volatile long lastAccessTime;
 
 	public TempFile() {
 	}
@@ -36,6 +40,44 @@ public class TempFile {
 
 	public void setFile(File file) {
 		this.file = file;
+		this.length = file != null ? file.length() : 0L;
+	}
+
+	/**
+	 * Returns hex encoded digest of the file content or {@code null} if it is unknown
+	 */
+	public String getContentHash() {
+		return contentHash;
+	}
+
+	public void setContentHash(String contentHash) {
+		this.contentHash = contentHash;
+	}
+
+	/**
+	 * Returns format data of the file or {@code null} if it has not been probed yet
+	 */
+	public MediaMetadata getMetadata() {
+		return metadata;
+	}
+
+	public void setMetadata(MediaMetadata metadata) {
+		this.metadata = metadata;
+	}
+
+	/**
+	 * Returns size of the file when it was set
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	void touch() {
+		lastAccessTime = System.currentTimeMillis();
+	}
+
+	boolean isExpired(long now, long timeToLive) {
+		return now - lastAccessTime > timeToLive;
 	}
 
 }
@@ -10,19 +10,279 @@
  ******************************************************************************/
 package org.jboss.tools.vpe.cordovasim.servlets.camera;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.jboss.tools.vpe.cordovasim.CordovaSimLogger;
 
 /**
+ * Storage of the files captured by the emulated camera for a single server.
+ * <p>
+ * The storage is bounded by the number of files, their total size and their time to live. Least recently used
+ * files are evicted first, and evicted files are deleted right away by a background sweeper thread, which also
+ * expires old files periodically and retries to delete the files which could not be deleted (e.g. still open
+ * on Windows). All the files are kept in a private temp directory removed when the server stops.
+ * Files with a known content hash are stored once, see {@link #putUnique(String, TempFile)}.
+ *
  * @author Ilya Buziuk (ibuziuk)
  */
-public class TempFileStorage {
-	private static final Map<String, TempFile> TEMP_FILE_STORAGE = new ConcurrentHashMap<String, TempFile>();
+public class TempFileStorage extends AbstractLifeCycle {
+	public static final int DEFAULT_MAX_ENTRIES = 200;
+	public static final long DEFAULT_MAX_BYTES = 512L * 1024 * 1024;
+	public static final long DEFAULT_TIME_TO_LIVE = TimeUnit.HOURS.toMillis(1);
+
+	private static final String TEMP_DIR_PREFIX = "cordovasim"; //$NON-NLS-1$
+	private static final String SWEEPER_THREAD_NAME = "CordovaSim Temp File Sweeper"; //$NON-NLS-1$
+	private static final long SWEEP_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+	private final int maxEntries;
+	private final long maxBytes;
+	private final long timeToLive;
+	private final LinkedHashMap<String, TempFile> entries = new LinkedHashMap<String, TempFile>(16, 0.75f, true); // access order
+	private final Map<String, String> namesByContentHash = new HashMap<String, String>();
+	private final BlockingQueue<File> filesToDelete = new LinkedBlockingQueue<File>();
+	private final List<File> undeletedFiles = new ArrayList<File>(); // accessed by the sweeper thread, or after it is stopped
+	private final AtomicLong evictionCount = new AtomicLong();
+	private long bytes;
+	private File tempDir;
+	private Thread sweeperThread;
+
+	public TempFileStorage() {
+		this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES, DEFAULT_TIME_TO_LIVE);
+	}
+
+	/**
+	 * @param maxEntries maximum number of the stored files
+	 * @param maxBytes maximum total size of the stored files
+	 * @param timeToLive time in milliseconds after the last access when the file is expired
+	 */
+	public TempFileStorage(int maxEntries, long maxBytes, long timeToLive) {
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+		this.timeToLive = timeToLive;
+	}
+
+	@Override
+	protected void doStart() throws Exception {
+		tempDir = Files.createTempDirectory(TEMP_DIR_PREFIX).toFile();
+		sweeperThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				sweep();
+			}
+		}, SWEEPER_THREAD_NAME);
+		sweeperThread.setDaemon(true);
+		sweeperThread.start();
+	}
 
-	private TempFileStorage() {
+	@Override
+	protected void doStop() throws Exception {
+		sweeperThread.interrupt();
+		sweeperThread.join();
+
+		synchronized (this) {
+			for (TempFile tempFile : entries.values()) {
+				filesToDelete.add(tempFile.getFile());
+			}
+			entries.clear();
+			namesByContentHash.clear();
+			bytes = 0;
+		}
+		deleteQueuedFiles();
+		File[] leftFiles = tempDir.listFiles();
+		if (leftFiles != null) {
+			for (File leftFile : leftFiles) {
+				delete(leftFile); // e.g. a file being uploaded
+			}
+		}
+		retryUndeletedFiles();
+		if (!tempDir.delete()) {
+			tempDir.deleteOnExit(); // the last resort, files are deleted on exit before their directory
+			for (File undeletedFile : undeletedFiles) {
+				undeletedFile.deleteOnExit();
+			}
+		}
+		undeletedFiles.clear();
+	}
+
+	/**
+	 * Creates an empty file in the temp directory of the storage, the file is deleted when the server stops
+	 * even if it is never {@link #put(String, TempFile) put} into the storage
+	 */
+	public File createFile(String prefix, String suffix) throws IOException {
+		return File.createTempFile(prefix, suffix, tempDir);
+	}
+
+	/**
+	 * Adds the {@code tempFile}, least recently used files are evicted if the storage is over its quotas
+	 */
+	public void put(String name, TempFile tempFile) {
+		List<File> evictedFiles = new ArrayList<File>();
+		synchronized (this) {
+			add(name, tempFile, evictedFiles);
+		}
+		filesToDelete.addAll(evictedFiles);
 	}
 
-	public static Map<String, TempFile> getTempFileStorage() {
-		return TEMP_FILE_STORAGE;
+	/**
+	 * Adds the {@code tempFile} unless a live file with the same {@link TempFile#getContentHash() content hash}
+	 * is already stored, in which case the new file is deleted and the stored one is reused
+	 *
+	 * @return name of the stored file with the content
+	 */
+	public String putUnique(String name, TempFile tempFile) {
+		List<File> evictedFiles = new ArrayList<File>();
+		String storedName = name;
+		synchronized (this) {
+			String existingName = tempFile.getContentHash() != null ? namesByContentHash.get(tempFile.getContentHash()) : null;
+			TempFile existingFile = existingName != null ? entries.get(existingName) : null;
+			if (existingFile != null && !existingFile.isExpired(System.currentTimeMillis(), timeToLive)) {
+				existingFile.touch();
+				evictedFiles.add(tempFile.getFile()); // the duplicate is never stored
+				storedName = existingName;
+			} else {
+				add(name, tempFile, evictedFiles);
+			}
+		}
+		filesToDelete.addAll(evictedFiles);
+		return storedName;
 	}
+
+	/**
+	 * Returns the file by its name or {@code null} if there is no such file or it is expired
+	 */
+	public TempFile get(String name) {
+		synchronized (this) {
+			TempFile tempFile = entries.get(name);
+			if (tempFile != null && !tempFile.isExpired(System.currentTimeMillis(), timeToLive)) {
+				tempFile.touch();
+				return tempFile;
+			}
+			return null; // expired files are removed by the sweeper
+		}
+	}
+
+	public synchronized int getLiveFileCount() {
+		return entries.size();
+	}
+
+	public synchronized long getLiveBytes() {
+		return bytes;
+	}
+
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	/**
+	 * Must be called under the lock
+	 */
+	private void add(String name, TempFile tempFile, List<File> evictedFiles) {
+		tempFile.touch();
+		TempFile oldTempFile = entries.put(name, tempFile);
+		if (oldTempFile != null) {
+			remove(name, oldTempFile, evictedFiles);
+		}
+		bytes += tempFile.getLength();
+		if (tempFile.getContentHash() != null) {
+			namesByContentHash.put(tempFile.getContentHash(), name);
+		}
+
+		Iterator<Map.Entry<String, TempFile>> iterator = entries.entrySet().iterator();
+		while ((entries.size() > maxEntries || bytes > maxBytes) && entries.size() > 1) { // the new file is always kept
+			Map.Entry<String, TempFile> evictedEntry = iterator.next();
+			iterator.remove();
+			remove(evictedEntry.getKey(), evictedEntry.getValue(), evictedFiles);
+		}
+	}
+
+	/**
+	 * Must be called under the lock
+	 */
+	private void remove(String name, TempFile tempFile, List<File> evictedFiles) {
+		String contentHash = tempFile.getContentHash();
+		if (contentHash != null && name.equals(namesByContentHash.get(contentHash))) {
+			namesByContentHash.remove(contentHash);
+		}
+		bytes -= tempFile.getLength();
+		evictedFiles.add(tempFile.getFile());
+		evictionCount.incrementAndGet();
+	}
+
+	private void sweep() {
+		long nextExpiration = System.currentTimeMillis() + SWEEP_INTERVAL;
+		while (true) {
+			try {
+				long timeout = nextExpiration - System.currentTimeMillis();
+				File file = filesToDelete.poll(Math.max(timeout, 0L), TimeUnit.MILLISECONDS);
+				if (file != null) {
+					delete(file);
+				} else {
+					removeExpiredFiles();
+					retryUndeletedFiles();
+					nextExpiration = System.currentTimeMillis() + SWEEP_INTERVAL;
+				}
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+
+	private void removeExpiredFiles() {
+		List<File> expiredFiles = new ArrayList<File>();
+		long now = System.currentTimeMillis();
+		synchronized (this) {
+			Iterator<Map.Entry<String, TempFile>> iterator = entries.entrySet().iterator();
+			while (iterator.hasNext()) {
+				Map.Entry<String, TempFile> entry = iterator.next();
+				if (entry.getValue().isExpired(now, timeToLive)) {
+					iterator.remove();
+					remove(entry.getKey(), entry.getValue(), expiredFiles);
+				}
+			}
+		}
+		for (File expiredFile : expiredFiles) {
+			delete(expiredFile);
+		}
+	}
+
+	private void deleteQueuedFiles() {
+		File file;
+		while ((file = filesToDelete.poll()) != null) {
+			delete(file);
+		}
+	}
+
+	/**
+	 * Deletes the file, or keeps it to be retried by the sweeper
+	 */
+	private void delete(File file) {
+		if (file.exists() && !file.delete()) {
+			undeletedFiles.add(file);
+			CordovaSimLogger.logError("Unable to delete " + file + ", will retry", null); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	private void retryUndeletedFiles() {
+		Iterator<File> iterator = undeletedFiles.iterator();
+		while (iterator.hasNext()) {
+			File file = iterator.next();
+			if (!file.exists() || file.delete()) {
+				iterator.remove();
+			}
+		}
+	}
+
 }
@@ -13,9 +13,12 @@ package org.jboss.tools.vpe.cordovasim.servlets.camera;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -23,7 +26,13 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.Part;
 
+import org.jboss.tools.vpe.cordovasim.CordovaSimLogger;
+import org.jboss.tools.vpe.cordovasim.servlet.util.ServletUtil;
+
 /**
+ * Saves files captured by the emulated camera to the {@link TempFileStorage}. The uploaded part is streamed
+ * to the file through NIO channels, and an upload identical to a stored file reuses the stored one.
+ *
  * @author Ilya Buziuk (ibuziuk)
  */
 public class UploadFileServlet extends HttpServlet {
@@ -36,28 +45,38 @@ public class UploadFileServlet extends HttpServlet {
 	private static final String CONTENT_DISPOSITION = "content-disposition"; //$NON-NLS-1$
 	private static final String FILE_NAME = "filename"; //$NON-NLS-1$
 	private static final String TEXT_HTML = "text/html"; //$NON-NLS-1$
+	private static final long TRANSFER_CHUNK_SIZE = 1024 * 1024;
+
+	private final TempFileStorage tempFileStorage;
+
+	public UploadFileServlet(TempFileStorage tempFileStorage) {
+		this.tempFileStorage = tempFileStorage;
+	}
 
 	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
-		Part photoPart = request.getPart(PHOTO_PART);
+		Part photoPart;
+		try {
+			photoPart = request.getPart(PHOTO_PART);
+		} catch (IllegalStateException e) { // the upload exceeds the multipart limits
+			CordovaSimLogger.logError(e.getMessage(), e);
+			response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+			return;
+		}
+
 		if (photoPart != null) {
-			InputStream inputStream = photoPart.getInputStream();
-			File file = saveAsTempFile(inputStream, photoPart);
-			String mimeType = photoPart.getContentType();
-			SaveTempFileInStrorage(file, mimeType);
-			String json = generateJSON(file);
-			sendResponse(response, json);
+			try {
+				TempFile tempFile = saveAsTempFile(photoPart);
+				String fileName = tempFileStorage.putUnique(tempFile.getFile().getName(), tempFile);
+				String json = generateJSON(fileName);
+				sendResponse(response, json);
+			} finally {
+				photoPart.delete(); // the multipart temp file, if any
+			}
 		} else {
 			response.sendError(HttpServletResponse.SC_BAD_REQUEST);
 		}
 	}
 
-	private void SaveTempFileInStrorage(File file, String mimeType) {
-		TempFile tempFile = new TempFile();
-		tempFile.setFile(file);
-		tempFile.setMimeType(mimeType);
-		TempFileStorage.getTempFileStorage().put(file.getName(), tempFile);
-	}
-
 	private void sendResponse(HttpServletResponse response, String json) throws IOException {
 		response.setContentType(TEXT_HTML);
 		PrintWriter out = response.getWriter();
@@ -66,8 +85,8 @@ public class UploadFileServlet extends HttpServlet {
 	}
 
 	@SuppressWarnings("nls")
-	private String generateJSON(File tempFile) {
-		String url = RESOURCE_MAPPING + tempFile.getName();
+	private String generateJSON(String fileName) {
+		String url = RESOURCE_MAPPING + fileName;
 		String json = "{\"" + JSON_KEY + "\": " + "\"" + url + "\"}";  
 		return json;
 	}
@@ -76,30 +95,41 @@ public class UploadFileServlet extends HttpServlet {
 		doGet(req, resp);
 	}
 
-	private File saveAsTempFile(InputStream inputStream, Part part) throws IOException {
+	private TempFile saveAsTempFile(Part part) throws IOException {
 		String fileName = getFileNameFromPart(part);
-		File tempFile = File.createTempFile(TEMP_PREFIX, fileName);
-		tempFile.deleteOnExit();
-		OutputStream out = new FileOutputStream(tempFile);
-		int read = 0;
-		byte[] bytes = new byte[1024];
-
-		while ((read = inputStream.read(bytes)) != -1) {
-			out.write(bytes, 0, read);
+		File file = tempFileStorage.createFile(TEMP_PREFIX, fileName); // deleted by the storage
+		MessageDigest digest = ServletUtil.createDigest();
+		ReadableByteChannel in = Channels.newChannel(new DigestInputStream(part.getInputStream(), digest));
+		try {
+			FileOutputStream out = new FileOutputStream(file);
+			try {
+				FileChannel fileChannel = out.getChannel();
+				long position = 0;
+				long transferred;
+				while ((transferred = fileChannel.transferFrom(in, position, TRANSFER_CHUNK_SIZE)) > 0) {
+					position += transferred;
+				}
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
 		}
 
-		inputStream.close();
-		out.flush();
-		out.close();
+		TempFile tempFile = new TempFile();
+		tempFile.setFile(file);
+		tempFile.setMimeType(part.getContentType());
+		tempFile.setContentHash(ServletUtil.toHex(digest.digest()));
 		return tempFile;
 	}
-	
+
 	@SuppressWarnings("nls")
 	private String getFileNameFromPart(Part part) {
 		for (String cd : part.getHeader(CONTENT_DISPOSITION).split(";")) { 
 			if (cd.trim().startsWith(FILE_NAME)) {
-				return cd.substring(cd.indexOf('=') + 1).trim()
+				String fileName = cd.substring(cd.indexOf('=') + 1).trim()
 						.replace("\"", ""); 
+				return new File(fileName).getName(); // the name may be sent with a client path
 			}
 		}
 		return null;
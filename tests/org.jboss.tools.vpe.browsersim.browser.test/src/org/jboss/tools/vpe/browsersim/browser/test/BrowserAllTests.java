@@ -12,6 +12,10 @@ public class BrowserAllTests extends TestSuite {
 		TestSuite suite = new TestSuite("Tests for BrowserSim components"); //$NON-NLS-1$
 		// $JUnit-BEGIN$
 		suite.addTestSuite(WebKitTests.class);
+		suite.addTestSuite(ScrollSynchronizerTests.class);
+		suite.addTestSuite(BrowserPoolTests.class);
+		suite.addTestSuite(JavaFXBrowserTests.class);
+		suite.addTestSuite(MessageBridgeTests.class);
 		//$JUnit-END$
 		return suite;
 	}
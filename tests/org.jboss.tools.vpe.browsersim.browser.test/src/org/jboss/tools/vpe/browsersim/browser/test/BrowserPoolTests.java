@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2014 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.browsersim.browser.test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+import junit.framework.TestCase;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.browser.ProgressAdapter;
+import org.eclipse.swt.browser.ProgressEvent;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+import org.jboss.tools.vpe.browsersim.browser.BrowserPool;
+import org.jboss.tools.vpe.browsersim.browser.IBrowser;
+import org.jboss.tools.vpe.browsersim.browser.PlatformUtil;
+import org.jboss.tools.vpe.browsersim.browser.WebKitBrowserFactory;
+import org.jboss.tools.vpe.browsersim.util.BrowserSimUtil;
+
+public class BrowserPoolTests extends TestCase {
+	private static final long TIMEOUT = 30000;
+
+	private Display display;
+	private Shell shell;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		display = Display.getDefault();
+		shell = new Shell(display);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		BrowserPool.setSize(0);
+		shell.dispose();
+		super.tearDown();
+	}
+
+	public void testDisabledPoolCreatesBrowsers() {
+		IBrowser browser = new WebKitBrowserFactory().createBrowser(shell, SWT.NONE, false);
+		runEventLoop();
+
+		assertEquals(shell, browser.getParent());
+		assertEquals(0, BrowserPool.getIdleCount(false));
+	}
+
+	public void testIdleBrowserIsHandedOut() {
+		BrowserPool.setSize(1);
+		long hitCount = BrowserPool.getHitCount(false);
+		long missCount = BrowserPool.getMissCount(false);
+
+		new WebKitBrowserFactory().createBrowser(shell, SWT.NONE, false);
+		assertEquals(missCount + 1, BrowserPool.getMissCount(false));
+		runEventLoop();
+		assertEquals(1, BrowserPool.getIdleCount(false));
+
+		IBrowser browser = new WebKitBrowserFactory().createBrowser(shell, SWT.NONE, false);
+		assertEquals(hitCount + 1, BrowserPool.getHitCount(false));
+		assertEquals(shell, browser.getParent());
+		assertTrue(BrowserPool.getHitRate(false) > 0.0);
+
+		runEventLoop();
+		assertEquals(1, BrowserPool.getIdleCount(false));
+	}
+
+	public void testWebKitBrowserIsDisposedOnRelease() {
+		BrowserPool.setSize(1);
+		IBrowser browser = new WebKitBrowserFactory().createBrowser(shell, SWT.NONE, false);
+		runEventLoop();
+
+		// the history of SWT browsers cannot be cleared
+		assertFalse(BrowserPool.release(browser));
+		assertTrue(browser.isDisposed());
+	}
+
+	public void testJavaFxBrowserIsIdleAfterHistoryIsCleared() throws Exception {
+		if (PlatformUtil.OS_LINUX.equals(PlatformUtil.getOs()) || !BrowserSimUtil.loadJavaFX()) {
+			return; // JavaFx web engine is not supported, see BrowserSimRunner
+		}
+		File firstPage = createPage("first");
+		File secondPage = createPage("second");
+		try {
+			final IBrowser browser = new WebKitBrowserFactory().createBrowser(shell, SWT.NONE, true);
+			load(browser, firstPage);
+			load(browser, secondPage);
+			assertTrue(browser.isBackEnabled());
+
+			BrowserPool.setSize(1);
+			assertTrue(BrowserPool.release(browser));
+			assertEquals(0, BrowserPool.getIdleCount(true)); // the blank page is still loading
+			runEventLoopUntil(new Callable<Boolean>() {
+				@Override
+				public Boolean call() {
+					return BrowserPool.getIdleCount(true) == 1;
+				}
+			});
+
+			IBrowser reusedBrowser = new WebKitBrowserFactory().createBrowser(shell, SWT.NONE, true);
+			assertSame(browser, reusedBrowser);
+			assertFalse(reusedBrowser.isBackEnabled());
+			assertFalse(reusedBrowser.isForwardEnabled());
+		} finally {
+			firstPage.delete();
+			secondPage.delete();
+		}
+	}
+
+	private void load(IBrowser browser, File page) throws Exception {
+		final boolean[] completed = new boolean[1];
+		ProgressAdapter listener = new ProgressAdapter() {
+			@Override
+			public void completed(ProgressEvent event) {
+				completed[0] = true;
+			}
+		};
+		browser.addProgressListener(listener);
+		browser.setUrl(page.toURI().toString());
+		runEventLoopUntil(new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return completed[0];
+			}
+		});
+		browser.removeProgressListener(listener);
+	}
+
+	private static File createPage(String title) throws IOException {
+		File page = File.createTempFile("browserpool", ".html");
+		FileWriter writer = new FileWriter(page);
+		try {
+			writer.write("<html><head><title>" + title + "</title></head><body></body></html>");
+		} finally {
+			writer.close();
+		}
+		return page;
+	}
+
+	private void runEventLoop() {
+		while (display.readAndDispatch()) {
+		}
+	}
+
+	private void runEventLoopUntil(Callable<Boolean> condition) throws Exception {
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (!condition.call()) {
+			assertTrue("Timed out", System.currentTimeMillis() < deadline);
+			if (!display.readAndDispatch()) {
+				Thread.sleep(10);
+			}
+		}
+	}
+}
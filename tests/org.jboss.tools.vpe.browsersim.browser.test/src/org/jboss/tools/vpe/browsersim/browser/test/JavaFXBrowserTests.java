@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2014 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.browsersim.browser.test;
+
+import java.util.concurrent.Callable;
+
+import junit.framework.TestCase;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.browser.ProgressAdapter;
+import org.eclipse.swt.browser.ProgressEvent;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+import org.jboss.tools.vpe.browsersim.browser.BrowserPool;
+import org.jboss.tools.vpe.browsersim.browser.IBrowser;
+import org.jboss.tools.vpe.browsersim.browser.WebKitBrowserFactory;
+import org.jboss.tools.vpe.browsersim.browser.javafx.JavaFXBrowser;
+
+/**
+ * Runs {@link JavaFXBrowser} against the JavaFX mock bundle, which completes every load on the next pass
+ * of the SWT event loop, so the reset is checked on every platform
+ */
+public class JavaFXBrowserTests extends TestCase {
+	private static final long TIMEOUT = 30000;
+
+	private Display display;
+	private Shell shell;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		display = Display.getDefault();
+		shell = new Shell(display);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		BrowserPool.setSize(0);
+		shell.dispose();
+		super.tearDown();
+	}
+
+	public void testResetClearsHistoryAndListeners() throws Exception {
+		JavaFXBrowser browser = new JavaFXBrowser(shell);
+		load(browser, "http://localhost/first.html");
+		load(browser, "http://localhost/second.html");
+		assertTrue(browser.isBackEnabled());
+
+		final int[] completedCount = new int[1];
+		browser.addProgressListener(new ProgressAdapter() {
+			@Override
+			public void completed(ProgressEvent event) {
+				completedCount[0]++;
+			}
+		});
+		final boolean[] reset = new boolean[1];
+		assertTrue(browser.reset(new Runnable() {
+			@Override
+			public void run() {
+				reset[0] = true;
+			}
+		}));
+		assertFalse(reset[0]); // the blank page is still loading
+		runEventLoopUntil(new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return reset[0];
+			}
+		});
+
+		assertEquals("about:blank", browser.getUrl());
+		assertFalse(browser.isBackEnabled());
+		assertFalse(browser.isForwardEnabled());
+		assertEquals(0, completedCount[0]);
+
+		load(browser, "http://localhost/third.html");
+		assertEquals(0, completedCount[0]);
+		assertFalse(browser.isBackEnabled()); // the blank page has been removed from the history too
+	}
+
+	public void testReleasedBrowserIsIdleAfterReset() throws Exception {
+		IBrowser browser = new JavaFXBrowser(shell);
+		load(browser, "http://localhost/first.html");
+
+		BrowserPool.setSize(1);
+		assertTrue(BrowserPool.release(browser));
+		assertEquals(0, BrowserPool.getIdleCount(true));
+		runEventLoopUntil(new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return BrowserPool.getIdleCount(true) == 1;
+			}
+		});
+
+		IBrowser reusedBrowser = new WebKitBrowserFactory().createBrowser(shell, SWT.NONE, true);
+		assertSame(browser, reusedBrowser);
+		assertEquals(shell, reusedBrowser.getParent());
+		assertFalse(reusedBrowser.isBackEnabled());
+	}
+
+	private void load(IBrowser browser, String url) throws Exception {
+		final boolean[] completed = new boolean[1];
+		ProgressAdapter listener = new ProgressAdapter() {
+			@Override
+			public void completed(ProgressEvent event) {
+				completed[0] = true;
+			}
+		};
+		browser.addProgressListener(listener);
+		browser.setUrl(url);
+		runEventLoopUntil(new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return completed[0];
+			}
+		});
+		browser.removeProgressListener(listener);
+	}
+
+	private void runEventLoopUntil(Callable<Boolean> condition) throws Exception {
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (!condition.call()) {
+			assertTrue("Timed out", System.currentTimeMillis() < deadline);
+			if (!display.readAndDispatch()) {
+				Thread.sleep(10);
+			}
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2014 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.browsersim.browser.test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.jboss.tools.vpe.browsersim.browser.IBrowser;
+import org.jboss.tools.vpe.browsersim.browser.IBrowserFunction;
+import org.jboss.tools.vpe.browsersim.browser.IDisposable;
+import org.jboss.tools.vpe.browsersim.scripting.MessageBridge;
+import org.jboss.tools.vpe.browsersim.scripting.MessageBridge.Delivery;
+
+/**
+ * Calls the bridge function the way the page does, without a browser engine
+ */
+public class MessageBridgeTests extends TestCase {
+	private IBrowserFunction bridgeFunction;
+	private List<Object> logged = new ArrayList<Object>();
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		IBrowser browser = (IBrowser) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {IBrowser.class},
+				new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						if ("registerBrowserFunction".equals(method.getName())) {
+							bridgeFunction = (IBrowserFunction) args[1];
+							return new IDisposable() {
+								@Override
+								public boolean isDisposed() {
+									return false;
+								}
+
+								@Override
+								public void dispose() {
+								}
+							};
+						}
+						return null;
+					}
+				});
+
+		MessageBridge messageBridge = new MessageBridge(browser);
+		messageBridge.addFunction("log", Delivery.BATCHED, new IBrowserFunction() {
+			@Override
+			public Object function(Object[] arguments) {
+				logged.add(arguments[0]);
+				return "logged";
+			}
+		});
+		assertNotNull(messageBridge.getScript(browser, null));
+		assertNotNull(bridgeFunction);
+	}
+
+	public void testBatchIsDelivered() {
+		assertEquals("logged", bridgeFunction.function(new Object[] {"[[\"log\", [\"a\"]], [\"log\", [1]]]"}));
+		assertEquals(2, logged.size());
+		assertEquals("a", logged.get(0));
+		assertEquals(Double.valueOf(1), logged.get(1));
+	}
+
+	public void testMalformedMessagesAreSkipped() {
+		Object result = bridgeFunction.function(new Object[] {"[\"log\", [\"log\"], [\"log\", \"a\"], [1, []], [\"log\", [\"b\"]]]"});
+		assertEquals("logged", result);
+		assertEquals(1, logged.size());
+		assertEquals("b", logged.get(0));
+	}
+
+	public void testMalformedBatchIsSkipped() {
+		assertNull(bridgeFunction.function(new Object[] {"{\"log\": [\"a\"]}"}));
+		assertNull(bridgeFunction.function(new Object[] {"\"log\""}));
+		assertTrue(logged.isEmpty());
+	}
+}
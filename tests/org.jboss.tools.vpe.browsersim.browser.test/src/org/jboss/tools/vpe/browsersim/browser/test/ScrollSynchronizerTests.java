@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2014 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.browsersim.browser.test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.browser.ProgressAdapter;
+import org.eclipse.swt.browser.ProgressEvent;
+import org.eclipse.swt.layout.FillLayout;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+import org.jboss.tools.vpe.browsersim.browser.IBrowser;
+import org.jboss.tools.vpe.browsersim.browser.WebKitBrowserFactory;
+import org.jboss.tools.vpe.browsersim.scripting.MessageBridge;
+import org.jboss.tools.vpe.browsersim.scripting.ScriptInjector;
+import org.jboss.tools.vpe.browsersim.scripting.ScriptInjector.Phase;
+import org.jboss.tools.vpe.browsersim.scripting.ScrollSynchronizer;
+import org.jboss.tools.vpe.browsersim.scripting.ScrollSynchronizer.ScrollListener;
+
+public class ScrollSynchronizerTests extends TestCase {
+	private static final int SCROLL_EVENTS = 200;
+	private static final int SCROLL_STEP = 5;
+	private static final String SCROLL_EVENT_FUNCTION =
+			"var dispatchScrollEvent = function() {" +
+				"var event = document.createEvent('UIEvents');" +
+				"event.initUIEvent('scroll', false, false, window, 0);" +
+				"window.dispatchEvent(event);" +
+			"};";
+
+	private Display display;
+	private Shell shell;
+	private IBrowser browser;
+	private ScrollSynchronizer scrollSynchronizer;
+	private List<Double> updates = new ArrayList<Double>();
+	private boolean loaded;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		display = Display.getDefault();
+		shell = new Shell(display);
+		shell.setLayout(new FillLayout());
+		shell.setSize(320, 480);
+		browser = new WebKitBrowserFactory().createBrowser(shell, SWT.NONE, false);
+
+		ScriptInjector scriptInjector = new ScriptInjector(false);
+		browser.addLocationListener(scriptInjector);
+		MessageBridge messageBridge = new MessageBridge(browser);
+		scriptInjector.addScript(MessageBridge.FEATURE, Phase.ENVIRONMENT, 0, messageBridge);
+		scrollSynchronizer = new ScrollSynchronizer(messageBridge, display, new ScrollListener() {
+			@Override
+			public void scrolled(double pageYOffset) {
+				updates.add(pageYOffset);
+			}
+		});
+		scriptInjector.addScript(ScrollSynchronizer.FEATURE, Phase.EMULATION, 0, scrollSynchronizer);
+
+		browser.addProgressListener(new ProgressAdapter() {
+			@Override
+			public void completed(ProgressEvent event) {
+				loaded = true;
+			}
+		});
+		shell.open();
+		browser.setUrl(createLongPage().toURI().toString());
+		runEventLoop(5000, true);
+		assertTrue(loaded);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		shell.dispose();
+		super.tearDown();
+	}
+
+	public void testSyntheticScrollIsReportedOncePerFrame() {
+		browser.execute(
+				SCROLL_EVENT_FUNCTION +
+				"window._scrollEvents = 0;" +
+				"window.addEventListener('scroll', function() {window._scrollEvents++;});" +
+				"for (var i = 1; i <= " + SCROLL_EVENTS + "; i++) {" +
+					"window.scrollTo(0, i * " + SCROLL_STEP + ");" +
+					"dispatchScrollEvent();" +
+				"}");
+		runEventLoop(1000, false);
+
+		Object scrollEvents = browser.evaluate("return window._scrollEvents");
+		assertTrue(((Number) scrollEvents).intValue() >= SCROLL_EVENTS);
+
+		// all events have been dispatched in one task, so the page reports once and the UI is updated once
+		assertEquals(1, scrollSynchronizer.getReportCount());
+		assertEquals(1, scrollSynchronizer.getUpdateCount());
+		assertEquals(Double.valueOf(SCROLL_EVENTS * SCROLL_STEP), updates.get(updates.size() - 1));
+	}
+
+	public void testUnchangedPositionIsNotReported() {
+		browser.execute("window.scrollTo(0, 100);");
+		runEventLoop(500, false);
+		long reportCount = scrollSynchronizer.getReportCount();
+
+		browser.execute(
+				SCROLL_EVENT_FUNCTION +
+				"for (var i = 0; i < " + SCROLL_EVENTS + "; i++) {" +
+					"dispatchScrollEvent();" +
+				"}");
+		runEventLoop(500, false);
+
+		assertEquals(reportCount, scrollSynchronizer.getReportCount());
+	}
+
+	private static File createLongPage() throws Exception {
+		File page = File.createTempFile("long", ".html");
+		page.deleteOnExit();
+		FileWriter writer = new FileWriter(page);
+		try {
+			writer.write("<html><body><div style='height: 100000px'></div></body></html>");
+		} finally {
+			writer.close();
+		}
+		return page;
+	}
+
+	private void runEventLoop(long millis, boolean untilLoaded) {
+		long end = System.currentTimeMillis() + millis;
+		while (System.currentTimeMillis() < end && !(untilLoaded && loaded)) {
+			if (!display.readAndDispatch()) {
+				try {
+					Thread.sleep(ScrollSynchronizer.FRAME_MILLIS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+}
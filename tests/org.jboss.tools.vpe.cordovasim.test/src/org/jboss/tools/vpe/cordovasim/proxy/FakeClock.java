@@ -0,0 +1,31 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2014 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.proxy;
+
+/**
+ * Clock of the {@link TokenBucket} advanced by the tests
+ */
+class FakeClock implements TokenBucket.Clock {
+	private long now = 1000000000L;
+
+	@Override
+	public synchronized long nanoTime() {
+		return now;
+	}
+
+	public synchronized void advance(long nanos) {
+		now += nanos;
+	}
+
+	public synchronized void advanceTo(long nanoTime) {
+		now = Math.max(now, nanoTime);
+	}
+}
@@ -0,0 +1,242 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2014 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.proxy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Runs the scheduled drains of {@link ThrottledOutput} on the test thread with a {@link FakeClock},
+ * so the transfer time is checked without waiting for it
+ */
+public class ThrottledOutputTests extends TestCase {
+	private static final long SECOND = 1000000000L;
+	private static final int SLICE_SIZE = 100;
+
+	private FakeClock clock;
+	private FakeConditions conditions;
+	private ProxyStatistics statistics;
+	private ByteArrayOutputStream client;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		clock = new FakeClock();
+		conditions = new FakeConditions(clock);
+		statistics = new ProxyStatistics();
+		client = new ByteArrayOutputStream();
+	}
+
+	public void testContentIsSentWithRate() throws Exception {
+		ThrottledOutput output = createOutput(new TokenBucket(1000, clock), 10000);
+		long start = clock.nanoTime();
+		byte[] content = createContent(3000);
+		output.write(content);
+		conditions.runAll();
+
+		assertTrue(Arrays.equals(content, client.toByteArray()));
+		// the first 1500 bytes are the burst of an idle link
+		assertEquals(1.5 * SECOND, clock.nanoTime() - start, SECOND / 100);
+		assertEquals(0, statistics.getBufferedBytes());
+	}
+
+	public void testFullQueueBlocksWriterUntilDrained() throws Exception {
+		ThrottledOutput output = createOutput(new TokenBucket(1000, clock), 1000);
+		byte[] first = createContent(1000);
+		output.write(first); // fills the queue, the drain is not run yet
+
+		byte[] second = createContent(500);
+		Writer writer = startWriter(output, second);
+		assertEquals(1, statistics.getBackPressureCount());
+		assertTrue(writer.isAlive());
+
+		conditions.runNext(); // sends the burst, the writer gets room
+		writer.join(5000);
+		assertFalse(writer.isAlive());
+		assertNull(writer.failure);
+		conditions.runAll();
+
+		byte[] expected = new byte[first.length + second.length];
+		System.arraycopy(first, 0, expected, 0, first.length);
+		System.arraycopy(second, 0, expected, first.length, second.length);
+		assertTrue(Arrays.equals(expected, client.toByteArray()));
+		assertEquals(1, statistics.getBackPressureCount());
+	}
+
+	public void testAbortReleasesBlockedWriter() throws Exception {
+		ThrottledOutput output = createOutput(new TokenBucket(1000, clock), 1000);
+		output.write(createContent(1000));
+		Writer writer = startWriter(output, createContent(500));
+
+		output.abort();
+		writer.join(5000);
+		assertFalse(writer.isAlive());
+		assertNull(writer.failure);
+		conditions.runAll();
+
+		assertEquals(0, client.size());
+		assertEquals(0, statistics.getBufferedBytes());
+	}
+
+	public void testDownloadQueueHoldsQuarterOfMegabyte() throws Exception {
+		conditions.setProfile(NetworkProfile.GPRS);
+		ThrottledOutput output = conditions.getLink().openDownload(client, statistics);
+		output.write(createContent(256 * 1024 - 1));
+		output.write(createContent(1)); // the queue is full now
+		assertEquals(0, statistics.getBackPressureCount());
+
+		Writer writer = startWriter(output, createContent(1));
+		assertEquals(1, statistics.getBackPressureCount());
+		output.abort();
+		writer.join(5000);
+		assertFalse(writer.isAlive());
+	}
+
+	public void testCloseCallbackRunsAfterLastSlice() throws Exception {
+		ThrottledOutput output = createOutput(new TokenBucket(1000, clock), 10000);
+		output.write(createContent(2000));
+		final List<Integer> sentOnClose = new ArrayList<Integer>();
+		output.close(new Runnable() {
+			@Override
+			public void run() {
+				sentOnClose.add(client.size());
+			}
+		});
+		assertTrue(sentOnClose.isEmpty());
+
+		conditions.runAll();
+		assertEquals(Arrays.asList(2000), sentOnClose);
+	}
+
+	public void testClientFailureDiscardsQueue() throws Exception {
+		ThrottledOutput output = new ThrottledOutput(new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				throw new IOException("closed by the client"); //$NON-NLS-1$
+			}
+		}, new TokenBucket(1000, clock), conditions, SLICE_SIZE, 10000, statistics);
+		output.write(createContent(3000));
+		conditions.runAll();
+
+		assertEquals(0, statistics.getBufferedBytes());
+		assertEquals(0, conditions.getScheduledCount());
+	}
+
+	private ThrottledOutput createOutput(TokenBucket bucket, long maxQueuedBytes) {
+		return new ThrottledOutput(client, bucket, conditions, SLICE_SIZE, maxQueuedBytes, statistics);
+	}
+
+	private static byte[] createContent(int length) {
+		byte[] content = new byte[length];
+		for (int i = 0; i < length; i++) {
+			content[i] = (byte) i;
+		}
+		return content;
+	}
+
+	/**
+	 * Starts writing the {@code content} on a new thread and waits until the thread is blocked by the full queue
+	 */
+	private Writer startWriter(ThrottledOutput output, byte[] content) throws InterruptedException {
+		long backPressureCount = statistics.getBackPressureCount();
+		Writer writer = new Writer(output, content);
+		writer.start();
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!(statistics.getBackPressureCount() > backPressureCount && writer.getState() == Thread.State.WAITING)
+				&& writer.isAlive() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		return writer;
+	}
+
+	private static class Writer extends Thread {
+		private final ThrottledOutput output;
+		private final byte[] content;
+		private volatile InterruptedIOException failure;
+
+		public Writer(ThrottledOutput output, byte[] content) {
+			this.output = output;
+			this.content = content;
+		}
+
+		@Override
+		public void run() {
+			try {
+				output.write(content);
+			} catch (InterruptedIOException e) {
+				failure = e;
+			}
+		}
+	}
+
+	/**
+	 * Keeps the scheduled tasks until the test runs them, advancing the clock to their time
+	 */
+	private static class FakeConditions extends NetworkConditions {
+		private final FakeClock clock;
+		private final List<Task> tasks = new ArrayList<Task>();
+
+		public FakeConditions(FakeClock clock) {
+			super(NetworkProfile.NONE);
+			this.clock = clock;
+		}
+
+		@Override
+		synchronized void schedule(Runnable task, long delayNanos) {
+			tasks.add(new Task(task, clock.nanoTime() + delayNanos));
+		}
+
+		public synchronized int getScheduledCount() {
+			return tasks.size();
+		}
+
+		/**
+		 * Runs the earliest task
+		 */
+		public void runNext() {
+			Task next;
+			synchronized (this) {
+				next = tasks.get(0);
+				for (Task task : tasks) {
+					if (task.time < next.time) {
+						next = task;
+					}
+				}
+				tasks.remove(next);
+			}
+			clock.advanceTo(next.time);
+			next.runnable.run();
+		}
+
+		public void runAll() {
+			while (getScheduledCount() > 0) {
+				runNext();
+			}
+		}
+	}
+
+	private static class Task {
+		private final Runnable runnable;
+		private final long time;
+
+		public Task(Runnable runnable, long time) {
+			this.runnable = runnable;
+			this.time = time;
+		}
+	}
+}
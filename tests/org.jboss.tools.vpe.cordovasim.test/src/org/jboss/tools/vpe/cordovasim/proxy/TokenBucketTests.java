@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2014 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.proxy;
+
+import junit.framework.TestCase;
+
+public class TokenBucketTests extends TestCase {
+	private static final long SECOND = 1000000000L;
+
+	private FakeClock clock;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		clock = new FakeClock();
+	}
+
+	public void testSmallBurstIsOneFrame() {
+		TokenBucket bucket = new TokenBucket(1000, clock); // 1/20 of the rate is less than a frame
+		assertEquals(0, bucket.reserve(1500));
+		assertEquals(SECOND / 1000, bucket.reserve(1), 1);
+	}
+
+	public void testBurstIsFiftyMillisecondsOfRate() {
+		TokenBucket bucket = new TokenBucket(1000000, clock);
+		assertEquals(0, bucket.reserve(50000));
+		assertEquals(SECOND / 1000, bucket.reserve(1000), 1);
+	}
+
+	public void testDebtIsReservedInOrder() {
+		TokenBucket bucket = new TokenBucket(1000, clock);
+		bucket.reserve(1500);
+		assertEquals(SECOND, bucket.reserve(1000), 1);
+		assertEquals(2 * SECOND, bucket.reserve(1000), 1); // waits behind the first reservation
+		clock.advance(SECOND);
+		assertEquals(2 * SECOND, bucket.reserve(1000), 1); // one second of debt has been paid
+	}
+
+	public void testIdleLinkRefillsUpToBurst() {
+		TokenBucket bucket = new TokenBucket(1000, clock);
+		bucket.reserve(1500);
+		clock.advance(60 * SECOND);
+		assertEquals(0, bucket.reserve(1500));
+		assertTrue(bucket.reserve(1) > 0);
+	}
+
+	public void testThroughputMatchesRate() {
+		long bytesPerSecond = 10000;
+		TokenBucket bucket = new TokenBucket(bytesPerSecond, clock);
+		long start = clock.nanoTime();
+		long sent = 0;
+		while (sent < 100000) { // a sender waiting for every reservation
+			clock.advance(bucket.reserve(100));
+			sent += 100;
+		}
+		long burst = 1500;
+		assertEquals((double) (sent - burst) / bytesPerSecond * SECOND, clock.nanoTime() - start, SECOND / 100);
+	}
+}
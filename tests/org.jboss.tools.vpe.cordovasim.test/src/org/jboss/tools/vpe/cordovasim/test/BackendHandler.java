@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2014 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.test;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+
+/**
+ * Backend answering with the configured {@link Content}, it counts the requests it gets
+ */
+public class BackendHandler extends AbstractHandler {
+	private final Map<String, Content> contents = new ConcurrentHashMap<String, Content>();
+	private final AtomicInteger requestCount = new AtomicInteger();
+	private final AtomicInteger notModifiedCount = new AtomicInteger();
+
+	public Content setContent(String path, String body) {
+		Content content = new Content(body);
+		contents.put(path, content);
+		return content;
+	}
+
+	public int getRequestCount() {
+		return requestCount.get();
+	}
+
+	public int getNotModifiedCount() {
+		return notModifiedCount.get();
+	}
+
+	@Override
+	public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+			throws IOException, ServletException {
+		requestCount.incrementAndGet();
+		baseRequest.setHandled(true);
+		Content content = contents.get(target);
+		if (content == null) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+
+		for (Map.Entry<String, String> header : content.headers.entrySet()) {
+			response.setHeader(header.getKey(), header.getValue());
+		}
+		if (content.eTag != null) {
+			response.setHeader("ETag", content.eTag); //$NON-NLS-1$
+			if (content.eTag.equals(request.getHeader("If-None-Match"))) { //$NON-NLS-1$
+				notModifiedCount.incrementAndGet();
+				response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+				return;
+			}
+		}
+
+		String body = content.body;
+		if (content.vary != null) {
+			response.setHeader("Vary", content.vary); //$NON-NLS-1$
+			body += ':' + request.getHeader(content.vary);
+		}
+		if (!"GET".equals(request.getMethod())) { //$NON-NLS-1$
+			body = request.getMethod() + ':' + body;
+		}
+		byte[] bytes = body.getBytes("UTF-8"); //$NON-NLS-1$
+		response.setContentType("text/plain"); //$NON-NLS-1$
+		response.setContentLength(bytes.length);
+		response.getOutputStream().write(bytes);
+	}
+
+	public static class Content {
+		private final Map<String, String> headers = new ConcurrentHashMap<String, String>();
+		private volatile String body;
+		private volatile String eTag;
+		private volatile String vary;
+
+		private Content(String body) {
+			this.body = body;
+		}
+
+		public Content setHeader(String name, String value) {
+			headers.put(name, value);
+			return this;
+		}
+
+		public Content setBody(String body) {
+			this.body = body;
+			return this;
+		}
+
+		public Content setEtag(String eTag) {
+			this.eTag = eTag;
+			return this;
+		}
+
+		/**
+		 * The body is followed by the value of the request header {@code name}
+		 */
+		public Content setVary(String name) {
+			this.vary = name;
+			return this;
+		}
+	}
+}
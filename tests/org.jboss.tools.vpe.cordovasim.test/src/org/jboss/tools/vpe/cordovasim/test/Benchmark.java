@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2014 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.test;
+
+import java.util.Arrays;
+
+/**
+ * Minimal JMH-style harness for the {@code *Benchmark} classes of this fragment, which are run from their
+ * {@code main} methods and not by the test suite. Each case is run for warm-up iterations, which are not
+ * measured, and then for measured iterations; the mean time per operation is printed with the spread
+ * between the fastest and the slowest iteration.
+ */
+public class Benchmark {
+	private final int warmUpIterations;
+	private final int measuredIterations;
+	private final int operationsPerIteration;
+	private long sink;
+
+	/**
+	 * @param operationsPerIteration number of {@link Case#run()} calls timed together
+	 */
+	public Benchmark(int warmUpIterations, int measuredIterations, int operationsPerIteration) {
+		this.warmUpIterations = warmUpIterations;
+		this.measuredIterations = measuredIterations;
+		this.operationsPerIteration = operationsPerIteration;
+	}
+
+	/**
+	 * Runs the {@code benchmarkCase} and prints its result
+	 *
+	 * @return mean time of one operation in nanoseconds
+	 */
+	public double run(String name, Case benchmarkCase) throws Exception {
+		for (int i = 0; i < warmUpIterations; i++) {
+			runIteration(benchmarkCase);
+		}
+
+		double[] nanosPerOperation = new double[measuredIterations];
+		for (int i = 0; i < measuredIterations; i++) {
+			nanosPerOperation[i] = (double) runIteration(benchmarkCase) / operationsPerIteration;
+		}
+		Arrays.sort(nanosPerOperation);
+		double mean = 0;
+		for (double value : nanosPerOperation) {
+			mean += value / measuredIterations;
+		}
+
+		System.out.println(String.format("%-56s %12.1f ns/op  [%.1f .. %.1f]", name, mean, //$NON-NLS-1$
+				nanosPerOperation[0], nanosPerOperation[measuredIterations - 1]));
+		return mean;
+	}
+
+	private long runIteration(Case benchmarkCase) throws Exception {
+		long start = System.nanoTime();
+		for (int i = 0; i < operationsPerIteration; i++) {
+			sink += benchmarkCase.run(); // consumed, so the JIT cannot drop the work as dead code
+		}
+		long elapsed = System.nanoTime() - start;
+		if (sink == Long.MIN_VALUE) {
+			System.out.println();
+		}
+		return elapsed;
+	}
+
+	/**
+	 * One benchmarked operation
+	 */
+	public interface Case {
+		/**
+		 * @return any value derived from the result of the operation, e.g. its size
+		 */
+		long run() throws Exception;
+	}
+}
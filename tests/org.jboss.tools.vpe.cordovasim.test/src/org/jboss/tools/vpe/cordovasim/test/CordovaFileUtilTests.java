@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2014 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.jboss.tools.vpe.cordovasim.plugin.model.Plugin;
+import org.jboss.tools.vpe.cordovasim.plugin.util.CordovaFileUtil;
+
+@SuppressWarnings("nls")
+public class CordovaFileUtilTests extends TestCase {
+
+	public void testNothingIsWrittenWithoutPlugins() throws Exception {
+		StringWriter writer = new StringWriter();
+		assertFalse(CordovaFileUtil.writeCordovaPluginsJsContent(null, writer));
+		assertFalse(CordovaFileUtil.writeCordovaPluginsJsContent(new ArrayList<Plugin>(), writer));
+		assertEquals("", writer.toString());
+	}
+
+	public void testCordovaPluginsJsContent() throws Exception {
+		List<Plugin> plugins = Arrays.asList(
+				new Plugin("plugins/org.apache.cordova.camera/www/Camera.js", "org.apache.cordova.camera.Camera",
+						Arrays.asList("Camera", "navigator.camera"), Collections.<String>emptyList()),
+				new Plugin("plugins/org.apache.cordova.device/www/device.js", "org.apache.cordova.device.device",
+						Collections.<String>emptyList(), Arrays.asList("device")));
+
+		StringWriter writer = new StringWriter();
+		assertTrue(CordovaFileUtil.writeCordovaPluginsJsContent(plugins, writer));
+		assertEquals("cordova.define('cordova/plugin_list', function(require, exports, module) { \n module.exports = [\n"
+				+ "\n\t{\n"
+				+ "\t\t\"file\": \"plugins/org.apache.cordova.camera/www/Camera.js\",\n"
+				+ "\t\t\"id\": \"org.apache.cordova.camera.Camera\",\n"
+				+ "\t\t\"clobbers\": [\n"
+				+ "\t\t\t\"Camera\",\n"
+				+ "\t\t\t\"navigator.camera\"\n"
+				+ "\t\t]\n"
+				+ "\t},\n"
+				+ "\t{\n"
+				+ "\t\t\"file\": \"plugins/org.apache.cordova.device/www/device.js\",\n"
+				+ "\t\t\"id\": \"org.apache.cordova.device.device\",\n"
+				+ "\t\t\"merges\": [\n"
+				+ "\t\t\t\"device\"\n"
+				+ "\t\t]\n"
+				+ "\t}\n"
+				+ "]\n});", writer.toString());
+	}
+
+	public void testModuleWithoutClobbersAndMerges() throws Exception {
+		List<Plugin> plugins = Arrays.asList(new Plugin("plugins/org.apache.cordova.console/www/logger.js",
+				"org.apache.cordova.console.logger", Collections.<String>emptyList(), null));
+
+		StringWriter writer = new StringWriter();
+		assertTrue(CordovaFileUtil.writeCordovaPluginsJsContent(plugins, writer));
+		assertEquals("cordova.define('cordova/plugin_list', function(require, exports, module) { \n module.exports = [\n"
+				+ "\n\t{\n"
+				+ "\t\t\"file\": \"plugins/org.apache.cordova.console/www/logger.js\",\n"
+				+ "\t\t\"id\": \"org.apache.cordova.console.logger\"\n"
+				+ "\t}\n"
+				+ "]\n});", writer.toString());
+	}
+}
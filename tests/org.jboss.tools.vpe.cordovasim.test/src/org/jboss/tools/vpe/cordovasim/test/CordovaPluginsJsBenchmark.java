@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2014 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.jboss.tools.vpe.cordovasim.cache.CachedContent;
+import org.jboss.tools.vpe.cordovasim.plugin.model.Plugin;
+import org.jboss.tools.vpe.cordovasim.plugin.util.CordovaFileUtil;
+
+/**
+ * Compares the generation of cordova_plugins.js for a synthetic project of 200 plugins, with two clobbers each,
+ * by {@link CordovaFileUtil#writeCordovaPluginsJsContent(List, Writer)} and by the string concatenation
+ * it has replaced, which is kept here as the baseline.
+ */
+@SuppressWarnings("nls")
+public class CordovaPluginsJsBenchmark {
+	private static final int PLUGIN_COUNT = 200;
+
+	public static void main(String[] args) throws Exception {
+		final List<Plugin> plugins = createPlugins();
+		if (!Arrays.equals(generateWithConcatenation(plugins).getBytes("UTF-8"), generateWithWriter(plugins))) {
+			throw new IllegalStateException("The baseline and the writer generate different content");
+		}
+
+		Benchmark benchmark = new Benchmark(20, 10, 20);
+		benchmark.run("String concatenation", new Benchmark.Case() {
+			@Override
+			public long run() throws Exception {
+				return generateWithConcatenation(plugins).getBytes("UTF-8").length;
+			}
+		});
+		benchmark.run("writeCordovaPluginsJsContent", new Benchmark.Case() {
+			@Override
+			public long run() throws Exception {
+				return generateWithWriter(plugins).length;
+			}
+		});
+		benchmark.run("writeCordovaPluginsJsContent + CachedContent", new Benchmark.Case() {
+			@Override
+			public long run() throws Exception { // a miss of the servlet memo, the gzip variant included
+				return CachedContent.create(generateWithWriter(plugins), "application/javascript", "etag").getSize();
+			}
+		});
+	}
+
+	private static byte[] generateWithWriter(List<Plugin> plugins) throws Exception {
+		ByteArrayOutputStream contentStream = new ByteArrayOutputStream();
+		Writer writer = new OutputStreamWriter(contentStream, "UTF-8");
+		CordovaFileUtil.writeCordovaPluginsJsContent(plugins, writer);
+		writer.close();
+		return contentStream.toByteArray();
+	}
+
+	/**
+	 * The former CordovaFileUtil.generateCordovaPluginsJsContent(List)
+	 */
+	private static String generateWithConcatenation(List<Plugin> plugins) {
+		String pluginContent = "";
+		Iterator<Plugin> pluginIterator = plugins.iterator();
+		while (pluginIterator.hasNext()) {
+			Plugin plugin = pluginIterator.next();
+			pluginContent += "\n\t{\n";
+			pluginContent += "\t\t\"file\": \"" + plugin.getFile() + "\",\n";
+			pluginContent += "\t\t\"id\": \"" + plugin.getId() + "\",\n";
+			Iterator<String> mapperIterator = null;
+			if (plugin.getClobbers().size() > 0) {
+				pluginContent += "\t\t\"clobbers\": [\n";
+				mapperIterator = plugin.getClobbers().iterator();
+			} else if (plugin.getMerges().size() > 0) {
+				pluginContent += "\t\t\"merges\": [\n";
+				mapperIterator = plugin.getMerges().iterator();
+			}
+			while (mapperIterator.hasNext()) {
+				String clobber = mapperIterator.next();
+				pluginContent += "\t\t\t\"" + clobber + "\"";
+				if (mapperIterator.hasNext()) {
+					pluginContent += ",\n";
+				} else {
+					pluginContent += "\n\t\t]";
+				}
+			}
+			if (pluginIterator.hasNext()) {
+				pluginContent += "\n\t},";
+			} else {
+				pluginContent += "\n\t}\n";
+			}
+		}
+		return "cordova.define('cordova/plugin_list', function(require, exports, module) { \n module.exports = [\n"
+				+ pluginContent + "]\n});";
+	}
+
+	private static List<Plugin> createPlugins() {
+		List<Plugin> plugins = new ArrayList<Plugin>();
+		for (int i = 0; i < PLUGIN_COUNT; i++) {
+			String pluginId = "org.example.plugin" + i;
+			plugins.add(new Plugin("plugins/" + pluginId + "/www/plugin.js", pluginId + ".Plugin",
+					Arrays.asList("Plugin" + i, "navigator.plugin" + i), Collections.<String>emptyList()));
+		}
+		return plugins;
+	}
+}
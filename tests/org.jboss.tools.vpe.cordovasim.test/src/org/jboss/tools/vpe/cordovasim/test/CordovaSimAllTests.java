@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2014 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.test;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.jboss.tools.vpe.cordovasim.proxy.ThrottledOutputTests;
+import org.jboss.tools.vpe.cordovasim.proxy.TokenBucketTests;
+
+public class CordovaSimAllTests {
+	public static Test suite() {
+		TestSuite suite = new TestSuite("Tests for CordovaSim server"); //$NON-NLS-1$
+		// $JUnit-BEGIN$
+		suite.addTestSuite(RevalidatingResourceHandlerTests.class);
+		suite.addTestSuite(FileIndexTests.class);
+		suite.addTestSuite(ServletUtilTests.class);
+		suite.addTestSuite(RequestRouterTests.class);
+		suite.addTestSuite(CordovaFileUtilTests.class);
+		suite.addTestSuite(ImageScalerTests.class);
+		suite.addTestSuite(HostFileServletTests.class);
+		suite.addTestSuite(TrafficArchiveTests.class);
+		suite.addTestSuite(ProxyCacheTests.class);
+		suite.addTestSuite(TokenBucketTests.class);
+		suite.addTestSuite(ThrottledOutputTests.class);
+		//$JUnit-END$
+		return suite;
+	}
+}
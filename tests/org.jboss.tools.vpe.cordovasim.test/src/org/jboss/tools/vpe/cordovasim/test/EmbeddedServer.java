@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2014 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.nio.SelectChannelConnector;
+
+/**
+ * Embedded Jetty server on a free local port
+ */
+public class EmbeddedServer {
+	private final Server server = new Server();
+	private final SelectChannelConnector connector = new SelectChannelConnector();
+
+	public EmbeddedServer(Handler handler) {
+		connector.setHost("127.0.0.1"); //$NON-NLS-1$
+		connector.setPort(0);
+		server.addConnector(connector);
+		server.setHandler(handler);
+	}
+
+	public EmbeddedServer start() throws Exception {
+		server.start();
+		return this;
+	}
+
+	public void stop() throws Exception {
+		server.stop();
+		server.join();
+	}
+
+	public String getUrl(String path) {
+		return "http://127.0.0.1:" + connector.getLocalPort() + path; //$NON-NLS-1$
+	}
+
+	public Response get(String path, String... headers) throws IOException {
+		return request("GET", path, null, headers); //$NON-NLS-1$
+	}
+
+	/**
+	 * Sends a request with the {@code headers} given as name-value pairs
+	 */
+	public Response request(String method, String path, byte[] body, String... headers) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(getUrl(path)).openConnection();
+		connection.setUseCaches(true); // no ResponseCache is installed, "false" would add "Cache-Control: no-cache"
+		connection.setInstanceFollowRedirects(false);
+		connection.setRequestMethod(method);
+		for (int i = 0; i + 1 < headers.length; i += 2) {
+			connection.setRequestProperty(headers[i], headers[i + 1]);
+		}
+		if (body != null) {
+			connection.setDoOutput(true);
+			OutputStream outputStream = connection.getOutputStream();
+			try {
+				outputStream.write(body);
+			} finally {
+				outputStream.close();
+			}
+		}
+
+		try {
+			int status = connection.getResponseCode();
+			InputStream inputStream = status >= HttpURLConnection.HTTP_BAD_REQUEST ? connection.getErrorStream() : connection.getInputStream();
+			return new Response(status, connection, readFully(inputStream));
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	private static byte[] readFully(InputStream inputStream) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		if (inputStream != null) {
+			try {
+				byte[] buffer = new byte[4096];
+				int read;
+				while ((read = inputStream.read(buffer)) != -1) {
+					outputStream.write(buffer, 0, read);
+				}
+			} finally {
+				inputStream.close();
+			}
+		}
+		return outputStream.toByteArray();
+	}
+
+	public static class Response {
+		private final int status;
+		private final HttpURLConnection connection;
+		private final byte[] body;
+
+		private Response(int status, HttpURLConnection connection, byte[] body) {
+			this.status = status;
+			this.connection = connection;
+			this.body = body;
+		}
+
+		public int getStatus() {
+			return status;
+		}
+
+		public String getHeader(String name) {
+			return connection.getHeaderField(name);
+		}
+
+		public int getBodyLength() {
+			return body.length;
+		}
+
+		public String getBody() {
+			try {
+				return new String(body, "UTF-8"); //$NON-NLS-1$
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+}
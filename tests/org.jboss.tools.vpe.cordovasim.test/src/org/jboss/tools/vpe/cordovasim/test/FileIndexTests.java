@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2014 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import junit.framework.TestCase;
+
+import org.jboss.tools.vpe.cordovasim.cache.FileIndex;
+import org.jboss.tools.vpe.cordovasim.cache.FileIndex.FileInfo;
+
+public class FileIndexTests extends TestCase {
+	private File rootDir;
+	private FileIndex fileIndex;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		rootDir = RevalidatingResourceHandlerTests.createTempDir();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (fileIndex != null) {
+			fileIndex.stop();
+		}
+		RevalidatingResourceHandlerTests.delete(rootDir);
+		super.tearDown();
+	}
+
+	public void testEditedFileIsCheckedAgainstDisk() throws Exception {
+		File file = new File(rootDir, "app.js"); //$NON-NLS-1$
+		RevalidatingResourceHandlerTests.write(file, "var a;"); //$NON-NLS-1$
+		assertTrue(file.setLastModified(file.lastModified() - 60000));
+		startIndex();
+
+		// no waiting for the watch service event
+		RevalidatingResourceHandlerTests.write(file, "var app = {};"); //$NON-NLS-1$
+		FileInfo fileInfo = fileIndex.getCurrentFileInfo(file);
+		assertEquals(file.length(), fileInfo.getLength());
+		assertEquals(file.lastModified(), fileInfo.getLastModified());
+	}
+
+	public void testDeletedFileIsRemoved() throws Exception {
+		File file = new File(rootDir, "app.js"); //$NON-NLS-1$
+		RevalidatingResourceHandlerTests.write(file, "var a;"); //$NON-NLS-1$
+		startIndex();
+		assertTrue(fileIndex.isFile(file));
+
+		assertTrue(file.delete());
+		assertNull(fileIndex.getCurrentFileInfo(file));
+		long deadline = System.currentTimeMillis() + 15000; // polling watch services report changes with a delay
+		while (fileIndex.exists(file) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+		}
+		assertFalse(fileIndex.exists(file));
+	}
+
+	public void testSymbolicLinkLoopIsNotFollowed() throws Exception {
+		File dir = new File(rootDir, "dir"); //$NON-NLS-1$
+		assertTrue(dir.mkdir());
+		File file = new File(dir, "app.js"); //$NON-NLS-1$
+		RevalidatingResourceHandlerTests.write(file, "var a;"); //$NON-NLS-1$
+		File loop = new File(dir, "loop"); //$NON-NLS-1$
+		try {
+			Files.createSymbolicLink(loop.toPath(), rootDir.toPath());
+		} catch (UnsupportedOperationException e) {
+			return; // e.g. Windows without the privilege
+		}
+		startIndex();
+
+		assertTrue(fileIndex.isFile(file));
+		assertTrue(fileIndex.isFile(new File(loop, "dir/app.js"))); //$NON-NLS-1$
+		assertTrue(fileIndex.isDirectory(new File(loop, "dir/loop/dir"))); //$NON-NLS-1$
+	}
+
+	private void startIndex() throws Exception {
+		fileIndex = new FileIndex(rootDir);
+		fileIndex.start();
+	}
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2014 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.test;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jetty.servlet.ServletHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.jboss.tools.vpe.cordovasim.servlets.camera.HostFileServlet;
+import org.jboss.tools.vpe.cordovasim.servlets.camera.ImageScaler;
+import org.jboss.tools.vpe.cordovasim.servlets.camera.TempFile;
+import org.jboss.tools.vpe.cordovasim.servlets.camera.TempFileStorage;
+import org.jboss.tools.vpe.cordovasim.test.EmbeddedServer.Response;
+
+public class HostFileServletTests extends TestCase {
+	private TempFileStorage tempFileStorage;
+	private ImageScaler imageScaler;
+	private EmbeddedServer server;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		tempFileStorage = new TempFileStorage();
+		tempFileStorage.start();
+		imageScaler = new ImageScaler(tempFileStorage);
+		imageScaler.start();
+		ServletHolder servletHolder = new ServletHolder(new HostFileServlet(tempFileStorage, imageScaler));
+		servletHolder.setAsyncSupported(true);
+		ServletHandler servletHandler = new ServletHandler();
+		servletHandler.addServletWithMapping(servletHolder, "/temp-photo/*"); //$NON-NLS-1$
+		server = new EmbeddedServer(servletHandler).start();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		server.stop();
+		imageScaler.stop();
+		tempFileStorage.stop();
+		super.tearDown();
+	}
+
+	public void testSmallFileIsSent() throws Exception {
+		String content = createContent(1000);
+		store("small.txt", content); //$NON-NLS-1$
+
+		Response response = server.get("/temp-photo/small.txt"); //$NON-NLS-1$
+		assertEquals(200, response.getStatus());
+		assertEquals(content, response.getBody());
+	}
+
+	public void testLargeFileIsSent() throws Exception {
+		String content = createContent(300 * 1024); // large enough to be memory-mapped
+		store("large.txt", content); //$NON-NLS-1$
+
+		Response response = server.get("/temp-photo/large.txt"); //$NON-NLS-1$
+		assertEquals(200, response.getStatus());
+		assertEquals(Integer.toString(content.length()), response.getHeader("Content-Length")); //$NON-NLS-1$
+		assertEquals(content, response.getBody());
+	}
+
+	public void testRangeOfLargeFileIsSent() throws Exception {
+		String content = createContent(300 * 1024);
+		store("large.txt", content); //$NON-NLS-1$
+
+		Response response = server.get("/temp-photo/large.txt", "Range", "bytes=1000-200999"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertEquals(206, response.getStatus());
+		assertEquals("bytes 1000-200999/" + content.length(), response.getHeader("Content-Range")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(content.substring(1000, 201000), response.getBody());
+	}
+
+	public void testHeadHasNoBody() throws Exception {
+		String content = createContent(300 * 1024);
+		store("large.txt", content); //$NON-NLS-1$
+
+		Response response = server.request("HEAD", "/temp-photo/large.txt", null); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(200, response.getStatus());
+		assertEquals(Integer.toString(content.length()), response.getHeader("Content-Length")); //$NON-NLS-1$
+		assertEquals("", response.getBody()); //$NON-NLS-1$
+	}
+
+	private void store(String name, String content) throws Exception {
+		File file = tempFileStorage.createFile("test", ".txt"); //$NON-NLS-1$ //$NON-NLS-2$
+		RevalidatingResourceHandlerTests.write(file, content);
+		TempFile tempFile = new TempFile();
+		tempFile.setFile(file);
+		tempFile.setMimeType("text/plain"); //$NON-NLS-1$
+		tempFileStorage.put(name, tempFile);
+	}
+
+	private static String createContent(int length) {
+		StringBuilder content = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			content.append((char) ('a' + (i * 7 + i / 26) % 26));
+		}
+		return content.toString();
+	}
+}
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2014 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.test;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.ImageLoader;
+import org.eclipse.swt.graphics.PaletteData;
+import org.jboss.tools.vpe.cordovasim.servlets.camera.ImageScaler;
+import org.jboss.tools.vpe.cordovasim.servlets.camera.ImageVariant;
+import org.jboss.tools.vpe.cordovasim.servlets.camera.TempFile;
+import org.jboss.tools.vpe.cordovasim.servlets.camera.TempFileStorage;
+
+public class ImageScalerTests extends TestCase {
+	private TempFileStorage tempFileStorage;
+	private ImageScaler imageScaler;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		tempFileStorage = new TempFileStorage();
+		tempFileStorage.start();
+		imageScaler = new ImageScaler(tempFileStorage);
+		imageScaler.start();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		imageScaler.stop();
+		tempFileStorage.stop();
+		super.tearDown();
+	}
+
+	public void testPngTransparencyIsKept() throws Exception {
+		// left half is opaque red, right half is fully transparent
+		ImageData imageData = new ImageData(8, 8, 24, new PaletteData(0xFF0000, 0xFF00, 0xFF));
+		imageData.alphaData = new byte[8 * 8];
+		for (int y = 0; y < 8; y++) {
+			for (int x = 0; x < 8; x++) {
+				imageData.setPixel(x, y, x < 4 ? 0xFF0000 : 0x000000);
+				imageData.alphaData[y * 8 + x] = (byte) (x < 4 ? 0xFF : 0);
+			}
+		}
+		TempFile source = createImage(imageData, SWT.IMAGE_PNG);
+
+		ImageVariant variant = new ImageVariant(2, 2, 100, true);
+		scale("source.png", source, variant, null); //$NON-NLS-1$
+
+		TempFile scaled = tempFileStorage.get(variant.getName("source.png")); //$NON-NLS-1$
+		ImageData scaledData = new ImageLoader().load(scaled.getFile().getAbsolutePath())[0];
+		assertEquals(2, scaledData.width);
+		assertEquals(255, scaledData.getAlpha(0, 0));
+		assertEquals(0, scaledData.getAlpha(1, 0));
+		assertEquals(255, scaledData.palette.getRGB(scaledData.getPixel(0, 0)).red);
+	}
+
+	public void testFailingCallbackDoesNotStopOthers() throws Exception {
+		ImageData imageData = new ImageData(4, 4, 24, new PaletteData(0xFF0000, 0xFF00, 0xFF));
+		TempFile source = createImage(imageData, SWT.IMAGE_PNG);
+
+		ImageVariant variant = new ImageVariant(2, 2, 100, true);
+		scale("source.png", source, variant, new Runnable() { //$NON-NLS-1$
+			@Override
+			public void run() {
+				throw new IllegalStateException("Request has timed out"); //$NON-NLS-1$
+			}
+		}); // the waiting callback is called after the failing one
+		assertNotNull(tempFileStorage.get(variant.getName("source.png"))); //$NON-NLS-1$
+	}
+
+	/**
+	 * Scales the image with the {@code firstCallback} and waits for the result
+	 */
+	private void scale(String sourceName, TempFile source, ImageVariant variant, Runnable firstCallback) throws InterruptedException {
+		final CountDownLatch done = new CountDownLatch(1);
+		if (firstCallback != null) {
+			imageScaler.scale(sourceName, source, variant, firstCallback);
+		}
+		imageScaler.scale(sourceName, source, variant, new Runnable() {
+			@Override
+			public void run() {
+				done.countDown();
+			}
+		});
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+	}
+
+	private TempFile createImage(ImageData imageData, int format) throws Exception {
+		File file = tempFileStorage.createFile("source", ".png"); //$NON-NLS-1$ //$NON-NLS-2$
+		ImageLoader imageLoader = new ImageLoader();
+		imageLoader.data = new ImageData[] {imageData};
+		imageLoader.save(file.getAbsolutePath(), format);
+		TempFile tempFile = new TempFile();
+		tempFile.setFile(file);
+		tempFile.setMimeType("image/png"); //$NON-NLS-1$
+		return tempFile;
+	}
+}
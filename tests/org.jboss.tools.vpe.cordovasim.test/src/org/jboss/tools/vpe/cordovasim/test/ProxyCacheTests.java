@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2014 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.test;
+
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.net.URLEncoder;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.servlet.ServletHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.jboss.tools.vpe.cordovasim.CrossOriginProxyServlet;
+import org.jboss.tools.vpe.cordovasim.proxy.CachedResponse;
+import org.jboss.tools.vpe.cordovasim.proxy.ProxyCache;
+import org.jboss.tools.vpe.cordovasim.test.EmbeddedServer.Response;
+
+@SuppressWarnings("nls")
+public class ProxyCacheTests extends TestCase {
+	private static final String PROXY_PATH = "/ripple/xhr_proxy";
+
+	private BackendHandler backendHandler;
+	private EmbeddedServer backend;
+	private ProxyCache proxyCache;
+	private EmbeddedServer proxy;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		backendHandler = new BackendHandler();
+		backend = new EmbeddedServer(backendHandler).start();
+		proxyCache = new ProxyCache();
+		proxyCache.start();
+		ServletHolder servletHolder = new ServletHolder(new CrossOriginProxyServlet("tinyhippos_rurl", proxyCache, null, null));
+		servletHolder.setAsyncSupported(true);
+		ServletHandler servletHandler = new ServletHandler();
+		servletHandler.addServletWithMapping(servletHolder, PROXY_PATH);
+		proxy = new EmbeddedServer(servletHandler).start();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		proxy.stop();
+		proxyCache.stop();
+		backend.stop();
+		super.tearDown();
+	}
+
+	public void testFreshResponseIsServedFromCache() throws Exception {
+		backendHandler.setContent("/data", "content").setHeader("Cache-Control", "max-age=60");
+
+		assertEquals("content", get("/data").getBody());
+		Response response = get("/data");
+		assertEquals(200, response.getStatus());
+		assertEquals("content", response.getBody());
+		assertNotNull(response.getHeader("Age"));
+		assertEquals(1, backendHandler.getRequestCount());
+		assertEquals(1, proxyCache.getHitCount());
+	}
+
+	public void testNoCacheResponseIsRevalidated() throws Exception {
+		backendHandler.setContent("/data", "content").setHeader("Cache-Control", "no-cache").setEtag("\"v1\"");
+
+		assertEquals("content", get("/data").getBody());
+		Response response = get("/data");
+		assertEquals(200, response.getStatus());
+		assertEquals("content", response.getBody());
+		assertEquals(2, backendHandler.getRequestCount());
+		assertEquals(1, backendHandler.getNotModifiedCount());
+		assertEquals(1, proxyCache.getRevalidationCount());
+	}
+
+	public void testChangedResponseReplacesStoredOne() throws Exception {
+		BackendHandler.Content content = backendHandler.setContent("/data", "v1")
+				.setHeader("Cache-Control", "no-cache").setEtag("\"v1\"");
+		assertEquals("v1", get("/data").getBody());
+
+		content.setBody("v2").setEtag("\"v2\"");
+		assertEquals("v2", get("/data").getBody());
+		assertEquals("v2", get("/data").getBody());
+		assertEquals(1, backendHandler.getNotModifiedCount());
+	}
+
+	public void testVaryingResponsesAreNotMixed() throws Exception {
+		backendHandler.setContent("/data", "content").setHeader("Cache-Control", "max-age=60").setVary("Accept-Language");
+
+		assertEquals("content:en", get("/data", "Accept-Language", "en").getBody());
+		assertEquals("content:en", get("/data", "Accept-Language", "en").getBody());
+		assertEquals(1, backendHandler.getRequestCount());
+
+		assertEquals("content:de", get("/data", "Accept-Language", "de").getBody());
+		assertEquals(2, backendHandler.getRequestCount());
+	}
+
+	public void testClientConditionalRequestIsAnsweredFromCache() throws Exception {
+		backendHandler.setContent("/data", "content").setHeader("Cache-Control", "max-age=60").setEtag("\"v1\"");
+		assertEquals("content", get("/data").getBody());
+
+		Response response = get("/data", "If-None-Match", "\"v1\"");
+		assertEquals(304, response.getStatus());
+		assertEquals("", response.getBody());
+		assertEquals(1, backendHandler.getRequestCount());
+
+		assertEquals(200, get("/data", "If-None-Match", "\"v0\"").getStatus());
+		assertEquals(1, backendHandler.getRequestCount());
+	}
+
+	public void testClientConditionalRequestIsForwardedOnRevalidation() throws Exception {
+		backendHandler.setContent("/data", "content").setHeader("Cache-Control", "no-cache").setEtag("\"v1\"");
+		assertEquals("content", get("/data").getBody());
+
+		Response response = get("/data", "If-None-Match", "\"v1\"");
+		assertEquals(304, response.getStatus());
+		assertEquals(2, backendHandler.getRequestCount());
+	}
+
+	public void testPostInvalidatesStoredResponse() throws Exception {
+		backendHandler.setContent("/data", "content").setHeader("Cache-Control", "max-age=60");
+		assertEquals("content", get("/data").getBody());
+		assertEquals(1, proxyCache.getEntryCount());
+
+		Response response = proxy.request("POST", getProxyPath("/data"), "x=1".getBytes("UTF-8"),
+				"Content-Type", "application/x-www-form-urlencoded");
+		assertEquals("POST:content", response.getBody());
+		assertEquals(0, proxyCache.getEntryCount());
+
+		assertEquals("content", get("/data").getBody());
+		assertEquals(3, backendHandler.getRequestCount());
+	}
+
+	public void testReloadRevalidatesFreshResponse() throws Exception {
+		backendHandler.setContent("/data", "content").setHeader("Cache-Control", "max-age=60").setEtag("\"v1\"");
+		assertEquals("content", get("/data").getBody());
+
+		assertEquals("content", get("/data", "Cache-Control", "no-cache").getBody());
+		assertEquals(2, backendHandler.getRequestCount());
+		assertEquals(1, backendHandler.getNotModifiedCount());
+	}
+
+	public void testSpilledBodyOutlivesReplacedEntry() throws Exception {
+		ProxyCache spillingCache = new ProxyCache(800, 1024 * 1024, 1024 * 1024); // bodies over 100 bytes are spilled
+		spillingCache.start();
+		try {
+			CachedResponse first = createResponse(spillingCache, 'a');
+			assertSame(first, spillingCache.get("key", null));
+			InputStream body = spillingCache.openBody(first);
+
+			CachedResponse second = createResponse(spillingCache, 'b');
+			assertEquals(2, spillingCache.getSpillCount());
+			assertEquals('a', body.read()); // the replaced body file is deleted when it is closed
+			body.close();
+			try {
+				spillingCache.openBody(first).close();
+				fail("The body of the replaced response is still readable");
+			} catch (FileNotFoundException e) {
+				// the caller asks the backend then
+			}
+
+			body = spillingCache.openBody(second);
+			assertEquals('b', body.read());
+			body.close();
+		} finally {
+			spillingCache.stop();
+		}
+	}
+
+	private static CachedResponse createResponse(ProxyCache cache, char content) throws Exception {
+		byte[] body = new byte[200];
+		Arrays.fill(body, (byte) content);
+		HttpFields headers = new HttpFields();
+		headers.put("Cache-Control", "max-age=60");
+		long now = System.currentTimeMillis();
+		CachedResponse response = CachedResponse.create("key", null, 200, headers, body, now, now);
+		cache.put(response);
+		return response;
+	}
+
+	private Response get(String backendPath, String... headers) throws Exception {
+		return proxy.get(getProxyPath(backendPath), headers);
+	}
+
+	private String getProxyPath(String backendPath) throws Exception {
+		return PROXY_PATH + "?tinyhippos_rurl=" + URLEncoder.encode(backend.getUrl(backendPath), "UTF-8");
+	}
+}
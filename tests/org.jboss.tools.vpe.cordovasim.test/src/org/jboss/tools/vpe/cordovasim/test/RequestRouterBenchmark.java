@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2014 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.test;
+
+import java.io.File;
+
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.ContextHandler;
+import org.eclipse.jetty.server.handler.DefaultHandler;
+import org.eclipse.jetty.server.handler.HandlerList;
+import org.eclipse.jetty.server.handler.ResourceHandler;
+import org.eclipse.jetty.servlet.ServletHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.jboss.tools.vpe.cordovasim.NotCachingResourceHandler;
+import org.jboss.tools.vpe.cordovasim.RequestRouter;
+import org.jboss.tools.vpe.cordovasim.StaticResponseServlet;
+import org.jboss.tools.vpe.cordovasim.cache.FileIndex;
+
+/**
+ * Compares the dispatch cost of {@link RequestRouter} with the {@link HandlerList} it has replaced in
+ * {@link org.jboss.tools.vpe.cordovasim.ServerCreator}. Both servers have the same handlers, which return
+ * tiny responses, and are called in process through a {@link LocalConnector}, so that the time is spent
+ * in parsing the request and in finding its handler rather than on the network.
+ */
+@SuppressWarnings("nls")
+public class RequestRouterBenchmark {
+	private static final String[] PATHS = {
+		"/cordova.js",
+		"/cordova_plugins.js",
+		"/plugins/org.apache.cordova.device/www/device.js",
+		"/ripple/xhr_proxy",
+		"/ripple/formatData",
+		"/index.html",
+	};
+
+	public static void main(String[] args) throws Exception {
+		File projectDir = RevalidatingResourceHandlerTests.createTempDir();
+		File cordovaDir = RevalidatingResourceHandlerTests.createTempDir();
+		FileIndex fileIndex = new FileIndex(projectDir);
+		try {
+			RevalidatingResourceHandlerTests.write(new File(projectDir, "index.html"), "<html></html>");
+			fileIndex.start();
+			Benchmark benchmark = new Benchmark(5, 10, 2000);
+
+			Handlers listHandlers = new Handlers(projectDir, cordovaDir);
+			HandlerList handlerList = new HandlerList();
+			handlerList.setHandlers(new Handler[] {
+					listHandlers.userAgent,
+					listHandlers.www,
+					listHandlers.cordovaJs,
+					listHandlers.cordovaPluginsJs,
+					listHandlers.cordova,
+					listHandlers.plugins,
+					listHandlers.proxy,
+					listHandlers.formatData,
+					listHandlers.notFound,
+				});
+			benchmark(benchmark, "HandlerList", handlerList);
+
+			Handlers routerHandlers = new Handlers(projectDir, cordovaDir);
+			RequestRouter router = new RequestRouter(projectDir, fileIndex);
+			router.addRoute("/ripple/user-agent", routerHandlers.userAgent, false);
+			router.setProjectHandler(routerHandlers.www);
+			router.addRoute("/cordova.js", routerHandlers.cordovaJs, true);
+			router.addRoute("/cordova_plugins.js", routerHandlers.cordovaPluginsJs, true);
+			router.addRoute("/ripple/cordova/*", routerHandlers.cordova, true);
+			router.addRoute("/plugins/*", routerHandlers.plugins, true);
+			router.addRoute("/ripple/xhr_proxy", routerHandlers.proxy, true);
+			router.addRoute("/ripple/formatData", routerHandlers.formatData, true);
+			router.setNotFoundHandler(routerHandlers.notFound);
+			benchmark(benchmark, "RequestRouter", router);
+		} finally {
+			fileIndex.stop();
+			RevalidatingResourceHandlerTests.delete(projectDir);
+			RevalidatingResourceHandlerTests.delete(cordovaDir);
+		}
+	}
+
+	private static void benchmark(Benchmark benchmark, String name, Handler handler) throws Exception {
+		Server server = new Server();
+		final LocalConnector connector = new LocalConnector();
+		server.addConnector(connector);
+		server.setHandler(handler);
+		server.start();
+		try {
+			for (final String path : PATHS) {
+				final String request = "GET " + path + " HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n";
+				String response = connector.getResponses(request);
+				if (!response.startsWith("HTTP/1.1 200")) {
+					throw new IllegalStateException(path + ": " + response);
+				}
+				benchmark.run(name + " " + path, new Benchmark.Case() {
+					@Override
+					public long run() throws Exception {
+						return connector.getResponses(request).length();
+					}
+				});
+			}
+		} finally {
+			server.stop();
+			server.join();
+		}
+	}
+
+	/**
+	 * Handlers of the routes of {@link org.jboss.tools.vpe.cordovasim.ServerCreator}, servlets are replaced
+	 * by static responses
+	 */
+	private static class Handlers {
+		private final Handler userAgent = createServletHandler("/ripple/user-agent");
+		private final Handler cordovaJs = createServletHandler("/cordova.js");
+		private final Handler cordovaPluginsJs = createServletHandler("/cordova_plugins.js");
+		private final Handler plugins = createServletHandler("/plugins/*");
+		private final Handler proxy = createServletHandler("/ripple/xhr_proxy");
+		private final Handler formatData = createServletHandler("/ripple/formatData");
+		private final Handler notFound = new DefaultHandler();
+		private final Handler www;
+		private final Handler cordova;
+
+		public Handlers(File projectDir, File cordovaDir) {
+			www = createResourceHandler("/", projectDir);
+			cordova = createResourceHandler("/ripple/cordova", cordovaDir);
+		}
+
+		private static Handler createServletHandler(String pathSpec) {
+			ServletHandler servletHandler = new ServletHandler();
+			servletHandler.addServletWithMapping(new ServletHolder(new StaticResponseServlet("OK")), pathSpec);
+			return servletHandler;
+		}
+
+		private static Handler createResourceHandler(String contextPath, File directory) {
+			ResourceHandler resourceHandler = new NotCachingResourceHandler();
+			resourceHandler.setResourceBase(directory.getAbsolutePath());
+			ContextHandler contextHandler = new ContextHandler(contextPath);
+			contextHandler.setHandler(resourceHandler);
+			return contextHandler;
+		}
+	}
+}
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2014 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.test;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.jboss.tools.vpe.cordovasim.RequestRouter;
+import org.jboss.tools.vpe.cordovasim.cache.FileIndex;
+
+public class RequestRouterTests extends TestCase {
+	private File projectDir;
+	private FileIndex fileIndex;
+	private RequestRouter router;
+	private EmbeddedServer server;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		projectDir = RevalidatingResourceHandlerTests.createTempDir();
+		RevalidatingResourceHandlerTests.write(new File(projectDir, "cordova.js"), "// project"); //$NON-NLS-1$ //$NON-NLS-2$
+		fileIndex = new FileIndex(projectDir);
+		fileIndex.start();
+
+		router = new RequestRouter(projectDir, fileIndex);
+		router.addRoute("/cordova.js", new NamedHandler("cordova", true), true); //$NON-NLS-1$ //$NON-NLS-2$
+		router.addRoute("/ripple.js", new NamedHandler("ripple", true), false); //$NON-NLS-1$ //$NON-NLS-2$
+		router.addRoute("/plugins/*", new NamedHandler("plugins", true), false); //$NON-NLS-1$ //$NON-NLS-2$
+		router.addRoute("/plugins/org.apache.cordova.camera/*", new NamedHandler("camera", true), false); //$NON-NLS-1$ //$NON-NLS-2$
+		router.addRoute("/skipped/*", new NamedHandler("skipped", false), false); //$NON-NLS-1$ //$NON-NLS-2$
+		router.addParameterRoute("tinyhippos_rurl", new NamedHandler("proxy", true)); //$NON-NLS-1$ //$NON-NLS-2$
+		router.setProjectHandler(new NamedHandler("project", false)); //$NON-NLS-1$
+		router.setNotFoundHandler(new NamedHandler("notFound", true)); //$NON-NLS-1$
+		server = new EmbeddedServer(router).start();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		server.stop();
+		fileIndex.stop();
+		RevalidatingResourceHandlerTests.delete(projectDir);
+		super.tearDown();
+	}
+
+	public void testExactRoute() throws Exception {
+		assertEquals("ripple", server.get("/ripple.js").getBody()); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("project:notFound", server.get("/ripple.js/more").getBody()); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testLongestPrefixWins() throws Exception {
+		assertEquals("plugins", server.get("/plugins/org.apache.cordova.device/www/device.js").getBody()); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("camera", server.get("/plugins/org.apache.cordova.camera/www/Camera.js").getBody()); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("plugins", server.get("/plugins/org.apache.cordova").getBody()); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testParameterRouteWinsOverPath() throws Exception {
+		assertEquals("proxy", server.get("/ripple.js?tinyhippos_rurl=http%3A%2F%2Fexample.com").getBody()); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testProjectFileWinsIfRequested() throws Exception {
+		assertEquals("project:notFound", server.get("/cordova.js").getBody()); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(new File(projectDir, "cordova.js").delete()); //$NON-NLS-1$
+		assertEquals("cordova", server.get("/cordova.js").getBody()); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testUnhandledRequestFallsThrough() throws Exception {
+		assertEquals("skipped:project:notFound", server.get("/skipped/file.txt").getBody()); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("project:notFound", server.get("/unknown.html").getBody()); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testRouteStatistics() throws Exception {
+		server.get("/ripple.js"); //$NON-NLS-1$
+		server.get("/ripple.js"); //$NON-NLS-1$
+		assertEquals(2, router.getStatistics().getHitCount("/ripple.js")); //$NON-NLS-1$
+		assertEquals(0, router.getStatistics().getHitCount("/plugins/*")); //$NON-NLS-1$
+		assertEquals(-1, router.getStatistics().getHitCount("/unknown/*")); //$NON-NLS-1$
+	}
+
+	/**
+	 * Appends its name to the response body, so the chain of the handlers is visible
+	 */
+	private static class NamedHandler extends AbstractHandler {
+		private final String name;
+		private final boolean handles;
+
+		public NamedHandler(String name, boolean handles) {
+			this.name = name;
+			this.handles = handles;
+		}
+
+		@Override
+		public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+			String chain = (String) request.getAttribute(NamedHandler.class.getName());
+			chain = chain == null ? name : chain + ':' + name;
+			request.setAttribute(NamedHandler.class.getName(), chain);
+			if (handles) {
+				baseRequest.setHandled(true);
+				response.getWriter().print(chain);
+			}
+		}
+	}
+}
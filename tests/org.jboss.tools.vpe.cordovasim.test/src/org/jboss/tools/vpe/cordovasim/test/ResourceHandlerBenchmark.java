@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2014 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.test;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.jetty.server.handler.ResourceHandler;
+import org.jboss.tools.vpe.cordovasim.NotCachingResourceHandler;
+import org.jboss.tools.vpe.cordovasim.RevalidatingResourceHandler;
+import org.jboss.tools.vpe.cordovasim.cache.FileIndex;
+import org.jboss.tools.vpe.cordovasim.servlet.util.ServletUtil;
+import org.jboss.tools.vpe.cordovasim.test.EmbeddedServer.Response;
+
+/**
+ * Compares page reloads served by {@link RevalidatingResourceHandler} with the {@link NotCachingResourceHandler}
+ * it has replaced for the files of the project. A reload requests all the files of a synthetic project,
+ * sending the ETags received before as a browser does.
+ */
+@SuppressWarnings("nls")
+public class ResourceHandlerBenchmark {
+	private static final int FILE_COUNT = 60;
+	private static final int FILE_SIZE = 16 * 1024;
+
+	public static void main(String[] args) throws Exception {
+		File wwwDir = RevalidatingResourceHandlerTests.createTempDir();
+		FileIndex fileIndex = new FileIndex(wwwDir);
+		try {
+			String[] paths = createProject(wwwDir);
+			fileIndex.start();
+			Benchmark benchmark = new Benchmark(5, 10, 5);
+
+			NotCachingResourceHandler notCachingHandler = new NotCachingResourceHandler();
+			benchmark(benchmark, "NotCachingResourceHandler", notCachingHandler, wwwDir, paths);
+			RevalidatingResourceHandler revalidatingHandler = new RevalidatingResourceHandler(fileIndex);
+			benchmark(benchmark, "RevalidatingResourceHandler", revalidatingHandler, wwwDir, paths);
+		} finally {
+			fileIndex.stop();
+			RevalidatingResourceHandlerTests.delete(wwwDir);
+		}
+	}
+
+	private static void benchmark(Benchmark benchmark, String name, ResourceHandler handler, File wwwDir,
+			final String[] paths) throws Exception {
+		handler.setResourceBase(wwwDir.getAbsolutePath());
+		final EmbeddedServer server = new EmbeddedServer(handler).start();
+		try {
+			final Map<String, String> eTags = new HashMap<String, String>();
+			reload(server, paths, eTags); // the first load, the browser has nothing to revalidate
+			System.out.println(String.format("%-56s %12d bytes/reload", name, reload(server, paths, eTags)));
+			benchmark.run(name + " reload", new Benchmark.Case() {
+				@Override
+				public long run() throws Exception {
+					return reload(server, paths, eTags);
+				}
+			});
+		} finally {
+			server.stop();
+		}
+	}
+
+	/**
+	 * Requests all the {@code paths} with the known ETags
+	 *
+	 * @return number of the content bytes received
+	 */
+	private static long reload(EmbeddedServer server, String[] paths, Map<String, String> eTags) throws Exception {
+		long bytes = 0;
+		for (String path : paths) {
+			String eTag = eTags.get(path);
+			Response response = eTag != null ? server.get(path, ServletUtil.IF_NONE_MATCH, eTag) : server.get(path);
+			if (response.getStatus() != 200 && response.getStatus() != 304) {
+				throw new IllegalStateException(path + ": " + response.getStatus());
+			}
+			if (response.getHeader(ServletUtil.ETAG) != null) {
+				eTags.put(path, response.getHeader(ServletUtil.ETAG));
+			}
+			bytes += response.getBodyLength();
+		}
+		return bytes;
+	}
+
+	private static String[] createProject(File wwwDir) throws Exception {
+		StringBuilder content = new StringBuilder(FILE_SIZE);
+		while (content.length() < FILE_SIZE) {
+			content.append("var value").append(content.length()).append(" = {};\n");
+		}
+
+		String[] paths = new String[FILE_COUNT];
+		File jsDir = new File(wwwDir, "js");
+		jsDir.mkdir();
+		for (int i = 0; i < FILE_COUNT; i++) {
+			paths[i] = "/js/module" + i + ".js";
+			RevalidatingResourceHandlerTests.write(new File(wwwDir, paths[i]), content.toString());
+		}
+		return paths;
+	}
+}
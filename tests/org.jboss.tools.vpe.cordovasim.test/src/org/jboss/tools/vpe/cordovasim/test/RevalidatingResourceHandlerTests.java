@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2014 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import junit.framework.TestCase;
+
+import org.jboss.tools.vpe.cordovasim.RevalidatingResourceHandler;
+import org.jboss.tools.vpe.cordovasim.cache.ContentHashIndex;
+import org.jboss.tools.vpe.cordovasim.cache.FileIndex;
+import org.jboss.tools.vpe.cordovasim.servlet.util.ServletUtil;
+import org.jboss.tools.vpe.cordovasim.test.EmbeddedServer.Response;
+
+public class RevalidatingResourceHandlerTests extends TestCase {
+	private File wwwDir;
+	private FileIndex fileIndex;
+	private EmbeddedServer server;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		wwwDir = createTempDir();
+		fileIndex = new FileIndex(wwwDir);
+		fileIndex.start();
+		RevalidatingResourceHandler handler = new RevalidatingResourceHandler(fileIndex);
+		handler.setResourceBase(wwwDir.getAbsolutePath());
+		server = new EmbeddedServer(handler).start();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		server.stop();
+		fileIndex.stop();
+		delete(wwwDir);
+		super.tearDown();
+	}
+
+	public void testFileIsServedWithEtag() throws Exception {
+		writeIndexed(new File(wwwDir, "app.js"), "var app = {};"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		Response response = server.get("/app.js"); //$NON-NLS-1$
+		assertEquals(200, response.getStatus());
+		assertEquals("var app = {};", response.getBody()); //$NON-NLS-1$
+		assertNotNull(response.getHeader(ServletUtil.ETAG));
+		assertEquals(ServletUtil.REVALIDATE, response.getHeader(ServletUtil.CACHE_CONTROL));
+	}
+
+	public void testUnchangedFileIsNotModified() throws Exception {
+		writeIndexed(new File(wwwDir, "app.js"), "var app = {};"); //$NON-NLS-1$ //$NON-NLS-2$
+		String eTag = server.get("/app.js").getHeader(ServletUtil.ETAG); //$NON-NLS-1$
+
+		Response response = server.get("/app.js", ServletUtil.IF_NONE_MATCH, eTag); //$NON-NLS-1$
+		assertEquals(304, response.getStatus());
+		assertEquals("", response.getBody()); //$NON-NLS-1$
+		assertEquals(eTag, response.getHeader(ServletUtil.ETAG));
+		assertEquals(ServletUtil.REVALIDATE, response.getHeader(ServletUtil.CACHE_CONTROL));
+	}
+
+	public void testTouchedFileKeepsEtag() throws Exception {
+		File file = new File(wwwDir, "app.js"); //$NON-NLS-1$
+		writeIndexed(file, "var app = {};"); //$NON-NLS-1$
+		String eTag = server.get("/app.js").getHeader(ServletUtil.ETAG); //$NON-NLS-1$
+
+		assertTrue(file.setLastModified(file.lastModified() - 60000));
+		Response response = server.get("/app.js", ServletUtil.IF_NONE_MATCH, eTag); //$NON-NLS-1$
+		assertEquals(304, response.getStatus());
+	}
+
+	public void testEditWithinTimestampGranularityChangesEtag() throws Exception {
+		File file = new File(wwwDir, "app.js"); //$NON-NLS-1$
+		writeIndexed(file, "var app = 1;"); //$NON-NLS-1$
+		long lastModified = file.lastModified();
+		String eTag = server.get("/app.js").getHeader(ServletUtil.ETAG); //$NON-NLS-1$
+
+		// same size and modification time, as after a quick edit on a file system with coarse timestamps
+		writeIndexed(file, "var app = 2;"); //$NON-NLS-1$
+		assertTrue(file.setLastModified(lastModified));
+		Response response = server.get("/app.js", ServletUtil.IF_NONE_MATCH, eTag); //$NON-NLS-1$
+		assertEquals(200, response.getStatus());
+		assertEquals("var app = 2;", response.getBody()); //$NON-NLS-1$
+		assertFalse(eTag.equals(response.getHeader(ServletUtil.ETAG)));
+	}
+
+	public void testWelcomeFileIsNotModified() throws Exception {
+		writeIndexed(new File(wwwDir, "index.html"), "<html></html>"); //$NON-NLS-1$ //$NON-NLS-2$
+		Response response = server.get("/"); //$NON-NLS-1$
+		assertEquals(200, response.getStatus());
+		String eTag = response.getHeader(ServletUtil.ETAG);
+		assertNotNull(eTag);
+
+		assertEquals(304, server.get("/", ServletUtil.IF_NONE_MATCH, eTag).getStatus()); //$NON-NLS-1$
+	}
+
+	public void testHashesOfDeletedFilesAreRemoved() throws Exception {
+		File file = new File(wwwDir, "app.js"); //$NON-NLS-1$
+		File keptFile = new File(wwwDir, "index.html"); //$NON-NLS-1$
+		writeIndexed(file, "var app = {};"); //$NON-NLS-1$
+		writeIndexed(keptFile, "<html></html>"); //$NON-NLS-1$
+		ContentHashIndex contentHashIndex = new ContentHashIndex();
+		contentHashIndex.getEtag(file);
+		contentHashIndex.getEtag(keptFile);
+
+		assertTrue(file.delete());
+		waitUntilIndexed(file, false);
+		contentHashIndex.removeDeleted(wwwDir, fileIndex);
+		assertEquals(1, contentHashIndex.getEntryCount());
+	}
+
+	/**
+	 * Waits for the watch service, it reports changes with a delay
+	 */
+	private void waitUntilIndexed(File file, boolean exists) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 30000;
+		while (fileIndex.exists(file) != exists) {
+			assertTrue(System.currentTimeMillis() < deadline);
+			Thread.sleep(50);
+		}
+	}
+
+	private void writeIndexed(File file, String content) throws IOException, InterruptedException {
+		write(file, content);
+		waitUntilIndexed(file, true);
+	}
+
+	static File createTempDir() throws IOException {
+		File dir = File.createTempFile("cordovasim", ".test"); //$NON-NLS-1$ //$NON-NLS-2$
+		if (!dir.delete() || !dir.mkdir()) {
+			throw new IOException("Cannot create " + dir); //$NON-NLS-1$
+		}
+		return dir.getCanonicalFile();
+	}
+
+	static void write(File file, String content) throws IOException {
+		OutputStream outputStream = new FileOutputStream(file);
+		try {
+			outputStream.write(content.getBytes("UTF-8")); //$NON-NLS-1$
+		} finally {
+			outputStream.close();
+		}
+	}
+
+	static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}
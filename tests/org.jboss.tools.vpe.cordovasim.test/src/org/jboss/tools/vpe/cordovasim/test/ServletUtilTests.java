@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2014 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.test;
+
+import junit.framework.TestCase;
+
+import org.jboss.tools.vpe.cordovasim.servlet.util.ServletUtil;
+
+@SuppressWarnings("nls")
+public class ServletUtilTests extends TestCase {
+
+	public void testGzipIsAccepted() {
+		assertTrue(ServletUtil.isGzipAccepted("gzip"));
+		assertTrue(ServletUtil.isGzipAccepted("gzip, deflate, sdch"));
+		assertTrue(ServletUtil.isGzipAccepted("deflate;q=1.0, GZIP ; q=0.5"));
+		assertTrue(ServletUtil.isGzipAccepted("x-gzip"));
+		assertTrue(ServletUtil.isGzipAccepted("*"));
+	}
+
+	public void testGzipIsNotAccepted() {
+		assertFalse(ServletUtil.isGzipAccepted((String) null));
+		assertFalse(ServletUtil.isGzipAccepted(""));
+		assertFalse(ServletUtil.isGzipAccepted("identity"));
+		assertFalse(ServletUtil.isGzipAccepted("deflate, x-gzipfoo, gzipped"));
+	}
+
+	public void testZeroQualityRejectsGzip() {
+		assertFalse(ServletUtil.isGzipAccepted("gzip;q=0"));
+		assertFalse(ServletUtil.isGzipAccepted("deflate, gzip; q=0.000"));
+		assertFalse(ServletUtil.isGzipAccepted("gzip;q=0, *"));
+		assertFalse(ServletUtil.isGzipAccepted("*;q=0"));
+		assertFalse(ServletUtil.isGzipAccepted("gzip;q=high")); // an incorrect quality
+		assertTrue(ServletUtil.isGzipAccepted("*;q=0, gzip"));
+	}
+}
@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2007-2014 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.vpe.cordovasim.test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.net.URLEncoder;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jetty.servlet.ServletHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.jboss.tools.vpe.cordovasim.CrossOriginProxyServlet;
+import org.jboss.tools.vpe.cordovasim.proxy.RequestMatcher;
+import org.jboss.tools.vpe.cordovasim.proxy.TrafficArchive;
+import org.jboss.tools.vpe.cordovasim.test.EmbeddedServer.Response;
+
+public class TrafficArchiveTests extends TestCase {
+	private static final String PROXY_PATH = "/ripple/xhr_proxy"; //$NON-NLS-1$
+
+	private File archiveFile;
+	private BackendHandler backendHandler;
+	private EmbeddedServer backend;
+	private TrafficArchive trafficArchive;
+	private EmbeddedServer proxy;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		archiveFile = File.createTempFile("cordovasim", ".archive"); //$NON-NLS-1$ //$NON-NLS-2$
+		backendHandler = new BackendHandler();
+		backend = new EmbeddedServer(backendHandler).start();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		stopProxy();
+		backend.stop();
+		archiveFile.delete();
+		super.tearDown();
+	}
+
+	public void testConditionalRequestIsRecordedWithBody() throws Exception {
+		backendHandler.setContent("/data", "content").setEtag("\"v1\""); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		startProxy(TrafficArchive.Mode.RECORD);
+		Response response = proxy.get(getProxyPath("/data"), "If-None-Match", "\"v1\""); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertEquals(200, response.getStatus());
+		assertEquals("content", response.getBody()); //$NON-NLS-1$
+		assertEquals(0, backendHandler.getNotModifiedCount());
+		stopProxy();
+
+		startProxy(TrafficArchive.Mode.REPLAY);
+		response = proxy.get(getProxyPath("/data")); //$NON-NLS-1$
+		assertEquals(200, response.getStatus());
+		assertEquals("content", response.getBody()); //$NON-NLS-1$
+		assertEquals(1, backendHandler.getRequestCount());
+	}
+
+	public void testLargeResponseIsReplayed() throws Exception {
+		StringBuilder body = new StringBuilder();
+		while (body.length() < 300 * 1024) { // large enough to be memory-mapped
+			body.append(body.length()).append(' ');
+		}
+		backendHandler.setContent("/large", body.toString()); //$NON-NLS-1$
+		startProxy(TrafficArchive.Mode.RECORD);
+		assertEquals(body.toString(), proxy.get(getProxyPath("/large")).getBody()); //$NON-NLS-1$
+		stopProxy();
+
+		startProxy(TrafficArchive.Mode.REPLAY);
+		Response response = proxy.get(getProxyPath("/large")); //$NON-NLS-1$
+		assertEquals(200, response.getStatus());
+		assertEquals(body.toString(), response.getBody());
+		assertEquals(1, backendHandler.getRequestCount());
+	}
+
+	public void testMissingResponseIsBadGateway() throws Exception {
+		startProxy(TrafficArchive.Mode.RECORD);
+		stopProxy();
+
+		startProxy(TrafficArchive.Mode.REPLAY);
+		assertEquals(502, proxy.get(getProxyPath("/data")).getStatus()); //$NON-NLS-1$
+		assertEquals(0, backendHandler.getRequestCount());
+	}
+
+	public void testArchiveOverTwoGigabytesIsIndexed() throws Exception {
+		long hugeBodyLength = 3L * 1024 * 1024 * 1024; // sparse, the file system does not allocate it
+		RandomAccessFile file = new RandomAccessFile(archiveFile, "rw"); //$NON-NLS-1$
+		try {
+			file.writeInt(0x43535441); // see TrafficArchive.MAGIC and VERSION
+			file.writeInt(1);
+			writeEntryHeader(file, "huge", hugeBodyLength); //$NON-NLS-1$
+			file.seek(file.getFilePointer() + hugeBodyLength);
+			writeEntryHeader(file, "last", 4); //$NON-NLS-1$
+			file.write("last".getBytes("UTF-8")); //$NON-NLS-1$ //$NON-NLS-2$
+		} finally {
+			file.close();
+		}
+
+		trafficArchive = new TrafficArchive(archiveFile, TrafficArchive.Mode.REPLAY, new RequestMatcher(RequestMatcher.DEFAULT_RULES));
+		trafficArchive.start();
+		assertEquals(hugeBodyLength, trafficArchive.find("huge").getBodyLength()); //$NON-NLS-1$
+		assertEquals(4, trafficArchive.find("last").getBodyLength()); //$NON-NLS-1$
+	}
+
+	private static void writeEntryHeader(RandomAccessFile file, String key, long bodyLength) throws Exception {
+		byte[] keyBytes = key.getBytes("UTF-8"); //$NON-NLS-1$
+		file.writeInt(keyBytes.length);
+		file.write(keyBytes);
+		file.writeInt(200);
+		file.writeInt(0); // no headers
+		file.writeLong(bodyLength);
+	}
+
+	private void startProxy(TrafficArchive.Mode mode) throws Exception {
+		trafficArchive = new TrafficArchive(archiveFile, mode, new RequestMatcher(RequestMatcher.DEFAULT_RULES));
+		trafficArchive.start();
+		ServletHolder servletHolder = new ServletHolder(new CrossOriginProxyServlet("tinyhippos_rurl", null, trafficArchive, null)); //$NON-NLS-1$
+		servletHolder.setAsyncSupported(true);
+		ServletHandler servletHandler = new ServletHandler();
+		servletHandler.addServletWithMapping(servletHolder, PROXY_PATH);
+		proxy = new EmbeddedServer(servletHandler).start();
+	}
+
+	private void stopProxy() throws Exception {
+		if (proxy != null) {
+			proxy.stop();
+			proxy = null;
+		}
+		if (trafficArchive != null) {
+			trafficArchive.stop();
+			trafficArchive = null;
+		}
+	}
+
+	private String getProxyPath(String backendPath) throws Exception {
+		return PROXY_PATH + "?tinyhippos_rurl=" + URLEncoder.encode(backend.getUrl(backendPath), "UTF-8"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}